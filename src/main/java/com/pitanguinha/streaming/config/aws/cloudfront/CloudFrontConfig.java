@@ -1,11 +1,14 @@
 package com.pitanguinha.streaming.config.aws.cloudfront;
 
-import static org.springframework.util.Assert.hasText;
+import static org.springframework.util.Assert.*;
+import static com.pitanguinha.streaming.utils.DurationUtils.isPositive;
 
+import java.net.URI;
 import java.util.*;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 
+import org.springframework.util.StringUtils;
 import org.springframework.context.annotation.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -15,14 +18,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pitanguinha.streaming.config.aws.AwsConfig;
 import com.pitanguinha.streaming.enums.exceptions.SeverityLevel;
 import com.pitanguinha.streaming.exceptions.internal.InternalException;
+import com.pitanguinha.streaming.service.aws.TimeBucketedCache;
 
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.scheduler.*;
+
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudfront.*;
+import software.amazon.awssdk.services.cloudfront.url.SignedUrl;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
@@ -49,16 +58,19 @@ public class CloudFrontConfig {
     private final AwsConfig awsConfig;
 
     /**
-     * Creates a CloudFrontClient bean.
+     * Creates a CloudFrontAsyncClient bean.
      * 
      * <p>
-     * This method creates a CloudFrontClient using the provided region, access key,
-     * and secret key.
+     * This method creates a CloudFrontAsyncClient using the provided region,
+     * access key, and secret key.<br>
+     * The API endpoint is overridden if one is configured, so the client can
+     * run against a local stub of CloudFront.
      * </p>
      *
-     * @return A CloudFrontClient instance configured with the provided properties.
+     * @return A CloudFrontAsyncClient instance configured with the provided
+     *         properties.
      * 
-     * @see CloudFrontClient The client for AWS CloudFront service.
+     * @see CloudFrontAsyncClient The client for AWS CloudFront service.
      * @see #validateConfig() The method to validate the configuration properties.
      * @see AwsConfig#credentialsProvider() The method to get the AWS credentials
      *      provider.
@@ -66,12 +78,16 @@ public class CloudFrontConfig {
      * @since 1.0
      */
     @Bean
-    public CloudFrontClient cloudFrontClient() {
+    public CloudFrontAsyncClient cloudFrontAsyncClient() {
         validateConfig();
-        return CloudFrontClient.builder()
+        var client = CloudFrontAsyncClient.builder()
                 .region(Region.of("us-east-1"))
-                .credentialsProvider(awsConfig.credentialsProvider())
-                .build();
+                .credentialsProvider(awsConfig.credentialsProvider());
+
+        if (StringUtils.hasText(properties.apiEndpoint()))
+            client.endpointOverride(URI.create(properties.apiEndpoint()));
+
+        return client.build();
     }
 
     /**
@@ -128,6 +144,50 @@ public class CloudFrontConfig {
         return CloudFrontUtilities.create();
     }
 
+    /**
+     * Creates the cache of the signed URLs.
+     * 
+     * <p>
+     * A key is signed once per bucket with an expiration aligned to the end of
+     * the bucket, so the same URL is served within a bucket, even by the other
+     * instances.
+     * </p>
+     *
+     * @param registry The registry of the metrics of the cache.
+     *
+     * @return A time-bucketed cache of the signed URLs.
+     * 
+     * @see CloudFrontProperties.Signing The properties of the cache.
+     * 
+     * @since 1.0
+     */
+    @Bean
+    public TimeBucketedCache<SignedUrl> signedUrlCache(MeterRegistry registry) {
+        var signing = properties.signing();
+        return new TimeBucketedCache<>("cloudfront.signed.url.cache", signing.bucket(), signing.minRemaining(),
+                signing.maxEntries(), registry);
+    }
+
+    /**
+     * Creates the scheduler signing the batches of URLs.
+     * 
+     * <p>
+     * The signatures are CPU bound, so they run on a dedicated pool bounded
+     * by the signing parallelism rather than on the Netty event loop or the
+     * shared schedulers.
+     * </p>
+     *
+     * @return A parallel scheduler with the signing threads.
+     * 
+     * @see CloudFrontProperties.Signing#threads() The number of threads.
+     * 
+     * @since 1.0
+     */
+    @Bean(name = "cloudFrontSigningScheduler", destroyMethod = "dispose")
+    public Scheduler signingScheduler() {
+        return Schedulers.newParallel("cloudfront-signing", properties.signing().threads());
+    }
+
     /**
      * Retrieves the private key from AWS Secrets Manager.
      * 
@@ -169,11 +229,32 @@ public class CloudFrontConfig {
      * them is empty, an IllegalArgumentException is thrown.
      * </p>
      *
-     * @throws IllegalArgumentException if any of the properties are empty.
+     * @throws IllegalArgumentException if any of the properties are invalid.
      * 
      * @since 1.0
      */
     private void validateConfig() {
         hasText(properties.privateKeyName(), "Private key id must not be empty");
+
+        var signing = properties.signing();
+        isTrue(isPositive(signing.bucket()), "Signing bucket must be greater than 0");
+        isTrue(isPositive(signing.minRemaining()), "Signing min remaining must be greater than 0");
+        isTrue(signing.maxEntries() > 0, "Signing max entries must be greater than 0");
+        isTrue(signing.parallelism() >= 0, "Signing parallelism must not be negative");
+
+        var session = properties.session();
+        isTrue(isPositive(session.lifetime()), "Session lifetime must be greater than 0");
+        isTrue(isPositive(session.minRemaining()), "Session min remaining must be greater than 0");
+        isTrue(session.minRemaining().compareTo(session.lifetime()) < 0,
+                "Session min remaining must be shorter than the lifetime");
+
+        var invalidation = properties.invalidation();
+        hasText(properties.distributionId(), "Distribution id must not be empty");
+        isTrue(isPositive(invalidation.window()), "Invalidation window must be greater than 0");
+        isTrue(invalidation.maxPaths() > 0, "Invalidation max paths must be greater than 0");
+        isTrue(invalidation.maxWildcardPaths() > 0, "Invalidation max wildcard paths must be greater than 0");
+        isTrue(invalidation.collapseThreshold() >= 0, "Invalidation collapse threshold must not be negative");
+        isTrue(isPositive(invalidation.pollInterval()), "Invalidation poll interval must be greater than 0");
+        isTrue(isPositive(invalidation.timeout()), "Invalidation timeout must be greater than 0");
     }
 }
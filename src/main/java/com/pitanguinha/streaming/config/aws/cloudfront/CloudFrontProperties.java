@@ -1,6 +1,9 @@
 package com.pitanguinha.streaming.config.aws.cloudfront;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 /**
  * Configuration properties for AWS CloudFront.
@@ -10,6 +13,16 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * under the prefix "aws.cloudfront" to Java fields.
  * </p>
  * 
+ * @param distributionId The ID of the CloudFront distribution.
+ * @param endpoint       The URL of the distribution.
+ * @param keyPairId      The ID of the public key of the signatures.
+ * @param privateKeyName The name of the secret holding the private key.
+ * @param apiEndpoint    The endpoint of the CloudFront API, to use a local
+ *                       stub instead of AWS.
+ * @param signing        The properties of the cache of the signed URLs.
+ * @param session        The properties of the playback sessions.
+ * @param invalidation   The properties of the invalidation queue.
+ * 
  * @since 1.0
  */
 @ConfigurationProperties(prefix = "aws.cloudfront")
@@ -17,5 +30,115 @@ public record CloudFrontProperties(
         String distributionId,
         String endpoint,
         String keyPairId,
-        String privateKeyName) {
+        String privateKeyName,
+        String apiEndpoint,
+        @DefaultValue Signing signing,
+        @DefaultValue Session session,
+        @DefaultValue Invalidation invalidation) {
+
+    /**
+     * Properties for the cache of the signed URLs.
+     *
+     * <p>
+     * Bound under the prefix "aws.cloudfront.signing".<br>
+     * Time is split in buckets, a URL is signed once per key and bucket and
+     * expires at the end of the bucket plus the min remaining lifetime, so a
+     * cached URL is always valid for at least the min remaining lifetime when
+     * it's returned. Since the expiration is aligned to the bucket, the URL of
+     * a key is the same within a bucket, on every instance.<br>
+     * The batches of URLs are signed by a dedicated pool of the parallelism
+     * threads, one per core by default.
+     * </p>
+     *
+     * @param bucket       The duration of a time bucket.
+     * @param minRemaining The minimum remaining lifetime of a returned URL.
+     * @param maxEntries   The maximum number of cached URLs, the least
+     *                     recently used ones are evicted past it.
+     * @param parallelism  The number of threads signing the batches, 0 for
+     *                     the number of cores.
+     *
+     * @since 1.0
+     */
+    public record Signing(
+            @DefaultValue("15m") Duration bucket,
+            @DefaultValue("45m") Duration minRemaining,
+            @DefaultValue("10000") int maxEntries,
+            @DefaultValue("0") int parallelism) {
+
+        /**
+         * Gets the number of threads signing the batches.
+         *
+         * @return The parallelism, or the number of cores if it's 0.
+         *
+         * @since 1.0
+         */
+        public int threads() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * Properties for the playback sessions.
+     *
+     * <p>
+     * Bound under the prefix "aws.cloudfront.session".<br>
+     * A session is a set of CloudFront signed cookies with a custom policy
+     * covering a prefix of the distribution, so the objects under it are
+     * served with plain URLs until the session expires. The URLs are only
+     * left unsigned while the session has at least the min remaining
+     * lifetime.<br>
+     * The cookies are only sent to the API if the cookie domain is shared by
+     * the API and the distribution, e.g. ".example.com".
+     * </p>
+     *
+     * @param lifetime     The lifetime of a session.
+     * @param minRemaining The minimum remaining lifetime of a session for its
+     *                     URLs to be left unsigned.
+     * @param cookieDomain The domain of the cookies, the host of the API if
+     *                     missing.
+     *
+     * @since 1.0
+     */
+    public record Session(
+            @DefaultValue("4h") Duration lifetime,
+            @DefaultValue("10m") Duration minRemaining,
+            String cookieDomain) {
+    }
+
+    /**
+     * Properties for the invalidation queue.
+     *
+     * <p>
+     * Bound under the prefix "aws.cloudfront.invalidation".<br>
+     * The paths are queued and submitted once per window, the same path
+     * queued many times within a window being submitted once. A batch only
+     * takes the paths that fit in the in-progress limits of CloudFront, the
+     * others wait for the running invalidations to complete. Past the collapse
+     * threshold of queued wildcard paths, they're merged into "/*", since a
+     * storm of wildcard paths would otherwise take hours to drain 15 at a
+     * time.
+     * </p>
+     *
+     * @param window            The interval between two batches.
+     * @param maxPaths          The maximum number of file paths in progress,
+     *                          which also bounds a request.
+     * @param maxWildcardPaths  The maximum number of wildcard paths in
+     *                          progress.
+     * @param collapseThreshold The number of queued wildcard paths past which
+     *                          they're merged into "/*", 0 to never merge.
+     * @param pollInterval      The interval between two polls of the status
+     *                          of an invalidation.
+     * @param timeout           The time after which an invalidation still in
+     *                          progress is given up and its slots released.
+     *
+     * @since 1.0
+     */
+    public record Invalidation(
+            @DefaultValue("5s") Duration window,
+            @DefaultValue("3000") int maxPaths,
+            @DefaultValue("15") int maxWildcardPaths,
+            @DefaultValue("100") int collapseThreshold,
+            @DefaultValue("20s") Duration pollInterval,
+            @DefaultValue("30m") Duration timeout) {
+    }
 }
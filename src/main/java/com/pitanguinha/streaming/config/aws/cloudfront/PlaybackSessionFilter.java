@@ -0,0 +1,39 @@
+package com.pitanguinha.streaming.config.aws.cloudfront;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.service.aws.*;
+
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Filter storing the playback session of a request in the Reactor context.
+ *
+ * <p>
+ * The session is stored under the {@link PlaybackSession} class, so the
+ * services return plain URLs for the objects it covers.
+ * </p>
+ *
+ * @see PlaybackSessionService#fromCookies(org.springframework.util.MultiValueMap)
+ *      Reads the session of the request.
+ *
+ * @since 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.cloudfront.enabled", havingValue = "true", matchIfMissing = false)
+public class PlaybackSessionFilter implements WebFilter {
+    private final PlaybackSessionService service;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return service.fromCookies(exchange.getRequest().getCookies())
+                .map(session -> chain.filter(exchange).contextWrite(Context.of(PlaybackSession.class, session)))
+                .orElseGet(() -> chain.filter(exchange));
+    }
+}
@@ -1,22 +1,35 @@
 package com.pitanguinha.streaming.config.aws.s3;
 
-import java.net.URI;
+import java.net.*;
+import java.time.Duration;
 
 import static org.springframework.util.Assert.*;
+import static com.pitanguinha.streaming.utils.DurationUtils.isPositive;
 
+import org.springframework.util.unit.DataSize;
 import org.springframework.context.annotation.*;
 
 import com.pitanguinha.streaming.config.aws.AwsConfig;
+import com.pitanguinha.streaming.service.aws.TimeBucketedCache;
 
 import lombok.RequiredArgsConstructor;
 import jakarta.annotation.PostConstruct;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.crt.*;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.retries.api.RetryStrategy;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
 import software.amazon.awssdk.auth.credentials.*;
 
 /**
@@ -24,8 +37,13 @@ import software.amazon.awssdk.auth.credentials.*;
  * 
  * <p>
  * This class provides a configuration for the AWS S3 client, which is used to
- * interact with the S3 service. It creates an S3Client bean that can be used to
- * perform operations on S3 buckets and objects.<br>
+ * interact with the S3 service. It creates an S3AsyncClient bean that can be
+ * used to perform operations on S3 buckets and objects.<br>
+ * The blocking S3Client is only created on explicit opt-in, through the
+ * property "aws.s3.sync-client.enabled", since it must never be used on the
+ * request pipeline.<br>
+ * The HTTP transport of both clients is sized by the transport properties,
+ * and the async client may run on the AWS CRT for high-throughput transfers.<br>
  * Ps: It uses conditional properties to enable or disable the configuration,
  * defaulting to falsae if not specified in the application properties or
  * dynamic properties.
@@ -36,10 +54,14 @@ import software.amazon.awssdk.auth.credentials.*;
 @Configuration
 @RequiredArgsConstructor
 @EnableConfigurationProperties(S3Properties.class)
-@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+@ConditionalOnExpression("${aws.s3.enabled:false} and '${spring.application.storage.backend:s3}' == 's3'")
 public class S3Config {
+    private static final DataSize MIN_PART_SIZE = DataSize.ofMegabytes(5);
+    private static final Duration MAX_PRESIGN_DURATION = Duration.ofDays(7);
+
     private final S3Properties properties;
     private final AwsConfig awsConfig;
+    private final MeterRegistry meterRegistry;
     private AwsCredentialsProvider credentialsProvider;
     private boolean isProdActive;
 
@@ -79,6 +101,47 @@ public class S3Config {
 
         if (!isProdActive)
             hasText(properties.endpoint(), "Endpoint must not be empty for non-production profiles");
+
+        isTrue(properties.upload().partSize().toBytes() >= MIN_PART_SIZE.toBytes(),
+                "Upload part size must be at least " + MIN_PART_SIZE);
+        isTrue(properties.upload().partConcurrency() > 0, "Upload part concurrency must be greater than 0");
+        isTrue(properties.upload().objectConcurrency() > 0, "Upload object concurrency must be greater than 0");
+        isTrue(properties.delete().concurrency() > 0, "Delete concurrency must be greater than 0");
+
+        var transport = properties.transport();
+        isTrue(transport.maxConcurrency() > 0, "Transport max concurrency must be greater than 0");
+        isTrue(transport.maxPendingAcquires() > 0, "Transport max pending acquires must be greater than 0");
+        isTrue(isPositive(transport.acquireTimeout()), "Transport acquire timeout must be greater than 0");
+        isTrue(isPositive(transport.connectTimeout()), "Transport connect timeout must be greater than 0");
+        isTrue(isPositive(transport.readTimeout()), "Transport read timeout must be greater than 0");
+        isTrue(isPositive(transport.writeTimeout()), "Transport write timeout must be greater than 0");
+        isTrue(isPositive(transport.maxIdleTime()), "Transport max idle time must be greater than 0");
+        isTrue(transport.targetThroughputGbps() > 0, "Transport target throughput must be greater than 0");
+
+        var presign = properties.presign();
+        isTrue(isPositive(presign.bucket()), "Presign bucket must be greater than 0");
+        isTrue(isPositive(presign.minRemaining()), "Presign min remaining must be greater than 0");
+        isTrue(presign.bucket().plus(presign.minRemaining()).compareTo(MAX_PRESIGN_DURATION) <= 0,
+                "Presign bucket plus min remaining must not exceed " + MAX_PRESIGN_DURATION);
+        isTrue(presign.maxEntries() > 0, "Presign max entries must be greater than 0");
+
+        var resilience = properties.resilience();
+        isTrue(resilience.retry().maxAttempts() > 0, "Retry max attempts must be greater than 0");
+        var hedge = resilience.hedge();
+        isTrue(hedge.percentile() > 0 && hedge.percentile() < 1, "Hedge percentile must be between 0 and 1");
+        isTrue(isPositive(hedge.minDelay()), "Hedge min delay must be greater than 0");
+        isTrue(hedge.window() > 0, "Hedge window must be greater than 0");
+        isTrue(hedge.minSamples() > 0 && hedge.minSamples() <= hedge.window(),
+                "Hedge min samples must be between 1 and the window");
+        isTrue(hedge.budget() >= 0 && hedge.budget() <= 1, "Hedge budget must be between 0 and 1");
+        var circuitBreaker = resilience.circuitBreaker();
+        isTrue(circuitBreaker.failureRateThreshold() > 0 && circuitBreaker.failureRateThreshold() <= 1,
+                "Circuit breaker failure rate threshold must be between 0 and 1");
+        isTrue(circuitBreaker.window() > 0, "Circuit breaker window must be greater than 0");
+        isTrue(circuitBreaker.minCalls() > 0 && circuitBreaker.minCalls() <= circuitBreaker.window(),
+                "Circuit breaker min calls must be between 1 and the window");
+        isTrue(isPositive(circuitBreaker.openDuration()), "Circuit breaker open duration must be greater than 0");
+        isTrue(circuitBreaker.halfOpenCalls() > 0, "Circuit breaker half open calls must be greater than 0");
     }
 
     /**
@@ -109,26 +172,62 @@ public class S3Config {
         return presigner.build();
     }
 
+    /**
+     * Creates the cache of the presigned URLs.
+     * 
+     * <p>
+     * A key is presigned once per bucket, for the rest of the bucket plus the
+     * min remaining lifetime, so the same URL is served within a bucket.
+     * </p>
+     *
+     * @return A time-bucketed cache of the presigned URLs.
+     * 
+     * @see S3Properties.Presign The properties of the cache.
+     * 
+     * @since 1.0
+     */
+    @Bean
+    public TimeBucketedCache<URL> presignedUrlCache() {
+        var presign = properties.presign();
+        return new TimeBucketedCache<>("s3.presign.cache", presign.bucket(), presign.minRemaining(),
+                presign.maxEntries(), meterRegistry);
+    }
+
     /**
      * Creates an S3Client bean.
      * 
      * <p>
      * This method creates an S3Client using the provided region, access key, and
      * secret key.<br>
-     * The client retuned is configured based on the active profile.
+     * The client retuned is configured based on the active profile, on an
+     * Apache HTTP client sized by the transport properties.<br>
+     * It's only created when "aws.s3.sync-client.enabled" is true, as its calls
+     * block the calling thread.
      * </p>
      *
      * @return An S3Client instance configured with the provided properties.
      * 
      * @see S3Client The client for AWS S3 service.
+     * @see S3PoolMetricPublisher The metrics of the connection pool.
      * 
      * @since 1.0
      */
     @Bean
+    @ConditionalOnProperty(name = "aws.s3.sync-client.enabled", havingValue = "true", matchIfMissing = false)
     public S3Client s3Client() {
+        var transport = properties.transport();
         var client = S3Client.builder()
                 .region(Region.of(properties.region()))
-                .credentialsProvider(credentialsProvider);
+                .credentialsProvider(credentialsProvider)
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(transport.maxConcurrency())
+                        .connectionAcquisitionTimeout(transport.acquireTimeout())
+                        .connectionTimeout(transport.connectTimeout())
+                        .socketTimeout(transport.readTimeout())
+                        .connectionMaxIdleTime(transport.maxIdleTime()))
+                .overrideConfiguration(override -> override
+                        .retryStrategy(retryStrategy())
+                        .addMetricPublisher(new S3PoolMetricPublisher("sync", meterRegistry)));
 
         if (!isProdActive) {
             client.endpointOverride(URI.create(properties.endpoint()));
@@ -147,21 +246,66 @@ public class S3Config {
      * <p>
      * This method creates an S3AsyncClient using the provided region, access key,
      * and secret key.<br>
-     * The client retuned is configured based on the active profile.
+     * The client retuned is configured based on the active profile, on the
+     * transport of the properties.
      * </p>
      *
      * @return An S3AsyncClient instance configured with the provided properties.
      * 
      * @see S3AsyncClient The async client for AWS S3 service.
+     * @see #nettyAsyncClient() The client on Netty.
+     * @see #crtAsyncClient() The client on the AWS CRT.
      * 
      * @since 1.0
      */
     @Bean
     public S3AsyncClient s3AsyncClient() {
+        return switch (properties.transport().type()) {
+            case NETTY -> nettyAsyncClient();
+            case CRT -> crtAsyncClient();
+        };
+    }
+
+    /**
+     * Creates an S3AsyncClient on a Netty HTTP client sized by the transport
+     * properties.
+     * 
+     * <p>
+     * The objects larger than the upload part size are transferred in parts of
+     * that size, and the state of the connection pool is published as
+     * metrics.
+     * </p>
+     * 
+     * @return An S3AsyncClient instance on Netty.
+     * 
+     * @see S3PoolMetricPublisher The metrics of the connection pool.
+     * 
+     * @since 1.0
+     */
+    private S3AsyncClient nettyAsyncClient() {
+        var transport = properties.transport();
+        long partSize = properties.upload().partSize().toBytes();
+
         var asyncClient = S3AsyncClient.builder()
                 .region(Region.of(properties.region()))
                 .credentialsProvider(credentialsProvider)
-                .multipartEnabled(true);
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(transport.maxConcurrency())
+                        .maxPendingConnectionAcquires(transport.maxPendingAcquires())
+                        .connectionAcquisitionTimeout(transport.acquireTimeout())
+                        .connectionTimeout(transport.connectTimeout())
+                        .readTimeout(transport.readTimeout())
+                        .writeTimeout(transport.writeTimeout())
+                        .connectionMaxIdleTime(transport.maxIdleTime())
+                        .tcpKeepAlive(true))
+                .overrideConfiguration(override -> override
+                        .retryStrategy(retryStrategy())
+                        .addMetricPublisher(new S3PoolMetricPublisher("async", meterRegistry)))
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .minimumPartSizeInBytes(partSize)
+                        .thresholdInBytes(partSize)
+                        .build());
 
         if (!isProdActive) {
             asyncClient.endpointOverride(URI.create(properties.endpoint()));
@@ -173,4 +317,78 @@ public class S3Config {
 
         return asyncClient.build();
     }
+
+    /**
+     * Creates an S3AsyncClient on the AWS CRT.
+     * 
+     * <p>
+     * The CRT transfers the objects larger than the upload part size in parts
+     * of that size, sent in parallel over as many connections as needed to
+     * reach the target throughput, up to the max concurrency.<br>
+     * The CRT client doesn't report its pool to the SDK metrics, so no pool
+     * metrics are published for it, and it retries with its own strategy, up
+     * to the max attempts.
+     * </p>
+     * 
+     * @return An S3AsyncClient instance on the AWS CRT.
+     * 
+     * @since 1.0
+     */
+    private S3AsyncClient crtAsyncClient() {
+        var transport = properties.transport();
+        long partSize = properties.upload().partSize().toBytes();
+
+        var asyncClient = S3AsyncClient.crtBuilder()
+                .region(Region.of(properties.region()))
+                .credentialsProvider(credentialsProvider)
+                .maxConcurrency(transport.maxConcurrency())
+                .targetThroughputInGbps(transport.targetThroughputGbps())
+                .minimumPartSizeInBytes(partSize)
+                .thresholdInBytes(partSize)
+                .retryConfiguration(S3CrtRetryConfiguration.builder()
+                        .numRetries(properties.resilience().retry().maxAttempts() - 1)
+                        .build())
+                .httpConfiguration(S3CrtHttpConfiguration.builder()
+                        .connectionTimeout(transport.connectTimeout())
+                        .connectionHealthConfiguration(S3CrtConnectionHealthConfiguration.builder()
+                                .minimumThroughputInBps(1L)
+                                .minimumThroughputTimeout(transport.readTimeout())
+                                .build())
+                        .build());
+
+        if (!isProdActive) {
+            asyncClient.endpointOverride(URI.create(properties.endpoint()));
+            asyncClient.forcePathStyle(true);
+        }
+
+        return asyncClient.build();
+    }
+
+    /**
+     * Creates the retry strategy of the SDK clients.
+     * 
+     * <p>
+     * Both modes spend the tokens of a bucket on the retries, so they stop
+     * when most requests fail, the adaptive one also slows the sending rate
+     * down when S3 throttles.
+     * </p>
+     * 
+     * @return The retry strategy of the retry properties.
+     * 
+     * @see S3Properties.Retry The properties of the retries.
+     * 
+     * @since 1.0
+     */
+    private RetryStrategy retryStrategy() {
+        var retry = properties.resilience().retry();
+
+        return switch (retry.mode()) {
+            case STANDARD -> AwsRetryStrategy.standardRetryStrategy().toBuilder()
+                    .maxAttempts(retry.maxAttempts())
+                    .build();
+            case ADAPTIVE -> AwsRetryStrategy.adaptiveRetryStrategy().toBuilder()
+                    .maxAttempts(retry.maxAttempts())
+                    .build();
+        };
+    }
 }
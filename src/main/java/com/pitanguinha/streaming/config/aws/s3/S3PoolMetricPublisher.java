@@ -0,0 +1,74 @@
+package com.pitanguinha.streaming.config.aws.s3;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.*;
+
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.*;
+
+/**
+ * Publisher of the connection pool metrics of an S3 client to Micrometer.
+ *
+ * <p>
+ * The SDK reports the state of the pool with each request, so the gauges are
+ * the state seen by the last request, and the time waiting for a connection
+ * is recorded by a timer. A pool that is always fully leased with pending
+ * acquires is the one bounding the transfers.<br>
+ * The meters are tagged by the client, "async" or "sync".
+ * </p>
+ *
+ * @since 1.0
+ */
+final class S3PoolMetricPublisher implements MetricPublisher {
+    private final AtomicInteger max = new AtomicInteger();
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer acquire;
+
+    S3PoolMetricPublisher(String client, MeterRegistry registry) {
+        Gauge.builder("s3.http.pool.max", max, AtomicInteger::get).tag("client", client).register(registry);
+        Gauge.builder("s3.http.pool.leased", leased, AtomicInteger::get).tag("client", client).register(registry);
+        Gauge.builder("s3.http.pool.available", available, AtomicInteger::get).tag("client", client)
+                .register(registry);
+        Gauge.builder("s3.http.pool.pending", pending, AtomicInteger::get).tag("client", client).register(registry);
+        Gauge.builder("s3.http.pool.utilization", this, publisher -> publisher.utilization()).tag("client", client)
+                .register(registry);
+        this.acquire = Timer.builder("s3.http.pool.acquire").tag("client", client).register(registry);
+    }
+
+    /**
+     * Publishes the metrics of a request.
+     *
+     * <p>
+     * The HTTP metrics are in the collections of the attempts, children of the
+     * collection of the API call, so the tree is walked.
+     * </p>
+     */
+    @Override
+    public void publish(MetricCollection metrics) {
+        last(metrics.metricValues(HttpMetric.MAX_CONCURRENCY), max);
+        last(metrics.metricValues(HttpMetric.LEASED_CONCURRENCY), leased);
+        last(metrics.metricValues(HttpMetric.AVAILABLE_CONCURRENCY), available);
+        last(metrics.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES), pending);
+        metrics.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION).forEach(acquire::record);
+
+        metrics.children().forEach(this::publish);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private double utilization() {
+        int maxConcurrency = max.get();
+        return maxConcurrency > 0 ? (double) leased.get() / maxConcurrency : 0;
+    }
+
+    private static void last(List<Integer> values, AtomicInteger gauge) {
+        if (!values.isEmpty())
+            gauge.set(values.get(values.size() - 1));
+    }
+}
@@ -1,20 +1,270 @@
 package com.pitanguinha.streaming.config.aws.s3;
 
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 /**
  * Configuration properties for AWS S3.
- * 
+ *
  * <p>
  * This class is used to bind the properties defined in the application.yml file
  * under the prefix "aws.s3" to Java fields.
  * </p>
- * 
+ *
  * @since 1.0
  */
 @ConfigurationProperties(prefix = "aws.s3")
 public record S3Properties(
         String region,
         String endpoint,
-        String bucketName) {
+        String bucketName,
+        @DefaultValue Upload upload,
+        @DefaultValue Delete delete,
+        @DefaultValue Transport transport,
+        @DefaultValue Presign presign,
+        @DefaultValue Resilience resilience) {
+
+    /**
+     * Properties for the streamed multipart uploads.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.upload".<br>
+     * The part size must be at least 5MB (S3 minimum for every part but the
+     * last one), and the concurrency bounds how many parts are buffered and in
+     * flight at the same time for a single object.<br>
+     * The object concurrency bounds how many objects of the same artifact are
+     * uploaded in parallel by a transactional upload.
+     * </p>
+     *
+     * @param partSize          The size of each uploaded part.
+     * @param partConcurrency   The maximum number of parts uploaded in parallel.
+     * @param objectConcurrency The maximum number of objects uploaded in
+     *                          parallel.
+     *
+     * @since 1.0
+     */
+    public record Upload(
+            @DefaultValue("8MB") DataSize partSize,
+            @DefaultValue("4") int partConcurrency,
+            @DefaultValue("3") int objectConcurrency) {
+    }
+
+    /**
+     * Properties for the batched deletions.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.delete".<br>
+     * The concurrency bounds how many DeleteObjects requests of up to 1000 keys
+     * are in flight at the same time, the listing of a prefix goes on while the
+     * pages already listed are deleted.
+     * </p>
+     *
+     * @param concurrency The maximum number of DeleteObjects requests in
+     *                    parallel.
+     *
+     * @since 1.0
+     */
+    public record Delete(
+            @DefaultValue("4") int concurrency) {
+    }
+
+    /**
+     * Properties for the HTTP transport of the S3 clients.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.transport".<br>
+     * The async client runs on Netty by default, or on the AWS CRT when the
+     * type is "crt", which splits large transfers into parts sent in parallel
+     * up to the target throughput. The part size of the transfers is the
+     * upload part size.<br>
+     * The max concurrency bounds the connections of the pool of each client,
+     * the requests past it wait for a connection up to the acquire timeout.
+     * The CRT client sizes its own pool from the target throughput, so the
+     * pending acquires, acquire timeout and write timeout don't apply to it,
+     * and the read timeout is the time a connection may stall before it's
+     * dropped.
+     * </p>
+     *
+     * @param type                 The transport of the async client.
+     * @param maxConcurrency       The maximum number of connections of a pool.
+     * @param maxPendingAcquires   The maximum number of requests waiting for a
+     *                             connection.
+     * @param acquireTimeout       The maximum time waiting for a connection.
+     * @param connectTimeout       The maximum time to open a connection.
+     * @param readTimeout          The maximum time without reading a byte.
+     * @param writeTimeout         The maximum time without writing a byte.
+     * @param maxIdleTime          The maximum time a connection is kept idle in
+     *                             the pool.
+     * @param targetThroughputGbps The target throughput of the CRT client, in
+     *                             gigabits per second.
+     *
+     * @since 1.0
+     */
+    public record Transport(
+            @DefaultValue("NETTY") Type type,
+            @DefaultValue("64") int maxConcurrency,
+            @DefaultValue("10000") int maxPendingAcquires,
+            @DefaultValue("10s") Duration acquireTimeout,
+            @DefaultValue("5s") Duration connectTimeout,
+            @DefaultValue("30s") Duration readTimeout,
+            @DefaultValue("30s") Duration writeTimeout,
+            @DefaultValue("60s") Duration maxIdleTime,
+            @DefaultValue("10") double targetThroughputGbps) {
+
+        /**
+         * The transport of the async client.
+         *
+         * @since 1.0
+         */
+        public enum Type {
+            NETTY,
+            CRT
+        }
+    }
+
+    /**
+     * Properties for the cache of the presigned URLs.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.presign".<br>
+     * Time is split in buckets, a URL is signed once per key and bucket and
+     * is valid for the bucket plus the min remaining lifetime, so a cached URL
+     * is always valid for at least the min remaining lifetime when it's
+     * returned. The URLs of a key are the same within a bucket.<br>
+     * The signature duration, bucket plus min remaining lifetime, must not
+     * exceed 7 days, the SigV4 limit.
+     * </p>
+     *
+     * @param bucket       The duration of a time bucket.
+     * @param minRemaining The minimum remaining lifetime of a returned URL.
+     * @param maxEntries   The maximum number of cached URLs, the least
+     *                     recently used ones are evicted past it.
+     *
+     * @since 1.0
+     */
+    public record Presign(
+            @DefaultValue("15m") Duration bucket,
+            @DefaultValue("45m") Duration minRemaining,
+            @DefaultValue("10000") int maxEntries) {
+    }
+
+    /**
+     * Properties for the resilience of the S3 requests.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.resilience".
+     * </p>
+     *
+     * @param retry          The retries of the SDK.
+     * @param hedge          The hedging of the read requests.
+     * @param circuitBreaker The circuit breaker of the requests.
+     *
+     * @since 1.0
+     */
+    public record Resilience(
+            @DefaultValue Retry retry,
+            @DefaultValue Hedge hedge,
+            @DefaultValue CircuitBreaker circuitBreaker) {
+    }
+
+    /**
+     * Properties for the retries of the SDK.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.resilience.retry".<br>
+     * The adaptive mode retries with exponential backoff, spending tokens of a
+     * bucket refilled by the successful requests, so the retries stop when
+     * most requests fail, and it slows the sending rate down when S3
+     * throttles. The standard mode only spends the tokens.<br>
+     * The max attempts include the first one. The CRT client has its own
+     * retries and only takes the max attempts.
+     * </p>
+     *
+     * @param mode        The retry mode, "adaptive" or "standard".
+     * @param maxAttempts The maximum number of attempts of a request.
+     *
+     * @since 1.0
+     */
+    public record Retry(
+            @DefaultValue("ADAPTIVE") Mode mode,
+            @DefaultValue("3") int maxAttempts) {
+
+        /**
+         * The retry mode of the SDK.
+         *
+         * @since 1.0
+         */
+        public enum Mode {
+            STANDARD,
+            ADAPTIVE
+        }
+    }
+
+    /**
+     * Properties for the hedging of the read requests.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.resilience.hedge".<br>
+     * A read still running after the latency percentile of the recent reads
+     * is sent again, the first response wins and the other one is cancelled.
+     * The delay is the percentile of the last window of reads, bounded by the
+     * min delay, and no read is hedged until the window has min samples.<br>
+     * The hedges are limited to a ratio of the reads, and none is sent while
+     * the circuit is not closed, so hedging never doubles the load of a
+     * degraded S3.
+     * </p>
+     *
+     * @param enabled    Whether the reads are hedged.
+     * @param percentile The latency percentile after which a read is hedged.
+     * @param minDelay   The minimum delay before a read is hedged.
+     * @param window     The number of recent reads of the percentile.
+     * @param minSamples The minimum number of reads before hedging.
+     * @param budget     The maximum ratio of hedged reads.
+     *
+     * @since 1.0
+     */
+    public record Hedge(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("0.95") double percentile,
+            @DefaultValue("50ms") Duration minDelay,
+            @DefaultValue("256") int window,
+            @DefaultValue("32") int minSamples,
+            @DefaultValue("0.1") double budget) {
+    }
+
+    /**
+     * Properties for the circuit breaker of the requests.
+     *
+     * <p>
+     * Bound under the prefix "aws.s3.resilience.circuit-breaker".<br>
+     * The circuit opens when the failure rate of the last window of requests
+     * reaches the threshold, with at least min calls in the window. While
+     * open the requests fail fast, and after the open duration it's half open,
+     * letting the half open calls through: it closes if they all succeed and
+     * opens again on the first failure.<br>
+     * Only the network errors, timeouts, throttling and server errors are
+     * failures, a client error such as a missing key is not.
+     * </p>
+     *
+     * @param enabled              Whether the circuit breaker is enabled.
+     * @param failureRateThreshold The failure rate opening the circuit.
+     * @param window               The number of recent requests of the rate.
+     * @param minCalls             The minimum number of requests before the
+     *                             circuit may open.
+     * @param openDuration         How long the circuit stays open.
+     * @param halfOpenCalls        The number of probe requests when half open.
+     *
+     * @since 1.0
+     */
+    public record CircuitBreaker(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("0.5") double failureRateThreshold,
+            @DefaultValue("50") int window,
+            @DefaultValue("20") int minCalls,
+            @DefaultValue("30s") Duration openDuration,
+            @DefaultValue("5") int halfOpenCalls) {
+    }
 }
@@ -0,0 +1,47 @@
+package com.pitanguinha.streaming.config.scratch;
+
+import static org.springframework.util.Assert.*;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Configuration class for the scratch space.
+ *
+ * <p>
+ * Enables the {@link ScratchProperties} used by the temp directory service.
+ * </p>
+ *
+ * @see ScratchProperties The properties of the scratch space.
+ *
+ * @since 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(ScratchProperties.class)
+public class ScratchConfig {
+    private final ScratchProperties properties;
+
+    /**
+     * Validates the scratch space properties.
+     *
+     * @throws IllegalArgumentException if any of the properties are invalid.
+     *
+     * @since 1.0
+     */
+    @PostConstruct
+    private void validateConfig() {
+        isTrue(properties.quota().toBytes() > 0, "Scratch quota must be greater than 0");
+        isTrue(properties.minFreeSpace().toBytes() >= 0, "Scratch min free space must not be negative");
+        isTrue(!properties.acquireTimeout().isNegative(), "Scratch acquire timeout must not be negative");
+        isTrue(!properties.sweepInterval().isNegative() && !properties.sweepInterval().isZero(),
+                "Scratch sweep interval must be greater than 0");
+        isTrue(!properties.sampleInterval().isNegative() && !properties.sampleInterval().isZero(),
+                "Scratch sample interval must be greater than 0");
+        isTrue(!properties.orphanTtl().isNegative(), "Scratch orphan TTL must not be negative");
+        isTrue(properties.lockStripes() > 0, "Scratch lock stripes must be greater than 0");
+    }
+}
@@ -0,0 +1,44 @@
+package com.pitanguinha.streaming.config.scratch;
+
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the scratch space of the temp directory.
+ *
+ * <p>
+ * This class is used to bind the properties defined in the application.yml file
+ * under the prefix "spring.application.scratch" to Java fields.<br>
+ * The scratch space is handed out as leases with a reserved size, the sum of
+ * the reservations can't exceed the quota and the disk must keep the minimum
+ * free space, otherwise a new lease waits up to the acquire timeout. The free
+ * space is sampled in the background, so a lease doesn't read the disk.<br>
+ * The directories not held by any lease are removed by a sweeper once they are
+ * older than the orphan TTL.
+ * </p>
+ *
+ * @param quota          The maximum bytes reserved by all the leases.
+ * @param minFreeSpace   The free space the disk must keep after a lease.
+ * @param acquireTimeout How long a lease waits for space.
+ * @param sweepInterval  The interval between the sweeps of orphans.
+ * @param sampleInterval The interval between the samples of the free space of
+ *                       the disk.
+ * @param orphanTtl      How old a directory without lease must be to be
+ *                       removed.
+ * @param lockStripes    The number of locks shared by the directory names.
+ *
+ * @since 1.0
+ */
+@ConfigurationProperties(prefix = "spring.application.scratch")
+public record ScratchProperties(
+        @DefaultValue("2GB") DataSize quota,
+        @DefaultValue("512MB") DataSize minFreeSpace,
+        @DefaultValue("30s") Duration acquireTimeout,
+        @DefaultValue("5m") Duration sweepInterval,
+        @DefaultValue("5s") Duration sampleInterval,
+        @DefaultValue("1h") Duration orphanTtl,
+        @DefaultValue("32") int lockStripes) {
+}
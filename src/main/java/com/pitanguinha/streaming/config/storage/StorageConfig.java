@@ -0,0 +1,51 @@
+package com.pitanguinha.streaming.config.storage;
+
+import static org.springframework.util.Assert.*;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Configuration class for the storage of the media artifacts.
+ *
+ * <p>
+ * Enables the {@link StorageProperties} used to pick the storage backend and
+ * to cache its reads.
+ * </p>
+ *
+ * @see StorageProperties The properties of the storage.
+ *
+ * @since 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+    private final StorageProperties properties;
+
+    /**
+     * Validates the storage properties.
+     *
+     * @throws IllegalArgumentException if any of the properties are invalid.
+     *
+     * @since 1.0
+     */
+    @PostConstruct
+    private void validateConfig() {
+        isTrue("s3".equals(properties.backend()) || "local".equals(properties.backend()),
+                "Storage backend must be s3 or local");
+        notNull(properties.local().root(), "Local storage root must not be null");
+        isTrue(properties.local().concurrency() > 0, "Local storage concurrency must be greater than 0");
+
+        var cache = properties.cache();
+        notNull(cache.root(), "Storage cache root must not be null");
+        isTrue(cache.segmentSize().toBytes() > 0, "Storage cache segment size must be greater than 0");
+        isTrue(cache.segmentSize().toBytes() <= Integer.MAX_VALUE, "Storage cache segment size must be less than 2GB");
+        isTrue(cache.maxSize().compareTo(cache.segmentSize()) >= 0,
+                "Storage cache max size must be at least the segment size");
+        isTrue(cache.admissionThreshold() > 0, "Storage cache admission threshold must be greater than 0");
+    }
+}
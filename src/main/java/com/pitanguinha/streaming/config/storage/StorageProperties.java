@@ -0,0 +1,84 @@
+package com.pitanguinha.streaming.config.storage;
+
+import java.nio.file.Path;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the storage of the media artifacts.
+ *
+ * <p>
+ * This class is used to bind the properties defined in the application.yml file
+ * under the prefix "spring.application.storage" to Java fields.<br>
+ * The storage is enabled by "aws.s3.enabled" and its backend is S3 by default,
+ * or the local filesystem when the backend is "local", for single node
+ * deployments and tests without S3.
+ * </p>
+ *
+ * @param backend The backend of the storage, "s3" or "local".
+ * @param local   The properties of the local filesystem backend.
+ * @param cache   The properties of the disk cache of the S3 reads.
+ *
+ * @since 1.0
+ */
+@ConfigurationProperties(prefix = "spring.application.storage")
+public record StorageProperties(
+        @DefaultValue("s3") String backend,
+        @DefaultValue Local local,
+        @DefaultValue Cache cache) {
+
+    /**
+     * Properties for the local filesystem backend.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.storage.local".<br>
+     * The objects are files under the root directory, their keys being the
+     * relative paths, and the multipart uploads are staged under its
+     * ".uploads" directory. The concurrency bounds how many objects are
+     * written or deleted in parallel.
+     * </p>
+     *
+     * @param root        The root directory of the objects.
+     * @param concurrency The maximum number of objects written or deleted in
+     *                    parallel.
+     *
+     * @since 1.0
+     */
+    public record Local(
+            @DefaultValue("/tmp/app/streaming/storage") Path root,
+            @DefaultValue("4") int concurrency) {
+    }
+
+    /**
+     * Properties for the disk cache of the objects read from S3.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.storage.cache".<br>
+     * The objects are cached by key and entity tag in segments of the segment
+     * size, so a range only fills the segments it covers. An object is only
+     * admitted once it has been read the admission threshold times, and the
+     * least recently read objects are evicted beyond the max size.<br>
+     * The directory is cleared on startup, it must not be shared by other
+     * instances.
+     * </p>
+     *
+     * @param enabled            Whether the reads are cached.
+     * @param root               The directory of the cached segments.
+     * @param maxSize            The maximum size of the cached segments.
+     * @param segmentSize        The size of every segment but the last one of
+     *                           an object.
+     * @param admissionThreshold How many reads of an object are needed before
+     *                           it's cached.
+     *
+     * @since 1.0
+     */
+    public record Cache(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("/tmp/app/streaming/cache") Path root,
+            @DefaultValue("2GB") DataSize maxSize,
+            @DefaultValue("1MB") DataSize segmentSize,
+            @DefaultValue("2") int admissionThreshold) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.pitanguinha.streaming.config.upload;
+
+import static org.springframework.util.Assert.*;
+import static com.pitanguinha.streaming.utils.DurationUtils.isPositive;
+
+import org.slf4j.*;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.autoconfigure.web.reactive.ReactiveMultipartProperties;
+
+import com.pitanguinha.streaming.config.scratch.ScratchProperties;
+
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Configuration class for the media uploads.
+ *
+ * <p>
+ * Enables the {@link UploadProperties} used by the uploading pipeline.<br>
+ * The multipart codec limits are configured under the prefix
+ * "spring.webflux.multipart", they are checked against the upload limits so a
+ * part is not rejected or written to disk by the codec before it's spooled.
+ * The upload forms are streamed from the part events, so the codec only binds
+ * the parts of the batch ingest.
+ * </p>
+ *
+ * @see UploadProperties The properties of the uploads.
+ * @see ReactiveMultipartProperties The properties of the multipart codec.
+ *
+ * @since 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(UploadProperties.class)
+public class UploadConfig {
+    private static final DataSize MIN_CHUNK_SIZE = DataSize.ofMegabytes(5);
+    private static final long MAX_CHUNKS = 10_000;
+    private static final int PARTS_PER_BATCH_ITEM = 3;
+    private final static Logger LOG = LoggerFactory.getLogger(UploadConfig.class);
+
+    private final UploadProperties properties;
+    private final ScratchProperties scratchProperties;
+    private final ObjectProvider<ReactiveMultipartProperties> multipartProperties;
+
+    /**
+     * Validates the upload properties.
+     *
+     * <p>
+     * The chunks are uploaded as the parts of a S3 multipart upload, so they
+     * must follow its limits.<br>
+     * A codec disk limit below the max content size, or a codec parts limit
+     * below the parts of a full batch, rejects valid uploads, so it's invalid.
+     * A codec in-memory limit below the spool threshold only
+     * makes the codec write the parts to disk first, so it's logged.<br>
+     * The ingest spool is reserved against the scratch quota, so a spool of the
+     * max sizes above it could never be reserved.
+     * </p>
+     *
+     * @throws IllegalArgumentException if any of the properties are invalid.
+     *
+     * @since 1.0
+     */
+    @PostConstruct
+    private void validateConfig() {
+        var resumable = properties.resumable();
+        long chunkSize = resumable.chunkSize().toBytes();
+
+        isTrue(chunkSize >= MIN_CHUNK_SIZE.toBytes(), "Resumable chunk size must be at least " + MIN_CHUNK_SIZE);
+        isTrue(resumable.maxContentSize().toBytes() > 0, "Resumable max content size must be greater than 0");
+        isTrue(Math.ceilDiv(resumable.maxContentSize().toBytes(), chunkSize) <= MAX_CHUNKS,
+                "Resumable max content size must fit in " + MAX_CHUNKS + " chunks");
+        isTrue(!resumable.sessionTtl().isNegative() && !resumable.sessionTtl().isZero(),
+                "Resumable session TTL must be greater than 0");
+
+        isTrue(!properties.spoolThreshold().isNegative(), "Spool threshold must not be negative");
+
+        var ingest = properties.ingest();
+        isTrue(ingest.concurrency() > 0, "Ingest concurrency must be greater than 0");
+        isTrue(ingest.maxAttempts() > 0, "Ingest max attempts must be greater than 0");
+        isTrue(isPositive(ingest.retryBackoff()), "Ingest retry backoff must be greater than 0");
+        isTrue(isPositive(ingest.pollInterval()), "Ingest poll interval must be greater than 0");
+        isTrue(isPositive(ingest.lockTimeout()), "Ingest lock timeout must be greater than 0");
+        isTrue(isPositive(ingest.processingTimeout()), "Ingest processing timeout must be greater than 0");
+        isTrue(ingest.processingTimeout().compareTo(ingest.lockTimeout()) < 0,
+                "Ingest processing timeout must be shorter than the lock timeout");
+        isTrue(isPositive(ingest.retention()), "Ingest retention must be greater than 0");
+        long spoolSize = properties.maxContentSize().toBytes() + properties.maxThumbnailSize().toBytes();
+        isTrue(spoolSize <= scratchProperties.quota().toBytes(),
+                "Ingest spool of the max content and thumbnail sizes must fit the scratch quota");
+
+        var admission = properties.admission();
+        validateLimits("content", admission.content());
+        validateLimits("thumbnail", admission.thumbnail());
+        isTrue(!admission.queueTimeout().isNegative(), "Admission queue timeout must not be negative");
+        isTrue(isPositive(admission.retryAfter()), "Admission retry after must be greater than 0");
+
+        var batch = properties.batch();
+        isTrue(batch.maxItems() > 0, "Batch max items must be greater than 0");
+        isTrue(batch.insertSize() > 0, "Batch insert size must be greater than 0");
+        isTrue(batch.concurrency() > 0, "Batch concurrency must be greater than 0");
+
+        multipartProperties.ifAvailable(this::validateMultipart);
+    }
+
+    private static void validateLimits(String kind, UploadProperties.Limits limits) {
+        isTrue(limits.maxBytes().toBytes() > 0, "Admission max bytes of " + kind + " must be greater than 0");
+        isTrue(limits.maxRequests() > 0, "Admission max requests of " + kind + " must be greater than 0");
+        isTrue(limits.queueDepth() >= 0, "Admission queue depth of " + kind + " must not be negative");
+    }
+
+    /**
+     * Validates the multipart codec limits against the upload limits.
+     *
+     * @param multipart the properties of the multipart codec
+     *
+     * @throws IllegalArgumentException if the codec disk or parts limit is too
+     *                                  small.
+     *
+     * @since 1.0
+     */
+    private void validateMultipart(ReactiveMultipartProperties multipart) {
+        DataSize maxDiskUsage = multipart.getMaxDiskUsagePerPart();
+        isTrue(maxDiskUsage.isNegative() || maxDiskUsage.compareTo(properties.maxContentSize()) >= 0,
+                "Multipart max disk usage per part must be at least the max content size");
+
+        // Each batch item is a JSON part followed by its thumbnail and content parts
+        long batchParts = (long) PARTS_PER_BATCH_ITEM * properties.batch().maxItems();
+        isTrue(multipart.getMaxParts() < 0 || multipart.getMaxParts() >= batchParts,
+                "Multipart max parts must be at least " + batchParts + " to fit the batch max items");
+
+        if (multipart.getMaxInMemorySize().compareTo(properties.spoolThreshold()) < 0)
+            LOG.warn("Multipart max in-memory size {} is below the spool threshold {}, parts are written to disk by the codec",
+                    multipart.getMaxInMemorySize(), properties.spoolThreshold());
+    }
+}
@@ -0,0 +1,175 @@
+package com.pitanguinha.streaming.config.upload;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the media uploads.
+ *
+ * <p>
+ * This class is used to bind the properties defined in the application.yml file
+ * under the prefix "spring.application.upload" to Java fields.<br>
+ * When streaming is enabled the multipart file parts are piped straight into
+ * the storage, otherwise they are spooled first: a part up to the spool
+ * threshold is kept in memory and only a larger one is spilled to the temp
+ * directory.<br>
+ * The size limits are enforced on both modes while the parts are read.
+ * </p>
+ *
+ * @param streaming        Whether the file parts are streamed without a temp
+ *                         file.
+ * @param maxContentSize   The maximum size of a content file.
+ * @param maxThumbnailSize The maximum size of a thumbnail file.
+ * @param spoolThreshold   The maximum size of a file part kept in memory.
+ * @param resumable        The properties of the resumable uploads.
+ * @param ingest           The properties of the uploads run in the
+ *                         background.
+ * @param admission        The properties of the admission of the uploads.
+ * @param batch            The properties of the batch ingest.
+ *
+ * @since 1.0
+ */
+@ConfigurationProperties(prefix = "spring.application.upload")
+public record UploadProperties(
+        @DefaultValue("true") boolean streaming,
+        @DefaultValue("9MB") DataSize maxContentSize,
+        @DefaultValue("1MB") DataSize maxThumbnailSize,
+        @DefaultValue("1MB") DataSize spoolThreshold,
+        @DefaultValue Resumable resumable,
+        @DefaultValue Ingest ingest,
+        @DefaultValue Admission admission,
+        @DefaultValue Batch batch) {
+
+    /**
+     * Properties for the resumable uploads of content files.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.upload.resumable".<br>
+     * Each chunk is uploaded as a part of a S3 multipart upload, so the chunk
+     * size must be at least 5MB and the max content size can't need more than
+     * 10000 chunks.<br>
+     * A session that is not finalized within its TTL is dropped from the
+     * repository, the incomplete parts should be dropped by the bucket lifecycle
+     * rules.
+     * </p>
+     *
+     * @param chunkSize      The size of every chunk but the last one.
+     * @param maxContentSize The maximum size of a content file uploaded by
+     *                       chunks.
+     * @param sessionTtl     How long a session is kept before it expires.
+     *
+     * @since 1.0
+     */
+    public record Resumable(
+            @DefaultValue("8MB") DataSize chunkSize,
+            @DefaultValue("2GB") DataSize maxContentSize,
+            @DefaultValue("24h") Duration sessionTtl) {
+    }
+
+    /**
+     * Properties for the uploads run in the background by upload jobs.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.upload.ingest".<br>
+     * The files of a job are spooled to the spool directory, which must be
+     * durable and shared by every instance running the workers.<br>
+     * Each instance runs up to the concurrency jobs at once, polling for the
+     * queued ones. A failed attempt is retried after the backoff, doubled on
+     * every attempt, until the max attempts. A running job whose lock expired
+     * is claimed again, so an attempt is cancelled past the processing
+     * timeout, which must be shorter than the lock timeout to leave room for
+     * reporting its outcome.
+     * </p>
+     *
+     * @param spoolDir          The directory the files of the jobs are spooled
+     *                          to.
+     * @param concurrency       The maximum jobs run at once by an instance.
+     * @param maxAttempts       The maximum attempts of a job.
+     * @param retryBackoff      The delay after the first failed attempt.
+     * @param pollInterval      The interval between the polls of queued jobs.
+     * @param lockTimeout       How long a job is locked by the worker running
+     *                          it.
+     * @param processingTimeout How long an attempt runs before it's cancelled.
+     * @param retention         How long a finished job is kept.
+     *
+     * @since 1.0
+     */
+    public record Ingest(
+            @DefaultValue("/tmp/app/streaming/prod/ingest") Path spoolDir,
+            @DefaultValue("2") int concurrency,
+            @DefaultValue("3") int maxAttempts,
+            @DefaultValue("30s") Duration retryBackoff,
+            @DefaultValue("2s") Duration pollInterval,
+            @DefaultValue("15m") Duration lockTimeout,
+            @DefaultValue("10m") Duration processingTimeout,
+            @DefaultValue("7d") Duration retention) {
+    }
+
+    /**
+     * Properties for the admission of the uploads by bytes and requests in
+     * flight.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.upload.admission".<br>
+     * The content and thumbnail files are admitted by separate limits, each
+     * file reserving its declared length or else the max size of its kind.
+     * An upload over the limits waits in a bounded queue up to the queue
+     * timeout, a full queue or an expired wait is rejected with the retry
+     * after hint.
+     * </p>
+     *
+     * @param content      The limits of the content files.
+     * @param thumbnail    The limits of the thumbnail files.
+     * @param queueTimeout How long an upload waits in the queue.
+     * @param retryAfter   When a rejected upload should be retried.
+     *
+     * @since 1.0
+     */
+    public record Admission(
+            @DefaultValue Limits content,
+            @DefaultValue Limits thumbnail,
+            @DefaultValue("10s") Duration queueTimeout,
+            @DefaultValue("5s") Duration retryAfter) {
+    }
+
+    /**
+     * Properties for the batch ingest of many media in one multipart request.
+     *
+     * <p>
+     * Bound under the prefix "spring.application.upload.batch".<br>
+     * The items are inserted in the repository by chunks of the insert size,
+     * and their files are uploaded with up to the concurrency items at once.
+     * The items past the max items are rejected.
+     * </p>
+     *
+     * @param maxItems    The maximum items of a request.
+     * @param insertSize  The items inserted in the repository at once.
+     * @param concurrency The items uploaded at once.
+     *
+     * @since 1.0
+     */
+    public record Batch(
+            @DefaultValue("1000") int maxItems,
+            @DefaultValue("100") int insertSize,
+            @DefaultValue("8") int concurrency) {
+    }
+
+    /**
+     * Limits of the files of a kind in flight.
+     *
+     * @param maxBytes    The maximum bytes reserved by the files in flight.
+     * @param maxRequests The maximum files in flight.
+     * @param queueDepth  The maximum files waiting for the limits.
+     *
+     * @since 1.0
+     */
+    public record Limits(
+            @DefaultValue("128MB") DataSize maxBytes,
+            @DefaultValue("16") int maxRequests,
+            @DefaultValue("32") int queueDepth) {
+    }
+}
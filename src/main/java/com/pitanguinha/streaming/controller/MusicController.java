@@ -1,22 +1,29 @@
 package com.pitanguinha.streaming.controller;
 
+import java.net.URI;
+
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
 import com.pitanguinha.streaming.annotation.ValidEnum;
 import com.pitanguinha.streaming.dto.music.*;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
+import com.pitanguinha.streaming.dto.media.response.BatchItemResultDto;
 import com.pitanguinha.streaming.enums.media.SearchType;
 import com.pitanguinha.streaming.enums.media.music.*;
 import com.pitanguinha.streaming.utils.MapperUtils;
 import com.pitanguinha.streaming.service.media.MusicService;
+import com.pitanguinha.streaming.service.upload.UploadFormReader;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.*;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import com.pitanguinha.streaming.exceptions.search.SearchTypeArgumentsException;
 
-import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.RequiredArgsConstructor;
 
@@ -40,6 +47,7 @@ import reactor.core.publisher.*;
 @Tag(name = "Music", description = "Provides endpoints for managing and consuming music media.")
 public class MusicController {
     private final MusicService service;
+    private final UploadFormReader formReader;
 
     @GetMapping("/content")
     @Operation(summary = "Generates a signed URL for accessing the content of a music media by its ID.")
@@ -47,16 +55,43 @@ public class MusicController {
         return service.getContentSignedUrl(id);
     }
 
+    @GetMapping("/{id}/stream")
+    @Operation(summary = "Streams the content of a music media by its ID.", description = "Supports the Range and If-Range headers, a single byte range is answered with 206 Partial Content.")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamContent(@PathVariable @NotBlank String id,
+            @RequestHeader HttpHeaders headers) {
+        return service.streamContent(id, headers);
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Saves a new music media.")
-    public Mono<MusicSuccessDto> save(@Valid @ModelAttribute MusicPostDto postDto) {
-        return service.save(postDto);
+    @Operation(summary = "Saves a new music media.", description = "The form is read as the request streams in, the contentFile part must be the last part.", requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE, schema = @Schema(implementation = MusicPostDto.class))))
+    public Mono<MusicSuccessDto> save(@RequestBody Flux<PartEvent> parts,
+            @RequestHeader HttpHeaders headers) {
+        return formReader.read(headers.getContentLength(), parts, MusicPostDto.class, service::save);
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, params = "async=true")
+    @Operation(summary = "Saves a new music media, uploading its files in the background.", description = "Answers 202 once the files are spooled, the upload is tracked by the job on the Location header. The contentFile part must be the last part.", requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE, schema = @Schema(implementation = MusicPostDto.class))))
+    public Mono<ResponseEntity<UploadJobDto>> saveAsync(@RequestBody Flux<PartEvent> parts,
+            @RequestHeader HttpHeaders headers,
+            @RequestParam(defaultValue = "0") @Min(0) @Max(9) int priority) {
+        return formReader.read(headers.getContentLength(), parts, MusicPostDto.class,
+                postDto -> service.saveAsync(postDto, priority))
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/uploads/jobs/" + job.getId()))
+                        .body(job));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Saves many music media in one multipart request.", description = "Each music is a JSON part named item followed by its thumbnailFile and contentFile parts. A result is streamed for each music as soon as it's done.")
+    public Flux<BatchItemResultDto> saveBatch(@RequestBody Flux<Part> parts) {
+        return service.saveBatch(parts);
     }
 
     @PutMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Updates an existing music media.")
-    public Mono<MusicSuccessDto> update(@Valid @ModelAttribute MusicPutDto putDto) {
-        return service.update(putDto);
+    @Operation(summary = "Updates an existing music media.", description = "The form is read as the request streams in, the contentFile part must be the last part.", requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE, schema = @Schema(implementation = MusicPutDto.class))))
+    public Mono<MusicSuccessDto> update(@RequestBody Flux<PartEvent> parts,
+            @RequestHeader HttpHeaders headers) {
+        return formReader.read(headers.getContentLength(), parts, MusicPutDto.class, service::update);
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,43 @@
+package com.pitanguinha.streaming.controller;
+
+import org.springframework.http.*;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.dto.playback.PlaybackSessionDto;
+import com.pitanguinha.streaming.service.aws.PlaybackSessionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller for the playback sessions.
+ *
+ * <p>
+ * A session sets CloudFront signed cookies covering an artifact or the whole
+ * catalogue, the media endpoints then return plain URLs for the objects it
+ * covers until it expires.
+ * </p>
+ *
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/playback/sessions")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.cloudfront.enabled", havingValue = "true", matchIfMissing = false)
+@Tag(name = "Playback", description = "Provides endpoints for the playback sessions.")
+public class PlaybackSessionController {
+    private final PlaybackSessionService service;
+
+    @PostMapping
+    @Operation(summary = "Creates a playback session, setting its signed cookies.", description = "The session covers the objects of the artifact if its ID is given, the whole catalogue otherwise.")
+    public Mono<ResponseEntity<PlaybackSessionDto>> create(
+            @RequestParam(required = false) @Pattern(regexp = "[\\w-]+") String artifactId) {
+        return service.create(artifactId);
+    }
+}
@@ -0,0 +1,41 @@
+package com.pitanguinha.streaming.controller;
+
+import org.springframework.web.bind.annotation.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
+import com.pitanguinha.streaming.service.upload.UploadJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.validation.constraints.*;
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.*;
+
+/**
+ * Controller for the upload jobs, the uploads of media files run in the
+ * background.
+ *
+ * <p>
+ * A job is created by saving a media with async on the music or podcast
+ * endpoints, its status is queried here until it succeeds or fails.
+ * </p>
+ *
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/uploads/jobs")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+@Tag(name = "Upload jobs", description = "Provides endpoints for the uploads run in the background.")
+public class UploadJobController {
+    private final UploadJobService service;
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Finds an upload job by its ID with its status.")
+    public Mono<UploadJobDto> findById(@PathVariable @NotBlank String id) {
+        return service.findById(id);
+    }
+}
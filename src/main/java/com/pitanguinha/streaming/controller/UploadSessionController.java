@@ -0,0 +1,65 @@
+package com.pitanguinha.streaming.controller;
+
+import org.springframework.http.*;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.dto.upload.*;
+import com.pitanguinha.streaming.service.upload.UploadSessionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.*;
+
+/**
+ * Controller for the resumable uploads of content files.
+ *
+ * <p>
+ * A session is created, its chunks are uploaded with PUT and can be retried
+ * after a dropped connection, the committed chunks are queried with GET.<br>
+ * The session is finalized by saving the media with its ID instead of the
+ * content file, on the music or podcast endpoints.
+ * </p>
+ *
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/uploads")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+@Tag(name = "Uploads", description = "Provides endpoints for resumable uploads of content files.")
+public class UploadSessionController {
+    private final UploadSessionService service;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Creates a resumable upload session for a content file.")
+    public Mono<UploadSessionDto> create(@Valid @RequestBody UploadSessionPostDto postDto) {
+        return service.create(postDto);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Finds a resumable upload session by its ID with its committed chunks.")
+    public Mono<UploadSessionDto> findById(@PathVariable @NotBlank String id) {
+        return service.findById(id);
+    }
+
+    @PutMapping(value = "/{id}/chunks/{number}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Uploads a chunk of a resumable upload session.", description = "Every chunk must have the chunk size of the session, but the last one that has the remaining bytes. Uploading a chunk again replaces it.")
+    public Mono<UploadChunkDto> uploadChunk(@PathVariable @NotBlank String id, @PathVariable @Positive int number,
+            @RequestBody Flux<DataBuffer> content) {
+        return service.uploadChunk(id, number, content);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Aborts a resumable upload session, dropping its chunks.")
+    public Mono<ResponseEntity<Void>> abort(@PathVariable @NotBlank String id) {
+        return service.abort(id)
+                .thenReturn(ResponseEntity.noContent().build());
+    }
+}
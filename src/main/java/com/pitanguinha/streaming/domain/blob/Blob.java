@@ -0,0 +1,66 @@
+package com.pitanguinha.streaming.domain.blob;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.*;
+
+import lombok.*;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Represents a content-addressed object stored in S3.
+ *
+ * <p>
+ * The ID is the SHA-256 digest of the content, so identical files are stored
+ * only once under the same key and shared by every media that references
+ * them.<br>
+ * The object is deleted when its last reference is released. The document is
+ * kept as a tombstone while the object is being deleted and then marked as
+ * missing, so a store racing the deletion waits for it and uploads the object
+ * again, instead of reusing a key whose object is gone.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "blobs")
+public class Blob {
+    private static final String KEY_PREFIX = "blobs/";
+
+    @Id
+    private String digest;
+
+    private long references;
+
+    private long size;
+
+    @Field("content_type")
+    private String contentType;
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Nullable
+    @Field("deleting_at")
+    private Instant deletingAt;
+
+    private boolean missing;
+
+    /**
+     * Gets the S3 key of a content-addressed object.
+     *
+     * @param digest the hex SHA-256 digest of the content
+     *
+     * @return the key of the object.
+     *
+     * @since 1.0
+     */
+    public static String key(String digest) {
+        return KEY_PREFIX + digest;
+    }
+}
@@ -7,7 +7,9 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import com.mongodb.lang.NonNull;
+import com.pitanguinha.streaming.domain.blob.Blob;
 import com.pitanguinha.streaming.enums.media.ConversionStatus;
+import com.pitanguinha.streaming.utils.audio.AudioInfo;
 
 import lombok.*;
 import lombok.Builder.Default;
@@ -28,6 +30,11 @@ import jakarta.annotation.Nullable;
 @SuperBuilder
 @NoArgsConstructor
 public class Media {
+    /**
+     * The year of a media whose year was not given by the uploader.
+     */
+    public static final int UNKNOWN_YEAR = 0;
+
     @Id
     @Nullable
     private String id;
@@ -55,10 +62,76 @@ public class Media {
     @Field("content_key")
     private String contentKey;
 
+    @Nullable
+    @Field("thumbnail_sha256")
+    private String thumbnailDigest;
+
+    @Nullable
+    @Field("content_sha256")
+    private String contentDigest;
+
     @Default
     @Field("conversion_status")
     private ConversionStatus conversionStatus = ConversionStatus.PENDING;
 
+    /**
+     * Gets the S3 key of the thumbnail.
+     * 
+     * <p>
+     * A thumbnail with a digest is a shared content-addressed object, the
+     * older ones are stored under the media ID.
+     * </p>
+     * 
+     * @return the key of the thumbnail.
+     * 
+     * @see Blob#key(String) Gets the key of a content-addressed object.
+     * 
+     * @since 1.0
+     */
+    public String thumbnailKey() {
+        return thumbnailDigest != null ? Blob.key(thumbnailDigest) : id + "/" + thumbnailSuffix;
+    }
+
+    /**
+     * Fills the fields left empty with the tags embedded in the content file.
+     * 
+     * <p>
+     * The values given by the uploader always win, a tag only fills a blank
+     * field. A year that is still unknown after the tags defaults to the current
+     * year.
+     * </p>
+     * 
+     * @param tags the embedded tags by their normalized key, may be empty
+     * 
+     * @see AudioInfo#tags() The normalized tags.
+     * 
+     * @since 1.0
+     */
+    public void applyTags(Map<String, String> tags) {
+        if (isBlank(title))
+            title = tags.get(AudioInfo.TITLE);
+
+        if (year == UNKNOWN_YEAR)
+            year = tags.containsKey(AudioInfo.YEAR)
+                    ? Integer.parseInt(tags.get(AudioInfo.YEAR))
+                    : LocalDate.now().getYear();
+    }
+
+    /**
+     * Checks if the fields required by the metadata are filled.
+     * 
+     * @return true if the media can be published with its metadata.
+     * 
+     * @since 1.0
+     */
+    public boolean hasRequiredMetadata() {
+        return !isBlank(title);
+    }
+
+    protected static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     public Map<String, String> getMetadata() {
         var metadata = new HashMap<String, String>();
         metadata.put("id", this.id);
@@ -7,6 +7,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import com.mongodb.lang.NonNull;
 import com.mongodb.lang.Nullable;
 import com.pitanguinha.streaming.enums.media.music.*;
+import com.pitanguinha.streaming.utils.audio.AudioInfo;
 
 import lombok.*;
 import lombok.experimental.SuperBuilder;
@@ -45,6 +46,22 @@ public class Music extends Media {
     @Size(min = 1, max = 6)
     private List<Mood> moods;
 
+    @Override
+    public void applyTags(Map<String, String> tags) {
+        super.applyTags(tags);
+
+        if (isBlank(artist))
+            artist = tags.get(AudioInfo.ARTIST);
+
+        if (isBlank(album))
+            album = tags.get(AudioInfo.ALBUM);
+    }
+
+    @Override
+    public boolean hasRequiredMetadata() {
+        return super.hasRequiredMetadata() && !isBlank(artist);
+    }
+
     public Map<String, String> getMetadata() {
         Map<String, String> metadata = super.getMetadata();
         metadata.put("artist", this.artist);
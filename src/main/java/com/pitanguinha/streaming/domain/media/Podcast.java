@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.core.mapping.*;
 
 import com.mongodb.lang.Nullable;
 import com.pitanguinha.streaming.enums.media.podcast.Category;
+import com.pitanguinha.streaming.utils.audio.AudioInfo;
 
 import lombok.*;
 import lombok.Builder.Default;
@@ -40,6 +41,19 @@ public class Podcast extends Media {
     @Default
     private Integer seasonNumber = 1;
 
+    @Override
+    public void applyTags(Map<String, String> tags) {
+        super.applyTags(tags);
+
+        if (isBlank(presenter))
+            presenter = tags.get(AudioInfo.ARTIST);
+    }
+
+    @Override
+    public boolean hasRequiredMetadata() {
+        return super.hasRequiredMetadata() && !isBlank(presenter);
+    }
+
     public Map<String, String> getMetadata() {
         Map<String, String> metadata = super.getMetadata();
         metadata.put("presenter", this.presenter);
@@ -0,0 +1,117 @@
+package com.pitanguinha.streaming.domain.upload;
+
+import java.time.*;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.*;
+import org.springframework.data.mongodb.core.mapping.*;
+
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+
+import lombok.*;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Represents the upload of the files of a media to the storage, run in the
+ * background.
+ *
+ * <p>
+ * The files are spooled to a durable directory when the job is created, so
+ * the request is answered before anything is uploaded.<br>
+ * A worker claims the queued job with the highest priority, locking it for a
+ * while, a job whose lock expired, e.g. by a crash, is claimed again.<br>
+ * The job is removed by the TTL index once it's finished and its retention
+ * expires.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "upload_jobs")
+@CompoundIndex(name = "claim_order", def = "{ 'status' : 1, 'priority' : -1, 'created_at' : 1 }")
+public class UploadJob {
+    @Id
+    @Nullable
+    private String id;
+
+    @Field("media_type")
+    private String mediaType;
+
+    @Field("media_id")
+    private String mediaId;
+
+    private UploadJobStatus status;
+
+    private int priority;
+
+    private int attempts;
+
+    @Nullable
+    private SpooledPart thumbnail;
+
+    @Nullable
+    private SpooledPart content;
+
+    @Nullable
+    private String error;
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    @Nullable
+    @Field("next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Nullable
+    @Field("locked_until")
+    private Instant lockedUntil;
+
+    @Nullable
+    @Field("expires_at")
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
+    private Instant expiresAt;
+
+    /**
+     * Gets the delay before the next attempt of a failed job.
+     *
+     * <p>
+     * The delay doubles with every attempt, starting at the backoff.
+     * </p>
+     *
+     * @param backoff the delay after the first attempt.
+     *
+     * @return the delay before the next attempt.
+     *
+     * @since 1.0
+     */
+    public Duration retryDelay(Duration backoff) {
+        return backoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 10));
+    }
+
+    /**
+     * Represents a file of the job spooled to the durable directory.
+     *
+     * @since 1.0
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpooledPart {
+        private String name;
+
+        private String filename;
+
+        @Field("content_type")
+        private String contentType;
+
+        private String path;
+    }
+}
@@ -0,0 +1,125 @@
+package com.pitanguinha.streaming.domain.upload;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.*;
+
+import lombok.*;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Represents a resumable upload of a content file.
+ *
+ * <p>
+ * A session maps onto a S3 multipart upload, every chunk is uploaded as the
+ * part with the same number. The chunks are uploaded under the key of the
+ * content of the media reserved for the session, so nothing is copied when the
+ * session is finalized.<br>
+ * The session is removed by the TTL index once it expires.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "upload_sessions")
+public class UploadSession {
+    @Id
+    @Nullable
+    private String id;
+
+    @Field("media_id")
+    private String mediaId;
+
+    @Field("upload_id")
+    private String uploadId;
+
+    @Field("content_type")
+    private String contentType;
+
+    private long size;
+
+    @Field("chunk_size")
+    private long chunkSize;
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Field("expires_at")
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
+    private Instant expiresAt;
+
+    /**
+     * Gets the S3 key the chunks are uploaded to.
+     *
+     * @return the key of the content of the reserved media.
+     *
+     * @since 1.0
+     */
+    public String contentKey() {
+        return mediaId + "/content";
+    }
+
+    /**
+     * Gets the number of chunks of the content.
+     *
+     * @return the number of chunks, at least 1.
+     *
+     * @since 1.0
+     */
+    public int totalChunks() {
+        return (int) Math.max(1, Math.ceilDiv(size, chunkSize));
+    }
+
+    /**
+     * Gets the offset of a chunk in the content.
+     *
+     * @param number the number of the chunk, starting at 1.
+     *
+     * @return the offset of the first byte of the chunk.
+     *
+     * @since 1.0
+     */
+    public long chunkOffset(int number) {
+        return (number - 1) * chunkSize;
+    }
+
+    /**
+     * Gets the expected length of a chunk.
+     *
+     * <p>
+     * Every chunk has the chunk size, but the last one that has the remaining
+     * bytes of the content.
+     * </p>
+     *
+     * @param number the number of the chunk, starting at 1.
+     *
+     * @return the expected length of the chunk in bytes.
+     *
+     * @since 1.0
+     */
+    public long chunkLength(int number) {
+        return Math.min(chunkSize, size - chunkOffset(number));
+    }
+
+    /**
+     * Checks if the session has already expired.
+     *
+     * <p>
+     * The TTL monitor of MongoDB runs periodically, so an expired session can
+     * still be found for a while.
+     * </p>
+     *
+     * @return true if the session is expired.
+     *
+     * @since 1.0
+     */
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.isBefore(Instant.now());
+    }
+}
@@ -21,13 +21,12 @@ import jakarta.validation.constraints.*;
 @NoArgsConstructor
 @AllArgsConstructor
 public class MediaPostDto {
-    @NotNull(message = "Title don't be null")
-    @NotEmpty(message = "Title don't be empty")
-    @Schema(description = "The title of the media.", example = "My Media Title")
+    @Size(min = 1, message = "Title don't be empty")
+    @Schema(description = "The title of the media, read from the tags of the content file if not given.", example = "My Media Title")
     private String title;
 
     @ValidYearRange
-    @Schema(description = "The release year of the media.", example = "2025")
+    @Schema(description = "The release year of the media, read from the tags of the content file if not given.", example = "2025")
     private Integer year;
 
     @Schema(description = "Indicates whether the media is explicit.", example = "true")
@@ -38,8 +37,16 @@ public class MediaPostDto {
     @SupportedContentType(enumClass = ThumbnailSupportedTypes.class, message = "Invalid thumbnail content type. Supported types: png, jpeg, webp.")
     private FilePart thumbnailFile;
 
-    @NotNull(message = "Content file don't be null")
-    @Schema(description = "The content file associated with the media.", example = "content.mp3")
+    @Schema(description = "The content file associated with the media, required if no upload session ID is provided.", example = "content.mp3")
     @SupportedContentType(enumClass = AudioSupportedTypes.class, message = "Invalid content file content type. Supported types: opus, ogg, flac, mp3, wav, wav_x, aac.")
     private FilePart contentFile;
+
+    @Schema(description = "The ID of a resumable upload session with the content file, required if no content file is provided.", example = "12345")
+    private String uploadSessionId;
+
+    @Schema(hidden = true)
+    @AssertTrue(message = "Content file or upload session ID must be provided, but not both")
+    public boolean isContentProvided() {
+        return (contentFile == null) != (uploadSessionId == null);
+    }
 }
@@ -0,0 +1,36 @@
+package com.pitanguinha.streaming.dto.media.response;
+
+import com.pitanguinha.streaming.enums.media.*;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Represents the result of an item of a batch ingest.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents the result of an item of a batch ingest.")
+public class BatchItemResultDto {
+    @Schema(description = "The position of the item in the request, starting at 0.", example = "0")
+    private int index;
+
+    @Schema(description = "The ID of the created media, if it was created.", example = "12345")
+    private String id;
+
+    @Schema(description = "The outcome of the item.", example = "CREATED")
+    private BatchItemStatus status;
+
+    @Schema(description = "The type of the error of the item, if it failed.", example = "INVALID_ITEM")
+    private BatchItemErrorType errorType;
+
+    @Schema(description = "The details of the error of the item, if it's invalid.",
+            example = "title: Title don't be empty")
+    private String error;
+}
@@ -29,17 +29,16 @@ import jakarta.validation.constraints.*;
 @EqualsAndHashCode(callSuper = true)
 @Schema(description = "Represents a Post Request for Music.")
 public class MusicPostDto extends MediaPostDto {
-    @NotNull(message = "The artist name cannot be null")
-    @NotEmpty(message = "The artist name cannot be empty")
-    @Schema(description = "The name of the artist.", example = "Pitanguinha Marvada")
+    @Size(min = 1, message = "The artist name cannot be empty")
+    @Schema(description = "The name of the artist, read from the tags of the content file if not given.", example = "Pitanguinha Marvada")
     private String artist;
 
     @Nullable
     @Schema(description = "The list of featured artists.", example = "[\"Pitanguinha\", \"Marvada\"]")
     private List<String> feats;
 
-    @NotNull(message = "The album name cannot be null")
-    @Schema(description = "The album name.", example = "Best of Pitanguinha")
+    @Nullable
+    @Schema(description = "The album name, read from the tags of the content file if not given.", example = "Best of Pitanguinha")
     private String album;
 
     @NotNull(message = "The genre cannot be null")
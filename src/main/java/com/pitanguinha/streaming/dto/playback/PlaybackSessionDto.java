@@ -0,0 +1,31 @@
+package com.pitanguinha.streaming.dto.playback;
+
+import java.time.Instant;
+
+import com.pitanguinha.streaming.enums.media.PlaybackScope;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Represents a Response for a playback session.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents a playback session, its signed cookies are set on the response.")
+public class PlaybackSessionDto {
+    @Schema(description = "The objects covered by the session.", example = "ARTIFACT")
+    private PlaybackScope scope;
+
+    @Schema(description = "The URL pattern covered by the session.", example = "https://cdn.example.com/12345/*")
+    private String resource;
+
+    @Schema(description = "When the session expires.", example = "2025-01-01T00:00:00Z")
+    private Instant expiresAt;
+}
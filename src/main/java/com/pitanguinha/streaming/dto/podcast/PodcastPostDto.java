@@ -27,9 +27,8 @@ import jakarta.validation.constraints.*;
 @EqualsAndHashCode(callSuper = true)
 @Schema(description = "Represents a Post Request for Podcast.")
 public class PodcastPostDto extends MediaPostDto {
-    @NotNull(message = "Presenter cannot be null")
-    @NotEmpty(message = "Presenter cannot be empty")
-    @Schema(description = "The name of the presenter of the podcast.", example = "Pitanguinha Marvada")
+    @Size(min = 1, message = "Presenter cannot be empty")
+    @Schema(description = "The name of the presenter of the podcast, read from the artist tag of the content file if not given.", example = "Pitanguinha Marvada")
     private String presenter;
 
     @Nullable
@@ -0,0 +1,27 @@
+package com.pitanguinha.streaming.dto.upload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Represents a committed chunk of an {@link UploadSession}.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents a committed chunk of a resumable upload session.")
+public class UploadChunkDto {
+    @Schema(description = "The number of the chunk, starting at 1.", example = "1")
+    private int number;
+
+    @Schema(description = "The offset of the chunk in the content file.", example = "0")
+    private long offset;
+
+    @Schema(description = "The size of the chunk in bytes.", example = "8388608")
+    private long size;
+}
@@ -0,0 +1,49 @@
+package com.pitanguinha.streaming.dto.upload;
+
+import java.time.Instant;
+
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Represents a Response for {@link UploadJob}.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents the upload of the files of a media run in the background.")
+public class UploadJobDto {
+    @Schema(description = "The unique identifier of the job.", example = "12345")
+    private String id;
+
+    @Schema(description = "The type of the media, music or podcast.", example = "music")
+    private String mediaType;
+
+    @Schema(description = "The ID of the media the files are uploaded for.", example = "67890")
+    private String mediaId;
+
+    @Schema(description = "The status of the job.", example = "QUEUED")
+    private UploadJobStatus status;
+
+    @Schema(description = "The priority of the job, the higher runs first.", example = "0")
+    private int priority;
+
+    @Schema(description = "The number of attempts already started.", example = "1")
+    private int attempts;
+
+    @Schema(description = "The error of the last failed attempt.", example = "Error uploading files to S3")
+    private String error;
+
+    @Schema(description = "When the job was created.", example = "2025-01-01T00:00:00Z")
+    private Instant createdAt;
+
+    @Schema(description = "When the job was last updated.", example = "2025-01-01T00:00:00Z")
+    private Instant updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.pitanguinha.streaming.dto.upload;
+
+import java.time.Instant;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Represents a Response for {@link UploadSession}.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents a resumable upload session and its committed chunks.")
+public class UploadSessionDto {
+    @Schema(description = "The unique identifier of the session.", example = "12345")
+    private String id;
+
+    @Schema(description = "The size of the content file in bytes.", example = "157286400")
+    private long size;
+
+    @Schema(description = "The size of every chunk but the last one.", example = "8388608")
+    private long chunkSize;
+
+    @Schema(description = "The number of chunks of the content file.", example = "19")
+    private int totalChunks;
+
+    @Schema(description = "When the session expires if it's not finalized.", example = "2025-01-01T00:00:00Z")
+    private Instant expiresAt;
+
+    @Schema(description = "The chunks already committed, ordered by number.")
+    private List<UploadChunkDto> committedChunks;
+}
@@ -0,0 +1,27 @@
+package com.pitanguinha.streaming.dto.upload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import jakarta.validation.constraints.*;
+
+/**
+ * Represents a Post Request for {@link UploadSession}.
+ * 
+ * @since 1.0
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Represents a Post Request for a resumable upload session.")
+public class UploadSessionPostDto {
+    @NotBlank(message = "Content type don't be blank")
+    @Schema(description = "The content type of the content file.", example = "audio/mpeg")
+    private String contentType;
+
+    @Positive(message = "Size must be greater than 0")
+    @Schema(description = "The size of the content file in bytes.", example = "157286400")
+    private long size;
+}
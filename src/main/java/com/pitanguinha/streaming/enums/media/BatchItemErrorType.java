@@ -0,0 +1,14 @@
+package com.pitanguinha.streaming.enums.media;
+
+/**
+ * Enum representing the error of a failed item of a batch ingest.
+ * 
+ * @since 1.0
+ */
+public enum BatchItemErrorType {
+    INVALID_ITEM,
+    INVALID_FILE,
+    INSERT_FAILED,
+    UPLOAD_REJECTED,
+    UPLOAD_FAILED
+}
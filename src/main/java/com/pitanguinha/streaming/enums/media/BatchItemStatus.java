@@ -0,0 +1,11 @@
+package com.pitanguinha.streaming.enums.media;
+
+/**
+ * Enum representing the outcome of an item of a batch ingest.
+ * 
+ * @since 1.0
+ */
+public enum BatchItemStatus {
+    CREATED,
+    FAILED
+}
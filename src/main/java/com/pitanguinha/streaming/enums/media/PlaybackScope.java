@@ -0,0 +1,11 @@
+package com.pitanguinha.streaming.enums.media;
+
+/**
+ * Enum representing the objects covered by a playback session.
+ * 
+ * @since 1.0
+ */
+public enum PlaybackScope {
+    ARTIFACT,
+    CATALOGUE
+}
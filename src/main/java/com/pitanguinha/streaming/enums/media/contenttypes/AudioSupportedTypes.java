@@ -1,28 +1,38 @@
 package com.pitanguinha.streaming.enums.media.contenttypes;
 
+import java.util.function.Predicate;
+
 /**
  * Enum representing supported audio content types.
  * This enum implements the SupportedType interface and provides
- * specific content types for audio files.
+ * specific content types for audio files, with the signature of
+ * their leading bytes.
  * 
  * @since 1.0
  */
 public enum AudioSupportedTypes implements SupportedType {
-    OPUS("audio/opus"),
-    OGG("audio/ogg"),
-    FLAC("audio/flac"),
-    MP3("audio/mpeg"),
-    WAV("audio/wav"),
-    WAV_X("audio/x-wav"),
-    AAC("audio/aac");
+    OPUS("audio/opus", ContentSignatures::isOpus),
+    OGG("audio/ogg", ContentSignatures::isOgg),
+    FLAC("audio/flac", ContentSignatures::isFlac),
+    MP3("audio/mpeg", ContentSignatures::isMp3),
+    WAV("audio/wav", ContentSignatures::isWav),
+    WAV_X("audio/x-wav", ContentSignatures::isWav),
+    AAC("audio/aac", ContentSignatures::isAac);
 
     private final String contentType;
+    private final Predicate<byte[]> signature;
 
-    AudioSupportedTypes(String contentType) {
+    AudioSupportedTypes(String contentType, Predicate<byte[]> signature) {
         this.contentType = contentType;
+        this.signature = signature;
     }
 
     public String getContentType() {
         return contentType;
     }
+
+    @Override
+    public boolean matches(byte[] head) {
+        return signature.test(head);
+    }
 }
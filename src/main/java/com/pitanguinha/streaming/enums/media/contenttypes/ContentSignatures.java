@@ -0,0 +1,124 @@
+package com.pitanguinha.streaming.enums.media.contenttypes;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Signatures of the supported content types.
+ *
+ * <p>
+ * Each signature checks the leading bytes of a file, its magic bytes, so a
+ * file can be recognized before it's fully read.<br>
+ * An audio file may start with an ID3v2 tag, which is accepted for the
+ * formats that are usually tagged with it.
+ * </p>
+ *
+ * @see SupportedType#matches(byte[]) Checks the signature of a content type.
+ *
+ * @since 1.0
+ */
+final class ContentSignatures {
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int OGG_PAGE_HEADER_LENGTH = 27;
+
+    private ContentSignatures() {
+    }
+
+    static boolean isPng(byte[] head) {
+        return startsWith(head, 0, PNG);
+    }
+
+    static boolean isJpeg(byte[] head) {
+        return u8(head, 0) == 0xFF && u8(head, 1) == 0xD8 && u8(head, 2) == 0xFF;
+    }
+
+    static boolean isWebp(byte[] head) {
+        return startsWith(head, 0, "RIFF") && startsWith(head, 8, "WEBP");
+    }
+
+    static boolean isOgg(byte[] head) {
+        return startsWith(head, 0, "OggS");
+    }
+
+    /**
+     * Checks if the first Ogg page has the Opus identification header.
+     *
+     * @param head the leading bytes
+     *
+     * @return true if the file is an Ogg Opus stream
+     *
+     * @since 1.0
+     */
+    static boolean isOpus(byte[] head) {
+        return isOgg(head) && head.length > OGG_PAGE_HEADER_LENGTH
+                && startsWith(head, OGG_PAGE_HEADER_LENGTH + u8(head, 26), "OpusHead");
+    }
+
+    static boolean isFlac(byte[] head) {
+        return startsWith(head, 0, "fLaC") || isId3(head);
+    }
+
+    /**
+     * Checks if the file starts with an MPEG audio frame header.
+     *
+     * <p>
+     * The frame sync is followed by a valid version, a layer other than the
+     * reserved one, which is used by ADTS, and a valid bitrate and sample
+     * rate.
+     * </p>
+     *
+     * @param head the leading bytes
+     *
+     * @return true if the file is an MP3, or tagged with ID3v2
+     *
+     * @since 1.0
+     */
+    static boolean isMp3(byte[] head) {
+        if (isId3(head))
+            return true;
+
+        return u8(head, 0) == 0xFF && (u8(head, 1) & 0xE0) == 0xE0
+                && ((u8(head, 1) >> 3) & 3) != 1 && ((u8(head, 1) >> 1) & 3) != 0
+                && (u8(head, 2) >> 4) != 0xF && ((u8(head, 2) >> 2) & 3) != 3;
+    }
+
+    static boolean isWav(byte[] head) {
+        return (startsWith(head, 0, "RIFF") || startsWith(head, 0, "RF64")) && startsWith(head, 8, "WAVE");
+    }
+
+    /**
+     * Checks if the file starts with an ADTS frame header or an ADIF header.
+     *
+     * @param head the leading bytes
+     *
+     * @return true if the file is an AAC, or tagged with ID3v2
+     *
+     * @since 1.0
+     */
+    static boolean isAac(byte[] head) {
+        return isId3(head) || startsWith(head, 0, "ADIF")
+                || (u8(head, 0) == 0xFF && (u8(head, 1) & 0xF6) == 0xF0);
+    }
+
+    private static boolean isId3(byte[] head) {
+        return startsWith(head, 0, "ID3");
+    }
+
+    private static boolean startsWith(byte[] head, int offset, String magic) {
+        return startsWith(head, offset, magic.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static boolean startsWith(byte[] head, int offset, byte[] magic) {
+        if (offset < 0 || offset + magic.length > head.length)
+            return false;
+
+        for (int i = 0; i < magic.length; i++)
+            if (head[offset + i] != magic[i])
+                return false;
+
+        return true;
+    }
+
+    private static int u8(byte[] head, int index) {
+        return index < head.length ? head[index] & 0xFF : -1;
+    }
+}
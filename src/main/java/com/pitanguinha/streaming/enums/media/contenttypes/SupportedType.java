@@ -3,10 +3,21 @@ package com.pitanguinha.streaming.enums.media.contenttypes;
 /**
  * Interface representing a supported content type.
  * This interface defines a method to get the content type as a string
- * and a default method to check if a given content type is supported.
+ * and a method to check if the leading bytes of a file match its signature.
  * 
  * @since 1.0
  */
 public interface SupportedType {
     String getContentType();
+
+    /**
+     * Checks if the leading bytes of a file match the signature of the type.
+     * 
+     * @param head the leading bytes of the file, shorter for a small file
+     * 
+     * @return true if the file content is of this type
+     * 
+     * @since 1.0
+     */
+    boolean matches(byte[] head);
 }
@@ -1,5 +1,7 @@
 package com.pitanguinha.streaming.enums.media.contenttypes;
 
+import java.util.*;
+
 /**
  * Utility class for checking if a given content type is supported by a
  * specified enum class.
@@ -32,4 +34,24 @@ public class SupportedTypeUtil {
 
         return false;
     }
+
+    /**
+     * Finds the supported type of a content type.
+     * 
+     * @param enumClass   the enum class of the supported types
+     * @param contentType the content type to find
+     * 
+     * @return the supported type, or empty if the content type is not
+     *         supported
+     * 
+     * @since 1.0
+     */
+    public static <T extends Enum<T> & SupportedType> Optional<T> find(Class<T> enumClass, String contentType) {
+        if (contentType == null)
+            return Optional.empty();
+
+        return Arrays.stream(enumClass.getEnumConstants())
+                .filter(type -> type.getContentType().equalsIgnoreCase(contentType))
+                .findFirst();
+    }
 }
@@ -1,24 +1,34 @@
 package com.pitanguinha.streaming.enums.media.contenttypes;
 
+import java.util.function.Predicate;
+
 /**
  * Enum representing supported thumbnail content types.
  * This enum implements the SupportedType interface and provides
- * specific content types for thumbnails.
+ * specific content types for thumbnails, with the signature of
+ * their leading bytes.
  * 
  * @since 1.0
  */
 public enum ThumbnailSupportedTypes implements SupportedType {
-    PNG("image/png"),
-    JPEG("image/jpeg"),
-    WEBP("image/webp");
+    PNG("image/png", ContentSignatures::isPng),
+    JPEG("image/jpeg", ContentSignatures::isJpeg),
+    WEBP("image/webp", ContentSignatures::isWebp);
 
     private final String contentType;
+    private final Predicate<byte[]> signature;
 
-    ThumbnailSupportedTypes(String contentType) {
+    ThumbnailSupportedTypes(String contentType, Predicate<byte[]> signature) {
         this.contentType = contentType;
+        this.signature = signature;
     }
 
     public String getContentType() {
         return contentType;
     }
+
+    @Override
+    public boolean matches(byte[] head) {
+        return signature.test(head);
+    }
 }
@@ -0,0 +1,29 @@
+package com.pitanguinha.streaming.enums.upload;
+
+/**
+ * Enum representing the states of an upload job.
+ * 
+ * <p>
+ * A job is queued until a worker claims it, a failed attempt queues it again
+ * until its attempts are exhausted.
+ * </p>
+ * 
+ * @since 1.0
+ */
+public enum UploadJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    /**
+     * Checks if the job will not run again.
+     * 
+     * @return true if the job succeeded or failed for good.
+     * 
+     * @since 1.0
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
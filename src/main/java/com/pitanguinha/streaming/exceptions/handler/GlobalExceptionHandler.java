@@ -1,6 +1,7 @@
 package com.pitanguinha.streaming.exceptions.handler;
 
 import org.slf4j.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.core.codec.DecodingException;
 
@@ -11,11 +12,13 @@ import java.util.stream.Collectors;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
 
 import com.pitanguinha.streaming.exceptions.domain.*;
 import com.pitanguinha.streaming.exceptions.search.*;
 import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
-import com.pitanguinha.streaming.exceptions.internal.InternalException;
+import com.pitanguinha.streaming.exceptions.internal.*;
 import com.pitanguinha.streaming.exceptions.aws.cloudfront.CloudFrontSigningException;
 
 import reactor.core.publisher.Mono;
@@ -195,6 +198,51 @@ public class GlobalExceptionHandler {
                 detailsMap);
     }
 
+    /**
+     * Handles exceptions related to temporarily exhausted resources.
+     *
+     * @param ex The exception thrown when a resource is exhausted.
+     * @return A ResponseEntity containing the error details and HTTP status.
+     */
+    @ExceptionHandler(ResourceExhaustedException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleResourceExhaustedException(ResourceExhaustedException ex) {
+        LOG.warn("[ResourceExhaustedException] Error occured: {} - {}", ex.getMessage(), ex.getDetails());
+
+        var detail = ex.getDetails();
+        var detailsMap = new LinkedHashMap<String, Object>(Map.of(
+                "severityLevel", detail.severityLevel().name(),
+                "propagationTime", detail.propagationTime().toString()));
+
+        return buildResponseError(
+                "Service temporarily unavailable",
+                ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE,
+                detailsMap);
+    }
+
+    /**
+     * Handles requests rejected by the admission control.
+     *
+     * @param ex The exception thrown when a request is not admitted.
+     * @return A ResponseEntity containing the error details, HTTP status and
+     *         the Retry-After header.
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleAdmissionRejectedException(AdmissionRejectedException ex) {
+        LOG.warn("[AdmissionRejectedException] Error occured: {} - {}", ex.getMessage(), ex.getDetails());
+
+        long retryAfter = Math.max(1, ex.getRetryAfter().toSeconds());
+
+        return buildResponseError(
+                "Too many requests",
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS,
+                Map.of("retryAfter", retryAfter))
+                .map(response -> ResponseEntity.status(response.getStatusCode())
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                        .body(response.getBody()));
+    }
+
     /**
      * Handles validation errors that occur during request binding.
      *
@@ -205,18 +253,20 @@ public class GlobalExceptionHandler {
     public Mono<ResponseEntity<ErrorResponse>> handleWebExchangeBindException(WebExchangeBindException ex) {
         LOG.warn("[WebExchangeBindException] Validation error: {}", ex.getMessage(), ex);
 
-        var errors = ex.getFieldErrors().stream()
-                .collect(Collectors.groupingBy(
-                        fieldError -> fieldError.getField(),
-                        Collectors.mapping(
-                                fieldError -> fieldError.getDefaultMessage(),
-                                Collectors.toList())));
+        return buildValidationError(ex);
+    }
 
-        return buildResponseError(
-                "Validation error occurred",
-                "Invalid input data",
-                HttpStatus.BAD_REQUEST,
-                Map.of("validationErrors", errors));
+    /**
+     * Handles validation errors that occur while binding a streamed form.
+     *
+     * @param ex The exception thrown during form binding.
+     * @return A ResponseEntity containing the error details and HTTP status.
+     */
+    @ExceptionHandler(BindException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleBindException(BindException ex) {
+        LOG.warn("[BindException] Validation error: {}", ex.getMessage(), ex);
+
+        return buildValidationError(ex);
     }
 
     /**
@@ -254,6 +304,27 @@ public class GlobalExceptionHandler {
                 Map.of("error", ex.getClass().getSimpleName(), "message", ex.getMessage()));
     }
 
+    /**
+     * Builds a standardized error response for the field errors of a binding.
+     *
+     * @param result The result of the binding.
+     * @return A Mono containing the ResponseEntity with the error response.
+     */
+    private Mono<ResponseEntity<ErrorResponse>> buildValidationError(BindingResult result) {
+        var errors = result.getFieldErrors().stream()
+                .collect(Collectors.groupingBy(
+                        fieldError -> fieldError.getField(),
+                        Collectors.mapping(
+                                fieldError -> fieldError.getDefaultMessage(),
+                                Collectors.toList())));
+
+        return buildResponseError(
+                "Validation error occurred",
+                "Invalid input data",
+                HttpStatus.BAD_REQUEST,
+                Map.of("validationErrors", errors));
+    }
+
     /**
      * Builds a standardized error response.
      *
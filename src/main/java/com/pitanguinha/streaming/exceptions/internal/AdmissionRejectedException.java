@@ -0,0 +1,27 @@
+package com.pitanguinha.streaming.exceptions.internal;
+
+import java.time.Duration;
+
+/**
+ * Exception class for a request rejected by the admission control.
+ * 
+ * <p>
+ * This exception is thrown when a node is already handling as much as its
+ * limits allow and the request can't wait for them. The request is answered
+ * as too many requests, with a hint of when it can be retried.
+ * </p>
+ * 
+ * @since 1.0
+ */
+public class AdmissionRejectedException extends ResourceExhaustedException {
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String message, Class<?> instanceClass, Duration retryAfter) {
+        super(message, instanceClass);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,20 @@
+package com.pitanguinha.streaming.exceptions.internal;
+
+import com.pitanguinha.streaming.enums.exceptions.SeverityLevel;
+
+/**
+ * Exception class for a temporarily exhausted resource of the application.
+ * 
+ * <p>
+ * This exception is thrown when a request can't get a limited resource, like
+ * the scratch space on disk, within its timeout. The request can be retried
+ * later, so it's answered as unavailable instead of an internal error.
+ * </p>
+ * 
+ * @since 1.0
+ */
+public class ResourceExhaustedException extends InternalException {
+    public ResourceExhaustedException(String message, Class<?> instanceClass) {
+        super(message, instanceClass, SeverityLevel.MEDIUM);
+    }
+}
@@ -29,6 +29,8 @@ public interface MusicMapper {
 
     @Mapping(target = "genre", expression = "java(mapStringToGenre(dto.getGenre(), null))")
     @Mapping(target = "moods", expression = "java(mapStringToMoods(dto.getMoods(), null))")
+    // A year not given is unknown until the tags of the content file are read
+    @Mapping(target = "year", source = "year", defaultValue = "0")
     Music toEntity(MusicPostDto dto);
 
     @Mapping(target = "genre", expression = "java(mapStringToGenre(dto.getGenre(), entity.getGenre()))")
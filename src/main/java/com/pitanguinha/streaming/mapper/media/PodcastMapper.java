@@ -18,6 +18,8 @@ public interface PodcastMapper {
     PodcastSuccessDto toDto(Podcast entity);
 
     @Mapping(target = "categories", expression = "java(mapStringToCategories(dto.getCategories(), null))")
+    // A year not given is unknown until the tags of the content file are read
+    @Mapping(target = "year", source = "year", defaultValue = "0")
     Podcast toEntity(PodcastPostDto dto);
 
     @Mapping(target = "categories", expression = "java(mapStringToCategories(dto.getCategories(), entity.getCategories()))")
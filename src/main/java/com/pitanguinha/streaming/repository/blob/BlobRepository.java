@@ -0,0 +1,95 @@
+package com.pitanguinha.streaming.repository.blob;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.repository.*;
+
+import com.pitanguinha.streaming.domain.blob.Blob;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository for {@link Blob} entities.
+ * 
+ * @since 1.0
+ */
+public interface BlobRepository extends ReactiveMongoRepository<Blob, String> {
+    /**
+     * Atomically adds a delta to the references of a {@link Blob}.
+     * 
+     * @param digest the digest of the blob.
+     * @param delta  the number of references to add, negative to remove.
+     * @return a {@link Mono} of the number of updated blobs, 0 if not found.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0 }")
+    @Update("{ '$inc' : { 'references' : ?1 } }")
+    Mono<Long> incrementReferences(String digest, long delta);
+
+    /**
+     * Atomically adds a reference to a {@link Blob} whose object is stored.
+     * 
+     * @param digest the digest of the blob.
+     * @return a {@link Mono} of the number of updated blobs, 0 if not found,
+     *         being deleted or missing its object.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0, 'deleting_at' : null, 'missing' : { $ne : true } }")
+    @Update("{ '$inc' : { 'references' : 1 } }")
+    Mono<Long> incrementIfStored(String digest);
+
+    /**
+     * Atomically adds a reference to a {@link Blob} whose object was deleted.
+     * 
+     * @param digest the digest of the blob.
+     * @return a {@link Mono} of the number of updated blobs, 0 if not found,
+     *         being deleted or stored.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0, 'deleting_at' : null, 'missing' : true }")
+    @Update("{ '$inc' : { 'references' : 1 } }")
+    Mono<Long> incrementIfMissing(String digest);
+
+    /**
+     * Marks a {@link Blob} with no references left as being deleted.
+     * 
+     * @param digest the digest of the blob.
+     * @param now    the instant of the deletion, in milliseconds.
+     * @return a {@link Mono} of the number of marked blobs, 0 if still
+     *         referenced, already being deleted or missing its object.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0, 'references' : { $lte: 0 }, 'deleting_at' : null, 'missing' : { $ne : true } }")
+    @Update("{ '$set' : { 'deleting_at' : ?1 } }")
+    Mono<Long> markDeleting(String digest, Instant now);
+
+    /**
+     * Marks a {@link Blob} being deleted as missing its object.
+     * 
+     * @param digest     the digest of the blob.
+     * @param deletingAt the instant of the deletion being finished.
+     * @return a {@link Mono} of the number of marked blobs, 0 if the deletion
+     *         was already finished.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0, 'deleting_at' : ?1 }")
+    @Update("{ '$set' : { 'deleting_at' : null, 'missing' : true } }")
+    Mono<Long> markDeleted(String digest, Instant deletingAt);
+
+    /**
+     * Marks a {@link Blob} as having its object stored again.
+     * 
+     * @param digest the digest of the blob.
+     * @return a {@link Mono} of the number of marked blobs.
+     * 
+     * @since 1.0
+     */
+    @Query("{ '_id' : ?0 }")
+    @Update("{ '$set' : { 'missing' : false } }")
+    Mono<Long> markStored(String digest);
+}
@@ -0,0 +1,49 @@
+package com.pitanguinha.streaming.repository.upload;
+
+import java.time.*;
+
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository fragment claiming {@link UploadJob} entities for a worker.
+ * 
+ * @since 1.0
+ */
+public interface UploadJobClaimRepository {
+    /**
+     * Atomically claims the next job to run.
+     * 
+     * <p>
+     * The job is a queued one due to run, or a running one whose lock expired.
+     * The one with the highest priority is claimed first, then the oldest.
+     * </p>
+     * 
+     * @param now         the current instant.
+     * @param lockTimeout how long the job is locked for the worker.
+     * @return a {@link Mono} of the claimed job, running with one more attempt,
+     *         or empty if no job is due.
+     * 
+     * @since 1.0
+     */
+    Mono<UploadJob> claimNext(Instant now, Duration lockTimeout);
+
+    /**
+     * Atomically reports the outcome of an attempt, if the claim still holds.
+     * 
+     * <p>
+     * The outcome is only written if the job is still running under the lock
+     * of the claim, so a worker whose lock expired, and whose job may have been
+     * claimed again by another worker, can't overwrite the new claim.
+     * </p>
+     * 
+     * @param job          the job with the outcome of the attempt.
+     * @param claimedUntil the lock of the claim of the attempt.
+     * @return a {@link Mono} of the updated job, or empty if the claim was
+     *         lost.
+     * 
+     * @since 1.0
+     */
+    Mono<UploadJob> report(UploadJob job, Instant claimedUntil);
+}
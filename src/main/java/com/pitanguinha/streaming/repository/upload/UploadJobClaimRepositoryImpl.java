@@ -0,0 +1,60 @@
+package com.pitanguinha.streaming.repository.upload;
+
+import static org.springframework.data.mongodb.core.query.Criteria.*;
+
+import java.time.*;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.*;
+import org.springframework.data.mongodb.core.query.*;
+
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementation of {@link UploadJobClaimRepository} with single
+ * findAndModify operations, so a job is never claimed by two workers and only
+ * the worker holding the claim reports its outcome.
+ * 
+ * @since 1.0
+ */
+@RequiredArgsConstructor
+class UploadJobClaimRepositoryImpl implements UploadJobClaimRepository {
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<UploadJob> claimNext(Instant now, Duration lockTimeout) {
+        Query query = new Query(new Criteria().orOperator(
+                where("status").is(UploadJobStatus.QUEUED).and("nextAttemptAt").lte(now),
+                where("status").is(UploadJobStatus.RUNNING).and("lockedUntil").lt(now)))
+                .with(Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("createdAt")));
+
+        Update update = new Update()
+                .set("status", UploadJobStatus.RUNNING)
+                .set("lockedUntil", now.plus(lockTimeout))
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), UploadJob.class);
+    }
+
+    @Override
+    public Mono<UploadJob> report(UploadJob job, Instant claimedUntil) {
+        Query query = new Query(where("_id").is(job.getId())
+                .and("status").is(UploadJobStatus.RUNNING)
+                .and("lockedUntil").is(claimedUntil));
+
+        Update update = new Update()
+                .set("status", job.getStatus())
+                .set("error", job.getError())
+                .set("lockedUntil", job.getLockedUntil())
+                .set("nextAttemptAt", job.getNextAttemptAt())
+                .set("expiresAt", job.getExpiresAt())
+                .set("updatedAt", job.getUpdatedAt());
+
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), UploadJob.class);
+    }
+}
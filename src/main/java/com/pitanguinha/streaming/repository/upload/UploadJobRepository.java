@@ -0,0 +1,15 @@
+package com.pitanguinha.streaming.repository.upload;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+
+/**
+ * Repository for {@link UploadJob} entities.
+ * 
+ * @see UploadJobClaimRepository Claims the queued jobs.
+ * 
+ * @since 1.0
+ */
+public interface UploadJobRepository extends ReactiveMongoRepository<UploadJob, String>, UploadJobClaimRepository {
+}
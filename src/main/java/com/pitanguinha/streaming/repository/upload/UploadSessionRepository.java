@@ -0,0 +1,13 @@
+package com.pitanguinha.streaming.repository.upload;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.pitanguinha.streaming.domain.upload.UploadSession;
+
+/**
+ * Repository for {@link UploadSession} entities.
+ * 
+ * @since 1.0
+ */
+public interface UploadSessionRepository extends ReactiveMongoRepository<UploadSession, String> {
+}
@@ -2,38 +2,109 @@ package com.pitanguinha.streaming.service;
 
 import java.io.*;
 import java.nio.file.*;
+import java.time.*;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
 
 import org.slf4j.*;
 
 import org.springframework.stereotype.Service;
 
+import com.pitanguinha.streaming.config.scratch.ScratchProperties;
 import com.pitanguinha.streaming.enums.exceptions.SeverityLevel;
-import com.pitanguinha.streaming.exceptions.internal.InternalException;
+import com.pitanguinha.streaming.exceptions.internal.*;
 
 import org.springframework.beans.factory.annotation.*;
 
+import jakarta.annotation.*;
 import jakarta.validation.constraints.NotNull;
 
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
 /**
  * Service class for temp directories.
  * 
  * <p>
  * Is used to make actions on temp directories.<br>
  * Like create directories, create subdirectories, delete directories and files.
+ * <br>
+ * It also manages the scratch space, handed out as leases with a reserved
+ * size that are released when the pipeline using them finishes. The
+ * reservations are bounded by a quota and by the free space of the disk, a
+ * new lease waits for space in a FIFO queue instead of filling the disk, and
+ * is woken up when a lease is released.<br>
+ * The free space is sampled in the background instead of being read by each
+ * lease, so no lease reads the disk on the event loop.<br>
+ * The directories of the scratch space without lease, e.g. left by a crash,
+ * are removed by a background sweeper.
  * </p>
  * 
  * @see Supported classes: {@link OpusHandler} and {@link DashAudioHandler}
+ * @see ScratchProperties The properties of the scratch space.
  * 
  * @since 1.0
  */
 @Service
 public class TempDirService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TempDirService.class);
+    private static final String SCRATCH_DIR = "scratch";
+
     @Value("${spring.application.temp-dir:/tmp/app/streaming/prod/}")
     private Path baseDir;
 
+    private final ScratchProperties properties;
+    private final Lock[] locks;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final Map<Path, Lease> leases = new ConcurrentHashMap<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private volatile long usableSpace = Long.MAX_VALUE;
+    private Disposable sweeper;
+    private Disposable sampler;
+
+    public TempDirService(ScratchProperties properties) {
+        this.properties = properties;
+        this.locks = new Lock[properties.lockStripes()];
+        Arrays.setAll(locks, $ -> new ReentrantLock());
+    }
+
+    /**
+     * Starts the sweeper of orphaned scratch directories and the sampler of the
+     * free space.
+     * 
+     * <p>
+     * The first sweep runs right away, removing the directories left by a
+     * previous run. The free space is sampled once before any lease.
+     * </p>
+     * 
+     * @see #sweep() Removes the orphaned directories.
+     * @see #sampleUsableSpace() Samples the free space.
+     * 
+     * @since 1.0
+     */
+    @PostConstruct
+    public void startSweeper() {
+        sampleUsableSpace();
+
+        this.sweeper = Flux.interval(Duration.ZERO, properties.sweepInterval(), Schedulers.boundedElastic())
+                .subscribe($ -> sweep());
+        this.sampler = Flux.interval(properties.sampleInterval(), Schedulers.boundedElastic())
+                .subscribe($ -> sampleUsableSpace());
+    }
+
+    @PreDestroy
+    public void stopSweeper() {
+        if (sweeper != null)
+            sweeper.dispose();
+        if (sampler != null)
+            sampler.dispose();
+    }
+
     // /**
     // * Create directories.
     // *
@@ -121,19 +192,495 @@ public class TempDirService {
             return dirPath;
         }
 
-        synchronized (dirName.intern()) {
+        return createDirectories(dirName);
+    }
+
+    /**
+     * Create the directory while holding the lock of its name.
+     * 
+     * <p>
+     * The names share a fixed set of locks, so the same name is always
+     * serialized without interning it.
+     * </p>
+     * 
+     * @param dirName The name of the directory, relative to the base directory.
+     * 
+     * @return The path of the directory.
+     * 
+     * @throws InternalException if has an error on creating the directory.
+     * 
+     * @since 1.0
+     */
+    private Path createDirectories(String dirName) {
+        Lock lock = locks[Math.floorMod(dirName.hashCode(), locks.length)];
+        lock.lock();
+        try {
+            LOGGER.debug("Directory created for {}", dirName);
+            return Files.createDirectories(this.baseDir.resolve(dirName));
+        } catch (IOException e) {
+            LOGGER.error("Error creating directory: {}", e.getMessage());
+            throw new InternalException(
+                    "Error during creating directory for %s: %s".formatted(dirName, e.getMessage()),
+                    TempDirService.class, SeverityLevel.HIGH, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a pipeline with a leased scratch directory.
+     * 
+     * <p>
+     * The lease is released, deleting its directory and freeing its
+     * reservation, when the pipeline completes, fails or is cancelled.
+     * </p>
+     * 
+     * @param name  The name of the lease, used as prefix of its directory.
+     * @param bytes The bytes to reserve, the most the pipeline will write.
+     * @param work  The pipeline using the directory.
+     * 
+     * @return The result of the pipeline.
+     * 
+     * @throws ResourceExhaustedException if no space is available in time.
+     * 
+     * @see #lease(String, long) Acquires the lease.
+     * 
+     * @since 1.0
+     */
+    public <T> Mono<T> withLease(@NotNull String name, long bytes, Function<Path, Mono<T>> work) {
+        return Mono.usingWhen(lease(name, bytes),
+                lease -> work.apply(lease.dir()),
+                this::release,
+                (lease, e) -> release(lease),
+                this::release);
+    }
+
+    /**
+     * Runs a pipeline that writes outside the scratch directories, e.g. the
+     * ingest spool, with a reservation of the scratch space.
+     * 
+     * <p>
+     * The reservation waits like a lease, and is freed when the pipeline
+     * completes, fails or is cancelled. The files left by the pipeline are not
+     * reserved afterwards, they are counted by the sampled free space of the
+     * disk instead.
+     * </p>
+     * 
+     * @param bytes The bytes to reserve, the most the pipeline will write.
+     * @param work  The pipeline writing the bytes.
+     * 
+     * @return The result of the pipeline.
+     * 
+     * @throws IllegalArgumentException   if the bytes are negative or above the
+     *                                    quota.
+     * @throws ResourceExhaustedException if no space is available in time.
+     * 
+     * @since 1.0
+     */
+    public <T> Mono<T> withReservation(long bytes, Supplier<Mono<T>> work) {
+        if (!isValidSize(bytes))
+            return Mono.error(new IllegalArgumentException(
+                    "Scratch reservation size must be between 0 and %d bytes: %d"
+                            .formatted(properties.quota().toBytes(), bytes)));
+
+        return Mono.usingWhen(reserve(bytes),
+                $ -> work.get(),
+                $ -> Mono.fromRunnable(() -> free(bytes)));
+    }
+
+    /**
+     * Acquires a lease on a new scratch directory.
+     * 
+     * <p>
+     * The bytes are reserved against the quota, and the disk must keep its
+     * minimum free space after them. While there is no space, or other leases
+     * are already waiting, the lease waits in a FIFO queue up to the acquire
+     * timeout, so a large lease is not starved by the small ones behind it.<br>
+     * The caller must close the lease, prefer
+     * {@link #withLease(String, long, Function)}.
+     * </p>
+     * 
+     * @param name  The name of the lease, used as prefix of its directory.
+     * @param bytes The bytes to reserve.
+     * 
+     * @return A Mono with the lease.
+     * 
+     * @throws IllegalArgumentException   if the bytes are negative or above the
+     *                                    quota.
+     * @throws ResourceExhaustedException if no space is available in time.
+     * 
+     * @since 1.0
+     */
+    public Mono<Lease> lease(@NotNull String name, long bytes) {
+        isValidString(name);
+        if (!isValidSize(bytes))
+            return Mono.error(new IllegalArgumentException(
+                    "Scratch lease size must be between 0 and %d bytes: %d".formatted(properties.quota().toBytes(),
+                            bytes)));
+
+        return Mono.defer(() -> {
+            AtomicBoolean reserved = new AtomicBoolean();
+
+            return reserve(bytes)
+                    .doOnNext($ -> reserved.set(true))
+                    .publishOn(Schedulers.boundedElastic())
+                    .<Lease>handle(($, sink) -> {
+                        // The reservation is owned by the lease from here on
+                        if (reserved.compareAndSet(true, false))
+                            sink.next(createLease(name, bytes));
+                    })
+                    .doOnCancel(() -> {
+                        if (reserved.getAndSet(false))
+                            free(bytes);
+                    });
+        });
+    }
+
+    private boolean isValidSize(long bytes) {
+        return bytes >= 0 && bytes <= properties.quota().toBytes();
+    }
+
+    /**
+     * Reserves bytes of the scratch space, waiting in the queue if they are not
+     * available.
+     * 
+     * <p>
+     * A cancelled wait leaves the queue, and a reservation granted to a
+     * cancelled wait is freed right away.
+     * </p>
+     * 
+     * @param bytes The bytes to reserve.
+     * 
+     * @return A Mono that emits once the bytes are reserved.
+     * 
+     * @throws ResourceExhaustedException if the wait timed out.
+     * 
+     * @since 1.0
+     */
+    private Mono<Boolean> reserve(long bytes) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(bytes, sink);
+            sink.onCancel(() -> cancel(waiter));
+
+            synchronized (waiters) {
+                if (waiter.cancelled)
+                    return;
+
+                if (!waiters.isEmpty() || !tryReserve(bytes)) {
+                    waiters.addLast(waiter);
+                    waiter.timer = Schedulers.parallel().schedule(() -> expire(waiter),
+                            properties.acquireTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                waiter.reserved = true;
+            }
+
+            sink.success(true);
+        });
+    }
+
+    /**
+     * Frees reserved bytes and wakes up the waiters that fit.
+     * 
+     * @param bytes The bytes to free.
+     * 
+     * @since 1.0
+     */
+    private void free(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        wakeUp();
+    }
+
+    /**
+     * Reserves the bytes of the waiters at the head of the queue while they
+     * fit.
+     * 
+     * <p>
+     * The waiters are signalled out of the lock, so their pipelines don't run
+     * while it's held.
+     * </p>
+     * 
+     * @since 1.0
+     */
+    private void wakeUp() {
+        List<Waiter> granted = new ArrayList<>();
+
+        synchronized (waiters) {
+            while (!waiters.isEmpty() && tryReserve(waiters.peekFirst().bytes)) {
+                Waiter waiter = waiters.pollFirst();
+                waiter.reserved = true;
+                granted.add(waiter);
+            }
+        }
+
+        for (Waiter waiter : granted) {
+            waiter.timer.dispose();
+            waiter.sink.success(true);
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (waiters) {
+            if (!waiters.remove(waiter))
+                return;
+        }
+
+        waiter.sink.error(new ResourceExhaustedException(
+                "No scratch space available for %d bytes, reserved: %d bytes"
+                        .formatted(waiter.bytes, reservedBytes.get()),
+                TempDirService.class));
+        // The waiters behind it may fit
+        wakeUp();
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean reserved;
+
+        synchronized (waiters) {
+            waiter.cancelled = true;
+            if (waiters.remove(waiter)) {
+                waiter.timer.dispose();
+                reserved = false;
+            } else {
+                // Granted but not delivered, since a delivered wait is not cancelled
+                reserved = waiter.reserved;
+            }
+        }
+
+        if (reserved)
+            free(waiter.bytes);
+        else
+            wakeUp();
+    }
+
+    /**
+     * Reserves bytes of the scratch space if they are available.
+     * 
+     * <p>
+     * The outstanding reservations are not written to the disk yet, so they
+     * are taken from the sampled free space along with the new bytes.
+     * </p>
+     * 
+     * @param bytes The bytes to reserve.
+     * 
+     * @return True if the bytes were reserved.
+     * 
+     * @since 1.0
+     */
+    private boolean tryReserve(long bytes) {
+        long quota = properties.quota().toBytes();
+        long minFreeSpace = properties.minFreeSpace().toBytes();
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current + bytes > quota || usableSpace - (current + bytes) < minFreeSpace)
+                return false;
+        } while (!reservedBytes.compareAndSet(current, current + bytes));
+
+        return true;
+    }
+
+    /**
+     * Samples the usable space of the disk of the base directory.
+     * 
+     * <p>
+     * It reads the disk, so it runs on the sampler and the sweeper, never on
+     * the event loop. The waiters are woken up if the space grew.
+     * </p>
+     * 
+     * @since 1.0
+     */
+    private void sampleUsableSpace() {
+        long previous = usableSpace;
+
+        try {
+            usableSpace = Files.getFileStore(Files.exists(baseDir) ? baseDir : baseDir.getRoot()).getUsableSpace();
+        } catch (IOException e) {
+            LOGGER.warn("Error reading the usable space of {}: {}", baseDir, e.getMessage());
+            usableSpace = Long.MAX_VALUE;
+        }
+
+        if (usableSpace > previous)
+            wakeUp();
+    }
+
+    /**
+     * Creates the directory of a lease with its reserved bytes.
+     * 
+     * <p>
+     * The lease is registered before its directory exists, so the sweeper
+     * never removes it. The reservation is freed if the directory can't be
+     * created.
+     * </p>
+     * 
+     * @param name  The name of the lease.
+     * @param bytes The reserved bytes.
+     * 
+     * @return The lease.
+     * 
+     * @throws InternalException if has an error on creating the directory.
+     * 
+     * @since 1.0
+     */
+    private Lease createLease(String name, long bytes) {
+        String dirName = SCRATCH_DIR + "/" + name + "-" + UUID.randomUUID();
+        Lease lease = new Lease(baseDir.resolve(dirName), bytes);
+        leases.put(lease.dir(), lease);
+
+        try {
+            createDirectories(dirName);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+
+        LOGGER.debug("Scratch lease acquired: {} with {} bytes", lease.dir(), bytes);
+        return lease;
+    }
+
+    /**
+     * Releases a lease on a bounded elastic thread.
+     * 
+     * @param lease The lease to release.
+     * 
+     * @return A Mono that completes when the lease is released.
+     * 
+     * @since 1.0
+     */
+    private Mono<Void> release(Lease lease) {
+        return Mono.fromRunnable(lease::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Removes the orphaned directories of the scratch space.
+     * 
+     * <p>
+     * A directory is orphaned when no lease holds it and it's older than the
+     * orphan TTL. Errors are only logged, so the next sweep tries again.
+     * </p>
+     * 
+     * @return The number of removed directories.
+     * 
+     * @since 1.0
+     */
+    public int sweep() {
+        Path scratchDir = baseDir.resolve(SCRATCH_DIR);
+        if (!Files.isDirectory(scratchDir))
+            return 0;
+
+        Instant threshold = Instant.now().minus(properties.orphanTtl());
+        int removed = 0;
+
+        try (var dirs = Files.list(scratchDir)) {
+            for (Path dir : dirs.toList()) {
+                if (leases.containsKey(dir) || !isOlderThan(dir, threshold))
+                    continue;
+
+                deleteQuietly(dir);
+                removed++;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.error("Error sweeping the scratch directory: {}", e.getMessage());
+        }
+
+        if (removed > 0) {
+            LOGGER.info("Scratch sweep removed {} orphaned directories", removed);
+            // The waiters may fit in the space freed on the disk
+            sampleUsableSpace();
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the bytes reserved by the active leases.
+     * 
+     * @return The reserved bytes.
+     * 
+     * @since 1.0
+     */
+    public long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    private boolean isOlderThan(Path path, Instant threshold) {
+        try {
+            return !Files.getLastModifiedTime(path).toInstant().isAfter(threshold);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path dirPath) {
+        try {
+            if (Files.exists(dirPath))
+                deleteDirectory(dirPath);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error deleting scratch directory {}: {}", dirPath, e.getMessage());
+        }
+    }
+
+    /**
+     * A lease on a scratch directory with reserved bytes.
+     * 
+     * <p>
+     * Closing the lease deletes its directory and frees its reservation, it
+     * can be closed more than once.
+     * </p>
+     * 
+     * @since 1.0
+     */
+    public final class Lease implements AutoCloseable {
+        private final Path dir;
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Path dir, long bytes) {
+            this.dir = dir;
+            this.bytes = bytes;
+        }
+
+        public Path dir() {
+            return dir;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true))
+                return;
+
             try {
-                LOGGER.debug("Directory created for {}", dirName);
-                return Files.createDirectories(this.baseDir.resolve(dirName));
-            } catch (IOException e) {
-                LOGGER.error("Error creating directory: {}", e.getMessage());
-                throw new InternalException(
-                        "Error during creating directory for %s: %s".formatted(dirName, e.getMessage()),
-                        TempDirService.class, SeverityLevel.HIGH, e);
+                deleteQuietly(dir);
+            } finally {
+                leases.remove(dir);
+                free(bytes);
+                LOGGER.debug("Scratch lease released: {}", dir);
             }
         }
     }
 
+    /**
+     * A lease waiting for scratch space, guarded by the lock of the queue.
+     */
+    private static final class Waiter {
+        private final long bytes;
+        private final MonoSink<Boolean> sink;
+        private Disposable timer;
+        private boolean reserved;
+        private boolean cancelled;
+
+        private Waiter(long bytes, MonoSink<Boolean> sink) {
+            this.bytes = bytes;
+            this.sink = sink;
+        }
+    }
+
     /**
      * Get the directory.
      * 
@@ -223,10 +770,12 @@ public class TempDirService {
                 throw new IllegalArgumentException("Directory does not exist: %s".formatted(dirPath));
             }
 
-            Files.walk(dirPath)
-                    .sorted(Comparator.reverseOrder()) // Delete files first.
-                    .map(Path::toFile)
-                    .forEach(File::delete);
+            // Try with resources to close the directory handles.
+            try (var paths = Files.walk(dirPath)) {
+                paths.sorted(Comparator.reverseOrder()) // Delete files first.
+                        .map(Path::toFile)
+                        .forEach(File::delete);
+            }
 
             LOGGER.debug("Directory deleted: {}", dirPath);
         } catch (IOException e) {
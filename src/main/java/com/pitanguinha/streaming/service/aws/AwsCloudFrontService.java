@@ -14,10 +14,13 @@ import com.pitanguinha.streaming.exceptions.aws.cloudfront.CloudFrontSigningExce
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Scheduler;
+
 import software.amazon.awssdk.services.cloudfront.*;
 import software.amazon.awssdk.services.cloudfront.model.*;
 import software.amazon.awssdk.services.cloudfront.url.SignedUrl;
-import software.amazon.awssdk.services.cloudfront.cookie.CookiesForCannedPolicy;
+import software.amazon.awssdk.services.cloudfront.cookie.*;
 
 /**
  * Service class for handling AWS CloudFront operations.
@@ -30,52 +33,48 @@ public class AwsCloudFrontService {
     private static final Logger LOG = LoggerFactory.getLogger(AwsCloudFrontService.class);
     private final CloudFrontProperties properties;
     private final PrivateKey privateKey;
-    private final CloudFrontClient client;
     private final CloudFrontUtilities utilities;
+    private final TimeBucketedCache<SignedUrl> signedUrlCache;
+    private final Scheduler signingScheduler;
+    private final CloudFrontInvalidationQueue invalidationQueue;
 
     @Autowired
     public AwsCloudFrontService(
             CloudFrontProperties properties,
             @Qualifier("cloudFrontPrivateKey") PrivateKey privateKey,
-            CloudFrontClient client,
-            CloudFrontUtilities utilities) {
+            CloudFrontUtilities utilities,
+            TimeBucketedCache<SignedUrl> signedUrlCache,
+            @Qualifier("cloudFrontSigningScheduler") Scheduler signingScheduler,
+            CloudFrontInvalidationQueue invalidationQueue) {
         this.properties = properties;
         this.privateKey = privateKey;
-        this.client = client;
         this.utilities = utilities;
+        this.signedUrlCache = signedUrlCache;
+        this.signingScheduler = signingScheduler;
+        this.invalidationQueue = invalidationQueue;
     }
 
     /**
-     * Invalidates the cache for a specific object in CloudFront.
+     * Invalidates the cached objects of an artifact in CloudFront.
      * 
      * <p>
-     * This method creates an invalidation request for the specified object ID,
-     * allowing the updated content to be served.
+     * The objects of an artifact are stored under its ID, so a single wildcard
+     * path covers them. The path is queued and submitted asynchronously with
+     * the other paths of its window, the failures are only logged.
      * </p>
      * 
-     * @param objectId The ID of the object to invalidate.
+     * @param artifactId The ID of the artifact to invalidate.
      * 
-     * @return true if the invalidation was successful, false otherwise.
+     * @see CloudFrontInvalidationQueue#invalidate(String) Queues the path.
      * 
      * @since 1.0
      */
-    public boolean invalidateCache(String objectId) {
-        LOG.info("Cache invalidation initiated for object ID: {}", objectId);
-
-        CreateInvalidationResponse response = client.createInvalidation(r -> r
-                .distributionId(properties.distributionId())
-                .invalidationBatch(b -> b
-                        .callerReference("invalidation-" + UUID.randomUUID())
-                        .paths(p -> p
-                                .items("/video/" + objectId + "/*"))));
-
-        if (!response.sdkHttpResponse().isSuccessful()) {
-            LOG.error("Failed to invalidate cache for object ID: {}", objectId);
-            return false;
-        }
+    public void invalidateArtifact(String artifactId) {
+        LOG.info("Cache invalidation queued for artifact ID: {}", artifactId);
 
-        LOG.info("Cache invalidation successful for object ID: {}", objectId);
-        return true;
+        invalidationQueue.invalidate("/" + artifactId + "/*")
+                .subscribe(null, e -> LOG.error("Failed to invalidate cache for artifact ID: {}: {}", artifactId,
+                        e.getMessage()));
     }
 
     /**
@@ -90,8 +89,8 @@ public class AwsCloudFrontService {
      * 
      * @return CookiesForCannedPolicy containing the signed cookies.
      * 
-     * @see #getCannedSignerRequest(String) Used to create the CannedSignerRequest
-     *      for generating signed cookies.
+     * @see #getCannedSignerRequest(String, Instant) Used to create the
+     *      CannedSignerRequest for generating signed cookies.
      * 
      * @since 1.0
      */
@@ -100,35 +99,152 @@ public class AwsCloudFrontService {
 
         String cloudFrontUrl = properties.endpoint() + objectId + "/*";
 
-        CookiesForCannedPolicy cookies = utilities.getCookiesForCannedPolicy(getCannedSignerRequest(cloudFrontUrl));
+        CookiesForCannedPolicy cookies = utilities.getCookiesForCannedPolicy(
+                getCannedSignerRequest(cloudFrontUrl, Instant.now().plusSeconds(3600))); // 1 hour expiration
 
         LOG.info("Signed cookies generated for object ID: {}", objectId);
         return cookies;
     }
 
+    /**
+     * Generates signed cookies with a custom policy covering a prefix.
+     * 
+     * <p>
+     * The policy covers every object whose key starts with the prefix, the
+     * whole distribution if the prefix is empty, so a client holding the
+     * cookies reads them with plain URLs.
+     * </p>
+     * 
+     * @param prefix         The prefix of the keys covered by the cookies.
+     * @param expirationTime The expiration of the cookies.
+     * 
+     * @return CookiesForCustomPolicy containing the signed cookies.
+     * 
+     * @throws CloudFrontSigningException if an error occurs while signing the
+     *                                    cookies.
+     * 
+     * @since 1.0
+     */
+    public CookiesForCustomPolicy getSessionCookies(String prefix, Instant expirationTime) {
+        String cloudFrontUrl = getUrl(prefix + "*");
+
+        try {
+            CookiesForCustomPolicy cookies = utilities.getCookiesForCustomPolicy(CustomSignerRequest.builder()
+                    .resourceUrl(cloudFrontUrl)
+                    .keyPairId(properties.keyPairId())
+                    .privateKey(privateKey)
+                    .expirationDate(expirationTime)
+                    .build());
+
+            LOG.info("Session cookies generated for resource: {}", cloudFrontUrl);
+            return cookies;
+
+        } catch (Exception e) {
+            LOG.error("Error generating session cookies: {}", e.getMessage());
+            throw new CloudFrontSigningException(
+                    "Failed to generate session cookies for CloudFront URL: " + cloudFrontUrl,
+                    cloudFrontUrl, SeverityLevel.HIGH, e);
+        }
+    }
+
+    /**
+     * Gets the plain, unsigned URL of an object.
+     * 
+     * @param key The key of the object.
+     * 
+     * @return The URL of the object on the distribution.
+     * 
+     * @since 1.0
+     */
+    public String getUrl(String key) {
+        return properties.endpoint() + "/" + key;
+    }
+
+    /**
+     * Checks whether a playback session covers an object.
+     * 
+     * <p>
+     * The session must cover the URL of the object and still have the min
+     * remaining lifetime, so the plain URL keeps working while it's used.
+     * </p>
+     * 
+     * @param session The playback session of the client.
+     * @param key     The key of the object.
+     * 
+     * @return true if the plain URL of the object can be returned.
+     * 
+     * @see PlaybackSession#covers(String, Instant) Matches the URL.
+     * 
+     * @since 1.0
+     */
+    public boolean isCovered(PlaybackSession session, String key) {
+        return session.covers(getUrl(key), Instant.now().plus(properties.session().minRemaining()));
+    }
+
     /**
      * Generates a signed URL for a specific object.
      * 
      * <p>
      * This method creates a signed URL that allows access to the specified object
-     * in CloudFront.
+     * in CloudFront.<br>
+     * The URL is cached by time bucket, so a key is only signed once per
+     * bucket and its URL stays the same within it.
      * </p>
      * 
      * @param key The key of the object for which to generate the signed URL.
      * 
      * @return SignedUrl containing the signed URL.
      * 
-     * @see #getCannedSignerRequest(String) Used to create the CannedSignerRequest
-     *      for generating the signed URL.
+     * @see TimeBucketedCache The cache of the signed URLs.
+     * @see #getCannedSignerRequest(String, Instant) Used to create the
+     *      CannedSignerRequest for generating the signed URL.
      * 
      * @since 1.0
      */
     public SignedUrl getSignedUrl(String key) {
-        String cloudFrontUrl = properties.endpoint() + "/" + key;
+        return signedUrlCache.get(key, expirationTime -> {
+            String cloudFrontUrl = getUrl(key);
 
-        SignedUrl signedUrl = utilities.getSignedUrlWithCannedPolicy(getCannedSignerRequest(cloudFrontUrl));
-        LOG.info("Signed URL generated for key: {}", key);
-        return signedUrl;
+            SignedUrl signedUrl = utilities.getSignedUrlWithCannedPolicy(
+                    getCannedSignerRequest(cloudFrontUrl, expirationTime));
+            LOG.info("Signed URL generated for key: {}", key);
+            return signedUrl;
+        });
+    }
+
+    /**
+     * Generates the signed URLs of a batch of objects.
+     * 
+     * <p>
+     * The keys are split in one chunk per signing thread, each chunk is signed
+     * on the signing scheduler, so the CPU bound signatures never run on the
+     * event loop and a batch uses at most the signing parallelism.<br>
+     * The URLs are emitted in the order of the keys.
+     * </p>
+     * 
+     * @param keys The keys of the objects for which to generate the signed URLs.
+     * 
+     * @return A Flux of the signed URLs, in the order of the keys.
+     * 
+     * @see #getSignedUrl(String) Used to sign each key.
+     * @see CloudFrontProperties.Signing#threads() The signing parallelism.
+     * 
+     * @since 1.0
+     */
+    public Flux<SignedUrl> getSignedUrls(List<String> keys) {
+        if (keys.isEmpty())
+            return Flux.empty();
+
+        int threads = properties.signing().threads();
+        int chunkSize = Math.max(1, Math.ceilDiv(keys.size(), threads));
+
+        return Flux.fromIterable(keys)
+                .buffer(chunkSize)
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> chunk.stream()
+                        .map(this::getSignedUrl)
+                        .toList())
+                        .subscribeOn(signingScheduler), threads)
+                .flatMapIterable(urls -> urls);
     }
 
     /**
@@ -139,7 +255,8 @@ public class AwsCloudFrontService {
      * information for generating signed URLs or cookies.
      * </p>
      * 
-     * @param cloudFrontUrl The CloudFront URL for which to generate the request.
+     * @param cloudFrontUrl  The CloudFront URL for which to generate the request.
+     * @param expirationTime The expiration of the signature.
      * 
      * @return CannedSignerRequest containing the necessary information.
      * 
@@ -148,10 +265,8 @@ public class AwsCloudFrontService {
      * 
      * @since 1.0
      */
-    private CannedSignerRequest getCannedSignerRequest(String cloudFrontUrl) {
+    private CannedSignerRequest getCannedSignerRequest(String cloudFrontUrl, Instant expirationTime) {
         try {
-            Instant expirationTime = Instant.now().plusSeconds(3600); // 1 hour expiration
-
             return CannedSignerRequest.builder()
                     .resourceUrl(cloudFrontUrl)
                     .keyPairId(properties.keyPairId())
@@ -2,25 +2,31 @@ package com.pitanguinha.streaming.service.aws;
 
 import java.net.URL;
 import java.nio.file.*;
-import java.time.Duration;
+import java.time.*;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.*;
 
 import org.slf4j.*;
 
 import org.springframework.stereotype.Service;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 
+import com.pitanguinha.streaming.utils.FileUtils;
 import com.pitanguinha.streaming.enums.aws.ContentType;
+import com.pitanguinha.streaming.service.storage.*;
 
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.*;
 
 import com.pitanguinha.streaming.config.aws.s3.S3Properties;
 
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.async.*;
 import software.amazon.awssdk.services.s3.*;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
@@ -29,51 +35,81 @@ import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignReques
 /**
  * Service class for handling S3 operations.
  * 
+ * <p>
+ * All operations are backed by the {@link S3AsyncClient}, they are lazy and
+ * the requests only start when the returned publisher is subscribed.<br>
+ * Cancelling the subscription cancels the request in flight, so no Netty
+ * event loop thread is ever blocked waiting for S3.<br>
+ * Every request goes through the circuit breaker of {@link S3Resilience}, and
+ * the listings are read page by page so each page can be hedged.<br>
+ * The objects streamed by range are read through the {@link ObjectCache}.<br>
+ * It's the default storage backend, replaced by the local filesystem when the
+ * storage backend is "local".
+ * </p>
+ * 
+ * @see StorageService The storage of the media artifacts.
+ * 
  * @since 1.0
  */
 @Service
-@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
-public class AwsS3Service {
+@ConditionalOnExpression("${aws.s3.enabled:false} and '${spring.application.storage.backend:s3}' == 's3'")
+public class AwsS3Service implements StorageService {
     private final static Logger LOG = LoggerFactory.getLogger(AwsS3Service.class);
+    private static final int MAX_DELETE_KEYS = 1000;
 
-    private final S3Client client;
     private final S3AsyncClient asyncClient;
     private final S3Properties properties;
     private final S3Presigner presigner;
+    private final TimeBucketedCache<URL> presignedUrlCache;
+    private final S3Resilience resilience;
+    private final ObjectCache objectCache;
 
-    public AwsS3Service(S3Client client, S3AsyncClient asyncClient, S3Properties properties, S3Presigner presigner) {
-        this.client = client;
+    public AwsS3Service(S3AsyncClient asyncClient, S3Properties properties, S3Presigner presigner,
+            TimeBucketedCache<URL> presignedUrlCache, S3Resilience resilience, ObjectCache objectCache) {
         this.asyncClient = asyncClient;
         this.properties = properties;
         this.presigner = presigner;
+        this.presignedUrlCache = presignedUrlCache;
+        this.resilience = resilience;
+        this.objectCache = objectCache;
     }
 
     /**
      * Generates a presigned URL for an object in S3.
      * 
      * <p>
-     * The presigned URL is valid for 1 hour and can be used to access the object
-     * directly.
+     * The presigned URL can be used to access the object directly, it's
+     * cached by time bucket, so it's valid for at least the min remaining
+     * lifetime and the same URL is returned for a key within a bucket.<br>
+     * The URL is only signed when the Mono is subscribed.
      * </p>
      * 
      * @param key The key of the object in S3.
      * 
      * @return The presigned URL for the object.
      * 
+     * @see TimeBucketedCache The cache of the presigned URLs.
+     * 
      * @since 1.0
      */
     public Mono<URL> presignedUrl(String key) {
+        return Mono.fromCallable(() -> presignedUrlCache.get(key,
+                expiration -> presign(key, Duration.between(Instant.now(), expiration))))
+                .doOnError(e -> LOG.error("Failed to generate presigned URL for key: {}", key, e));
+    }
+
+    private URL presign(String key, Duration signatureDuration) {
         var presignedRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofHours(1))
+                .signatureDuration(signatureDuration)
                 .getObjectRequest(objRequest -> objRequest
                         .bucket(properties.bucketName())
                         .key(key)
                         .build())
                 .build();
 
-        return Mono.just(presigner.presignGetObject(presignedRequest).url())
-                .doOnError(e -> LOG.error("Failed to generate presigned URL for key: {}", key, e))
-                .doOnSuccess(url -> LOG.info("Generated presigned URL for key: {}", key));
+        URL url = presigner.presignGetObject(presignedRequest).url();
+        LOG.info("Generated presigned URL for key: {}", key);
+        return url;
     }
 
     /**
@@ -95,14 +131,81 @@ public class AwsS3Service {
      * 
      * @since 1.0
      */
+    @Override
     public Mono<Boolean> uploadFromString(String key, ContentType contentType, String requestBody) {
-        if (!putObjectRequest(key, contentType.value, requestBody)) {
-            LOG.error("Upload String - failed to upload string: {}", key);
-            return Mono.just(false);
-        }
+        return putObjectRequest(key, contentType.value, requestBody)
+                .doOnNext(response -> {
+                    if (!response) {
+                        LOG.error("Upload String - failed to upload string: {}", key);
+                        return;
+                    }
+                    LOG.info("Upload String - uploaded string successfully: {}", key);
+                });
+    }
 
-        LOG.info("Upload String - uploaded string successfully: {}", key);
-        return Mono.just(true);
+    /**
+     * Uploads an array of bytes to S3.
+     * 
+     * <p>
+     * The bytes are uploaded as they are, under the full key given, without
+     * being copied.
+     * </p>
+     * 
+     * @param key         The full S3 key of the object.
+     * @param contentType The content type of the object.
+     * @param bytes       The bytes to upload.
+     * 
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     * 
+     * @see #putObject(String, String, Supplier) Used to put the object.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> uploadFromBytes(String key, String contentType, byte[] bytes) {
+        return putObject(key, contentType, () -> AsyncRequestBody.fromBytesUnsafe(bytes))
+                .doOnNext(response -> {
+                    if (!response) {
+                        LOG.error("Upload Bytes - failed to upload bytes: {}", key);
+                        return;
+                    }
+                    LOG.info("Upload Bytes - uploaded bytes successfully: {}", key);
+                });
+    }
+
+    /**
+     * Uploads a list of data buffers to S3.
+     *
+     * <p>
+     * The readable bytes of the buffers are uploaded in order from read-only
+     * views, so pooled and off-heap buffers are sent without being copied to
+     * the heap. The views are kept open until the request completes.<br>
+     * The buffers are not released, they must stay retained until the returned
+     * Mono completes.
+     * </p>
+     *
+     * @param key         The full S3 key of the object.
+     * @param contentType The content type of the object.
+     * @param buffers     The buffers to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @see #putObject(String, String, Supplier) Used to put the object.
+     * @see FileUtils#withByteBuffers(List, Function) Views the buffers.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> uploadFromBuffers(String key, String contentType, List<DataBuffer> buffers) {
+        return FileUtils.withByteBuffers(buffers, byteBuffers -> putObject(key, contentType,
+                () -> AsyncRequestBody.fromByteBuffersUnsafe(byteBuffers)))
+                .doOnNext(response -> {
+                    if (!response) {
+                        LOG.error("Upload Buffers - failed to upload buffers: {}", key);
+                        return;
+                    }
+                    LOG.info("Upload Buffers - uploaded buffers successfully: {}", key);
+                });
     }
 
     /**
@@ -124,16 +227,18 @@ public class AwsS3Service {
      * 
      * @since 1.0
      */
+    @Override
     public Mono<Boolean> uploadFile(String key, Path file) {
         String fullKey = formatKey(key) + file.getFileName().toString();
 
-        if (!putObjectRequest(fullKey, file)) {
-            LOG.error("Upload File - failed to upload file: {}", key);
-            return Mono.just(false);
-        }
-
-        LOG.info("Upload File - uploaded file successfully: {}", key);
-        return Mono.just(true);
+        return putObjectRequest(fullKey, file)
+                .doOnNext(response -> {
+                    if (!response) {
+                        LOG.error("Upload File - failed to upload file: {}", key);
+                        return;
+                    }
+                    LOG.info("Upload File - uploaded file successfully: {}", key);
+                });
     }
 
     /**
@@ -173,14 +278,356 @@ public class AwsS3Service {
                 });
     }
 
+    /**
+     * Uploads a stream of data buffers to S3 as a multipart upload.
+     *
+     * <p>
+     * The content is regrouped into parts of the configured size and each part
+     * is uploaded as soon as it is complete, so nothing is spooled to disk.<br>
+     * At most {@code partConcurrency} parts are buffered and in flight at the
+     * same time, the demand on the content is bounded by that, which gives
+     * backpressure up to the request body.<br>
+     * The multipart upload is aborted if the content fails, S3 fails or the
+     * subscription is cancelled. S3 failures are mapped to false, while errors
+     * from the content itself are propagated to the caller.
+     * </p>
+     *
+     * @param key         The full S3 key of the object.
+     * @param contentType The content type of the object.
+     * @param content     The content to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @see #createMultipartUploadRequest(String, String) Used to start the
+     *      upload.
+     * @see #uploadParts(String, String, Flux) Used to upload the parts.
+     * @see #completeMultipartUploadRequest(String, String, List) Used to complete
+     *      the upload.
+     * @see #abortMultipartUpload(String, String) Used to abort the upload.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> uploadStream(String key, String contentType, Flux<DataBuffer> content) {
+        return uploadStream(key, contentType, content, Mono.just(true));
+    }
+
+    /**
+     * Uploads a stream of data buffers to S3 as a multipart upload, deciding
+     * whether to complete it only after the content is consumed.
+     *
+     * <p>
+     * Behaves like {@link #uploadStream(String, String, Flux)}, but the
+     * multipart upload is only completed if the complete Mono, subscribed after
+     * all the parts are uploaded, emits true.<br>
+     * Otherwise it's aborted and the result is empty, leaving the previous
+     * object under the key untouched, e.g. when the content digest shows that
+     * it's unchanged.
+     * </p>
+     *
+     * @param key         The full S3 key of the object.
+     * @param contentType The content type of the object.
+     * @param content     The content to upload.
+     * @param complete    Whether to complete the upload after the content.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or
+     *         not, empty if it was skipped.
+     *
+     * @see #uploadTransactional(Map, boolean) Treats an empty upload as
+     *      skipped.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> uploadStream(String key, String contentType, Flux<DataBuffer> content,
+            Mono<Boolean> complete) {
+        return createMultipartUploadRequest(key, contentType)
+                .flatMap(uploadId -> uploadParts(key, uploadId, content)
+                        .flatMap(parts -> complete.flatMap(shouldComplete -> shouldComplete
+                                ? StorageTransaction.beforePublish(key).flatMap(backedUp -> backedUp
+                                        ? completeMultipartUploadRequest(key, uploadId, parts)
+                                        : abortMultipartUpload(key, uploadId).thenReturn(false))
+                                : abortMultipartUpload(key, uploadId)
+                                        .doOnSuccess($ -> LOG.info("Upload Stream - skipped unchanged stream: {}", key))
+                                        .then(Mono.<Boolean>empty())))
+                        .onErrorResume(e -> abortMultipartUpload(key, uploadId)
+                                .then(e instanceof SdkException ? Mono.just(false) : Mono.error(e)))
+                        .doOnCancel(() -> abortMultipartUpload(key, uploadId).subscribe()))
+                .onErrorResume(SdkException.class, e -> {
+                    LOG.error("Upload Stream - failed to start multipart upload: {}", key, e);
+                    return Mono.just(false);
+                })
+                .doOnNext(result -> {
+                    if (result)
+                        LOG.info("Upload Stream - uploaded stream successfully: {}", key);
+                    else
+                        LOG.error("Upload Stream - failed to upload stream: {}", key);
+                });
+    }
+
+    /**
+     * Uploads the content as the parts of a multipart upload.
+     *
+     * <p>
+     * The data buffers are grouped until the part size is reached, copied into a
+     * single array and released right away. An empty content is uploaded as a
+     * single empty part, as S3 requires at least one part.
+     * </p>
+     *
+     * @param key      The full S3 key of the object.
+     * @param uploadId The id of the multipart upload.
+     * @param content  The content to upload.
+     *
+     * @return A Mono with the completed parts ordered by part number.
+     *
+     * @see #uploadPartRequest(String, String, int, byte[]) Used to upload each
+     *      part.
+     *
+     * @since 1.0
+     */
+    private Mono<List<CompletedPart>> uploadParts(String key, String uploadId, Flux<DataBuffer> content) {
+        long partSize = properties.upload().partSize().toBytes();
+        int concurrency = properties.upload().partConcurrency();
+
+        return Flux.defer(() -> {
+            AtomicLong pending = new AtomicLong();
+            return content.bufferUntil(buffer -> {
+                if (pending.addAndGet(buffer.readableByteCount()) < partSize)
+                    return false;
+
+                pending.set(0);
+                return true;
+            });
+        })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .map(this::joinAndRelease)
+                .defaultIfEmpty(new byte[0])
+                .index()
+                .flatMap(part -> uploadPartRequest(key, uploadId, part.getT1().intValue() + 1, part.getT2()),
+                        concurrency, 1)
+                .sort(Comparator.comparing(CompletedPart::partNumber))
+                .collectList();
+    }
+
+    /**
+     * Joins the data buffers into a single array and releases them.
+     *
+     * @param buffers The data buffers to join.
+     *
+     * @return The joined bytes.
+     *
+     * @since 1.0
+     */
+    private byte[] joinAndRelease(List<DataBuffer> buffers) {
+        int size = buffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+        byte[] bytes = new byte[size];
+
+        int position = 0;
+        for (DataBuffer buffer : buffers) {
+            int length = buffer.readableByteCount();
+            buffer.read(bytes, position, length);
+            position += length;
+            DataBufferUtils.release(buffer);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Starts a multipart upload.
+     *
+     * <p>
+     * S3 failures are propagated to the caller, which is responsible for
+     * completing or aborting the returned upload.
+     * </p>
+     *
+     * @param key         The full S3 key of the object.
+     * @param contentType The content type of the object.
+     *
+     * @return A Mono with the id of the multipart upload.
+     *
+     * @throws StorageException if the upload can't be started.
+     *
+     * @see #createMultipartUploadRequest(String, String) Used to start the
+     *      upload.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<String> createMultipartUpload(String key, String contentType) {
+        return createMultipartUploadRequest(key, contentType)
+                .onErrorMap(SdkException.class, e -> new StorageException(
+                        "Error starting the multipart upload: " + key, e));
+    }
+
+    private Mono<String> createMultipartUploadRequest(String key, String contentType) {
+        return resilience.call(() -> asyncClient.createMultipartUpload(b -> b
+                .bucket(properties.bucketName())
+                .key(key)
+                .contentType(contentType)))
+                .map(CreateMultipartUploadResponse::uploadId);
+    }
+
+    /**
+     * Uploads a single part of a multipart upload.
+     *
+     * <p>
+     * Uploading the same part number again replaces the previous part, so a
+     * part can be retried safely.<br>
+     * S3 failures are propagated to the caller.
+     * </p>
+     *
+     * @param key        The full S3 key of the object.
+     * @param uploadId   The id of the multipart upload.
+     * @param partNumber The number of the part, starting at 1.
+     * @param bytes      The content of the part.
+     *
+     * @return A Mono with the stored part.
+     *
+     * @throws StorageException if the part can't be uploaded.
+     *
+     * @see #uploadPartRequest(String, String, int, byte[]) Used to upload the
+     *      part.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<StoredPart> uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        return uploadPartRequest(key, uploadId, partNumber, bytes)
+                .map(part -> new StoredPart(part.partNumber(), part.eTag(), (long) bytes.length,
+                        part.checksumCRC32()))
+                .onErrorMap(SdkException.class, e -> new StorageException(
+                        "Error uploading part " + partNumber + " of: " + key, e));
+    }
+
+    private Mono<CompletedPart> uploadPartRequest(String key, String uploadId, int partNumber, byte[] bytes) {
+        return resilience.call(() -> asyncClient.uploadPart(b -> b
+                .bucket(properties.bucketName())
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) bytes.length),
+                AsyncRequestBody.fromBytesUnsafe(bytes)))
+                .map(response -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.eTag())
+                        .checksumCRC32(response.checksumCRC32())
+                        .build());
+    }
+
+    /**
+     * Lists the parts already uploaded to a multipart upload.
+     *
+     * <p>
+     * The pages of the listing are requested one after the other as they are
+     * consumed, each page being a hedged read.<br>
+     * S3 failures are propagated to the caller.
+     * </p>
+     *
+     * @param key      The full S3 key of the object.
+     * @param uploadId The id of the multipart upload.
+     *
+     * @return A Flux with the uploaded parts ordered by part number.
+     *
+     * @throws StorageException if the parts can't be listed.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Flux<StoredPart> listParts(String key, String uploadId) {
+        var request = ListPartsRequest.builder()
+                .bucket(properties.bucketName())
+                .key(key)
+                .uploadId(uploadId)
+                .build();
+
+        return resilience.<ListPartsResponse>read(() -> asyncClient.listParts(request))
+                .expand(page -> Boolean.TRUE.equals(page.isTruncated())
+                        ? resilience.read(() -> asyncClient.listParts(request.toBuilder()
+                                .partNumberMarker(page.nextPartNumberMarker())
+                                .build()))
+                        : Mono.empty())
+                .flatMapIterable(ListPartsResponse::parts)
+                .map(part -> new StoredPart(part.partNumber(), part.eTag(), part.size(), part.checksumCRC32()))
+                .onErrorMap(SdkException.class, e -> new StorageException("Error listing the parts of: " + key, e));
+    }
+
+    /**
+     * Completes a multipart upload with the given parts.
+     *
+     * <p>
+     * S3 failures are propagated to the caller, the upload is left open so it
+     * can still be completed or aborted.
+     * </p>
+     *
+     * @param key      The full S3 key of the object.
+     * @param uploadId The id of the multipart upload.
+     * @param parts    The uploaded parts, ordered by part number.
+     *
+     * @return A boolean Mono indicating whether the upload was completed or not.
+     *
+     * @throws StorageException if the upload can't be completed.
+     *
+     * @see #completeMultipartUploadRequest(String, String, List) Used to
+     *      complete the upload.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> completeMultipartUpload(String key, String uploadId, List<StoredPart> parts) {
+        return completeMultipartUploadRequest(key, uploadId, parts.stream()
+                .map(part -> CompletedPart.builder()
+                        .partNumber(part.partNumber())
+                        .eTag(part.eTag())
+                        .checksumCRC32(part.checksum())
+                        .build())
+                .toList())
+                .onErrorMap(SdkException.class, e -> new StorageException(
+                        "Error completing the multipart upload of: " + key, e));
+    }
+
+    private Mono<Boolean> completeMultipartUploadRequest(String key, String uploadId, List<CompletedPart> parts) {
+        return resilience.call(() -> asyncClient.completeMultipartUpload(b -> b
+                .bucket(properties.bucketName())
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(upload -> upload.parts(parts))))
+                .map(response -> response.sdkHttpResponse().isSuccessful());
+    }
+
+    /**
+     * Aborts a multipart upload, dropping the parts already uploaded.
+     *
+     * <p>
+     * Failures are only logged, the incomplete parts are also dropped by the
+     * bucket lifecycle rules if they exist.
+     * </p>
+     *
+     * @param key      The full S3 key of the object.
+     * @param uploadId The id of the multipart upload.
+     *
+     * @return A Mono that completes when the abort is finished.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<Void> abortMultipartUpload(String key, String uploadId) {
+        return resilience.call(() -> asyncClient.abortMultipartUpload(b -> b
+                .bucket(properties.bucketName())
+                .key(key)
+                .uploadId(uploadId)))
+                .doOnSuccess($ -> LOG.info("Abort Multipart Upload - aborted multipart upload: {}", key))
+                .doOnError(e -> LOG.error("Abort Multipart Upload - failed to abort multipart upload: {}", key, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
     /**
      * Uploads files to S3 with a transactional approach.
      * 
      * <p>
-     * Try to upload all files, file by file, if any file fails to upload,<br>
-     * it will rollback all previously uploaded files.<br>
-     * This is done by deleting the successfully uploaded files, ensuring that the
-     * S3 bucket remains in a consistent state.<br>
+     * Try to upload all files concurrently, if any file fails to upload,<br>
+     * it will rollback all successfully uploaded files.<br>
      * The key should be formatted with a trailing slash ("/") to indicate a folder
      * and the name of the file with the extension.
      * </p>
@@ -193,62 +640,198 @@ public class AwsS3Service {
      * 
      * @see #formatKey(String) Used to format the key with a trailing slash.
      * @see #putObjectRequest(String, Path) Used to upload each file.
-     * @see #rollbackUploadFiles(List) Used to rollback the uploaded files in case
-     *      of failure.
+     * @see #uploadTransactional(Map, boolean) Used to upload the files as a
+     *      transaction.
      * 
      * @since 1.0
      */
     public Mono<Boolean> uploadFilesTransactional(String key, Path... files) {
-        List<String> uploadedKeys = new ArrayList<>();
+        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
 
         for (Path file : files) {
             String fullKey = formatKey(key) + file.getFileName().toString();
+            uploads.put(fullKey, putObjectRequest(fullKey, file));
+        }
 
-            if (!putObjectRequest(fullKey, file)) {
-                LOG.error("Upload Files Transactional - failed to upload file: {}", fullKey);
-                rollbackUploadFiles(key, uploadedKeys);
-                return Mono.just(false);
-            }
+        return uploadTransactional(uploads, true);
+    }
 
-            uploadedKeys.add(fullKey);
-        }
+    /**
+     * Runs the uploads of an artifact as a transaction.
+     * 
+     * <p>
+     * The uploads are run concurrently, limited by the configured
+     * {@code objectConcurrency}, and all of them are awaited, so no upload is
+     * still running when the rollback starts.<br>
+     * An object about to be overwritten is copied to a backup key with a
+     * server-side CopyObject request right before it's published over, and not
+     * at all for a new artifact. If any upload fails, the objects are restored
+     * from their backups and only the keys newly created are deleted, ensuring
+     * that a failed update leaves the previous version of the artifact
+     * intact.<br>
+     * A failed upload, either false or an S3 error, results in false. Any other
+     * error (e.g. an invalid content) is propagated after the rollback.<br>
+     * An empty upload is a skipped one, its key is left untouched, so it's
+     * neither a failure nor rolled back.
+     * </p>
+     * 
+     * @param uploadsByKey The uploads to run, by their full S3 key.
+     * @param overwrite    Whether the keys may hold objects to back up, false
+     *                     for a new artifact.
+     * 
+     * @return A boolean Mono indicating whether all uploads were successful or
+     *         not.
+     * 
+     * @see StorageTransaction The transaction of the uploads.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> uploadTransactional(Map<String, Mono<Boolean>> uploadsByKey, boolean overwrite) {
+        return StorageTransaction.run(this, uploadsByKey, overwrite, properties.upload().objectConcurrency(),
+                SdkException.class::isInstance);
+    }
+
+    /**
+     * Copies an object to another key with a server-side CopyObject request.
+     * 
+     * @param sourceKey The full S3 key of the object to copy.
+     * @param targetKey The full S3 key of the copy.
+     * 
+     * @return A Mono with true if the object is copied, false otherwise.
+     * 
+     * @see #execute(String, String, Supplier) Used to execute the request.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> copyObject(String sourceKey, String targetKey) {
+        return execute("Copy Object", targetKey, () -> asyncClient.copyObject(b -> b
+                .sourceBucket(properties.bucketName())
+                .sourceKey(sourceKey)
+                .destinationBucket(properties.bucketName())
+                .destinationKey(targetKey)));
+    }
 
-        LOG.info("Upload Files Transactional - all files uploaded successfully. Keys: {}", uploadedKeys);
-        return Mono.just(true);
+    /**
+     * Deletes objects from S3 in batches.
+     * 
+     * <p>
+     * The keys are grouped into DeleteObjects requests of up to
+     * {@value #MAX_DELETE_KEYS} keys, the S3 limit for a single request, sent
+     * in parallel up to the delete concurrency.<br>
+     * The keys that could not be deleted are logged.
+     * </p>
+     * 
+     * @param keys The full keys of the objects to delete.
+     * 
+     * @return A boolean Mono indicating whether all objects were deleted or not.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Boolean> deleteObjects(Collection<String> keys) {
+        return Flux.fromIterable(List.copyOf(keys))
+                .buffer(MAX_DELETE_KEYS)
+                .flatMap(this::deleteObjectsRequest, properties.delete().concurrency())
+                .reduce(DeletionReport.EMPTY, DeletionReport::merge)
+                .map(DeletionReport::isComplete);
     }
 
     /**
-     * Rollbacks the uploaded files by deleting them from S3.
+     * Deletes all objects under a prefix from S3.
      * 
-     * @param key           The S3 key prefix for the files.
-     * @param uploadedFiles The list of uploaded files to delete.
+     * <p>
+     * The prefix is listed page by page with ListObjectsV2, each page being a
+     * hedged read, each page of up to
+     * {@value #MAX_DELETE_KEYS} keys is deleted by a single DeleteObjects
+     * request, and the pages are deleted in parallel up to the delete
+     * concurrency while the next ones are listed.<br>
+     * A failed listing stops the deletion, the objects already listed are
+     * still deleted and the report is truncated.
+     * </p>
+     * 
+     * @param prefix The prefix of the keys to delete.
      * 
-     * @see #deleteArtifact(String) Used to delete the uploaded files.
+     * @return A Mono with the report of the deletion, never an error.
      * 
      * @since 1.0
      */
-    private void rollbackUploadFiles(String key, List<String> uploadedFiles) {
-        int uploadedFilesCount = uploadedFiles.size();
-        LOG.info("Rolling back upload files - deleting {} files with prefix: {}", uploadedFilesCount, key);
-
-        AtomicInteger deletedFilesCount = new AtomicInteger(0);
-        uploadedFiles.stream()
-                .map(file -> file.substring(file.lastIndexOf("/") + 1))
-                .forEach(fullKey -> {
-                    if (!deleteObjectRequest(fullKey)) {
-                        LOG.error("Rollback - failed to delete file: {}", fullKey);
-                        return;
+    public Mono<DeletionReport> deletePrefix(String prefix) {
+        return Mono.defer(() -> {
+            var request = ListObjectsV2Request.builder()
+                    .bucket(properties.bucketName())
+                    .prefix(prefix)
+                    .maxKeys(MAX_DELETE_KEYS)
+                    .build();
+
+            AtomicBoolean truncated = new AtomicBoolean();
+
+            return resilience.<ListObjectsV2Response>read(() -> asyncClient.listObjectsV2(request))
+                    .expand(page -> Boolean.TRUE.equals(page.isTruncated())
+                            ? resilience.read(() -> asyncClient.listObjectsV2(request.toBuilder()
+                                    .continuationToken(page.nextContinuationToken())
+                                    .build()))
+                            : Mono.empty())
+                    .map(page -> page.contents().stream().map(S3Object::key).toList())
+                    .onErrorResume(SdkException.class, e -> {
+                        LOG.error("List Objects - request failed for prefix: {}", prefix, e);
+                        truncated.set(true);
+                        return Mono.empty();
+                    })
+                    .filter(keys -> !keys.isEmpty())
+                    .flatMap(this::deleteObjectsRequest, properties.delete().concurrency())
+                    .reduce(DeletionReport.EMPTY, DeletionReport::merge)
+                    .map(report -> truncated.get() ? report.truncate() : report);
+        });
+    }
+
+    /**
+     * Deletes a batch of objects from S3 with a single DeleteObjects request.
+     * 
+     * @param keys The full keys of the objects to delete, up to
+     *             {@value #MAX_DELETE_KEYS}.
+     * 
+     * @return A Mono with the report of the batch, every key failed if the
+     *         request failed.
+     * 
+     * @since 1.0
+     */
+    private Mono<DeletionReport> deleteObjectsRequest(List<String> keys) {
+        var request = DeleteObjectsRequest.builder()
+                .bucket(properties.bucketName())
+                .delete(delete -> delete
+                        .objects(keys.stream()
+                                .map(key -> ObjectIdentifier.builder().key(key).build())
+                                .toList())
+                        .quiet(true))
+                .build();
+
+        return resilience.call(() -> asyncClient.deleteObjects(request))
+                .map(response -> {
+                    if (!response.sdkHttpResponse().isSuccessful()) {
+                        LOG.error("Delete Objects - request failed for {} keys with status: {}", keys.size(),
+                                response.sdkHttpResponse().statusCode());
+                        return DeletionReport.failed(keys);
                     }
-                    LOG.info("Rollback - deleted file: {}", fullKey);
-                    deletedFilesCount.incrementAndGet();
-                });
 
-        if (deletedFilesCount.get() == uploadedFilesCount) {
-            LOG.info("Rollback - all {} files deleted successfully.", uploadedFilesCount);
-            return;
-        }
+                    // Quiet mode only returns the keys that failed
+                    List<String> failedKeys = response.errors().stream()
+                            .peek(error -> LOG.error("Delete Objects - failed to delete: {} - {}", error.key(),
+                                    error.message()))
+                            .map(S3Error::key)
+                            .toList();
 
-        LOG.error("Rollback - failed to delete {} files.", uploadedFilesCount - deletedFilesCount.get());
+                    return DeletionReport.deleted(keys.size() - failedKeys.size(), failedKeys);
+                })
+                .onErrorResume(SdkException.class, e -> {
+                    LOG.error("Delete Objects - request failed for {} keys", keys.size(), e);
+                    return Mono.just(DeletionReport.failed(keys));
+                })
+                .doOnNext(report -> {
+                    if (report.deleted() > 0)
+                        LOG.info("Delete Objects - deleted {} objects", report.deleted());
+                });
     }
 
     /**
@@ -263,15 +846,14 @@ public class AwsS3Service {
      * @param contentType The content type of the string.
      * @param requestBody The string to upload.
      * 
-     * @return true if the upload is successful, false otherwise.
+     * @return A Mono with true if the upload is successful, false otherwise.
      * 
-     * @see #putObjectRequest(String, String, String) Used to upload the string.
+     * @see #putObject(String, String, Supplier) Used to put the object.
      * 
      * @since 1.0
      */
-    private boolean putObjectRequest(String key, String contentType, String requestBody) {
-        return client.putObject(buildPutObject(key, contentType),
-                RequestBody.fromString(requestBody)).sdkHttpResponse().isSuccessful();
+    private Mono<Boolean> putObjectRequest(String key, String contentType, String requestBody) {
+        return putObject(key, contentType, () -> AsyncRequestBody.fromString(requestBody));
     }
 
     /**
@@ -284,16 +866,38 @@ public class AwsS3Service {
      * @param key  The S3 key for the file.
      * @param file The file to upload.
      * 
-     * @return true if the file is uploaded successfully, false otherwise.
+     * @return A Mono with true if the file is uploaded successfully, false
+     *         otherwise.
      * 
-     * @see #putObjectRequest(String, Path) Used to upload the file.
+     * @see #putObject(String, String, Supplier) Used to put the object.
      * 
      * @since 1.0
      */
-    private boolean putObjectRequest(String key, Path file) {
-        return client.putObject(buildPutObject(key, getContentType(file)),
-                RequestBody.fromFile(file)).sdkHttpResponse().isSuccessful();
+    private Mono<Boolean> putObjectRequest(String key, Path file) {
+        return putObject(key, getContentType(file), () -> AsyncRequestBody.fromFile(file));
+    }
 
+    /**
+     * Puts an object to S3, backing up the object it overwrites in a
+     * transaction.
+     * 
+     * @param key         The S3 key of the object.
+     * @param contentType The content type of the object.
+     * @param body        The supplier of the request body.
+     * 
+     * @return A Mono with true if the object is put, false otherwise.
+     * 
+     * @see StorageTransaction#beforePublish(String) Backs up the object.
+     * @see #execute(String, String, Supplier) Used to execute the request.
+     * 
+     * @since 1.0
+     */
+    private Mono<Boolean> putObject(String key, String contentType, Supplier<AsyncRequestBody> body) {
+        return StorageTransaction.beforePublish(key)
+                .flatMap(backedUp -> backedUp
+                        ? execute("Put Object", key,
+                                () -> asyncClient.putObject(buildPutObject(key, contentType), body.get()))
+                        : Mono.just(false));
     }
 
     /**
@@ -318,39 +922,138 @@ public class AwsS3Service {
      * Deletes an artifact from S3.
      * 
      * <p>
-     * Deletes all objects with the specified key (artifact ID) from S3.<br>
+     * Deletes all objects under the key (artifact ID) as a prefix, the
+     * content, thumbnail and metadata objects as well as the converted
+     * renditions.<br>
+     * The keys that could not be deleted are logged, and the artifact is not
+     * deleted unless all of them are.
      * </p>
      * 
      * @param key The key (artifact ID) to delete.
      * 
      * @return A boolean Mono indicating whether the deletion was successful or not.
      * 
+     * @see #deletePrefix(String) Deletes the objects under the prefix.
+     * 
      * @since 1.0
      */
+    @Override
     public Mono<Boolean> deleteArtifact(String key) {
-        if (!deleteObjectRequest(key)) {
-            LOG.error("Delete Artifact - failed to delete all objects for prefix: {}", key);
-            return Mono.just(false);
-        }
+        String prefix = formatKey(key);
+
+        return deletePrefix(prefix)
+                .map(report -> {
+                    if (!report.isComplete()) {
+                        LOG.error("Delete Artifact - failed to delete {} objects for prefix: {}{}",
+                                report.failedKeys().size(), prefix, report.truncated() ? " (listing failed)" : "");
+                        return false;
+                    }
+                    LOG.info("Delete Artifact - deleted {} objects for prefix: {}", report.deleted(), prefix);
+                    return true;
+                });
+    }
+
+    /**
+     * Reads the metadata of an object with a HEAD request.
+     *
+     * <p>
+     * The request is a hedged read, a missing key results in an empty Mono.
+     * </p>
+     *
+     * @param key The full S3 key of the object.
+     *
+     * @return A Mono with the metadata of the object, empty if it doesn't
+     *         exist.
+     *
+     * @throws StorageException if the metadata can't be read.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Mono<StoredObject> headObject(String key) {
+        return resilience.<HeadObjectResponse>read(() -> asyncClient.headObject(b -> b
+                .bucket(properties.bucketName())
+                .key(key)))
+                .map(response -> new StoredObject(key, response.contentLength(), response.contentType(),
+                        response.eTag(), response.lastModified()))
+                .onErrorResume(e -> e instanceof S3Exception s3 && s3.statusCode() == 404, e -> Mono.empty())
+                .onErrorMap(SdkException.class, e -> new StorageException("Error reading the metadata of: " + key, e));
+    }
+
+    /**
+     * Reads a range of bytes of an object with a ranged GET request.
+     *
+     * <p>
+     * The body is streamed by the async client, each of its byte buffers is
+     * wrapped in a data buffer without being copied or aggregated, and the
+     * demand of the subscriber is the demand on the connection.<br>
+     * The request is conditional on the entity tag of the metadata, so a
+     * replaced object fails with a 412 instead of mixing its bytes. It goes
+     * through the circuit breaker but is never hedged, the body being too
+     * large to be sent twice.<br>
+     * The hot objects are read through the disk cache, only the missing
+     * segments being requested.
+     * </p>
+     *
+     * @param object The metadata of the object.
+     * @param offset The position of the first byte to read.
+     * @param length The number of bytes to read.
+     *
+     * @return A Flux with the bytes of the range.
+     *
+     * @throws StorageException if the object can't be read.
+     *
+     * @see ObjectCache#read(StoredObject, long, long, ObjectCache.Origin) Reads
+     *      through the cache.
+     *
+     * @since 1.0
+     */
+    @Override
+    public Flux<DataBuffer> getObject(StoredObject object, long offset, long length) {
+        if (length <= 0)
+            return Flux.empty();
+
+        return objectCache.read(object, offset, length, this::getObjectRequest);
+    }
 
-        LOG.info("Delete Artifact - deleted all objects for prefix: {}", key);
-        return Mono.just(true);
+    private Flux<DataBuffer> getObjectRequest(StoredObject object, long offset, long length) {
+        return resilience.<ResponsePublisher<GetObjectResponse>>call(() -> asyncClient.getObject(b -> b
+                .bucket(properties.bucketName())
+                .key(object.key())
+                .ifMatch(object.eTag())
+                .range("bytes=" + offset + "-" + (offset + length - 1)),
+                AsyncResponseTransformer.toPublisher()))
+                .flatMapMany(publisher -> publisher)
+                .map(DefaultDataBufferFactory.sharedInstance::wrap)
+                .onErrorMap(SdkException.class, e -> new StorageException("Error reading: " + object.key(), e));
     }
 
     /**
-     * Deletes an object from S3.
+     * Executes a request with the async client.
+     * 
+     * <p>
+     * The request is only sent when the Mono is subscribed, and it's cancelled
+     * if the subscription is cancelled.<br>
+     * A failed request, either by the HTTP status or by an SDK exception, is
+     * mapped to false, keeping the boolean contract of the public methods.
+     * </p>
      * 
-     * @param key The key of the object to delete.
+     * @param operation The name of the operation, used for logging.
+     * @param key       The S3 key of the request, used for logging.
+     * @param request   The supplier of the request future.
      * 
-     * @return true if the object is deleted successfully, false otherwise.
+     * @return A Mono with true if the request is successful, false otherwise.
      * 
      * @since 1.0
      */
-    private boolean deleteObjectRequest(String key) {
-        return client.deleteObject(b -> b
-                .bucket(properties.bucketName())
-                .key(key)
-                .build()).sdkHttpResponse().isSuccessful();
+    private Mono<Boolean> execute(String operation, String key,
+            Supplier<CompletableFuture<? extends SdkResponse>> request) {
+        return resilience.<SdkResponse>call(request)
+                .map(response -> response.sdkHttpResponse().isSuccessful())
+                .onErrorResume(SdkException.class, e -> {
+                    LOG.error("{} - request failed for key: {}", operation, key, e);
+                    return Mono.just(false);
+                });
     }
 
     /**
@@ -0,0 +1,380 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.time.*;
+import java.util.*;
+
+import org.slf4j.*;
+import org.springframework.stereotype.Component;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.config.aws.cloudfront.CloudFrontProperties;
+
+import io.micrometer.core.instrument.*;
+
+import jakarta.annotation.*;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+import software.amazon.awssdk.services.cloudfront.CloudFrontAsyncClient;
+import software.amazon.awssdk.services.cloudfront.model.*;
+
+/**
+ * Queue of the CloudFront invalidations.
+ *
+ * <p>
+ * The paths are queued and submitted asynchronously once per window, so a
+ * path queued many times within a window, e.g. by a mass update, is only
+ * submitted once. Each window a single request takes the queued paths that
+ * fit in the in-progress limits of the distribution, the others stay queued
+ * until the running invalidations complete.<br>
+ * The running invalidations are polled until they're completed, then the
+ * Monos of their paths complete. An invalidation still running past the
+ * timeout is given up, its Monos fail and its slots are released. A request
+ * that fails puts its paths back in the queue.<br>
+ * The queued, coalesced, submitted and failed paths are counted.
+ * </p>
+ *
+ * @see CloudFrontProperties.Invalidation The properties of the queue.
+ *
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "aws.cloudfront.enabled", havingValue = "true", matchIfMissing = false)
+public class CloudFrontInvalidationQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(CloudFrontInvalidationQueue.class);
+    private static final String ALL_PATHS = "/*";
+    private static final String COMPLETED = "Completed";
+
+    private final CloudFrontAsyncClient client;
+    private final String distributionId;
+    private final CloudFrontProperties.Invalidation properties;
+    private final Clock clock;
+    private final Map<String, List<Sinks.Empty<Void>>> queued = new LinkedHashMap<>();
+    private final Map<String, Batch> running = new LinkedHashMap<>();
+    private final Counter queuedPaths;
+    private final Counter coalescedPaths;
+    private final Counter submittedPaths;
+    private final Counter failedPaths;
+    private int runningPaths;
+    private int runningWildcardPaths;
+    private Disposable ticker;
+
+    @Autowired
+    public CloudFrontInvalidationQueue(CloudFrontProperties properties, CloudFrontAsyncClient client,
+            MeterRegistry registry) {
+        this(properties, client, registry, Clock.systemUTC());
+    }
+
+    CloudFrontInvalidationQueue(CloudFrontProperties properties, CloudFrontAsyncClient client,
+            MeterRegistry registry, Clock clock) {
+        this.client = client;
+        this.distributionId = properties.distributionId();
+        this.properties = properties.invalidation();
+        this.clock = clock;
+        this.queuedPaths = Counter.builder("cloudfront.invalidation.paths").tag("result", "queued").register(registry);
+        this.coalescedPaths = Counter.builder("cloudfront.invalidation.paths").tag("result", "coalesced")
+                .register(registry);
+        this.submittedPaths = Counter.builder("cloudfront.invalidation.paths").tag("result", "submitted")
+                .register(registry);
+        this.failedPaths = Counter.builder("cloudfront.invalidation.paths").tag("result", "failed").register(registry);
+
+        Gauge.builder("cloudfront.invalidation.queued", this, queue -> queue.queued()).register(registry);
+        Gauge.builder("cloudfront.invalidation.running", this, queue -> queue.running()).register(registry);
+    }
+
+    /**
+     * Starts submitting the queued paths once per window.
+     *
+     * <p>
+     * A window still running when the next one is due is not overlapped, the
+     * next one is dropped instead.
+     * </p>
+     *
+     * @since 1.0
+     */
+    @PostConstruct
+    public void start() {
+        this.ticker = Flux.interval(properties.window(), properties.window(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap($ -> tick()
+                        .onErrorResume(e -> {
+                            LOG.error("Error processing CloudFront invalidations", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null)
+            ticker.dispose();
+    }
+
+    /**
+     * Queues the invalidation of a path.
+     *
+     * <p>
+     * The path is queued at once, whether the Mono is subscribed or not. If
+     * the path is already queued, both requests are coalesced into the same
+     * invalidation.
+     * </p>
+     *
+     * @param path The path to invalidate, starting with "/".
+     *
+     * @return A Mono that completes when the invalidation of the path is
+     *         completed.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> invalidate(String path) {
+        Sinks.Empty<Void> sink = Sinks.empty();
+
+        synchronized (this) {
+            List<Sinks.Empty<Void>> sinks = queued.get(path);
+            if (sinks == null) {
+                queued.put(path, new ArrayList<>(List.of(sink)));
+                queuedPaths.increment();
+            } else {
+                sinks.add(sink);
+                coalescedPaths.increment();
+            }
+        }
+
+        return sink.asMono();
+    }
+
+    /**
+     * Polls the running invalidations, then submits the queued paths that fit
+     * in the in-progress limits.
+     *
+     * @return A Mono that completes when the batch of the window is submitted.
+     *
+     * @since 1.0
+     */
+    Mono<Void> tick() {
+        return poll().then(Mono.defer(() -> {
+            Batch batch = drain();
+            return batch == null ? Mono.empty() : submit(batch);
+        }));
+    }
+
+    /**
+     * Polls the status of the running invalidations due to be polled.
+     *
+     * @return A Mono that completes when every status is polled.
+     *
+     * @since 1.0
+     */
+    private Mono<Void> poll() {
+        Instant now = clock.instant();
+        List<Batch> due;
+
+        synchronized (this) {
+            due = running.values().stream()
+                    .filter(batch -> !batch.polledAt.plus(properties.pollInterval()).isAfter(now))
+                    .toList();
+        }
+
+        return Flux.fromIterable(due)
+                .concatMap(batch -> {
+                    if (!batch.submittedAt.plus(properties.timeout()).isAfter(now)) {
+                        LOG.warn("CloudFront invalidation {} timed out", batch.id);
+                        complete(batch, new IllegalStateException("Invalidation timed out: " + batch.id));
+                        return Mono.empty();
+                    }
+
+                    return Mono.fromFuture(() -> client.getInvalidation(r -> r
+                            .distributionId(distributionId)
+                            .id(batch.id)))
+                            .doOnNext(response -> {
+                                batch.polledAt = now;
+                                if (COMPLETED.equals(response.invalidation().status()))
+                                    complete(batch, null);
+                            })
+                            .onErrorResume(e -> {
+                                LOG.warn("Error polling CloudFront invalidation {}: {}", batch.id, e.getMessage());
+                                return Mono.empty();
+                            })
+                            .then();
+                })
+                .then();
+    }
+
+    /**
+     * Takes the queued paths that fit in the in-progress limits.
+     *
+     * <p>
+     * Past the collapse threshold, the queued wildcard paths are first merged
+     * into "/*".
+     * </p>
+     *
+     * @return The batch of the paths taken, null if none fits.
+     *
+     * @since 1.0
+     */
+    private synchronized Batch drain() {
+        collapse();
+
+        Batch batch = new Batch(clock.instant());
+        Iterator<Map.Entry<String, List<Sinks.Empty<Void>>>> entries = queued.entrySet().iterator();
+
+        while (entries.hasNext()) {
+            Map.Entry<String, List<Sinks.Empty<Void>>> entry = entries.next();
+            boolean wildcard = isWildcard(entry.getKey());
+
+            if (wildcard ? runningWildcardPaths + batch.wildcardPaths >= properties.maxWildcardPaths()
+                    : runningPaths + batch.paths() >= properties.maxPaths())
+                continue;
+
+            batch.sinks.put(entry.getKey(), entry.getValue());
+            if (wildcard)
+                batch.wildcardPaths++;
+            entries.remove();
+        }
+
+        if (batch.sinks.isEmpty())
+            return null;
+
+        runningPaths += batch.paths();
+        runningWildcardPaths += batch.wildcardPaths;
+        return batch;
+    }
+
+    /**
+     * Merges the queued wildcard paths into "/*" past the collapse threshold.
+     *
+     * @since 1.0
+     */
+    private void collapse() {
+        List<String> wildcards = queued.keySet().stream()
+                .filter(CloudFrontInvalidationQueue::isWildcard)
+                .filter(path -> !ALL_PATHS.equals(path))
+                .toList();
+
+        if (properties.collapseThreshold() == 0 || wildcards.size() <= properties.collapseThreshold())
+            return;
+
+        LOG.info("Collapsing {} queued CloudFront wildcard paths into {}", wildcards.size(), ALL_PATHS);
+        List<Sinks.Empty<Void>> sinks = queued.computeIfAbsent(ALL_PATHS, $ -> new ArrayList<>());
+        wildcards.forEach(path -> sinks.addAll(queued.remove(path)));
+    }
+
+    /**
+     * Submits a batch of paths.
+     *
+     * @param batch The batch to submit.
+     *
+     * @return A Mono that completes when the batch is submitted, or put back in
+     *         the queue if it failed.
+     *
+     * @since 1.0
+     */
+    private Mono<Void> submit(Batch batch) {
+        List<String> paths = List.copyOf(batch.sinks.keySet());
+
+        return Mono.fromFuture(() -> client.createInvalidation(r -> r
+                .distributionId(distributionId)
+                .invalidationBatch(b -> b
+                        .callerReference(batch.reference)
+                        .paths(p -> p
+                                .quantity(paths.size())
+                                .items(paths)))))
+                .doOnNext(response -> {
+                    synchronized (this) {
+                        batch.id = response.invalidation().id();
+                        running.put(batch.id, batch);
+                    }
+                    submittedPaths.increment(paths.size());
+                    LOG.info("CloudFront invalidation {} submitted with {} paths", batch.id, paths.size());
+                })
+                .onErrorResume(e -> {
+                    LOG.warn("Error submitting CloudFront invalidation of {} paths: {}", paths.size(), e.getMessage());
+                    failedPaths.increment(paths.size());
+                    requeue(batch);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Puts the paths of a failed batch back in the queue, releasing its slots.
+     *
+     * @param batch The failed batch.
+     *
+     * @since 1.0
+     */
+    private synchronized void requeue(Batch batch) {
+        release(batch);
+        batch.sinks.forEach((path, sinks) -> queued.computeIfAbsent(path, $ -> new ArrayList<>()).addAll(sinks));
+    }
+
+    /**
+     * Completes a running batch, releasing its slots.
+     *
+     * @param batch The running batch.
+     * @param error The error of the batch, null if it's completed.
+     *
+     * @since 1.0
+     */
+    private void complete(Batch batch, Throwable error) {
+        synchronized (this) {
+            if (running.remove(batch.id) == null)
+                return;
+
+            release(batch);
+        }
+
+        LOG.info("CloudFront invalidation {} done", batch.id);
+        batch.sinks.values().stream()
+                .flatMap(List::stream)
+                .forEach(sink -> {
+                    if (error == null)
+                        sink.tryEmitEmpty();
+                    else
+                        sink.tryEmitError(error);
+                });
+    }
+
+    private void release(Batch batch) {
+        runningPaths -= batch.paths();
+        runningWildcardPaths -= batch.wildcardPaths;
+    }
+
+    synchronized int queued() {
+        return queued.size();
+    }
+
+    synchronized int running() {
+        return running.size();
+    }
+
+    private static boolean isWildcard(String path) {
+        return path.endsWith("*");
+    }
+
+    /**
+     * Paths of an invalidation request and the Monos waiting for them.
+     *
+     * @since 1.0
+     */
+    private static final class Batch {
+        private final String reference = "invalidation-" + UUID.randomUUID();
+        private final Map<String, List<Sinks.Empty<Void>>> sinks = new LinkedHashMap<>();
+        private final Instant submittedAt;
+        private int wildcardPaths;
+        private Instant polledAt;
+        private String id;
+
+        private Batch(Instant submittedAt) {
+            this.submittedAt = submittedAt;
+            this.polledAt = submittedAt;
+        }
+
+        private int paths() {
+            return sinks.size() - wildcardPaths;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.util.*;
+
+/**
+ * Report of a batched deletion of objects from S3.
+ *
+ * <p>
+ * A DeleteObjects request may delete some keys and fail others, so the
+ * outcome of a deletion is partial rather than a boolean. The reports of the
+ * batches are merged into the report of the whole deletion.
+ * </p>
+ *
+ * @param deleted    the number of objects deleted.
+ * @param failedKeys the keys of the objects that could not be deleted.
+ * @param truncated  whether the listing of the objects failed, so some
+ *                   objects may not even have been tried.
+ *
+ * @see AwsS3Service#deletePrefix(String) The deletion of a prefix.
+ *
+ * @since 1.0
+ */
+public record DeletionReport(long deleted, List<String> failedKeys, boolean truncated) {
+    static final DeletionReport EMPTY = new DeletionReport(0, List.of(), false);
+
+    static DeletionReport deleted(long deleted, List<String> failedKeys) {
+        return new DeletionReport(deleted, List.copyOf(failedKeys), false);
+    }
+
+    static DeletionReport failed(List<String> keys) {
+        return new DeletionReport(0, List.copyOf(keys), false);
+    }
+
+    DeletionReport truncate() {
+        return new DeletionReport(deleted, failedKeys, true);
+    }
+
+    DeletionReport merge(DeletionReport other) {
+        List<String> keys = new ArrayList<>(failedKeys);
+        keys.addAll(other.failedKeys);
+
+        return new DeletionReport(deleted + other.deleted, List.copyOf(keys), truncated || other.truncated);
+    }
+
+    /**
+     * Whether every object was deleted.
+     */
+    public boolean isComplete() {
+        return !truncated && failedKeys.isEmpty();
+    }
+}
@@ -0,0 +1,45 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.time.Instant;
+
+/**
+ * Playback session held by a client, as described by its CloudFront policy.
+ *
+ * <p>
+ * The resource is the URL pattern of the policy, where a trailing "*" covers
+ * every URL starting with the rest of the pattern.<br>
+ * The session is read from the cookies of the request and stored in the
+ * Reactor context under its class, so the services can leave the URLs it
+ * covers unsigned.
+ * </p>
+ *
+ * @param resource  the URL pattern covered by the session.
+ * @param expiresAt when the cookies of the session expire.
+ *
+ * @see PlaybackSessionService#fromCookies(org.springframework.util.MultiValueMap)
+ *      Reads the session of a request.
+ *
+ * @since 1.0
+ */
+public record PlaybackSession(String resource, Instant expiresAt) {
+
+    /**
+     * Checks whether the session covers a URL until an instant.
+     *
+     * @param url   the URL of the object.
+     * @param until the instant the URL must stay valid until.
+     *
+     * @return true if the URL matches the resource and the session expires
+     *         after the instant.
+     *
+     * @since 1.0
+     */
+    public boolean covers(String url, Instant until) {
+        if (!expiresAt.isAfter(until))
+            return false;
+
+        return resource.endsWith("*")
+                ? url.startsWith(resource.substring(0, resource.length() - 1))
+                : url.equals(resource);
+    }
+}
@@ -0,0 +1,162 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.io.IOException;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import org.slf4j.*;
+import org.springframework.http.*;
+import org.springframework.stereotype.Service;
+import org.springframework.util.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.fasterxml.jackson.databind.*;
+import com.pitanguinha.streaming.config.aws.cloudfront.CloudFrontProperties;
+import com.pitanguinha.streaming.dto.playback.PlaybackSessionDto;
+import com.pitanguinha.streaming.enums.media.PlaybackScope;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import software.amazon.awssdk.services.cloudfront.cookie.CookiesForCustomPolicy;
+
+/**
+ * Service class for the playback sessions.
+ *
+ * <p>
+ * A session is a set of CloudFront signed cookies with a custom policy
+ * covering the objects of an artifact or the whole catalogue. One signature
+ * per session replaces a signature per thumbnail and per play, since the
+ * services return plain URLs for the objects covered by the session of the
+ * client.<br>
+ * The session of a request is read from its policy cookie, without checking
+ * the signature: CloudFront does, so a forged policy only gets plain URLs
+ * that CloudFront rejects.
+ * </p>
+ *
+ * @see CloudFrontProperties.Session The properties of the sessions.
+ *
+ * @since 1.0
+ */
+@Service
+@ConditionalOnProperty(name = "aws.cloudfront.enabled", havingValue = "true", matchIfMissing = false)
+public class PlaybackSessionService {
+    private static final Logger LOG = LoggerFactory.getLogger(PlaybackSessionService.class);
+    private static final String POLICY_COOKIE = "CloudFront-Policy";
+    private static final String SIGNATURE_COOKIE = "CloudFront-Signature";
+    private static final String KEY_PAIR_ID_COOKIE = "CloudFront-Key-Pair-Id";
+
+    private final CloudFrontProperties properties;
+    private final AwsCloudFrontService cloudFrontService;
+    private final ObjectMapper objectMapper;
+    private final Scheduler signingScheduler;
+
+    @Autowired
+    public PlaybackSessionService(
+            CloudFrontProperties properties,
+            AwsCloudFrontService cloudFrontService,
+            ObjectMapper objectMapper,
+            @Qualifier("cloudFrontSigningScheduler") Scheduler signingScheduler) {
+        this.properties = properties;
+        this.cloudFrontService = cloudFrontService;
+        this.objectMapper = objectMapper;
+        this.signingScheduler = signingScheduler;
+    }
+
+    /**
+     * Creates a playback session.
+     *
+     * <p>
+     * The session covers the objects of the artifact if its ID is given, the
+     * whole catalogue otherwise, and lasts the session lifetime.<br>
+     * The cookies are signed on the signing scheduler and set on the response,
+     * which must not be cached.
+     * </p>
+     *
+     * @param artifactId The ID of the artifact, null for the catalogue.
+     *
+     * @return A Mono containing the response with the session and its cookies.
+     *
+     * @see AwsCloudFrontService#getSessionCookies(String, Instant) Signs the
+     *      cookies.
+     *
+     * @since 1.0
+     */
+    public Mono<ResponseEntity<PlaybackSessionDto>> create(String artifactId) {
+        PlaybackScope scope = artifactId == null ? PlaybackScope.CATALOGUE : PlaybackScope.ARTIFACT;
+        String prefix = scope == PlaybackScope.ARTIFACT ? artifactId + "/" : "";
+        Instant expiresAt = Instant.now().plus(properties.session().lifetime()).truncatedTo(ChronoUnit.SECONDS);
+
+        return Mono.fromCallable(() -> cloudFrontService.getSessionCookies(prefix, expiresAt))
+                .subscribeOn(signingScheduler)
+                .map(cookies -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .header(HttpHeaders.SET_COOKIE, cookies(cookies))
+                        .body(PlaybackSessionDto.builder()
+                                .scope(scope)
+                                .resource(cookies.resourceUrl())
+                                .expiresAt(expiresAt)
+                                .build()));
+    }
+
+    /**
+     * Reads the playback session of a request from its cookies.
+     *
+     * @param cookies The cookies of the request.
+     *
+     * @return The session, empty if the cookies are missing, malformed or for
+     *         another distribution.
+     *
+     * @since 1.0
+     */
+    public Optional<PlaybackSession> fromCookies(MultiValueMap<String, HttpCookie> cookies) {
+        HttpCookie policy = cookies.getFirst(POLICY_COOKIE);
+        if (policy == null || !cookies.containsKey(SIGNATURE_COOKIE) || !cookies.containsKey(KEY_PAIR_ID_COOKIE))
+            return Optional.empty();
+
+        try {
+            // CloudFront replaces the characters of Base64 that are invalid in cookies
+            byte[] json = Base64.getDecoder().decode(policy.getValue()
+                    .replace('-', '+')
+                    .replace('_', '=')
+                    .replace('~', '/'));
+
+            JsonNode statement = objectMapper.readTree(json).path("Statement").path(0);
+            String resource = statement.path("Resource").asText("");
+            long epochTime = statement.path("Condition").path("DateLessThan").path("AWS:EpochTime").asLong();
+
+            if (!resource.startsWith(properties.endpoint() + "/") || epochTime <= 0)
+                return Optional.empty();
+
+            return Optional.of(new PlaybackSession(resource, Instant.ofEpochSecond(epochTime)));
+
+        } catch (IllegalArgumentException | IOException e) {
+            LOG.debug("Ignoring malformed playback session policy: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String[] cookies(CookiesForCustomPolicy cookies) {
+        return List.of(cookies.policyHeaderValue(), cookies.signatureHeaderValue(), cookies.keyPairIdHeaderValue())
+                .stream()
+                .map(this::cookie)
+                .toArray(String[]::new);
+    }
+
+    private String cookie(String headerValue) {
+        int separator = headerValue.indexOf('=');
+        String domain = properties.session().cookieDomain();
+
+        return ResponseCookie.from(headerValue.substring(0, separator), headerValue.substring(separator + 1))
+                .domain(StringUtils.hasText(domain) ? domain : null)
+                .path("/")
+                .maxAge(properties.session().lifetime())
+                .httpOnly(true)
+                .secure(true)
+                .sameSite("Lax")
+                .build()
+                .toString();
+    }
+}
@@ -0,0 +1,365 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.time.*;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.concurrent.*;
+
+import org.slf4j.*;
+
+import org.springframework.stereotype.Component;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+
+import com.pitanguinha.streaming.config.aws.s3.S3Properties;
+
+import io.micrometer.core.instrument.*;
+
+import reactor.core.publisher.Mono;
+
+import software.amazon.awssdk.core.exception.*;
+
+/**
+ * Resilience of the S3 requests.
+ *
+ * <p>
+ * Every request goes through a circuit breaker. The network errors, timeouts,
+ * throttling and server errors are failures, and when they reach the failure
+ * rate threshold of the last window of requests the circuit opens: the
+ * requests fail fast with an {@link SdkClientException}, mapped like any S3
+ * failure by the callers, instead of piling up behind a degraded S3. After
+ * the open duration the circuit is half open, a few probe requests decide
+ * whether it closes or opens again.<br>
+ * The read requests may also be hedged: a read still running after the
+ * latency percentile of the recent reads is sent again, the first response
+ * wins and the other one is cancelled. The hedges are limited to a ratio of
+ * the reads and are never sent while the circuit is not closed.<br>
+ * The retries themselves are done by the SDK, within each request.<br>
+ * The state of the circuit is published as the gauge "s3.circuit.state" (0
+ * closed, 1 open, 2 half open) and every transition is logged and counted.
+ * </p>
+ *
+ * @see S3Properties.Resilience The properties of the resilience.
+ *
+ * @since 1.0
+ */
+@Component
+@ConditionalOnExpression("${aws.s3.enabled:false} and '${spring.application.storage.backend:s3}' == 's3'")
+public class S3Resilience {
+    private final static Logger LOG = LoggerFactory.getLogger(S3Resilience.class);
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    /**
+     * The state of the circuit.
+     *
+     * @since 1.0
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final S3Properties.Hedge hedge;
+    private final S3Properties.CircuitBreaker circuitBreaker;
+    private final Clock clock;
+    private final MeterRegistry registry;
+    private final Counter rejected;
+    private final Counter hedged;
+
+    // Guarded by this
+    private final boolean[] outcomes;
+    private int calls;
+    private int failures;
+    private int next;
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    // Guarded by latencies
+    private final long[] latencies;
+    private int samples;
+    private int nextSample;
+    private double hedgeTokens;
+
+    @Autowired
+    public S3Resilience(S3Properties properties, MeterRegistry registry) {
+        this(properties.resilience(), registry);
+    }
+
+    public S3Resilience(S3Properties.Resilience resilience, MeterRegistry registry) {
+        this(resilience, registry, Clock.systemUTC());
+    }
+
+    S3Resilience(S3Properties.Resilience resilience, MeterRegistry registry, Clock clock) {
+        this.hedge = resilience.hedge();
+        this.circuitBreaker = resilience.circuitBreaker();
+        this.clock = clock;
+        this.registry = registry;
+        this.outcomes = new boolean[circuitBreaker.window()];
+        this.latencies = new long[hedge.window()];
+        this.rejected = Counter.builder("s3.circuit.rejected").register(registry);
+        this.hedged = Counter.builder("s3.hedge.requests").register(registry);
+
+        Gauge.builder("s3.circuit.state", this, breaker -> breaker.state().ordinal()).register(registry);
+    }
+
+    /**
+     * Sends a request through the circuit breaker.
+     *
+     * <p>
+     * The request is only sent when the Mono is subscribed, and it's cancelled
+     * if the subscription is cancelled.
+     * </p>
+     *
+     * @param request The supplier of the request future.
+     *
+     * @return A Mono with the response, or an {@link SdkClientException} if the
+     *         circuit is open.
+     *
+     * @since 1.0
+     */
+    public <T> Mono<T> call(Supplier<? extends CompletableFuture<? extends T>> request) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejected.increment();
+                return Mono.error(SdkClientException.create("The S3 circuit breaker is " + state()));
+            }
+
+            return Mono.<T>fromFuture(request)
+                    .doOnSuccess($ -> onSuccess())
+                    .doOnError(e -> {
+                        if (isFailure(e))
+                            onFailure();
+                        else
+                            onSuccess();
+                    })
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    /**
+     * Sends an idempotent read request, hedging it if it's slow.
+     *
+     * <p>
+     * If hedging is enabled, the read is sent again once it runs longer than
+     * the latency percentile of the recent reads, as long as the budget of
+     * hedges allows it and the circuit is closed. The first signal of the two
+     * requests is returned and the other one is cancelled.
+     * </p>
+     *
+     * @param request The supplier of the request future, called once per sent
+     *                request.
+     *
+     * @return A Mono with the response of the first request to finish.
+     *
+     * @see #call(Supplier) Sends each request.
+     *
+     * @since 1.0
+     */
+    public <T> Mono<T> read(Supplier<? extends CompletableFuture<? extends T>> request) {
+        if (!hedge.enabled())
+            return call(request);
+
+        return Mono.defer(() -> {
+            Duration delay = hedgeDelay();
+            Mono<T> primary = timed(request);
+            if (delay == null)
+                return primary;
+
+            Mono<T> hedgedRequest = Mono.delay(delay)
+                    .then(Mono.defer(() -> {
+                        if (state() != State.CLOSED || !tryConsumeHedge())
+                            return Mono.<T>never();
+
+                        hedged.increment();
+                        return timed(request);
+                    }));
+
+            return Mono.firstWithSignal(primary, hedgedRequest);
+        });
+    }
+
+    /**
+     * Gets the state of the circuit.
+     *
+     * <p>
+     * An open circuit past its open duration is reported as open until the
+     * next request makes it half open.
+     * </p>
+     *
+     * @return The state of the circuit, always closed if the circuit breaker is
+     *         disabled.
+     *
+     * @since 1.0
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    private <T> Mono<T> timed(Supplier<? extends CompletableFuture<? extends T>> request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return this.<T>call(request).doOnSuccess($ -> recordLatency(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (!circuitBreaker.enabled())
+            return true;
+
+        if (state == State.OPEN) {
+            if (Duration.between(openedAt, clock.instant()).compareTo(circuitBreaker.openDuration()) < 0)
+                return false;
+
+            transition(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= circuitBreaker.halfOpenCalls())
+                return false;
+
+            halfOpenPermits++;
+        }
+
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (!circuitBreaker.enabled())
+            return;
+
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                if (++halfOpenSuccesses >= circuitBreaker.halfOpenCalls())
+                    transition(State.CLOSED);
+            }
+            // A request sent before the circuit opened
+            case OPEN -> {
+            }
+        }
+    }
+
+    private synchronized void onFailure() {
+        if (!circuitBreaker.enabled())
+            return;
+
+        switch (state) {
+            case CLOSED -> {
+                record(true);
+                if (calls >= circuitBreaker.minCalls()
+                        && (double) failures / calls >= circuitBreaker.failureRateThreshold())
+                    transition(State.OPEN);
+            }
+            case HALF_OPEN -> transition(State.OPEN);
+            case OPEN -> {
+            }
+        }
+    }
+
+    private synchronized void onCancel() {
+        // A cancelled probe gives its permit back
+        if (state == State.HALF_OPEN && halfOpenPermits > halfOpenSuccesses)
+            halfOpenPermits--;
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            if (outcomes[next])
+                failures--;
+        } else {
+            calls++;
+        }
+
+        outcomes[next] = failure;
+        if (failure)
+            failures++;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transition(State to) {
+        LOG.warn("S3 circuit breaker - {} -> {} (failures: {} of {} calls)", state, to, failures, calls);
+        Counter.builder("s3.circuit.transitions").tag("state", to.name().toLowerCase()).register(registry)
+                .increment();
+
+        state = to;
+        openedAt = to == State.OPEN ? clock.instant() : null;
+        halfOpenPermits = 0;
+        halfOpenSuccesses = 0;
+        if (to == State.CLOSED) {
+            Arrays.fill(outcomes, false);
+            calls = 0;
+            failures = 0;
+            next = 0;
+        }
+    }
+
+    /**
+     * Records the latency of a read, earning a fraction of a hedge.
+     *
+     * @param nanos The latency of the read.
+     *
+     * @since 1.0
+     */
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[nextSample] = nanos;
+            nextSample = (nextSample + 1) % latencies.length;
+            samples = Math.min(samples + 1, latencies.length);
+            hedgeTokens = Math.min(hedgeTokens + hedge.budget(), MAX_HEDGE_TOKENS);
+        }
+    }
+
+    /**
+     * Computes the delay after which a read is hedged.
+     *
+     * @return The latency percentile of the recent reads, at least the min
+     *         delay, or null if there aren't enough reads yet.
+     *
+     * @since 1.0
+     */
+    Duration hedgeDelay() {
+        long[] window;
+        synchronized (latencies) {
+            if (samples < hedge.minSamples())
+                return null;
+
+            window = Arrays.copyOf(latencies, samples);
+        }
+
+        Arrays.sort(window);
+        int index = (int) Math.ceil(hedge.percentile() * window.length) - 1;
+        Duration percentile = Duration.ofNanos(window[Math.max(index, 0)]);
+
+        return percentile.compareTo(hedge.minDelay()) < 0 ? hedge.minDelay() : percentile;
+    }
+
+    private boolean tryConsumeHedge() {
+        synchronized (latencies) {
+            if (hedgeTokens < 1)
+                return false;
+
+            hedgeTokens--;
+            return true;
+        }
+    }
+
+    /**
+     * Checks if an error is a failure of S3 itself.
+     *
+     * @param e The error of the request.
+     *
+     * @return true for network errors, timeouts, throttling and server errors,
+     *         false for client errors such as a missing key.
+     *
+     * @since 1.0
+     */
+    static boolean isFailure(Throwable e) {
+        if (e instanceof SdkServiceException service)
+            return service.statusCode() >= 500 || service.isThrottlingException();
+
+        return e instanceof SdkClientException || e instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,136 @@
+package com.pitanguinha.streaming.service.aws;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.*;
+
+/**
+ * Cache of signed URLs by time bucket.
+ *
+ * <p>
+ * Time is split in buckets of a fixed duration, a URL is signed once per key
+ * and bucket and expires at the end of the bucket plus the min remaining
+ * lifetime. Since a URL is only returned until its bucket ends, it's always
+ * valid for at least the min remaining lifetime when returned.<br>
+ * The expiration being aligned to the bucket, a signer whose URL only depends
+ * on the key and the expiration, e.g. a CloudFront canned policy, returns the
+ * same URL within a bucket, even on other instances, so the browsers and HTTP
+ * caches can reuse the responses. A S3 presigned URL also carries the time
+ * it was signed at, so it's only stable on the instance that cached it.<br>
+ * The cache is bounded by its max entries and evicts the least recently used
+ * URL. The hits, misses and evictions are counted under the metric prefix.
+ * </p>
+ *
+ * @param <V> The type of the signed URLs.
+ *
+ * @see com.pitanguinha.streaming.config.aws.s3.S3Config The cache of the S3
+ *      presigned URLs.
+ * @see com.pitanguinha.streaming.config.aws.cloudfront.CloudFrontConfig The
+ *      cache of the CloudFront signed URLs.
+ *
+ * @since 1.0
+ */
+public class TimeBucketedCache<V> {
+    private final Clock clock;
+    private final long bucketMillis;
+    private final Duration minRemaining;
+    private final Map<String, Entry<V>> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /**
+     * Constructs a cache on the system clock.
+     *
+     * @param metricPrefix The prefix of the metrics of the cache.
+     * @param bucket       The duration of a bucket.
+     * @param minRemaining The min remaining lifetime of a returned URL.
+     * @param maxEntries   The max URLs kept.
+     * @param registry     The registry of the metrics.
+     */
+    public TimeBucketedCache(String metricPrefix, Duration bucket, Duration minRemaining, int maxEntries,
+            MeterRegistry registry) {
+        this(metricPrefix, bucket, minRemaining, maxEntries, registry, Clock.systemUTC());
+    }
+
+    TimeBucketedCache(String metricPrefix, Duration bucket, Duration minRemaining, int maxEntries,
+            MeterRegistry registry, Clock clock) {
+        this.hits = Counter.builder(metricPrefix).tag("result", "hit").register(registry);
+        this.misses = Counter.builder(metricPrefix).tag("result", "miss").register(registry);
+        this.evictions = Counter.builder(metricPrefix + ".evictions").register(registry);
+        this.clock = clock;
+        this.bucketMillis = bucket.toMillis();
+        this.minRemaining = minRemaining;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict)
+                    evictions.increment();
+                return evict;
+            }
+        };
+
+        Gauge.builder(metricPrefix + ".size", this, cache -> cache.size()).register(registry);
+    }
+
+    /**
+     * Gets the signed URL of a key, signing it on a miss.
+     *
+     * <p>
+     * The signing is done out of the lock, so two concurrent misses of a key
+     * may both sign it, the last one is kept.
+     * </p>
+     *
+     * @param key  the key of the object.
+     * @param sign the signer of the key, given the expiration of the URL.
+     *
+     * @return The signed URL of the key for the current bucket.
+     *
+     * @since 1.0
+     */
+    public V get(String key, Function<Instant, V> sign) {
+        long bucket = clock.millis() / bucketMillis;
+
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.bucket() == bucket) {
+                hits.increment();
+                return entry.url();
+            }
+        }
+
+        misses.increment();
+        V url = sign.apply(expiration(bucket));
+
+        synchronized (entries) {
+            entries.put(key, new Entry<>(url, bucket));
+        }
+
+        return url;
+    }
+
+    /**
+     * Computes the expiration of the URLs signed in a bucket.
+     *
+     * @param bucket The index of the bucket.
+     *
+     * @return The end of the bucket plus the min remaining lifetime.
+     *
+     * @since 1.0
+     */
+    Instant expiration(long bucket) {
+        return Instant.ofEpochMilli((bucket + 1) * bucketMillis).plus(minRemaining);
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Entry<V>(V url, long bucket) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.pitanguinha.streaming.service.blob;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.slf4j.*;
+
+import org.springframework.stereotype.Service;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.domain.blob.Blob;
+import com.pitanguinha.streaming.enums.exceptions.*;
+import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
+import com.pitanguinha.streaming.repository.blob.BlobRepository;
+import com.pitanguinha.streaming.service.storage.StorageService;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service for the content-addressed objects shared between media.
+ *
+ * <p>
+ * An object is stored once under the SHA-256 digest of its content and every
+ * media that uses it holds a reference, counted in the {@link Blob}
+ * document.<br>
+ * Only the first reference uploads the object, the next ones are a single
+ * atomic increment, and the object is deleted with its last reference.<br>
+ * The document outlives the object: it's marked as being deleted before the
+ * object is deleted and as missing after, and a reference is only acquired
+ * on a document that is not being deleted. A store racing a deletion waits
+ * for it to finish and then uploads the object again, so a document never
+ * points to an object deleted under it.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class BlobStoreService {
+    private final static Logger LOG = LoggerFactory.getLogger(BlobStoreService.class);
+    private final static Duration DELETION_POLL_INTERVAL = Duration.ofMillis(200);
+    private final static Duration STALE_DELETION = Duration.ofMinutes(1);
+
+    private final BlobRepository repository;
+    private final StorageService storageService;
+
+    /**
+     * Stores a content-addressed object, acquiring a reference to it.
+     *
+     * <p>
+     * If the object is already stored its references are incremented and
+     * nothing is uploaded. Otherwise it's uploaded and its document is inserted
+     * with a single reference, a concurrent insert of the same digest falls
+     * back to the increment.<br>
+     * If the object is being deleted, the store is retried once the deletion
+     * is finished, a deletion left unfinished past a minute is taken over. If
+     * it was deleted, a reference is acquired and it's uploaded again.
+     * </p>
+     *
+     * @param digest      the hex SHA-256 digest of the content
+     * @param contentType the content type of the object
+     * @param bytes       the content of the object
+     *
+     * @return A Mono containing the key of the object.
+     *
+     * @throws S3Exception if the object can't be uploaded.
+     *
+     * @see Blob#key(String) Gets the key of the object.
+     * @see #release(String) Releases the acquired reference.
+     *
+     * @since 1.0
+     */
+    public Mono<String> store(String digest, String contentType, byte[] bytes) {
+        String key = Blob.key(digest);
+
+        return repository.incrementIfStored(digest)
+                .flatMap(updated -> {
+                    if (updated > 0) {
+                        LOG.info("Reused blob: {}", digest);
+                        return Mono.just(key);
+                    }
+
+                    return repository.findById(digest)
+                            .flatMap(blob -> restore(blob, contentType, bytes))
+                            .switchIfEmpty(Mono.defer(() -> insert(digest, contentType, bytes)));
+                });
+    }
+
+    /**
+     * Releases a reference to a content-addressed object.
+     *
+     * <p>
+     * The object is deleted when no reference is left, the document is marked
+     * as being deleted before and as missing after.<br>
+     * A failure deleting the object is only logged, the object is orphaned but
+     * a later store of the same digest uploads it again.
+     * </p>
+     *
+     * @param digest the hex SHA-256 digest of the content
+     *
+     * @return A Mono that completes when the reference is released.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> release(String digest) {
+        return repository.incrementReferences(digest, -1)
+                .then(Mono.defer(() -> {
+                    Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+                    return repository.markDeleting(digest, now)
+                            .flatMap(marked -> {
+                                if (marked <= 0)
+                                    return Mono.empty();
+
+                                LOG.info("Deleting unreferenced blob: {}", digest);
+                                return storageService.deleteObjects(List.of(Blob.key(digest)))
+                                        .doOnNext(response -> {
+                                            if (!response)
+                                                LOG.error("Error deleting unreferenced blob: {}", digest);
+                                        })
+                                        .then(Mono.defer(() -> repository.markDeleted(digest, now)));
+                            });
+                }))
+                .then();
+    }
+
+    /**
+     * Uploads a new object and inserts its document with a single reference.
+     *
+     * @param digest      the hex SHA-256 digest of the content
+     * @param contentType the content type of the object
+     * @param bytes       the content of the object
+     *
+     * @return A Mono containing the key of the object.
+     *
+     * @since 1.0
+     */
+    private Mono<String> insert(String digest, String contentType, byte[] bytes) {
+        String key = Blob.key(digest);
+
+        return upload(digest, contentType, bytes)
+                .then(Mono.defer(() -> repository.insert(Blob.builder()
+                        .digest(digest)
+                        .references(1)
+                        .size(bytes.length)
+                        .contentType(contentType)
+                        .createdAt(Instant.now())
+                        .build())))
+                .doOnSuccess($ -> LOG.info("Stored blob: {}", digest))
+                .thenReturn(key)
+                .onErrorResume(DuplicateKeyException.class, e -> store(digest, contentType, bytes));
+    }
+
+    /**
+     * Acquires a reference to an object being deleted or deleted.
+     *
+     * @param blob        the document of the object
+     * @param contentType the content type of the object
+     * @param bytes       the content of the object
+     *
+     * @return A Mono containing the key of the object.
+     *
+     * @since 1.0
+     */
+    private Mono<String> restore(Blob blob, String contentType, byte[] bytes) {
+        String digest = blob.getDigest();
+
+        if (blob.getDeletingAt() != null) {
+            if (blob.getDeletingAt().plus(STALE_DELETION).isAfter(Instant.now()))
+                return Mono.delay(DELETION_POLL_INTERVAL).then(Mono.defer(() -> store(digest, contentType, bytes)));
+
+            LOG.warn("Taking over the stale deletion of blob: {}", digest);
+            return repository.markDeleted(digest, blob.getDeletingAt())
+                    .then(Mono.defer(() -> store(digest, contentType, bytes)));
+        }
+
+        if (!blob.isMissing())
+            return store(digest, contentType, bytes);
+
+        return repository.incrementIfMissing(digest)
+                .flatMap(updated -> {
+                    if (updated <= 0)
+                        return store(digest, contentType, bytes);
+
+                    return upload(digest, contentType, bytes)
+                            .onErrorResume(e -> release(digest).then(Mono.error(e)))
+                            .then(Mono.defer(() -> repository.markStored(digest)))
+                            .doOnSuccess($ -> LOG.info("Restored blob: {}", digest))
+                            .thenReturn(Blob.key(digest));
+                });
+    }
+
+    private Mono<Void> upload(String digest, String contentType, byte[] bytes) {
+        String key = Blob.key(digest);
+
+        return storageService.uploadFromBytes(key, contentType, bytes)
+                .flatMap(response -> response
+                        ? Mono.<Void>empty()
+                        : Mono.error(new S3Exception("Error uploading blob to S3: " + digest, key,
+                                S3OperationException.UPLOAD_FAILED, SeverityLevel.MEDIUM)));
+    }
+}
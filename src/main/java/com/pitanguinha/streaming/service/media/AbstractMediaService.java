@@ -1,22 +1,38 @@
 package com.pitanguinha.streaming.service.media;
 
+import java.time.*;
+import java.time.format.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 import java.util.function.*;
+import java.util.stream.IntStream;
 
-import org.springframework.http.codec.multipart.FilePart;
-import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.http.*;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.pitanguinha.streaming.dto.media.*;
 import com.pitanguinha.streaming.dto.media.response.*;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
 import com.pitanguinha.streaming.domain.media.Media;
-import com.pitanguinha.streaming.enums.media.MediaErrorType;
+import com.pitanguinha.streaming.domain.upload.*;
 import com.pitanguinha.streaming.exceptions.domain.*;
-import com.pitanguinha.streaming.enums.media.ConversionStatus;
+import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+import com.pitanguinha.streaming.enums.media.*;
+import com.pitanguinha.streaming.enums.exceptions.*;
 import com.pitanguinha.streaming.service.*;
 import com.pitanguinha.streaming.service.aws.*;
-import com.pitanguinha.streaming.service.media.operation.MediaOperator;
-import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.service.storage.*;
+import com.pitanguinha.streaming.service.media.operation.*;
+import com.pitanguinha.streaming.service.upload.UploadJobProcessor;
 
 import reactor.core.publisher.*;
+import reactor.util.context.ContextView;
+
+import software.amazon.awssdk.services.cloudfront.url.SignedUrl;
 
 /**
  * * Abstract class for media services, providing common functionality for
@@ -28,27 +44,29 @@ import reactor.core.publisher.*;
  * @since 1.0
  */
 public abstract class AbstractMediaService<E extends Media, D extends MediaSuccessDto>
-        implements MediaServiceInterface<E, D> {
-    protected final AwsS3Service s3Service;
+        implements MediaServiceInterface<E, D>, UploadJobProcessor {
+    private static final int SIGNING_BATCH_SIZE = 256;
+
+    protected final StorageService storageService;
     protected final AwsCloudFrontService cloudFrontService;
     protected final TempDirService tempDirService;
     private final MediaOperator<E> mediaOperator;
-    private final ReactiveCrudRepository<E, String> repository;
+    private final ReactiveMongoRepository<E, String> repository;
 
     /**
      * Constructs an AbstractMediaService with the specified dependencies.
      *
-     * @param s3Service         The AWS S3 service for handling media storage.
+     * @param storageService    The storage service for handling media storage.
      * @param cloudFrontService The AWS CloudFront service for handling access
      *                          media.
      * @param tempDirService    The service for managing temporary directories.
-     * @param repository        The reactive CRUD repository for media entities.
+     * @param repository        The reactive repository for media entities.
      * @param mediaOperator     The media operator for handling media operations.
      */
-    public AbstractMediaService(AwsS3Service s3Service, AwsCloudFrontService cloudFrontService,
-            TempDirService tempDirService, ReactiveCrudRepository<E, String> repository,
+    public AbstractMediaService(StorageService storageService, AwsCloudFrontService cloudFrontService,
+            TempDirService tempDirService, ReactiveMongoRepository<E, String> repository,
             MediaOperator<E> mediaOperator) {
-        this.s3Service = s3Service;
+        this.storageService = storageService;
         this.cloudFrontService = cloudFrontService;
         this.tempDirService = tempDirService;
         this.repository = repository;
@@ -60,7 +78,7 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * 
      * <p>
      * Retrieves the media entity by its ID and generates a signed URL for its
-     * content.
+     * content, or a plain URL if the playback session of the client covers it.
      * </p>
      * 
      * @param id The ID of the media entity.
@@ -71,21 +89,177 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * 
      * @see #findByIdErrorHandler(String) Finds the media entity by ID with error
      *      handling.
-     * @see AwsCloudFrontService#getSignedUrl(String) Gets the signed URL for the
-     *      media content.
+     * @see #getUrl(String) Gets the URL for the media content.
      * 
      * @since 1.0
      */
     public Mono<String> getContentSignedUrl(String id) {
         return findByIdErrorHandler(id)
-                .map(entity -> cloudFrontService.getSignedUrl(entity.getContentKey()).url());
+                .flatMap(entity -> getUrl(entity.getContentKey()));
+    }
+
+    /**
+     * Streams the content of a media entity, honoring the byte range asked.
+     * 
+     * <p>
+     * The bytes are proxied from the storage as they arrive, never copied or
+     * buffered, so a seek or a resumed download only reads the range asked.<br>
+     * A single satisfiable range is answered with 206 Partial Content, a range
+     * past the end with 416 Range Not Satisfiable, while no range, many ranges,
+     * an invalid Range header or a stale If-Range are answered with the whole
+     * content. The If-Range validator is either the ETag or the Last-Modified
+     * date of the content.
+     * </p>
+     * 
+     * @param id      The ID of the media entity.
+     * @param headers The headers of the request.
+     * 
+     * @return A Mono containing the response with the content.
+     * 
+     * @throws NotFoundException    if the entity or its content does not exist.
+     * @throws DomainStateException if the conversion status is pending or
+     *                              error.
+     * @throws S3Exception          if the content can't be read.
+     * 
+     * @see #findByIdErrorHandler(String) Finds the media entity by ID with error
+     *      handling.
+     * @see StorageService#getObject(StoredObject, long, long) Reads the range.
+     * 
+     * @since 1.0
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamContent(String id, HttpHeaders headers) {
+        return findByIdErrorHandler(id)
+                .flatMap(entity -> storageService.headObject(entity.getContentKey())
+                        .onErrorMap(StorageException.class, e -> new S3Exception(
+                                "Error reading the content of media: " + id, entity.getContentKey(),
+                                S3OperationException.DOWNLOAD_FAILED, SeverityLevel.MEDIUM, e))
+                        .switchIfEmpty(Mono.error(() -> new NotFoundException("The content does not exist",
+                                "content not found for id: " + id))))
+                .map(object -> toContentResponse(object, headers));
+    }
+
+    /**
+     * Builds the response with the content, or with the range asked of it.
+     * 
+     * @param object  The metadata of the content.
+     * @param headers The headers of the request.
+     * 
+     * @return The response with the content.
+     * 
+     * @since 1.0
+     */
+    private ResponseEntity<Flux<DataBuffer>> toContentResponse(StoredObject object, HttpHeaders headers) {
+        long length = object.contentLength();
+        HttpRange range = requestedRange(object, headers);
+        if (range == null)
+            return contentResponse(HttpStatus.OK, object)
+                    .contentLength(length)
+                    .body(storageService.getObject(object, 0, length));
+
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            start = 0;
+            end = -1;
+        }
+
+        if (end < start)
+            return contentResponse(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, object)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .body(Flux.empty());
+
+        return contentResponse(HttpStatus.PARTIAL_CONTENT, object)
+                .contentLength(end - start + 1)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length)
+                .body(storageService.getObject(object, start, end - start + 1));
+    }
+
+    private static ResponseEntity.BodyBuilder contentResponse(HttpStatus status, StoredObject object) {
+        MediaType contentType;
+        try {
+            contentType = object.contentType() == null
+                    ? MediaType.APPLICATION_OCTET_STREAM
+                    : MediaType.parseMediaType(object.contentType());
+        } catch (InvalidMediaTypeException e) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM;
+        }
+
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(object.eTag())
+                .lastModified(object.lastModified())
+                .contentType(contentType);
+    }
+
+    /**
+     * Gets the single range asked by a request.
+     * 
+     * @param object  The metadata of the content.
+     * @param headers The headers of the request.
+     * 
+     * @return The range asked, or null if the whole content must be sent.
+     * 
+     * @since 1.0
+     */
+    private static HttpRange requestedRange(StoredObject object, HttpHeaders headers) {
+        List<HttpRange> ranges;
+        try {
+            ranges = headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (ranges.size() != 1 || !isIfRangeFresh(object, headers.getFirst(HttpHeaders.IF_RANGE)))
+            return null;
+
+        return ranges.get(0);
+    }
+
+    /**
+     * Checks whether the validator of an If-Range header still matches the
+     * content.
+     * 
+     * <p>
+     * An entity tag must match strongly, so a weak one never does, and a date
+     * must be the Last-Modified date of the content to the second.
+     * </p>
+     * 
+     * @param object  The metadata of the content.
+     * @param ifRange The If-Range header, may be null.
+     * 
+     * @return true if there's no validator or it matches the content.
+     * 
+     * @since 1.0
+     */
+    private static boolean isIfRangeFresh(StoredObject object, String ifRange) {
+        if (ifRange == null)
+            return true;
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(object.eTag());
+
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                    .equals(object.lastModified().truncatedTo(ChronoUnit.SECONDS));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
     }
 
     /**
      * Saves a media entity in S3 and the repository.
      * 
      * <p>
-     * First is uploaded to S3, then saved in the repository.
+     * The entity is saved in the repository and uploaded to S3, the upload is
+     * admitted by the caller before its request is read.<br>
+     * The size of the files is enforced while they are uploaded, if the upload
+     * fails for a new entity, it's removed from the repository so no pending
+     * entity is left behind.<br>
+     * The entity is saved again only if the digests of its files changed with
+     * the upload.
      * </p>
      * 
      * @param entity        The media entity to save.
@@ -94,26 +268,363 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * 
      * @return A Mono containing the saved media DTO.
      * 
+     * @throws IllegalArgumentException if a file size is not supported.
+     * 
      * @see #saveInRepository(Media) Saves the media in the repository.
-     * @see MediaOperator#uploadOrUpdateToS3(Media, FilePart, FilePart)
-     *      Uploads the media to S3.
+     * @see MediaOperator#uploadOrUpdateToS3(Media, FilePart, FilePart,
+     *      boolean) Uploads the media to S3.
      * @see #toDtoInternal(Media) Converts the entity to a DTO with a signed URL.
      * 
      * @since 1.0
      */
     protected Mono<D> saveInS3AndRepository(E entity, FilePart thumbnailFile, FilePart contentFile) {
-        return FileUtils.isFileSizeSupported(contentFile, 9) 
-		.then(FileUtils.isFileSizeSupported(thumbnailFile, 1))
-		.then(saveInRepository(entity))
-                .flatMap(savedEntity -> mediaOperator.uploadOrUpdateToS3(savedEntity, thumbnailFile, contentFile))
+        boolean isNew = entity.getId() == null;
+
+        return saveInRepository(entity)
+                .flatMap(savedEntity -> uploadAndSaveDigests(savedEntity, thumbnailFile, contentFile, isNew)
+                        .onErrorResume(e -> isNew
+                                ? repository.delete(savedEntity).then(Mono.error(e))
+                                : Mono.error(e)))
+                .flatMap(this::toDtoInternal);
+    }
+
+    /**
+     * Saves the media of a batch ingest in the repository and S3.
+     * 
+     * <p>
+     * The items are read in order from the multipart request, each chunk of
+     * valid items is inserted in the repository at once, then the files of the
+     * inserted items are uploaded with bounded concurrency, each upload admitted
+     * by its files.<br>
+     * A failed item doesn't fail the batch: an invalid item is not saved, and
+     * an item whose insert or upload fails is removed from the repository. A
+     * failed result has a stable error type, only an invalid item has the
+     * details of its error. A result is
+     * emitted for each item as soon as it's done, so the results are not in
+     * the order of the items.
+     * </p>
+     * 
+     * @param <P>      The type of the post DTO.
+     * @param parts    The parts of the multipart request.
+     * @param type     The class of the post DTO.
+     * @param toEntity Function to create the entity from the post DTO.
+     * 
+     * @return A Flux of the result of each item.
+     * 
+     * @see MediaOperator#readBatch(Flux, Class) Reads the items.
+     * @see MediaOperator#admitUpload(FilePart, FilePart) Admits each upload.
+     * @see #uploadAndSaveDigests(Media, FilePart, FilePart, boolean) Uploads
+     *      each item.
+     * 
+     * @since 1.0
+     */
+    protected <P extends MediaPostDto> Flux<BatchItemResultDto> saveBatchInS3AndRepository(Flux<Part> parts,
+            Class<P> type, Function<P, E> toEntity) {
+        return mediaOperator.readBatch(parts, type)
+                .concatMap(chunk -> insertBatchChunk(chunk, toEntity))
+                .flatMap(entry -> entry.result() != null
+                        ? Mono.just(entry.result())
+                        : uploadBatchEntry(entry), mediaOperator.batchConcurrency());
+    }
+
+    /**
+     * Inserts the valid items of a chunk in the repository at once.
+     * 
+     * <p>
+     * The IDs are assigned before the insert, so if it fails partway the
+     * entities already inserted are deleted and no pending entity is left
+     * behind.
+     * </p>
+     * 
+     * @param chunk    The items of the chunk.
+     * @param toEntity Function to create the entity from the post DTO.
+     * 
+     * @return A Flux of the inserted items to upload, and of the results of
+     *         the invalid or not inserted items.
+     * 
+     * @since 1.0
+     */
+    private <P extends MediaPostDto> Flux<BatchEntry<E>> insertBatchChunk(List<BatchItem<P>> chunk,
+            Function<P, E> toEntity) {
+        List<BatchItem<P>> valid = chunk.stream().filter(BatchItem::isValid).toList();
+        Flux<BatchEntry<E>> invalid = Flux.fromIterable(chunk)
+                .filter(item -> !item.isValid())
+                .map(item -> BatchEntry.failed(item.index(), BatchItemErrorType.INVALID_ITEM, item.error()));
+
+        if (valid.isEmpty())
+            return invalid;
+
+        List<E> entities = valid.stream()
+                .map(item -> {
+                    E entity = toEntity.apply(item.postDto());
+                    entity.setId(new ObjectId().toHexString());
+                    return entity;
+                })
+                .toList();
+        List<String> ids = entities.stream().map(Media::getId).toList();
+
+        // All the entities are new, so they are inserted with a single insertMany
+        Flux<BatchEntry<E>> inserted = repository.insert(entities)
+                .collectList()
+                .flatMapIterable(saved -> IntStream.range(0, saved.size())
+                        .mapToObj(i -> {
+                            P postDto = valid.get(i).postDto();
+                            return new BatchEntry<>(valid.get(i).index(), saved.get(i),
+                                    postDto.getThumbnailFile(), postDto.getContentFile(), null);
+                        })
+                        .toList())
+                .onErrorResume(e -> repository.deleteAllById(ids)
+                        .onErrorResume($ -> Mono.empty())
+                        .thenMany(Flux.fromIterable(valid)
+                                .map(item -> BatchEntry.failed(item.index(), BatchItemErrorType.INSERT_FAILED,
+                                        null))));
+
+        return Flux.concat(invalid, inserted);
+    }
+
+    /**
+     * Uploads the files of an inserted item of a batch ingest.
+     * 
+     * @param entry The inserted item.
+     * 
+     * @return A Mono of the result of the item.
+     * 
+     * @since 1.0
+     */
+    private Mono<BatchItemResultDto> uploadBatchEntry(BatchEntry<E> entry) {
+        E entity = entry.entity();
+
+        return Mono.usingWhen(mediaOperator.admitUpload(entry.thumbnailFile(), entry.contentFile()),
+                $ -> uploadAndSaveDigests(entity, entry.thumbnailFile(), entry.contentFile(), true),
+                permit -> Mono.fromRunnable(permit::dispose))
+                .map(uploaded -> BatchItemResultDto.builder()
+                        .index(entry.index())
+                        .id(uploaded.getId())
+                        .status(BatchItemStatus.CREATED)
+                        .build())
+                .onErrorResume(e -> repository.delete(entity)
+                        .onErrorResume($ -> Mono.empty())
+                        .thenReturn(failedResult(entry.index(), uploadErrorType(e), null)));
+    }
+
+    /**
+     * Maps the error of an upload of a batch ingest to its type.
+     * 
+     * @param e The error of the upload.
+     * 
+     * @return The type of the error, returned instead of its message.
+     * 
+     * @since 1.0
+     */
+    private static BatchItemErrorType uploadErrorType(Throwable e) {
+        if (e instanceof IllegalArgumentException)
+            return BatchItemErrorType.INVALID_FILE;
+        if (e instanceof AdmissionRejectedException)
+            return BatchItemErrorType.UPLOAD_REJECTED;
+
+        return BatchItemErrorType.UPLOAD_FAILED;
+    }
+
+    /**
+     * An item of a batch ingest, inserted or already with its result.
+     */
+    private record BatchEntry<T>(int index, T entity, FilePart thumbnailFile, FilePart contentFile,
+            BatchItemResultDto result) {
+        static <T> BatchEntry<T> failed(int index, BatchItemErrorType errorType, String error) {
+            return new BatchEntry<>(index, null, null, null, failedResult(index, errorType, error));
+        }
+    }
+
+    private static BatchItemResultDto failedResult(int index, BatchItemErrorType errorType, String error) {
+        return BatchItemResultDto.builder()
+                .index(index)
+                .status(BatchItemStatus.FAILED)
+                .errorType(errorType)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Saves a media entity with the content of a resumable upload session.
+     * 
+     * <p>
+     * The entity is saved pending first, with the media ID reserved by the
+     * session, then the session is completed, so its content is in place, and
+     * the thumbnail and metadata are uploaded. The session is only removed
+     * once the entity is persisted with its files.<br>
+     * The content of a session is not read again, so the required metadata must
+     * be given and is checked before the session is completed.<br>
+     * If the session can't be completed, the entity is removed and the session
+     * is kept, so the finalization can be retried. If the upload fails after
+     * it, the entity, its artifact and the session are removed so no pending
+     * entity nor orphan content is left behind.
+     * </p>
+     * 
+     * @param entity        The media entity to save.
+     * @param thumbnailFile The thumbnail file to upload.
+     * @param sessionId     The ID of the upload session with the content.
+     * 
+     * @return A Mono containing the saved media DTO.
+     * 
+     * @throws NotFoundException        if the upload session does not exist.
+     * @throws DomainStateException     if the upload session is incomplete.
+     * @throws IllegalArgumentException if the required metadata is missing.
+     * 
+     * @see MediaOperator#completeUploadSession(UploadSession) Completes the
+     *      session.
+     * @see MediaOperator#uploadOrUpdateToS3(Media, FilePart, FilePart,
+     *      boolean) Uploads the thumbnail and metadata to S3.
+     * @see #toDtoInternal(Media) Converts the entity to a DTO with a signed URL.
+     * 
+     * @since 1.0
+     */
+    protected Mono<D> saveFromUploadSession(E entity, FilePart thumbnailFile, String sessionId) {
+        entity.applyTags(Map.of());
+        if (!entity.hasRequiredMetadata())
+            return Mono.error(new IllegalArgumentException(
+                    "Required metadata is missing, it must be given for content uploaded by session"));
+
+        return mediaOperator.findUploadSession(sessionId)
+                .flatMap(session -> {
+                    entity.setId(session.getMediaId());
+
+                    return saveInRepository(entity)
+                            .flatMap(savedEntity -> mediaOperator.completeUploadSession(session)
+                                    .onErrorResume(e -> repository.delete(savedEntity).then(Mono.error(e)))
+                                    .flatMap($ -> uploadAndSaveDigests(savedEntity, thumbnailFile, null, true)
+                                            .onErrorResume(e -> repository.delete(savedEntity)
+                                                    .then(storageService.deleteArtifact(savedEntity.getId()))
+                                                    .then(mediaOperator.removeUploadSession(session))
+                                                    .then(Mono.error(e)))))
+                            .flatMap(uploaded -> mediaOperator.removeUploadSession(session).thenReturn(uploaded));
+                })
                 .flatMap(this::toDtoInternal);
     }
 
+    /**
+     * Saves a media entity in the repository and queues the upload of its files.
+     * 
+     * <p>
+     * The files are spooled first, so an invalid file is rejected before the
+     * entity is saved, then the entity is saved pending and the upload job is
+     * queued to run in the background. Like a single save, the upload is
+     * admitted by the caller before its request is read.<br>
+     * If the job can't be queued, the entity is removed, and the spooled files
+     * are discarded on any error so nothing is left behind.
+     * </p>
+     * 
+     * @param entity        The media entity to save.
+     * @param thumbnailFile The thumbnail file to upload.
+     * @param contentFile   The content file to upload.
+     * @param priority      The priority of the upload job.
+     * 
+     * @return A Mono containing the queued upload job.
+     * 
+     * @throws IllegalArgumentException if a file size or type is not supported.
+     * 
+     * @see MediaOperator#spoolUpload(FilePart, FilePart) Spools the files.
+     * @see MediaOperator#enqueueUpload(UploadJob, String, String, int) Queues
+     *      the upload job.
+     * @see #processUploadJob(String, FilePart, FilePart) Runs the upload job.
+     * 
+     * @since 1.0
+     */
+    protected Mono<UploadJobDto> saveInUploadQueue(E entity, FilePart thumbnailFile, FilePart contentFile,
+            int priority) {
+        return mediaOperator.spoolUpload(thumbnailFile, contentFile)
+                .flatMap(job -> saveInRepository(entity)
+                        .flatMap(savedEntity -> mediaOperator
+                                .enqueueUpload(job, mediaType(), savedEntity.getId(), priority)
+                                .onErrorResume(e -> repository.delete(savedEntity).then(Mono.error(e))))
+                        .onErrorResume(e -> mediaOperator.discardUpload(job).then(Mono.error(e))));
+    }
+
+    /**
+     * Uploads the spooled files of an upload job for a saved media entity.
+     * 
+     * @param mediaId   The ID of the media entity.
+     * @param thumbnail The spooled thumbnail file.
+     * @param content   The spooled content file.
+     * 
+     * @return A Mono that completes when the files are uploaded.
+     * 
+     * @throws NotFoundException if the entity does not exist.
+     * 
+     * @see #uploadAndSaveDigests(Media, FilePart, FilePart, boolean) Uploads
+     *      the files.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Void> processUploadJob(String mediaId, FilePart thumbnail, FilePart content) {
+        return findByIdSwitchIfEmpty(mediaId)
+                .flatMap(entity -> uploadAndSaveDigests(entity, thumbnail, content, false))
+                .then();
+    }
+
+    /**
+     * Removes the media entity of an upload job that failed for good, with
+     * whatever was uploaded of its artifact.
+     * 
+     * @param mediaId The ID of the media entity.
+     * 
+     * @return A Mono that completes when the entity is removed.
+     * 
+     * @since 1.0
+     */
+    @Override
+    public Mono<Void> discardUploadJob(String mediaId) {
+        return repository.findById(mediaId)
+                .flatMap(entity -> repository.delete(entity)
+                        .then(storageService.deleteArtifact(entity.getId())))
+                .then();
+    }
+
+    /**
+     * Uploads the files of a saved media entity and saves their digests.
+     * 
+     * <p>
+     * The digests, the duration and the missing metadata are set by the upload,
+     * from the content and its tags, so the entity is saved again only if any
+     * of them changed.
+     * </p>
+     * 
+     * @param entity        The saved media entity.
+     * @param thumbnailFile The thumbnail file to upload.
+     * @param contentFile   The content file to upload.
+     * @param isNew         Whether the entity was just created, so it has no
+     *                      artifact to back up.
+     * 
+     * @return A Mono containing the uploaded media entity.
+     * 
+     * @see MediaOperator#uploadOrUpdateToS3(Media, FilePart, FilePart,
+     *      boolean) Uploads the media to S3.
+     * 
+     * @since 1.0
+     */
+    private Mono<E> uploadAndSaveDigests(E entity, FilePart thumbnailFile, FilePart contentFile,
+            boolean isNew) {
+        String thumbnailDigest = entity.getThumbnailDigest();
+        String contentDigest = entity.getContentDigest();
+        String duration = entity.getDuration();
+        Map<String, String> metadata = entity.getMetadata();
+
+        return mediaOperator.uploadOrUpdateToS3(entity, thumbnailFile, contentFile, isNew)
+                .flatMap(uploaded -> Objects.equals(thumbnailDigest, uploaded.getThumbnailDigest())
+                        && Objects.equals(contentDigest, uploaded.getContentDigest())
+                        && Objects.equals(duration, uploaded.getDuration())
+                        && metadata.equals(uploaded.getMetadata())
+                                ? Mono.just(uploaded)
+                                : saveInRepository(uploaded));
+    }
+
     /**
      * Updates a media entity in S3 and the repository.
      * 
      * <p>
-     * First is updated in S3, then saved in the repository.
+     * First is updated in S3, then saved in the repository.<br>
+     * If a file is replaced, the cached objects of the media are invalidated in
+     * CloudFront.
      * </p>
      * 
      * @param putDto         The DTO containing the update information.
@@ -141,6 +652,10 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
                     updateEntityFn.accept(entity, putDto);
                     entity.setConversionStatus(ConversionStatus.PENDING);
                     return saveInS3AndRepository(entity, thumbnailFile, contentFile);
+                })
+                .doOnNext(dto -> {
+                    if (thumbnailFile != null || contentFile != null)
+                        cloudFrontService.invalidateArtifact(dto.getId());
                 });
     }
 
@@ -306,17 +821,29 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
     /**
      * Deletes a media entity from S3 and the repository.
      * 
+     * <p>
+     * The shared objects referenced by the entity, such as its thumbnail, are
+     * released and only deleted if no other entity references them. The cached
+     * objects of the entity are then invalidated in CloudFront.
+     * </p>
+     * 
      * @param entity The media entity to delete.
      * 
      * @return A Mono that completes when the deletion is done.
      * 
-     * @see AwsS3Service#deleteArtifact(String) Deletes the media artifact from S3.
+     * @see StorageService#deleteArtifact(String) Deletes the media artifact from the
+     *      storage.
+     * @see MediaOperator#releaseBlobs(Media) Releases the shared objects.
+     * @see AwsCloudFrontService#invalidateArtifact(String) Invalidates the
+     *      cached objects.
      * 
      * @since 1.0
      */
     private Mono<Void> deleteFromS3AndRepository(E entity) {
-        return s3Service.deleteArtifact(entity.getId())
-                .then(repository.delete(entity));
+        return storageService.deleteArtifact(entity.getId())
+                .then(mediaOperator.releaseBlobs(entity))
+                .then(repository.delete(entity))
+                .then(Mono.fromRunnable(() -> cloudFrontService.invalidateArtifact(entity.getId())));
     }
 
     /**
@@ -371,7 +898,10 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * 
      * <p>
      * Filters out entities with null conversion status and maps them to DTOs or
-     * wraps errors.
+     * wraps errors.<br>
+     * The entities are processed in batches, the thumbnails of the successful
+     * ones being signed together off the event loop, and the order of the
+     * entities is kept.
      * </p>
      * 
      * @param entities The Flux of media entities to process.
@@ -379,7 +909,7 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * @return A Flux of MediaResponseDto containing the results or error
      *         information.
      * 
-     * @see #toDtoInternal(Media) Converts the entity to a DTO with a signed url.
+     * @see #toDtosInternal(List) Converts the entities to DTOs with signed urls.
      * @see #buildErrorDto(String, String, MediaErrorType) Builds a MediaErrorDto
      *      for entities with pending or failed conversion status.
      * 
@@ -389,16 +919,24 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
         return entities
                 .distinct(E::getId)
                 .filter(entity -> entity.getConversionStatus() != null)
-                .flatMap(entity -> {
-                    if (entity.getConversionStatus() == ConversionStatus.PENDING)
-                        return buildErrorDto(entity.getId(), "Conversion is still pending",
-                                MediaErrorType.CONVERSION_PENDING);
-
-                    if (entity.getConversionStatus() == ConversionStatus.ERROR)
-                        return buildErrorDto(entity.getId(), "Conversion failed", MediaErrorType.CONVERSION_FAILED);
+                .buffer(SIGNING_BATCH_SIZE)
+                .concatMap(batch -> toDtosInternal(batch.stream()
+                        .filter(entity -> entity.getConversionStatus() == ConversionStatus.SUCCESS)
+                        .toList())
+                        .collectList()
+                        .flatMapIterable(dtos -> {
+                            Iterator<D> successes = dtos.iterator();
 
-                    return toDtoInternal(entity);
-                });
+                            return batch.stream()
+                                    .<MediaResponseDto>map(entity -> switch (entity.getConversionStatus()) {
+                                        case PENDING -> buildErrorDto(entity.getId(), "Conversion is still pending",
+                                                MediaErrorType.CONVERSION_PENDING);
+                                        case ERROR -> buildErrorDto(entity.getId(), "Conversion failed",
+                                                MediaErrorType.CONVERSION_FAILED);
+                                        case SUCCESS -> successes.next();
+                                    })
+                                    .toList();
+                        }));
     }
 
     /**
@@ -406,14 +944,16 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * conversion statuses.
      * 
      * <p>
-     * Only entities with successful conversion status are mapped to DTOs.
+     * Only entities with successful conversion status are mapped to DTOs.<br>
+     * The entities are processed in batches, their thumbnails being signed
+     * together off the event loop, and the order of the entities is kept.
      * </p>
      * 
      * @param entities The Flux of media entities to process.
      * 
      * @return A Flux of DTOs containing only successfully converted entities.
      * 
-     * @see #toDtoInternal(Media) Converts the entity to a DTO with a signed url.
+     * @see #toDtosInternal(List) Converts the entities to DTOs with signed urls.
      * @since 1.0
      */
     protected Flux<D> mapOnlySuccessfulConversions(Flux<E> entities) {
@@ -421,7 +961,8 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
                 .distinct(E::getId)
                 .filter(entity -> entity.getConversionStatus() != null)
                 .filter(entity -> entity.getConversionStatus() == ConversionStatus.SUCCESS)
-                .flatMap(entity -> toDtoInternal(entity));
+                .buffer(SIGNING_BATCH_SIZE)
+                .concatMap(this::toDtosInternal);
     }
 
     /**
@@ -431,16 +972,54 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * @param message   The error message.
      * @param errorType The type of error.
      * 
-     * @return A Mono containing the MediaErrorDto.
+     * @return The MediaErrorDto.
      * 
      * @since 1.0
      */
-    private Mono<MediaErrorDto> buildErrorDto(String id, String message, MediaErrorType errorType) {
-        return Mono.just(MediaErrorDto.builder()
+    private MediaErrorDto buildErrorDto(String id, String message, MediaErrorType errorType) {
+        return MediaErrorDto.builder()
                 .id(id)
                 .message(message)
                 .errorType(errorType)
-                .build());
+                .build();
+    }
+
+    /**
+     * Converts a batch of media entities to DTOs with signed thumbnail URLs.
+     * 
+     * <p>
+     * The thumbnails covered by the playback session of the client get plain
+     * URLs, only the others are signed.
+     * </p>
+     * 
+     * @param entities The media entities to convert.
+     * @return A Flux of the media DTOs, in the order of the entities.
+     * 
+     * @see AwsCloudFrontService#getSignedUrls(List) Signs the thumbnails of the
+     *      batch on the signing scheduler.
+     * @see #toDto(Media) Converts the entity to a DTO.
+     * @since 1.0
+     */
+    private Flux<D> toDtosInternal(List<E> entities) {
+        return Flux.deferContextual(context -> cloudFrontService.getSignedUrls(entities.stream()
+                .map(E::thumbnailKey)
+                .filter(key -> !isCovered(context, key))
+                .toList())
+                .collectList()
+                .flatMapIterable(signedUrls -> {
+                    Iterator<SignedUrl> signed = signedUrls.iterator();
+
+                    return entities.stream()
+                            .map(entity -> {
+                                String key = entity.thumbnailKey();
+                                D dto = toDto(entity);
+                                dto.setThumbnailUrl(isCovered(context, key)
+                                        ? cloudFrontService.getUrl(key)
+                                        : signed.next().url());
+                                return dto;
+                            })
+                            .toList();
+                }));
     }
 
     /**
@@ -449,16 +1028,43 @@ public abstract class AbstractMediaService<E extends Media, D extends MediaSucce
      * @param entity The media entity to convert.
      * @return A Mono containing the media DTO with the signed thumbnail URL.
      * 
-     * @see AwsCloudFrontService#getSignedUrl(String) Gets the signed URL
-     *      for the media thumbnail.
+     * @see #getUrl(String) Gets the URL for the media thumbnail.
      * @see #toDto(Media) Converts the entity to a DTO.
      * @since 1.0
      */
     private Mono<D> toDtoInternal(E entity) {
-        D dto = toDto(entity);
-        String thumbnailKey = entity.getId() + "/" + entity.getThumbnailSuffix();
-        dto.setThumbnailUrl(cloudFrontService.getSignedUrl(thumbnailKey).url());
-        return Mono.just(dto);
+        return getUrl(entity.thumbnailKey())
+                .map(url -> {
+                    D dto = toDto(entity);
+                    dto.setThumbnailUrl(url);
+                    return dto;
+                });
+    }
+
+    /**
+     * Gets the URL of an object for the client.
+     * 
+     * <p>
+     * The URL is plain if the playback session of the client covers the
+     * object, signed otherwise.
+     * </p>
+     * 
+     * @param key The key of the object.
+     * @return A Mono containing the URL of the object.
+     * 
+     * @see AwsCloudFrontService#getSignedUrl(String) Gets the signed URL.
+     * @since 1.0
+     */
+    private Mono<String> getUrl(String key) {
+        return Mono.deferContextual(context -> Mono.just(isCovered(context, key)
+                ? cloudFrontService.getUrl(key)
+                : cloudFrontService.getSignedUrl(key).url()));
+    }
+
+    private boolean isCovered(ContextView context, String key) {
+        return context.<PlaybackSession>getOrEmpty(PlaybackSession.class)
+                .map(session -> cloudFrontService.isCovered(session, key))
+                .orElse(false);
     }
 
     /**
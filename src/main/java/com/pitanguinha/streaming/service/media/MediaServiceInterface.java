@@ -1,5 +1,8 @@
 package com.pitanguinha.streaming.service.media;
 
+import org.springframework.http.*;
+import org.springframework.core.io.buffer.DataBuffer;
+
 import com.pitanguinha.streaming.dto.media.*;
 import com.pitanguinha.streaming.dto.media.response.*;
 import com.pitanguinha.streaming.domain.media.Media;
@@ -15,6 +18,8 @@ import reactor.core.publisher.*;
 public interface MediaServiceInterface<E extends Media, D extends MediaSuccessDto> {
     Mono<String> getContentSignedUrl(String id);
 
+    Mono<ResponseEntity<Flux<DataBuffer>>> streamContent(String id, HttpHeaders headers);
+
     Mono<D> save(MediaPostDto postDto);
 
     Mono<D> update(MediaPutDto putDto);
@@ -4,12 +4,14 @@ import java.util.*;
 import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
+import org.springframework.http.codec.multipart.Part;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
 import com.pitanguinha.streaming.dto.music.*;
 import com.pitanguinha.streaming.dto.media.*;
-import com.pitanguinha.streaming.dto.media.response.MediaResponseDto;
+import com.pitanguinha.streaming.dto.media.response.*;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
 import com.pitanguinha.streaming.domain.media.*;
 import com.pitanguinha.streaming.enums.media.music.*;
 import com.pitanguinha.streaming.exceptions.search.*;
@@ -18,6 +20,7 @@ import com.pitanguinha.streaming.mapper.media.MusicMapper;
 import com.pitanguinha.streaming.repository.media.MusicRepository;
 import com.pitanguinha.streaming.service.TempDirService;
 import com.pitanguinha.streaming.service.aws.*;
+import com.pitanguinha.streaming.service.storage.StorageService;
 import com.pitanguinha.streaming.service.media.operation.MediaOperator;
 
 import reactor.core.publisher.*;
@@ -40,9 +43,10 @@ public class MusicService extends AbstractMediaService<Music, MusicSuccessDto> {
     private final MusicMapper mapper;
 
     @Autowired
-    public MusicService(MusicRepository repository, AwsS3Service s3Service, AwsCloudFrontService cloudFrontService,
+    public MusicService(MusicRepository repository, StorageService storageService,
+            AwsCloudFrontService cloudFrontService,
             TempDirService tempDirService, MediaOperator<Music> mediaOperator, MusicMapper mapper) {
-        super(s3Service, cloudFrontService, tempDirService, repository, mediaOperator);
+        super(storageService, cloudFrontService, tempDirService, repository, mediaOperator);
         this.repository = repository;
         this.mapper = mapper;
     }
@@ -56,8 +60,52 @@ public class MusicService extends AbstractMediaService<Music, MusicSuccessDto> {
      * @since 1.0
      */
     public Mono<MusicSuccessDto> save(MediaPostDto postDto) {
-        return this.saveInS3AndRepository(mapper.toEntity((MusicPostDto) postDto), postDto.getThumbnailFile(),
-                postDto.getContentFile());
+        Music entity = mapper.toEntity((MusicPostDto) postDto);
+
+        if (postDto.getUploadSessionId() != null)
+            return this.saveFromUploadSession(entity, postDto.getThumbnailFile(), postDto.getUploadSessionId());
+
+        return this.saveInS3AndRepository(entity, postDto.getThumbnailFile(), postDto.getContentFile());
+    }
+
+    /**
+     * Saves a new music to the repository and queues the upload of its files.
+     * 
+     * <p>
+     * The music is saved pending and its files are uploaded in the background
+     * once they are spooled, the returned job tracks the upload.<br>
+     * The content of an upload session is already uploaded, so it's not
+     * supported here.
+     * </p>
+     * 
+     * @param postDto  the DTO containing the music post data
+     * @param priority the priority of the upload job
+     * @return a Mono containing the queued upload job
+     * @throws IllegalArgumentException If an upload session is given, or a file
+     *                                  is not supported.
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadJobDto> saveAsync(MediaPostDto postDto, int priority) {
+        if (postDto.getUploadSessionId() != null)
+            return Mono.error(new IllegalArgumentException(
+                    "An upload session can't be saved in the upload queue, save it without async"));
+
+        Music entity = mapper.toEntity((MusicPostDto) postDto);
+        return this.saveInUploadQueue(entity, postDto.getThumbnailFile(), postDto.getContentFile(), priority);
+    }
+
+    /**
+     * Saves many musics of a batch ingest to the repository and S3 storage.
+     * 
+     * @param parts the parts of the multipart request, an item part followed
+     *              by its files for each music
+     * @return a Flux containing the result of each music
+     * 
+     * @since 1.0
+     */
+    public Flux<BatchItemResultDto> saveBatch(Flux<Part> parts) {
+        return this.saveBatchInS3AndRepository(parts, MusicPostDto.class, mapper::toEntity);
     }
 
     /**
@@ -207,6 +255,11 @@ public class MusicService extends AbstractMediaService<Music, MusicSuccessDto> {
         throw new UnsupportedOperationException("Unimplemented method 'report'");
     }
 
+    @Override
+    public String mediaType() {
+        return "music";
+    }
+
     @Override
     protected MusicSuccessDto toDto(Music entity) {
         return mapper.toDto(entity);
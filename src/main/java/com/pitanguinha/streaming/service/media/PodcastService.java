@@ -4,12 +4,14 @@ import java.util.Arrays;
 import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
+import org.springframework.http.codec.multipart.Part;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
 import com.pitanguinha.streaming.domain.media.Podcast;
 import com.pitanguinha.streaming.dto.media.*;
-import com.pitanguinha.streaming.dto.media.response.MediaResponseDto;
+import com.pitanguinha.streaming.dto.media.response.*;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
 import com.pitanguinha.streaming.dto.podcast.*;
 import com.pitanguinha.streaming.enums.media.SearchType;
 import com.pitanguinha.streaming.enums.media.podcast.Category;
@@ -19,6 +21,7 @@ import com.pitanguinha.streaming.mapper.media.PodcastMapper;
 import com.pitanguinha.streaming.repository.media.PodcastRepository;
 import com.pitanguinha.streaming.service.TempDirService;
 import com.pitanguinha.streaming.service.aws.*;
+import com.pitanguinha.streaming.service.storage.StorageService;
 import com.pitanguinha.streaming.service.media.operation.MediaOperator;
 
 import reactor.core.publisher.*;
@@ -41,9 +44,10 @@ public class PodcastService extends AbstractMediaService<Podcast, PodcastSuccess
     private final PodcastMapper mapper;
 
     @Autowired
-    public PodcastService(PodcastRepository repository, AwsS3Service s3Service, AwsCloudFrontService cloudFrontService,
+    public PodcastService(PodcastRepository repository, StorageService storageService,
+            AwsCloudFrontService cloudFrontService,
             TempDirService tempDirService, MediaOperator<Podcast> mediaOperator, PodcastMapper mapper) {
-        super(s3Service, cloudFrontService, tempDirService, repository, mediaOperator);
+        super(storageService, cloudFrontService, tempDirService, repository, mediaOperator);
         this.repository = repository;
         this.mapper = mapper;
     }
@@ -58,8 +62,52 @@ public class PodcastService extends AbstractMediaService<Podcast, PodcastSuccess
      * @since 1.0
      */
     public Mono<PodcastSuccessDto> save(MediaPostDto postDto) {
-        return this.saveInS3AndRepository(mapper.toEntity((PodcastPostDto) postDto), postDto.getThumbnailFile(),
-                postDto.getContentFile());
+        Podcast entity = mapper.toEntity((PodcastPostDto) postDto);
+
+        if (postDto.getUploadSessionId() != null)
+            return this.saveFromUploadSession(entity, postDto.getThumbnailFile(), postDto.getUploadSessionId());
+
+        return this.saveInS3AndRepository(entity, postDto.getThumbnailFile(), postDto.getContentFile());
+    }
+
+    /**
+     * Saves a new podcast to the repository and queues the upload of its files.
+     * 
+     * <p>
+     * The podcast is saved pending and its files are uploaded in the background
+     * once they are spooled, the returned job tracks the upload.<br>
+     * The content of an upload session is already uploaded, so it's not
+     * supported here.
+     * </p>
+     * 
+     * @param postDto  the DTO containing the podcast post data
+     * @param priority the priority of the upload job
+     * @return a Mono containing the queued upload job
+     * @throws IllegalArgumentException If an upload session is given, or a file
+     *                                  is not supported.
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadJobDto> saveAsync(MediaPostDto postDto, int priority) {
+        if (postDto.getUploadSessionId() != null)
+            return Mono.error(new IllegalArgumentException(
+                    "An upload session can't be saved in the upload queue, save it without async"));
+
+        Podcast entity = mapper.toEntity((PodcastPostDto) postDto);
+        return this.saveInUploadQueue(entity, postDto.getThumbnailFile(), postDto.getContentFile(), priority);
+    }
+
+    /**
+     * Saves many podcasts of a batch ingest to the repository and S3 storage.
+     * 
+     * @param parts the parts of the multipart request, an item part followed
+     *              by its files for each podcast
+     * @return a Flux containing the result of each podcast
+     * 
+     * @since 1.0
+     */
+    public Flux<BatchItemResultDto> saveBatch(Flux<Part> parts) {
+        return this.saveBatchInS3AndRepository(parts, PodcastPostDto.class, mapper::toEntity);
     }
 
     /**
@@ -216,6 +264,11 @@ public class PodcastService extends AbstractMediaService<Podcast, PodcastSuccess
         throw new UnsupportedOperationException("Unimplemented method 'report'");
     }
 
+    @Override
+    public String mediaType() {
+        return "podcast";
+    }
+
     @Override
     protected PodcastSuccessDto toDto(Podcast entity) {
         return mapper.toDto(entity);
@@ -0,0 +1,29 @@
+package com.pitanguinha.streaming.service.media.operation;
+
+import com.pitanguinha.streaming.dto.media.MediaPostDto;
+
+/**
+ * An item of a batch ingest read from a multipart request.
+ *
+ * @param <P>     the type of the post DTO
+ * @param index   the position of the item in the request, starting at 0
+ * @param postDto the post DTO with its files, null if the item is invalid
+ * @param error   why the item is invalid, null if it's valid
+ *
+ * @see MediaBatchReader The reader of the items.
+ *
+ * @since 1.0
+ */
+public record BatchItem<P extends MediaPostDto>(int index, P postDto, String error) {
+    static <P extends MediaPostDto> BatchItem<P> valid(int index, P postDto) {
+        return new BatchItem<>(index, postDto, null);
+    }
+
+    static <P extends MediaPostDto> BatchItem<P> invalid(int index, String error) {
+        return new BatchItem<>(index, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
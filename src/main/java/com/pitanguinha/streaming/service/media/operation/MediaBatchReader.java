@@ -0,0 +1,134 @@
+package com.pitanguinha.streaming.service.media.operation;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.dto.media.MediaPostDto;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+
+import jakarta.validation.*;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.*;
+
+/**
+ * Reader of the items of a batch ingest from a multipart request.
+ *
+ * <p>
+ * Each item is a JSON part named "item" with the fields of the post DTO,
+ * followed by its "thumbnailFile" and "contentFile" parts, so the items are
+ * read in order as the request streams in.<br>
+ * An item is validated like a single post, an invalid item is kept with its
+ * error instead of failing the whole batch, as are the items past the max
+ * items.<br>
+ * The items are emitted in chunks of the insert size, so each chunk is
+ * inserted in the repository at once.
+ * </p>
+ *
+ * @see UploadProperties.Batch The properties of the batch ingest.
+ *
+ * @since 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class MediaBatchReader {
+    static final String ITEM_PART = "item";
+    static final String THUMBNAIL_PART = "thumbnailFile";
+    static final String CONTENT_PART = "contentFile";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UploadProperties uploadProperties;
+
+    /**
+     * Reads the items of a batch ingest.
+     *
+     * @param <P>   the type of the post DTO
+     * @param parts the parts of the multipart request
+     * @param type  the class of the post DTO
+     *
+     * @return A Flux of the chunks of items, in the order of the request.
+     *
+     * @since 1.0
+     */
+    public <P extends MediaPostDto> Flux<List<BatchItem<P>>> read(Flux<Part> parts, Class<P> type) {
+        var batch = uploadProperties.batch();
+
+        return parts.bufferUntil(part -> ITEM_PART.equals(part.name()), true)
+                .filter(itemParts -> !itemParts.isEmpty())
+                .index()
+                .concatMap(indexed -> {
+                    int index = indexed.getT1().intValue();
+                    return index < batch.maxItems()
+                            ? readItem(index, indexed.getT2(), type)
+                            : Mono.just(BatchItem.<P>invalid(index,
+                                    "The batch exceeds the max items: " + batch.maxItems()));
+                })
+                .buffer(batch.insertSize());
+    }
+
+    /**
+     * Reads an item from its parts.
+     *
+     * @param <P>       the type of the post DTO
+     * @param index     the position of the item
+     * @param itemParts the parts of the item, starting with the JSON part
+     * @param type      the class of the post DTO
+     *
+     * @return A Mono of the item, invalid if it can't be read or validated.
+     *
+     * @since 1.0
+     */
+    private <P extends MediaPostDto> Mono<BatchItem<P>> readItem(int index, List<Part> itemParts, Class<P> type) {
+        Part itemPart = itemParts.get(0);
+        if (!ITEM_PART.equals(itemPart.name()))
+            return Mono.just(BatchItem.invalid(index, "File parts must follow an item part"));
+
+        return DataBufferUtils.join(itemPart.content())
+                .map(FileUtils::readAndRelease)
+                .map(json -> {
+                    P postDto;
+                    try {
+                        postDto = objectMapper.readValue(json, type);
+                    } catch (IOException e) {
+                        return BatchItem.<P>invalid(index, "Invalid item: the item part is not valid JSON");
+                    }
+
+                    for (Part part : itemParts.subList(1, itemParts.size())) {
+                        if (!(part instanceof FilePart file))
+                            return BatchItem.<P>invalid(index, "Unexpected part: " + part.name());
+
+                        switch (file.name()) {
+                            case THUMBNAIL_PART -> postDto.setThumbnailFile(file);
+                            case CONTENT_PART -> postDto.setContentFile(file);
+                            default -> {
+                                return BatchItem.<P>invalid(index, "Unexpected part: " + file.name());
+                            }
+                        }
+                    }
+
+                    if (postDto.getUploadSessionId() != null)
+                        return BatchItem.<P>invalid(index, "Upload sessions are not supported in a batch");
+
+                    Set<ConstraintViolation<P>> violations = validator.validate(postDto);
+                    if (!violations.isEmpty())
+                        return BatchItem.<P>invalid(index, violations.stream()
+                                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                                .sorted()
+                                .collect(Collectors.joining(", ")));
+
+                    return BatchItem.valid(index, postDto);
+                })
+                .defaultIfEmpty(BatchItem.invalid(index, "Empty item"));
+    }
+}
@@ -1,13 +1,21 @@
 package com.pitanguinha.streaming.service.media.operation;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.codec.multipart.FilePart;
+import java.util.List;
+
+import org.springframework.http.codec.multipart.*;
 import org.springframework.stereotype.Component;
 
 import com.pitanguinha.streaming.domain.media.Media;
+import com.pitanguinha.streaming.dto.media.MediaPostDto;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.domain.upload.*;
+import com.pitanguinha.streaming.service.upload.*;
 
 import lombok.RequiredArgsConstructor;
-import reactor.core.publisher.Mono;
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
 
 /**
  * Service for media operations, including uploading media files to S3 and
@@ -22,6 +30,11 @@ import reactor.core.publisher.Mono;
 @ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
 public class MediaOperator<E extends Media> {
     private final MediaS3UploadingHandler<E> s3UploadingHandler;
+    private final UploadSessionService uploadSessionService;
+    private final UploadJobService uploadJobService;
+    private final UploadAdmissionService uploadAdmissionService;
+    private final MediaBatchReader batchReader;
+    private final UploadProperties uploadProperties;
 
     /**
      * Uploads or updates media files to S3.
@@ -35,16 +48,178 @@ public class MediaOperator<E extends Media> {
      * @param entity        the media entity
      * @param thumbnailFile the thumbnail file
      * @param contentFile   the content file
+     * @param isNew         whether the entity was just created, so it has no
+     *                      artifact to back up
      * 
      * @return A Mono of the media entity after uploading or update whatever are
      *         provided.
      * 
      * @see MediaS3UploadingHandler#uploadOrUpdateMedia(Media, FilePart,
-     *      FilePart)
+     *      FilePart, boolean)
+     * 
+     * @since 1.0
+     */
+    public Mono<E> uploadOrUpdateToS3(E entity, FilePart thumbnailFile, FilePart contentFile, boolean isNew) {
+        return s3UploadingHandler.uploadOrUpdateMedia(entity, thumbnailFile, contentFile, isNew);
+    }
+
+    /**
+     * Admits the upload of media files by the bytes and requests in flight.
+     * 
+     * @param thumbnailFile the thumbnail file
+     * @param contentFile   the content file
+     * 
+     * @return A Mono of the permit, to be disposed once the upload finishes.
+     * 
+     * @see UploadAdmissionService#admit(FilePart, FilePart)
+     * 
+     * @since 1.0
+     */
+    public Mono<Disposable> admitUpload(FilePart thumbnailFile, FilePart contentFile) {
+        return uploadAdmissionService.admit(thumbnailFile, contentFile);
+    }
+
+    /**
+     * Releases the shared objects referenced by a media entity, such as its
+     * thumbnail.
+     * 
+     * @param entity the media entity
+     * 
+     * @return A Mono that completes when the objects are released.
+     * 
+     * @see MediaS3UploadingHandler#releaseBlobs(Media)
+     * 
+     * @since 1.0
+     */
+    public Mono<Void> releaseBlobs(E entity) {
+        return s3UploadingHandler.releaseBlobs(entity);
+    }
+
+    /**
+     * Finds a resumable upload session of a content file.
+     * 
+     * @param sessionId the ID of the upload session
+     * 
+     * @return A Mono of the upload session.
+     * 
+     * @see UploadSessionService#findSession(String)
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadSession> findUploadSession(String sessionId) {
+        return uploadSessionService.findSession(sessionId);
+    }
+
+    /**
+     * Completes a resumable upload session of a content file.
+     * 
+     * <p>
+     * The content is available under the key of the media reserved by the
+     * session, which must be used as the ID of the saved entity. The session is
+     * kept until it's removed.
+     * </p>
+     * 
+     * @param session the upload session
+     * 
+     * @return A Mono of the completed upload session.
+     * 
+     * @see UploadSessionService#complete(UploadSession)
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadSession> completeUploadSession(UploadSession session) {
+        return uploadSessionService.complete(session);
+    }
+
+    /**
+     * Removes a completed upload session.
+     * 
+     * @param session the upload session
+     * 
+     * @return A Mono that completes when the session is removed.
+     * 
+     * @see UploadSessionService#remove(UploadSession)
+     * 
+     * @since 1.0
+     */
+    public Mono<Void> removeUploadSession(UploadSession session) {
+        return uploadSessionService.remove(session);
+    }
+
+    /**
+     * Spools the files of a media to be uploaded in the background.
+     * 
+     * @param thumbnailFile the thumbnail file
+     * @param contentFile   the content file
+     * 
+     * @return A Mono of the unsaved upload job with the spooled files.
+     * 
+     * @see UploadJobService#spool(FilePart, FilePart)
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadJob> spoolUpload(FilePart thumbnailFile, FilePart contentFile) {
+        return uploadJobService.spool(thumbnailFile, contentFile);
+    }
+
+    /**
+     * Queues the upload of the spooled files of a saved media.
+     * 
+     * @param job       the upload job with the spooled files
+     * @param mediaType the type of the media
+     * @param mediaId   the ID of the media
+     * @param priority  the priority of the job
+     * 
+     * @return A Mono of the queued upload job.
+     * 
+     * @see UploadJobService#enqueue(UploadJob, String, String, int)
+     * 
+     * @since 1.0
+     */
+    public Mono<UploadJobDto> enqueueUpload(UploadJob job, String mediaType, String mediaId, int priority) {
+        return uploadJobService.enqueue(job, mediaType, mediaId, priority);
+    }
+
+    /**
+     * Discards the spooled files of an upload job that was not queued.
+     * 
+     * @param job the upload job with the spooled files
+     * 
+     * @return A Mono that completes when the files are deleted.
+     * 
+     * @see UploadJobService#discard(UploadJob)
+     * 
+     * @since 1.0
+     */
+    public Mono<Void> discardUpload(UploadJob job) {
+        return uploadJobService.discard(job);
+    }
+
+    /**
+     * Reads the items of a batch ingest from a multipart request.
+     * 
+     * @param <P>   the type of the post DTO
+     * @param parts the parts of the multipart request
+     * @param type  the class of the post DTO
+     * 
+     * @return A Flux of the chunks of items to insert at once.
+     * 
+     * @see MediaBatchReader#read(Flux, Class)
+     * 
+     * @since 1.0
+     */
+    public <P extends MediaPostDto> Flux<List<BatchItem<P>>> readBatch(Flux<Part> parts, Class<P> type) {
+        return batchReader.read(parts, type);
+    }
+
+    /**
+     * Gets how many items of a batch ingest are uploaded at once.
+     * 
+     * @return the concurrency of the batch ingest.
      * 
      * @since 1.0
      */
-    public Mono<E> uploadOrUpdateToS3(E entity, FilePart thumbnailFile, FilePart contentFile) {
-        return s3UploadingHandler.uploadOrUpdateMedia(entity, thumbnailFile, contentFile);
+    public int batchConcurrency() {
+        return uploadProperties.batch().concurrency();
     }
 }
@@ -2,27 +2,34 @@ package com.pitanguinha.streaming.service.media.operation;
 
 import java.util.*;
 import java.nio.file.*;
+import java.security.MessageDigest;
 
 import org.slf4j.*;
 
 import org.springframework.stereotype.Component;
+import org.springframework.core.io.buffer.*;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.utils.*;
+import com.pitanguinha.streaming.utils.audio.AudioProbe;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
 import com.pitanguinha.streaming.domain.media.Media;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
 import com.pitanguinha.streaming.service.TempDirService;
-import com.pitanguinha.streaming.service.aws.AwsS3Service;
+import com.pitanguinha.streaming.service.storage.StorageService;
+import com.pitanguinha.streaming.service.blob.BlobStoreService;
 
+import com.pitanguinha.streaming.enums.aws.ContentType;
 import static com.pitanguinha.streaming.enums.aws.ContentType.JSON;
 import com.pitanguinha.streaming.enums.exceptions.*;
 import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
 import com.pitanguinha.streaming.exceptions.internal.InternalException;
 
 import reactor.core.publisher.*;
-import jakarta.annotation.PostConstruct;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Service for uploading media files to S3.
@@ -36,27 +43,28 @@ import jakarta.annotation.PostConstruct;
 class MediaS3UploadingHandler<E extends Media> {
     private final static Logger LOG = LoggerFactory.getLogger(MediaS3UploadingHandler.class);
 
-    private final AwsS3Service s3Service;
+    private final StorageService storageService;
     private final TempDirService tempDirService;
     private final ObjectMapper objectMapper;
-    private Path workDir;
+    private final UploadProperties uploadProperties;
+    private final BlobStoreService blobStore;
 
     /**
      * Constructor for MediaS3UploadingService.
      *
-     * @param s3Service      the S3 service
-     * @param tempDirService the temporary directory service
-     * @param objectMapper   the object mapper
+     * @param storageService   the storage service
+     * @param tempDirService   the temporary directory service
+     * @param objectMapper     the object mapper
+     * @param uploadProperties the upload properties
+     * @param blobStore        the content-addressed object store
      */
-    public MediaS3UploadingHandler(AwsS3Service s3Service, TempDirService tempDirService, ObjectMapper objectMapper) {
-        this.s3Service = s3Service;
+    public MediaS3UploadingHandler(StorageService storageService, TempDirService tempDirService,
+            ObjectMapper objectMapper, UploadProperties uploadProperties, BlobStoreService blobStore) {
+        this.storageService = storageService;
         this.tempDirService = tempDirService;
         this.objectMapper = objectMapper;
-    }
-
-    @PostConstruct
-    public void getOrCreateWorkDir() {
-        this.workDir = tempDirService.getOrCreateDir("uploads");
+        this.uploadProperties = uploadProperties;
+        this.blobStore = blobStore;
     }
 
     // /**
@@ -143,7 +151,7 @@ class MediaS3UploadingHandler<E extends Media> {
     // String id = entity.getId();
     // String contentKey = id + "/" + contentPath.getFileName().toString();
 
-    // return Mono.fromFuture(s3Service.uploadFileAsync(contentKey, contentPath))
+    // return Mono.fromFuture(storageService.uploadFileAsync(contentKey, contentPath))
     // .flatMap(response -> {
     // if (!response.sdkHttpResponse().isSuccessful()) {
     // return Mono.error(new S3Exception("Error async uploading file to S3 for
@@ -170,67 +178,305 @@ class MediaS3UploadingHandler<E extends Media> {
      * <p>
      * This method handles the upload of media files to S3, including thumbnail
      * and content files.<br>
-     * It also uploads the metadata as a JSON string, even if no files are
-     * provided.
+     * The thumbnail is stored once by its SHA-256 digest and shared between
+     * media, the same thumbnail is not stored again.<br>
+     * The files are rejected as soon as their leading bytes don't match their
+     * declared content type, before they are transferred any further.<br>
+     * The duration and the missing title, artist and year are read from the
+     * headers of the content while it's uploaded.<br>
+     * The content is digested while it's uploaded, when streaming is enabled it
+     * is piped straight into S3, otherwise it's spooled first, in memory or in
+     * the temporary directory. An unchanged content is not stored again.<br>
+     * The content and the metadata JSON are uploaded concurrently as a single
+     * transaction, the metadata is uploaded alone if no files are provided. If
+     * the transaction fails, the new thumbnail is released and the previous
+     * one is kept, otherwise the previous one is released.
      * </p>
      *
      * @param entity        the media entity
      * @param thumbnailFile the thumbnail file
      * @param contentFile   the content file
+     * @param isNew         whether the entity was just created, so it has no
+     *                      artifact to back up
      *
-     * @return A Mono of the media entity after uploading whatever are provided.
+     * @return A Mono of the media entity after uploading whatever are provided,
+     *         with the digests of its files.
      *
-     * @throws S3Exception If content file is too large for upload.
+     * @throws S3Exception              If has an error uploading the files.
+     * @throws IllegalArgumentException If a file size is not supported.
      *
-     * @see #uploadNormal(Media, Path...) Uploads normal files to S3.
-     * @see #uploadJsonMetadata(Media) Uploads the metadata as a JSON string.
+     * @see #storeThumbnail(Media, FilePart) Stores the thumbnail by its digest.
+     * @see #uploadStreaming(Media, FilePart, boolean) Streams the content to
+     *      S3.
+     * @see #uploadNormal(Media, FilePart, boolean) Uploads the spooled content.
+     * @see #uploadJsonMetadata(Media) Uploads only the metadata as a JSON
+     *      string.
      *
      * @since 1.0
      */
+    public Mono<E> uploadOrUpdateMedia(E entity, FilePart thumbnailFile, FilePart contentFile, boolean isNew) {
+        if (thumbnailFile == null && contentFile == null)
+            return uploadJsonMetadata(entity).thenReturn(entity);
+
+        String previousThumbnail = entity.getThumbnailDigest();
+
+        return storeThumbnail(entity, thumbnailFile)
+                .flatMap(stored -> (uploadProperties.streaming()
+                        ? uploadStreaming(entity, contentFile, isNew)
+                        : uploadNormal(entity, contentFile, isNew))
+                        .onErrorResume(e -> {
+                            if (!stored)
+                                return Mono.error(e);
+
+                            String storedThumbnail = entity.getThumbnailDigest();
+                            entity.setThumbnailDigest(previousThumbnail);
+                            return blobStore.release(storedThumbnail).then(Mono.error(e));
+                        })
+                        .then(stored && previousThumbnail != null
+                                ? blobStore.release(previousThumbnail)
+                                : Mono.empty()))
+                .thenReturn(entity);
+    }
 
-    public Mono<E> uploadOrUpdateMedia(E entity, FilePart thumbnailFile, FilePart contentFile) {
-        return getFilePaths(entity, thumbnailFile, contentFile)
-                .flatMap(filesPaths -> {
-                    return (thumbnailFile != null || contentFile != null
-                            ? uploadNormal(entity, filesPaths)
-                            : uploadJsonMetadata(entity))
-                            .thenReturn(entity);
-                });
+    /**
+     * Releases the content-addressed objects referenced by a media entity.
+     *
+     * @param entity the media entity
+     *
+     * @return A Mono that completes when the objects are released.
+     *
+     * @see BlobStoreService#release(String) Releases a reference.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> releaseBlobs(E entity) {
+        return entity.getThumbnailDigest() != null
+                ? blobStore.release(entity.getThumbnailDigest())
+                : Mono.empty();
+    }
+
+    /**
+     * Stores the thumbnail as a content-addressed object.
+     *
+     * <p>
+     * The thumbnail is small, so it's buffered in memory while its size is
+     * enforced and its digest is computed, then stored under the digest.<br>
+     * Nothing is stored if it's the same thumbnail the entity already has.
+     * </p>
+     *
+     * @param entity        the media entity, its thumbnail digest is updated
+     * @param thumbnailFile the thumbnail file, may be null
+     *
+     * @return A Mono with true if a new thumbnail reference was acquired.
+     *
+     * @throws S3Exception              if the thumbnail can't be stored.
+     * @throws IllegalArgumentException if the thumbnail size is not supported.
+     *
+     * @see BlobStoreService#store(String, String, byte[]) Stores the thumbnail.
+     *
+     * @since 1.0
+     */
+    private Mono<Boolean> storeThumbnail(E entity, FilePart thumbnailFile) {
+        if (thumbnailFile == null)
+            return Mono.just(false);
+
+        return Mono.defer(() -> {
+            MessageDigest digest = FileUtils.sha256();
+
+            return DataBufferUtils.join(FileUtils.digest(FileUtils.readChecked(thumbnailFile,
+                    ThumbnailSupportedTypes.class, uploadProperties.maxThumbnailSize().toBytes()), digest))
+                    .map(FileUtils::readAndRelease)
+                    .flatMap(bytes -> {
+                        String thumbnailDigest = FileUtils.hex(digest);
+                        if (thumbnailDigest.equals(entity.getThumbnailDigest())) {
+                            LOG.info("Thumbnail unchanged for id: {}", entity.getId());
+                            return Mono.just(false);
+                        }
+
+                        return blobStore.store(thumbnailDigest, FileUtils.contentType(thumbnailFile), bytes)
+                                .doOnNext($ -> entity.setThumbnailDigest(thumbnailDigest))
+                                .thenReturn(true);
+                    });
+        });
+    }
+
+    /**
+     * Streams the content file to S3 without transferring it to disk.
+     *
+     * <p>
+     * It's uploaded under the same name used by the spooled upload, so the key
+     * is the same for both modes.<br>
+     * The size of the file is enforced while it is streamed, aborting the
+     * upload as soon as the limit is crossed. Its digest and audio headers are
+     * read on the way and the upload is only completed if the content changed.
+     * </p>
+     *
+     * @param entity      the media entity, its content digest is updated
+     * @param contentFile the content file, may be null
+     * @param isNew       whether the entity was just created
+     *
+     * @return A boolean indicating whether the upload was successful.
+     *
+     * @throws S3Exception if there is an error streaming the files to S3.
+     *
+     * @see StorageService#uploadStream(String, String, Flux, Mono) Streams the
+     *      content to S3.
+     * @see FileUtils#limitSize(Flux, long) Enforces the size of the content.
+     * @see #uploadArtifact(Media, Map, boolean) Uploads the content and the
+     *      metadata.
+     *
+     * @since 1.0
+     */
+    private Mono<Boolean> uploadStreaming(E entity, FilePart contentFile, boolean isNew) {
+        return Mono.defer(() -> {
+            String id = entity.getId();
+            Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+
+            if (contentFile != null) {
+                MessageDigest digest = FileUtils.sha256();
+                AudioProbe probe = new AudioProbe();
+                String previousDigest = entity.getContentDigest();
+
+                uploads.put(id + "/content", storageService.uploadStream(id + "/content",
+                        FileUtils.contentType(contentFile),
+                        probe.observe(FileUtils.digest(FileUtils.readChecked(contentFile, AudioSupportedTypes.class,
+                                uploadProperties.maxContentSize().toBytes()), digest)),
+                        Mono.fromCallable(() -> {
+                            applyAudioInfo(entity, probe);
+                            entity.setContentDigest(FileUtils.hex(digest));
+                            return !entity.getContentDigest().equals(previousDigest);
+                        })));
+            }
+
+            return uploadArtifact(entity, uploads, isNew);
+        });
     }
 
     /**
-     * Uploads files with a size less than the limit defined in
-     * {@link #ASYNC_FILE_SIZE_LIMIT}.
+     * Uploads the content file spooled in memory or in the temporary directory.
      * 
      * <p>
-     * This method uploads files with a size less than the limit defined in
-     * {@link #ASYNC_FILE_SIZE_LIMIT}.<br>
-     * It uploads the files to S3 and then uploads the metadata as a JSON string.
+     * It's uploaded under the entity ID followed by its file name. Its digest
+     * and audio headers are read while it's spooled and the upload is skipped
+     * if the content did not change.<br>
+     * A content up to the spool threshold is uploaded straight from the
+     * buffers it was read into. A larger one is spilled to a leased scratch
+     * directory, reserving the max content size, only once the threshold is
+     * crossed. Either way it's released once the artifact is uploaded.
      * </p>
      *
-     * @param entity the media entity
-     * @param paths  the paths to the files to be uploaded
+     * @param entity      the media entity, its content digest is updated
+     * @param contentFile the content file, may be null
+     * @param isNew       whether the entity was just created
      * 
      * @return A boolean indicating whether the upload was successful.
      * 
      * @throws S3Exception if there is an error uploading the files to S3.
      *
-     * @see AwsS3Service#uploadFilesTransactional(String, Path...) Uploads files
-     *      to S3.
-     * @see #uploadJsonMetadata(Media) Uploads the metadata as a JSON string.
+     * @see #spoolContent(Media, FilePart, MessageDigest, AudioProbe) Spools the
+     *      content.
+     * @see StorageService#uploadFromBuffers(String, String, List) Uploads an
+     *      in-memory content to S3.
+     * @see StorageService#uploadFile(String, Path) Uploads a spilled content to
+     *      S3.
+     * @see #uploadArtifact(Media, Map, boolean) Uploads the content and the
+     *      metadata.
+     * 
+     * @since 1.0
+     */
+    private Mono<Boolean> uploadNormal(E entity, FilePart contentFile, boolean isNew) {
+        if (contentFile == null)
+            return uploadArtifact(entity, new LinkedHashMap<>(), isNew);
+
+        return Mono.defer(() -> {
+            String id = entity.getId();
+            MessageDigest digest = FileUtils.sha256();
+            AudioProbe probe = new AudioProbe();
+
+            return Mono.usingWhen(spoolContent(entity, contentFile, digest, probe),
+                    spooled -> {
+                        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+                        String contentDigest = FileUtils.hex(digest);
+                        applyAudioInfo(entity, probe);
+
+                        if (contentDigest.equals(entity.getContentDigest()))
+                            LOG.info("Content unchanged for id: {}", id);
+                        else if (spooled.isInMemory())
+                            uploads.put(id + "/content", storageService.uploadFromBuffers(id + "/content",
+                                    FileUtils.contentType(contentFile), spooled.buffers()));
+                        else
+                            uploads.put(id + "/" + spooled.file().getFileName(),
+                                    storageService.uploadFile(id, spooled.file()));
+
+                        entity.setContentDigest(contentDigest);
+                        return uploadArtifact(entity, uploads, isNew);
+                    },
+                    spooled -> Mono.fromRunnable(spooled::release).subscribeOn(Schedulers.boundedElastic()));
+        });
+    }
+
+    /**
+     * Uploads the files and the metadata of an artifact as a transaction.
+     * 
+     * <p>
+     * The metadata JSON is uploaded together with the files, all of them
+     * concurrently, and everything that was uploaded is rolled back if any of
+     * them fails.<br>
+     * The metadata is only complete once the content file is read, with its
+     * embedded tags, so its upload waits for the files and is skipped if any
+     * of them fails. It fails if the required metadata is still missing.<br>
+     * The artifact of a new entity has nothing to roll back to, so its keys
+     * are not backed up before they are written.
+     * </p>
+     *
+     * @param entity  the media entity
+     * @param uploads the uploads of the files, by their full key
+     * @param isNew   whether the entity was just created, so none of its keys
+     *                is backed up
+     * 
+     * @return A boolean indicating whether the upload was successful.
+     * 
+     * @throws S3Exception              if there is an error uploading the
+     *                                  artifact to S3.
+     * @throws IllegalArgumentException if the required metadata is missing.
+     *
+     * @see StorageService#uploadTransactional(Map, boolean) Uploads the
+     *      artifact.
+     * @see Media#applyTags(Map) Fills the missing metadata.
+     * @see #createJsonWithMetadata(Media) Creates a JSON string with metadata
+     *      from the entity.
      * 
      * @since 1.0
      */
-    private Mono<Boolean> uploadNormal(E entity, Path... paths) {
-        return s3Service.uploadFilesTransactional(entity.getId(), paths)
-                .flatMap(response -> {
+    private Mono<Boolean> uploadArtifact(E entity, Map<String, Mono<Boolean>> uploads, boolean isNew) {
+        String id = entity.getId();
+        Map<String, Mono<Boolean>> artifact = new LinkedHashMap<>();
+        uploads.forEach((key, upload) -> artifact.put(key, upload.cache()));
+
+        Mono<Boolean> filesUploaded = Flux.fromIterable(List.copyOf(artifact.values()))
+                .flatMap(upload -> upload.onErrorReturn(false))
+                .all(Boolean::booleanValue);
+
+        artifact.put(id + "/metadata.json", filesUploaded.flatMap(uploaded -> {
+            if (!uploaded)
+                return Mono.empty();
+
+            entity.applyTags(Map.of());
+            if (!entity.hasRequiredMetadata())
+                return Mono.error(new IllegalArgumentException("Required metadata is missing for entity: " + id
+                        + ", give it in the request or embed it in the tags of the content file"));
+
+            return storageService.uploadFromString(id + "/metadata.json", JSON, createJsonWithMetadata(entity));
+        }));
+
+        return storageService.uploadTransactional(artifact, !isNew)
+                .map(response -> {
                     if (!response) {
-                        LOG.error("Error uploading files to S3 for id: {}", entity.getId());
-                        throw new S3Exception("Error uploading files to S3 for entity: " + entity.getId(),
-                                entity.getId() + "/files", S3OperationException.UPLOAD_FAILED,
-                                SeverityLevel.MEDIUM);
+                        LOG.error("Error uploading files to S3 for id: {}", id);
+                        throw new S3Exception("Error uploading files to S3 for entity: " + id,
+                                id + "/files", S3OperationException.UPLOAD_FAILED, SeverityLevel.MEDIUM);
                     }
-                    return uploadJsonMetadata(entity);
+                    return true;
                 });
     }
 
@@ -247,7 +493,7 @@ class MediaS3UploadingHandler<E extends Media> {
      * 
      * @throws S3Exception if there is an error uploading the metadata.
      * 
-     * @see AwsS3Service#uploadFromString(String, String, String) Uploads a string
+     * @see StorageService#uploadFromString(String, ContentType, String) Uploads a string
      *      to S3.
      * @see #createJsonWithMetadata(Media) Creates a JSON string with metadata
      *      from the entity.
@@ -255,7 +501,7 @@ class MediaS3UploadingHandler<E extends Media> {
      * @since 1.0
      */
     private Mono<Boolean> uploadJsonMetadata(E entity) {
-        return s3Service.uploadFromString(entity.getId() + "/metadata.json", JSON, createJsonWithMetadata(entity))
+        return storageService.uploadFromString(entity.getId() + "/metadata.json", JSON, createJsonWithMetadata(entity))
                 .map(response -> {
                     if (!response) {
                         LOG.error("Error uploading metadata to S3 for id: {}", entity.getId());
@@ -268,59 +514,77 @@ class MediaS3UploadingHandler<E extends Media> {
     }
 
     /**
-     * Transfers the files to a temporary directory.
-     * 
+     * Spools the content file in memory or in a leased scratch directory.
+     *
      * <p>
-     * The temporary directory is created using the {@link #workDir} and the ID
-     * of the media entity.
+     * The size of the file is enforced, and its digest and audio headers are
+     * read while it's spooled. The scratch directory is only leased when the
+     * spool threshold is crossed, and it's released with the spooled content.
+     * <br>
+     * The lease reserves the declared length of the file when there is one,
+     * rather than the max content size, and the file is held to it.
      * </p>
      *
-     * @param entity        the media entity
-     * @param thumbnailFile the thumbnail file
-     * @param contentFile   the content file
+     * @param entity      the media entity
+     * @param contentFile the content file
+     * @param digest      the digest to update with the content
+     * @param probe       the probe to observe the content with
+     * 
+     * @return the spooled content, it must be released once uploaded
      * 
-     * @return an array of paths to the transferred files
+     * @throws IllegalArgumentException if the file size is not supported.
+     * @throws InternalException        if the content can't be spilled.
      * 
-     * @see FileUtils#transferTo(Path, String, FilePart) Transfers a file to a
-     *      specified directory.
-     * @see TempDirService#getOrCreateDir(String) Gets or creates a
-     *      temporary directory.
+     * @see FileUtils#spool(Flux, long, java.util.function.Function) Spools the
+     *      content.
+     * @see TempDirService#lease(String, long) Leases the scratch directory.
      * 
      * @since 1.0
      */
-    private Mono<Path[]> getFilePaths(E entity, FilePart thumbnailFile, FilePart contentFile) {
-        if (thumbnailFile == null && contentFile == null) {
-            return Mono.just(new Path[0]);
-        }
-
+    private Mono<SpooledContent> spoolContent(E entity, FilePart contentFile, MessageDigest digest,
+            AudioProbe probe) {
         String id = entity.getId();
+        long maxContentSize = uploadProperties.maxContentSize().toBytes();
+        long length = contentFile.headers().getContentLength();
+        long size = length > 0 ? Math.min(length, maxContentSize) : maxContentSize;
+
+        return FileUtils.spool(
+                probe.observe(FileUtils.digest(
+                        FileUtils.readChecked(contentFile, AudioSupportedTypes.class, size), digest)),
+                uploadProperties.spoolThreshold().toBytes(),
+                content -> tempDirService.lease("upload-" + id, size)
+                        .flatMap(lease -> FileUtils.writeTo(lease.dir(), "content", content)
+                                .map(path -> SpooledContent.onDisk(path, lease::close))
+                                .onErrorResume(e -> Mono.fromRunnable(lease::close)
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .then(Mono.error(e)))))
+                .doOnError(e -> LOG.error("Error spooling content file for id: {} - {}", id, e.getMessage()))
+                .onErrorMap(e -> !(e instanceof IllegalArgumentException || e instanceof InternalException),
+                        e -> new InternalException("Error spooling content file for entity: " + id,
+                                MediaS3UploadingHandler.class, SeverityLevel.HIGH, e));
+    }
 
-        Path dirPath = tempDirService.getOrCreateDir(workDir.resolve(id + "-" + System.currentTimeMillis()).toString());
-        List<Mono<Path>> transfers = new ArrayList<>();
-
-        if (thumbnailFile != null) {
-            transfers.add(FileUtils.transferTo(dirPath, "thumbnail", thumbnailFile)
-                    .onErrorResume(e -> {
-                        LOG.error("Error transferring thumbnail file to temporary directory: {}", e.getMessage());
-                        return Mono.error(new InternalException(
-                                "Error transferring thumbnail file for entity: " + id, MediaS3UploadingHandler.class,
-                                SeverityLevel.HIGH, e));
-                    }));
-        }
-
-        if (contentFile != null) {
-            transfers.add(FileUtils.transferTo(dirPath, "content", contentFile)
-                    .onErrorResume(e -> {
-                        LOG.error("Error transferring content file to temporary directory: {}", e.getMessage());
-                        return Mono.error(new InternalException(
-                                "Error transferring content file for entity: " + id, MediaS3UploadingHandler.class,
-                                SeverityLevel.HIGH, e));
-                    }));
-        }
-
-        return Flux.concat(transfers)
-                .collectList()
-                .map(list -> list.toArray(new Path[0]));
+    /**
+     * Applies the duration and tags read by a probe to a media entity.
+     *
+     * <p>
+     * The duration is always replaced, since it belongs to the content, while
+     * the tags only fill the fields left empty.
+     * </p>
+     *
+     * @param entity the media entity
+     * @param probe  the probe that observed the whole content
+     *
+     * @see AudioProbe#result() Reads the duration and tags.
+     * @see Media#applyTags(Map) Fills the fields left empty.
+     *
+     * @since 1.0
+     */
+    private void applyAudioInfo(E entity, AudioProbe probe) {
+        probe.result().ifPresentOrElse(info -> {
+            info.formattedDuration().ifPresent(entity::setDuration);
+            entity.applyTags(info.tags());
+        }, () -> LOG.warn("Audio headers not recognized for id: {}", entity.getId()));
     }
 
     /**
@@ -0,0 +1,576 @@
+package com.pitanguinha.streaming.service.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.*;
+
+import org.springframework.stereotype.Service;
+import org.springframework.core.io.buffer.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.enums.aws.ContentType;
+import com.pitanguinha.streaming.config.storage.StorageProperties;
+
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Storage of the media artifacts in the local filesystem.
+ *
+ * <p>
+ * Every object is a file under the root directory, its key being the relative
+ * path. An object is written to a temporary file in the directory of its key,
+ * flushed to the disk and published with an atomic rename, so a reader sees
+ * either the previous object or the whole new one, never a partial write.<br>
+ * The files are copied with {@link FileChannel#transferTo}, which the kernel
+ * runs as a zero-copy transfer (e.g. sendfile on Linux), and the streams are
+ * written and read by an {@link AsynchronousFileChannel}, so no event loop
+ * thread is blocked by the disk.<br>
+ * The multipart uploads are staged as one file per part under the ".uploads"
+ * directory of the root and concatenated when completed.
+ * </p>
+ *
+ * @see StorageProperties.Local The properties of the local storage.
+ *
+ * @since 1.0
+ */
+@Service
+@ConditionalOnExpression("${aws.s3.enabled:false} and '${spring.application.storage.backend:s3}' == 'local'")
+public class LocalStorageService implements StorageService {
+    private final static Logger LOG = LoggerFactory.getLogger(LocalStorageService.class);
+    private static final String UPLOADS_DIR = ".uploads";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path uploadsRoot;
+    private final int concurrency;
+
+    public LocalStorageService(StorageProperties properties) {
+        this.root = properties.local().root().toAbsolutePath().normalize();
+        this.uploadsRoot = root.resolve(UPLOADS_DIR);
+        this.concurrency = properties.local().concurrency();
+    }
+
+    @Override
+    public Mono<Boolean> uploadFromString(String key, ContentType contentType, String requestBody) {
+        return uploadFromBytes(key, contentType.value, requestBody.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Mono<Boolean> uploadFromBytes(String key, String contentType, byte[] bytes) {
+        return upload("Upload Bytes", key, channel -> writeFully(channel, ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Uploads a list of data buffers with a gathering write.
+     *
+     * <p>
+     * The readable bytes of the buffers are written from read-only views, so
+     * pooled and off-heap buffers are written without being copied to the
+     * heap. The views are kept open until the write completes.
+     * </p>
+     */
+    @Override
+    public Mono<Boolean> uploadFromBuffers(String key, String contentType, List<DataBuffer> buffers) {
+        return FileUtils.withByteBuffers(buffers,
+                byteBuffers -> upload("Upload Buffers", key, channel -> writeFully(channel, byteBuffers)));
+    }
+
+    /**
+     * Uploads a file with a zero-copy transfer.
+     *
+     * @see #transfer(Path, FileChannel) Transfers the file.
+     */
+    @Override
+    public Mono<Boolean> uploadFile(String key, Path file) {
+        String fullKey = formatKey(key) + file.getFileName().toString();
+        return upload("Upload File", fullKey, channel -> transfer(file, channel));
+    }
+
+    /**
+     * Uploads a stream of data buffers to a temporary file.
+     *
+     * <p>
+     * The buffers are written in order and released as soon as they are on the
+     * disk, the demand on the content being bounded by the pending writes.<br>
+     * The temporary file is deleted if the content fails, the disk fails, the
+     * upload is skipped or the subscription is cancelled. Disk failures are
+     * mapped to false, while errors from the content itself are propagated to
+     * the caller.
+     * </p>
+     */
+    @Override
+    public Mono<Boolean> uploadStream(String key, String contentType, Flux<DataBuffer> content,
+            Mono<Boolean> complete) {
+        return Mono.defer(() -> {
+            Path target = resolve(key);
+
+            return Mono.fromCallable(() -> createTempFile(target))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(temp -> Mono.using(
+                            () -> AsynchronousFileChannel.open(temp, StandardOpenOption.WRITE),
+                            channel -> DataBufferUtils.write(content, channel)
+                                    .doOnNext(DataBufferUtils::release)
+                                    .then(Mono.fromCallable(() -> {
+                                        channel.force(true);
+                                        return true;
+                                    })),
+                            LocalStorageService::closeQuietly)
+                            .then(complete.defaultIfEmpty(false))
+                            .flatMap(shouldComplete -> shouldComplete
+                                    ? StorageTransaction.beforePublish(key).flatMap(backedUp -> backedUp
+                                            ? Mono.fromCallable(() -> publish(temp, target))
+                                                    .subscribeOn(Schedulers.boundedElastic())
+                                            : deleteQuietly(temp).thenReturn(false))
+                                    : deleteQuietly(temp)
+                                            .doOnSuccess($ -> LOG.info("Upload Stream - skipped unchanged stream: {}",
+                                                    key))
+                                            .then(Mono.<Boolean>empty()))
+                            .onErrorResume(e -> deleteQuietly(temp)
+                                    .then(e instanceof IOException ? Mono.just(false) : Mono.error(e)))
+                            .doOnCancel(() -> deleteQuietly(temp).subscribe()))
+                    .onErrorResume(IOException.class, e -> {
+                        LOG.error("Upload Stream - failed to create temporary file: {}", key, e);
+                        return Mono.just(false);
+                    })
+                    .doOnNext(result -> {
+                        if (result)
+                            LOG.info("Upload Stream - uploaded stream successfully: {}", key);
+                        else
+                            LOG.error("Upload Stream - failed to upload stream: {}", key);
+                    });
+        });
+    }
+
+    /**
+     * Runs the uploads of an artifact as a transaction.
+     *
+     * <p>
+     * The uploads are run concurrently, limited by the configured concurrency.
+     * On a failure, the files overwritten are restored from their backup copies
+     * and only the files newly created are deleted. A file is backed up right
+     * before it's published over, and not at all for a new artifact.<br>
+     * A failed upload, either false or a disk error, results in false.
+     * </p>
+     *
+     * @see StorageTransaction The transaction of the uploads.
+     */
+    @Override
+    public Mono<Boolean> uploadTransactional(Map<String, Mono<Boolean>> uploadsByKey, boolean overwrite) {
+        return StorageTransaction.run(this, uploadsByKey, overwrite, concurrency,
+                LocalStorageService::isStorageFailure);
+    }
+
+    /**
+     * Copies a file with a zero-copy transfer, published with an atomic rename.
+     */
+    @Override
+    public Mono<Boolean> copyObject(String sourceKey, String targetKey) {
+        return write("Copy Object", targetKey, channel -> transfer(resolve(sourceKey), channel));
+    }
+
+    /**
+     * Starts a multipart upload, creating its staging directory.
+     */
+    @Override
+    public Mono<String> createMultipartUpload(String key, String contentType) {
+        return blocking("Error starting the multipart upload: " + key, () -> {
+            resolve(key);
+            String uploadId = UUID.randomUUID().toString();
+            Files.createDirectories(uploadsRoot.resolve(uploadId));
+            return uploadId;
+        });
+    }
+
+    /**
+     * Uploads a part as a file of the staging directory, published with an
+     * atomic rename so a part is never seen partially written.
+     */
+    @Override
+    public Mono<StoredPart> uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        return blocking("Error uploading part " + partNumber + " of: " + key, () -> {
+            Path part = partPath(uploadId, partNumber);
+            writeAtomically(part, channel -> writeFully(channel, ByteBuffer.wrap(bytes)));
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return new StoredPart(partNumber, Long.toHexString(crc.getValue()), (long) bytes.length, null);
+        });
+    }
+
+    @Override
+    public Flux<StoredPart> listParts(String key, String uploadId) {
+        return blocking("Error listing the parts of: " + key, () -> {
+            try (Stream<Path> files = Files.list(uploadDir(uploadId))) {
+                List<StoredPart> parts = new ArrayList<>();
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX))
+                        continue;
+
+                    parts.add(new StoredPart(Integer.parseInt(name), null, Files.size(file), null));
+                }
+
+                parts.sort(Comparator.comparingInt(StoredPart::partNumber));
+                return parts;
+            }
+        }).flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Completes a multipart upload, concatenating the parts with zero-copy
+     * transfers and removing the staging directory.
+     */
+    @Override
+    public Mono<Boolean> completeMultipartUpload(String key, String uploadId, List<StoredPart> parts) {
+        return blocking("Error completing the multipart upload of: " + key, () -> {
+            Path dir = uploadDir(uploadId);
+            writeAtomically(resolve(key), channel -> {
+                for (StoredPart part : parts)
+                    transfer(partPath(uploadId, part.partNumber()), channel);
+            });
+
+            deleteTree(dir);
+            LOG.info("Complete Multipart Upload - completed multipart upload: {}", key);
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Void> abortMultipartUpload(String key, String uploadId) {
+        return blocking("Error aborting the multipart upload of: " + key, () -> {
+            deleteTree(uploadDir(uploadId));
+            return true;
+        })
+                .doOnSuccess($ -> LOG.info("Abort Multipart Upload - aborted multipart upload: {}", key))
+                .doOnError(e -> LOG.error("Abort Multipart Upload - failed to abort multipart upload: {}", key, e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Deletes files by their keys, in parallel up to the configured concurrency.
+     * A missing file is treated as deleted.
+     */
+    @Override
+    public Mono<Boolean> deleteObjects(Collection<String> keys) {
+        return Flux.fromIterable(List.copyOf(keys))
+                .flatMap(key -> Mono.fromCallable(() -> {
+                    Files.deleteIfExists(resolve(key));
+                    return true;
+                })
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(e -> {
+                            LOG.error("Delete Objects - failed to delete: {}", key, e);
+                            return Mono.just(false);
+                        }), concurrency)
+                .reduce(true, Boolean::logicalAnd);
+    }
+
+    /**
+     * Deletes the directory of an artifact with all its files.
+     */
+    @Override
+    public Mono<Boolean> deleteArtifact(String key) {
+        return Mono.fromCallable(() -> {
+            deleteTree(resolve(formatKey(key)));
+            return true;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    LOG.error("Delete Artifact - failed to delete artifact: {}", key, e);
+                    return Mono.just(false);
+                })
+                .doOnNext(response -> {
+                    if (response)
+                        LOG.info("Delete Artifact - deleted artifact: {}", key);
+                });
+    }
+
+    /**
+     * Reads the metadata of a file.
+     *
+     * <p>
+     * The entity tag is derived from the size and the modification time, both
+     * changed by the atomic rename that publishes a new object. The content
+     * type isn't stored, it's probed from the name of the file.
+     * </p>
+     */
+    @Override
+    public Mono<StoredObject> headObject(String key) {
+        return blocking("Error reading the metadata of: " + key, () -> {
+            Path file = resolve(key);
+            if (!Files.isRegularFile(file))
+                return null;
+
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Instant lastModified = attributes.lastModifiedTime().toInstant();
+            String eTag = "\"" + Long.toHexString(attributes.size()) + "-"
+                    + Long.toHexString(lastModified.toEpochMilli()) + "\"";
+
+            return new StoredObject(key, attributes.size(), Files.probeContentType(file), eTag, lastModified);
+        });
+    }
+
+    /**
+     * Reads a range of a file with an {@link AsynchronousFileChannel}.
+     *
+     * <p>
+     * The file is read from the offset in buffers of 64 KiB, the last one
+     * sliced to the length, and closed when the range is read or the
+     * subscription is cancelled.<br>
+     * An open channel keeps reading the file it opened even if a new object is
+     * renamed over it, so the range is never mixed.
+     * </p>
+     */
+    @Override
+    public Flux<DataBuffer> getObject(StoredObject object, long offset, long length) {
+        if (length <= 0)
+            return Flux.empty();
+
+        return Flux.defer(() -> {
+            Path file = resolve(object.key());
+
+            return DataBufferUtils.takeUntilByteCount(DataBufferUtils.readAsynchronousFileChannel(
+                    () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ), offset,
+                    DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE), length);
+        }).onErrorMap(IOException.class, e -> new StorageException("Error reading: " + object.key(), e));
+    }
+
+    /**
+     * Writes an object on a bounded elastic thread.
+     *
+     * <p>
+     * Disk failures are mapped to false, keeping the boolean contract of the
+     * uploads.
+     * </p>
+     *
+     * @param operation The name of the operation, used for logging.
+     * @param key       The full key of the object.
+     * @param writer    The writer of the content.
+     *
+     * @return A Mono with true if the object is written, false otherwise.
+     *
+     * @see #writeAtomically(Path, ChannelWriter) Writes the object.
+     *
+     * @since 1.0
+     */
+    private Mono<Boolean> write(String operation, String key, ChannelWriter writer) {
+        return Mono.fromCallable(() -> {
+            writeAtomically(resolve(key), writer);
+            return true;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IOException.class, e -> {
+                    LOG.error("{} - failed to write: {}", operation, key, e);
+                    return Mono.just(false);
+                })
+                .doOnNext(response -> {
+                    if (response)
+                        LOG.info("{} - uploaded successfully: {}", operation, key);
+                });
+    }
+
+    /**
+     * Uploads an object, backing up the object it overwrites in a transaction.
+     *
+     * @param operation The name of the operation, used for logging.
+     * @param key       The full key of the object.
+     * @param writer    The writer of the content.
+     *
+     * @return A Mono with true if the object is written, false otherwise.
+     *
+     * @see StorageTransaction#beforePublish(String) Backs up the object.
+     * @see #write(String, String, ChannelWriter) Writes the object.
+     *
+     * @since 1.0
+     */
+    private Mono<Boolean> upload(String operation, String key, ChannelWriter writer) {
+        return StorageTransaction.beforePublish(key)
+                .flatMap(backedUp -> backedUp ? write(operation, key, writer) : Mono.just(false));
+    }
+
+    /**
+     * Runs a blocking operation of the multipart uploads on a bounded elastic
+     * thread, wrapping disk failures in a {@link StorageException}.
+     *
+     * @param message  The message of the exception.
+     * @param callable The operation.
+     *
+     * @return A Mono with the result of the operation.
+     *
+     * @since 1.0
+     */
+    private <T> Mono<T> blocking(String message, IOCallable<T> callable) {
+        return Mono.fromCallable(callable::call)
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(IOException.class, e -> new StorageException(message, e));
+    }
+
+    /**
+     * Writes a file atomically.
+     *
+     * <p>
+     * The content is written to a temporary file in the same directory, so the
+     * rename never crosses filesystems, flushed to the disk and renamed over
+     * the target. The temporary file is deleted if anything fails.
+     * </p>
+     *
+     * @param target The file to write.
+     * @param writer The writer of the content.
+     *
+     * @throws IOException if the file can't be written.
+     *
+     * @since 1.0
+     */
+    private void writeAtomically(Path target, ChannelWriter writer) throws IOException {
+        Path temp = createTempFile(target);
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true);
+            }
+
+            publish(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private Path createTempFile(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return Files.createTempFile(target.getParent(), "." + target.getFileName(), TEMP_SUFFIX);
+    }
+
+    private boolean publish(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * Transfers a whole file to a channel.
+     *
+     * <p>
+     * The transfer may move fewer bytes than asked, so it's repeated until the
+     * whole file is transferred.
+     * </p>
+     *
+     * @param file   The file to transfer.
+     * @param target The channel to transfer to.
+     *
+     * @throws IOException if the file can't be read or the channel written.
+     *
+     * @since 1.0
+     */
+    private static void transfer(Path file, FileChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size)
+                position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers)
+            remaining += buffer.remaining();
+
+        while (remaining > 0)
+            remaining -= channel.write(buffers);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir))
+            return;
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(path);
+        }
+    }
+
+    private static Mono<Void> deleteQuietly(Path file) {
+        return Mono.fromCallable(() -> Files.deleteIfExists(file))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    LOG.warn("Failed to delete temporary file: {}", file, e);
+                    return Mono.just(false);
+                })
+                .then();
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close channel", e);
+        }
+    }
+
+    private static boolean isStorageFailure(Throwable e) {
+        return e instanceof IOException || e instanceof StorageException;
+    }
+
+    /**
+     * Resolves the file of a key under the root directory.
+     *
+     * @param key The key of the object.
+     *
+     * @return The file of the key.
+     *
+     * @throws IllegalArgumentException if the key is outside the root or in the
+     *                                  staging directory.
+     *
+     * @since 1.0
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root) || path.startsWith(uploadsRoot))
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+
+        return path;
+    }
+
+    private Path uploadDir(String uploadId) {
+        Path dir = uploadsRoot.resolve(uploadId).normalize();
+        if (!dir.getParent().equals(uploadsRoot))
+            throw new IllegalArgumentException("Invalid upload id: " + uploadId);
+
+        return dir;
+    }
+
+    private Path partPath(String uploadId, int partNumber) {
+        return uploadDir(uploadId).resolve(Integer.toString(partNumber));
+    }
+
+    private String formatKey(String key) {
+        return key.endsWith("/") ? key : key + "/";
+    }
+
+    /**
+     * Writer of the content of a file.
+     */
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IOCallable<T> {
+        T call() throws IOException;
+    }
+}
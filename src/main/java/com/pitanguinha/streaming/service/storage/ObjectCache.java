@@ -0,0 +1,574 @@
+package com.pitanguinha.streaming.service.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.*;
+
+import org.springframework.stereotype.Component;
+import org.springframework.core.io.buffer.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+
+import com.pitanguinha.streaming.config.storage.StorageProperties;
+
+import io.micrometer.core.instrument.*;
+
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Read-through disk cache of the objects read from S3.
+ *
+ * <p>
+ * The objects are cached by key and entity tag, so a replaced object is never
+ * served from the cache, in segments of a fixed size stored as one file per
+ * segment. A read is split by segment: the cached segments are read from the
+ * disk by an {@link AsynchronousFileChannel}, and every run of missing
+ * segments is read from the origin with a single request aligned to the
+ * segments, filling them while the range asked is emitted. A range request
+ * thus only fills the segments it covers.<br>
+ * An object is only admitted once it has been read the admission threshold
+ * times, counted by a frequency sketch that halves its counters over time, so
+ * the objects read once never evict the hot ones. Beyond the max size, the
+ * least recently read objects are evicted.<br>
+ * A segment is written to a temporary file and published with an atomic
+ * rename, so a segment is never read partially written. A failure of the disk
+ * never fails a read, the segment is just not cached.<br>
+ * The hits and misses are counted by segment as "storage.cache.segments", the
+ * reads of objects not admitted as "storage.cache.bypassed" and the cached
+ * bytes are published as "storage.cache.size".
+ * </p>
+ *
+ * @see StorageProperties.Cache The properties of the cache.
+ *
+ * @since 1.0
+ */
+@Component
+@ConditionalOnExpression("${aws.s3.enabled:false} and '${spring.application.storage.backend:s3}' == 's3'")
+public class ObjectCache {
+    private final static Logger LOG = LoggerFactory.getLogger(ObjectCache.class);
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_SKETCH_CAPACITY = 1024;
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+");
+
+    /**
+     * The origin of the cached objects.
+     *
+     * @since 1.0
+     */
+    @FunctionalInterface
+    public interface Origin {
+        /**
+         * Reads a range of bytes of an object from the origin.
+         *
+         * @param object The metadata of the object.
+         * @param offset The position of the first byte to read.
+         * @param length The number of bytes to read.
+         *
+         * @return A Flux with the bytes of the range.
+         */
+        Flux<DataBuffer> read(StoredObject object, long offset, long length);
+    }
+
+    private final StorageProperties.Cache properties;
+    private final Path root;
+    private final long segmentSize;
+    private final long maxSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long size;
+    private long nextId;
+
+    @Autowired
+    public ObjectCache(StorageProperties properties, MeterRegistry registry) {
+        this(properties.cache(), registry);
+    }
+
+    public ObjectCache(StorageProperties.Cache properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.root = properties.root().toAbsolutePath().normalize();
+        this.segmentSize = properties.segmentSize().toBytes();
+        this.maxSize = properties.maxSize().toBytes();
+        this.sketch = new FrequencySketch((int) Math.max(MIN_SKETCH_CAPACITY,
+                Math.min(maxSize / segmentSize, Integer.MAX_VALUE >> 2)));
+        this.hits = Counter.builder("storage.cache.segments").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("storage.cache.segments").tag("result", "miss").register(registry);
+        this.bypassed = Counter.builder("storage.cache.bypassed").register(registry);
+
+        Gauge.builder("storage.cache.size", this, cache -> cache.size()).baseUnit("bytes").register(registry);
+
+        if (properties.enabled())
+            clear();
+    }
+
+    /**
+     * Reads a range of bytes of an object through the cache.
+     *
+     * <p>
+     * The buffers must be released by the subscriber, like the ones of the
+     * origin. If the cache is disabled, the object has no entity tag or it
+     * isn't admitted yet, the range is read from the origin as is.
+     * </p>
+     *
+     * @param object The metadata of the object.
+     * @param offset The position of the first byte to read.
+     * @param length The number of bytes to read.
+     * @param origin The origin of the object, read for the missing segments.
+     *
+     * @return A Flux with the bytes of the range.
+     *
+     * @since 1.0
+     */
+    public Flux<DataBuffer> read(StoredObject object, long offset, long length, Origin origin) {
+        if (!properties.enabled() || object.eTag() == null || length <= 0)
+            return origin.read(object, offset, length);
+
+        return Flux.defer(() -> {
+            Entry entry = admit(object);
+            if (entry == null) {
+                bypassed.increment();
+                return origin.read(object, offset, length);
+            }
+
+            long end = offset + length;
+            int first = (int) (offset / segmentSize);
+            int last = (int) ((end - 1) / segmentSize);
+            BitSet cached = segments(entry);
+
+            List<Flux<DataBuffer>> reads = new ArrayList<>();
+            int segment = first;
+            while (segment <= last) {
+                long from = Math.max(offset, segment * segmentSize);
+                if (cached.get(segment)) {
+                    hits.increment();
+                    long to = Math.min(end, (segment + 1) * segmentSize);
+                    reads.add(readSegment(entry, segment, from, to, object, origin));
+                    segment++;
+                    continue;
+                }
+
+                int runEnd = segment;
+                while (runEnd < last && !cached.get(runEnd + 1))
+                    runEnd++;
+
+                misses.increment(runEnd - segment + 1);
+                long to = Math.min(end, (runEnd + 1) * segmentSize);
+                reads.add(fill(entry, segment, runEnd, from, to, object, origin));
+                segment = runEnd + 1;
+            }
+
+            return Flux.concat(reads);
+        });
+    }
+
+    /**
+     * Gets the size of the cached segments.
+     *
+     * @return The size of the cached segments in bytes.
+     *
+     * @since 1.0
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Counts a read of an object and gets its entry if it's admitted.
+     *
+     * @param object The metadata of the object.
+     *
+     * @return The entry of the object, marked as the most recently read, or
+     *         null if the object isn't admitted.
+     *
+     * @since 1.0
+     */
+    private synchronized Entry admit(StoredObject object) {
+        String cacheKey = object.key() + '\n' + object.eTag();
+        int frequency = sketch.increment(cacheKey.hashCode());
+
+        Entry entry = entries.get(cacheKey);
+        if (entry != null || frequency < properties.admissionThreshold())
+            return entry;
+
+        entry = new Entry(cacheKey, root.resolve(Long.toHexString(nextId++)), object.contentLength());
+        entries.put(cacheKey, entry);
+        return entry;
+    }
+
+    private synchronized BitSet segments(Entry entry) {
+        return (BitSet) entry.segments.clone();
+    }
+
+    /**
+     * Reads a range within a cached segment.
+     *
+     * <p>
+     * If the segment was evicted since it was looked up, the range is read from
+     * the origin instead.
+     * </p>
+     *
+     * @param entry   The entry of the object.
+     * @param segment The index of the segment.
+     * @param from    The position of the first byte to read in the object.
+     * @param to      The position after the last byte to read in the object.
+     * @param object  The metadata of the object.
+     * @param origin  The origin of the object.
+     *
+     * @return A Flux with the bytes of the range.
+     *
+     * @since 1.0
+     */
+    private Flux<DataBuffer> readSegment(Entry entry, int segment, long from, long to, StoredObject object,
+            Origin origin) {
+        Path file = entry.dir.resolve(Integer.toString(segment));
+
+        return DataBufferUtils.takeUntilByteCount(DataBufferUtils.readAsynchronousFileChannel(
+                () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ), from - segment * segmentSize,
+                DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE), to - from)
+                .onErrorResume(NoSuchFileException.class, e -> origin.read(object, from, to - from));
+    }
+
+    /**
+     * Reads a run of missing segments from the origin, filling them.
+     *
+     * <p>
+     * The whole segments are read with a single request and written to the
+     * disk on a bounded elastic thread, while only the range asked is emitted,
+     * the buffers being trimmed in place rather than copied. A segment left
+     * partially written by an error or a cancellation is dropped.
+     * </p>
+     *
+     * @param entry  The entry of the object.
+     * @param first  The index of the first missing segment.
+     * @param last   The index of the last missing segment.
+     * @param from   The position of the first byte to emit in the object.
+     * @param to     The position after the last byte to emit in the object.
+     * @param object The metadata of the object.
+     * @param origin The origin of the object.
+     *
+     * @return A Flux with the bytes of the range asked.
+     *
+     * @since 1.0
+     */
+    private Flux<DataBuffer> fill(Entry entry, int first, int last, long from, long to, StoredObject object,
+            Origin origin) {
+        long start = first * segmentSize;
+        long end = Math.min((last + 1) * segmentSize, entry.length);
+
+        return Flux.defer(() -> {
+            SegmentWriter writer = new SegmentWriter(entry, first);
+            long[] position = { start };
+
+            return origin.read(object, start, end - start)
+                    .publishOn(Schedulers.boundedElastic())
+                    .<DataBuffer>handle((buffer, sink) -> {
+                        long bufferStart = position[0];
+                        int count = buffer.readableByteCount();
+                        position[0] += count;
+                        writer.write(buffer);
+
+                        long skip = Math.max(0, from - bufferStart);
+                        long keep = Math.min(bufferStart + count, to) - bufferStart - skip;
+                        if (keep <= 0) {
+                            DataBufferUtils.release(buffer);
+                            return;
+                        }
+
+                        buffer.readPosition(buffer.readPosition() + (int) skip);
+                        buffer.writePosition(buffer.readPosition() + (int) keep);
+                        sink.next(buffer);
+                    })
+                    .doOnComplete(writer::finish)
+                    .doFinally($ -> writer.close());
+        });
+    }
+
+    /**
+     * Registers a segment published on the disk, evicting the least recently
+     * read entries beyond the max size.
+     *
+     * @param entry   The entry of the object.
+     * @param segment The index of the segment.
+     * @param file    The file of the segment.
+     * @param bytes   The size of the segment.
+     *
+     * @since 1.0
+     */
+    private synchronized void register(Entry entry, int segment, Path file, long bytes) {
+        if (entries.get(entry.cacheKey) != entry) {
+            deleteQuietly(file);
+            return;
+        }
+
+        if (!entry.segments.get(segment)) {
+            entry.segments.set(segment);
+            entry.bytes += bytes;
+            size += bytes;
+        }
+
+        var iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.bytes;
+
+            Mono.fromRunnable(() -> deleteTree(eldest.dir))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Deletes the entries left by a previous run, whose segments are unknown
+     * to the new index.
+     *
+     * <p>
+     * Only the directories named like entries are deleted, so a root
+     * misconfigured to a shared directory loses nothing else.
+     * </p>
+     *
+     * @throws IllegalStateException if the root can't be created or listed.
+     *
+     * @since 1.0
+     */
+    private void clear() {
+        try {
+            Files.createDirectories(root);
+            try (Stream<Path> dirs = Files.list(root)) {
+                for (Path dir : dirs.toList()) {
+                    if (Files.isDirectory(dir) && ENTRY_NAME.matcher(dir.getFileName().toString()).matches())
+                        deleteTree(dir);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Error clearing the object cache: " + root, e);
+        }
+    }
+
+    private static void deleteTree(Path dir) {
+        if (!Files.exists(dir))
+            return;
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete cache directory: {}", dir, e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete cache file: {}", file, e);
+        }
+    }
+
+    /**
+     * A cached object.
+     *
+     * @since 1.0
+     */
+    private static final class Entry {
+        private final String cacheKey;
+        private final Path dir;
+        private final long length;
+        private final BitSet segments = new BitSet();
+        private long bytes;
+
+        private Entry(String cacheKey, Path dir, long length) {
+            this.cacheKey = cacheKey;
+            this.dir = dir;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Writer of the segments filled by a read from the origin.
+     *
+     * <p>
+     * The bytes are written to a temporary file per segment, published once
+     * the segment is whole. The writer stops at the first failure of the disk,
+     * the read itself going on.
+     * </p>
+     *
+     * @since 1.0
+     */
+    private final class SegmentWriter {
+        private final Entry entry;
+        private int segment;
+        private long written;
+        private Path temp;
+        private FileChannel channel;
+        private boolean failed;
+
+        private SegmentWriter(Entry entry, int segment) {
+            this.entry = entry;
+            this.segment = segment;
+        }
+
+        synchronized void write(DataBuffer buffer) {
+            if (failed)
+                return;
+
+            try (var iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer bytes = iterator.next();
+                    while (bytes.hasRemaining()) {
+                        if (channel == null)
+                            open();
+
+                        int chunk = (int) Math.min(bytes.remaining(), segmentSize - written);
+                        ByteBuffer slice = bytes.slice(bytes.position(), chunk);
+                        while (slice.hasRemaining())
+                            channel.write(slice);
+
+                        bytes.position(bytes.position() + chunk);
+                        written += chunk;
+                        if (written == segmentSize)
+                            publish();
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to cache segment {} of: {}", segment, entry.cacheKey, e);
+                failed = true;
+                close();
+            }
+        }
+
+        /**
+         * Publishes the last segment of the object, shorter than the others.
+         */
+        synchronized void finish() {
+            if (failed || channel == null || segment * segmentSize + written != entry.length)
+                return;
+
+            try {
+                publish();
+            } catch (IOException e) {
+                LOG.warn("Failed to cache segment {} of: {}", segment, entry.cacheKey, e);
+                close();
+            }
+        }
+
+        /**
+         * Drops the segment being written, if any.
+         */
+        synchronized void close() {
+            if (channel == null)
+                return;
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close cache file: {}", temp, e);
+            }
+
+            deleteQuietly(temp);
+            channel = null;
+            temp = null;
+        }
+
+        private void open() throws IOException {
+            Files.createDirectories(entry.dir);
+            temp = Files.createTempFile(entry.dir, segment + ".", TEMP_SUFFIX);
+            channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            written = 0;
+        }
+
+        private void publish() throws IOException {
+            channel.close();
+            channel = null;
+
+            Path file = entry.dir.resolve(Integer.toString(segment));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+
+            register(entry, segment, file, written);
+            segment++;
+            written = 0;
+        }
+    }
+
+    /**
+     * Frequency sketch of the reads, a count-min sketch of 4 rows.
+     *
+     * <p>
+     * The counters are capped at 15 and halved once the sketch has counted ten
+     * times its width, so the frequencies follow the recent reads.
+     * </p>
+     *
+     * @since 1.0
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L };
+        private static final int MAX_COUNT = 15;
+
+        private final int[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(capacity - 1) << 1;
+            this.table = new int[width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        /**
+         * Counts a read, only increasing the smallest counters of the key.
+         *
+         * @param hash The hash of the key.
+         *
+         * @return The frequency of the key, including this read.
+         */
+        private int increment(int hash) {
+            int[] indexes = new int[SEEDS.length];
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                indexes[i] = index(hash, i);
+                frequency = Math.min(frequency, table[indexes[i]]);
+            }
+
+            if (frequency == MAX_COUNT)
+                return frequency;
+
+            for (int index : indexes) {
+                if (table[index] == frequency)
+                    table[index]++;
+            }
+
+            if (++additions == sampleSize)
+                reset();
+
+            return frequency + 1;
+        }
+
+        private int index(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++)
+                table[i] >>>= 1;
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.pitanguinha.streaming.service.storage;
+
+/**
+ * Exception class for a failure of the storage backend.
+ *
+ * <p>
+ * Wraps the error of the backend, an SDK exception for S3 or an I/O exception
+ * for the local filesystem, so the callers handle a single type.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class StorageException extends RuntimeException {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,317 @@
+package com.pitanguinha.streaming.service.storage;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.pitanguinha.streaming.enums.aws.ContentType;
+
+import reactor.core.publisher.*;
+
+/**
+ * Interface for the object storage of the media artifacts.
+ *
+ * <p>
+ * Objects are addressed by keys whose segments are separated by slashes ("/"),
+ * an artifact being every object under the prefix of its ID.<br>
+ * The operations are lazy, nothing is written until the returned publisher is
+ * subscribed. The uploads report a failure of the storage as false, while the
+ * multipart and read operations propagate it as a {@link StorageException}.
+ * </p>
+ *
+ * @see com.pitanguinha.streaming.service.aws.AwsS3Service The S3 storage.
+ * @see LocalStorageService The local filesystem storage.
+ *
+ * @since 1.0
+ */
+public interface StorageService {
+    /**
+     * Uploads a string under the full key given.
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     * @param requestBody the string to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadFromString(String key, ContentType contentType, String requestBody);
+
+    /**
+     * Uploads an array of bytes under the full key given, without copying them.
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     * @param bytes       the bytes to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadFromBytes(String key, String contentType, byte[] bytes);
+
+    /**
+     * Uploads the readable bytes of a list of data buffers in order.
+     *
+     * <p>
+     * The buffers are not released, they must stay retained until the returned
+     * Mono completes.
+     * </p>
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     * @param buffers     the buffers to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadFromBuffers(String key, String contentType, List<DataBuffer> buffers);
+
+    /**
+     * Uploads a file under a folder, the name of the file being appended to the
+     * key.
+     *
+     * @param key  the key of the folder, with or without a trailing slash.
+     * @param file the file to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadFile(String key, Path file);
+
+    /**
+     * Uploads a stream of data buffers without holding the whole content.
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     * @param content     the content to upload.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or not.
+     *
+     * @see #uploadStream(String, String, Flux, Mono) Uploads it conditionally.
+     *
+     * @since 1.0
+     */
+    default Mono<Boolean> uploadStream(String key, String contentType, Flux<DataBuffer> content) {
+        return uploadStream(key, contentType, content, Mono.just(true));
+    }
+
+    /**
+     * Uploads a stream of data buffers, deciding whether to publish it only
+     * after the content is consumed.
+     *
+     * <p>
+     * The object is only published under the key if the complete Mono,
+     * subscribed after the content is stored, emits true. Otherwise it's
+     * dropped and the result is empty, leaving the previous object under the
+     * key untouched.<br>
+     * Errors from the content itself are propagated to the caller.
+     * </p>
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     * @param content     the content to upload.
+     * @param complete    whether to publish the object after the content.
+     *
+     * @return A boolean Mono indicating whether the upload was successful or
+     *         not, empty if it was skipped.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadStream(String key, String contentType, Flux<DataBuffer> content, Mono<Boolean> complete);
+
+    /**
+     * Runs the uploads of an artifact as a transaction, which may overwrite
+     * existing objects.
+     *
+     * @param uploadsByKey the uploads to run, by their full key.
+     *
+     * @return A boolean Mono indicating whether all uploads were successful or
+     *         not.
+     *
+     * @see #uploadTransactional(Map, boolean) Runs the transaction.
+     *
+     * @since 1.0
+     */
+    default Mono<Boolean> uploadTransactional(Map<String, Mono<Boolean>> uploadsByKey) {
+        return uploadTransactional(uploadsByKey, true);
+    }
+
+    /**
+     * Runs the uploads of an artifact as a transaction.
+     *
+     * <p>
+     * If any upload fails, the keys overwritten are restored to their previous
+     * objects and the keys newly created are deleted. A failed upload results
+     * in false, any other error (e.g. an invalid content) is propagated after
+     * the rollback.<br>
+     * An empty upload is a skipped one, neither a failure nor rolled back.<br>
+     * An object is only backed up when an upload is about to publish over it,
+     * and not at all for a new artifact.
+     * </p>
+     *
+     * @param uploadsByKey the uploads to run, by their full key.
+     * @param overwrite    whether the keys may hold objects to back up, false
+     *                     for a new artifact.
+     *
+     * @return A boolean Mono indicating whether all uploads were successful or
+     *         not.
+     *
+     * @see StorageTransaction The transaction shared by the backends.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> uploadTransactional(Map<String, Mono<Boolean>> uploadsByKey, boolean overwrite);
+
+    /**
+     * Copies an object to another key, replacing it.
+     *
+     * @param sourceKey the full key of the object to copy.
+     * @param targetKey the full key of the copy.
+     *
+     * @return A boolean Mono indicating whether the copy was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> copyObject(String sourceKey, String targetKey);
+
+    /**
+     * Starts a multipart upload.
+     *
+     * @param key         the full key of the object.
+     * @param contentType the content type of the object.
+     *
+     * @return A Mono with the id of the multipart upload.
+     *
+     * @throws StorageException if the upload can't be started.
+     *
+     * @since 1.0
+     */
+    Mono<String> createMultipartUpload(String key, String contentType);
+
+    /**
+     * Uploads a single part of a multipart upload, replacing the part with the
+     * same number.
+     *
+     * @param key        the full key of the object.
+     * @param uploadId   the id of the multipart upload.
+     * @param partNumber the number of the part, starting at 1.
+     * @param bytes      the content of the part.
+     *
+     * @return A Mono with the stored part.
+     *
+     * @throws StorageException if the part can't be uploaded.
+     *
+     * @since 1.0
+     */
+    Mono<StoredPart> uploadPart(String key, String uploadId, int partNumber, byte[] bytes);
+
+    /**
+     * Lists the parts already uploaded to a multipart upload.
+     *
+     * @param key      the full key of the object.
+     * @param uploadId the id of the multipart upload.
+     *
+     * @return A Flux with the stored parts ordered by part number.
+     *
+     * @throws StorageException if the parts can't be listed.
+     *
+     * @since 1.0
+     */
+    Flux<StoredPart> listParts(String key, String uploadId);
+
+    /**
+     * Completes a multipart upload, publishing the parts as a single object.
+     *
+     * @param key      the full key of the object.
+     * @param uploadId the id of the multipart upload.
+     * @param parts    the stored parts, ordered by part number.
+     *
+     * @return A boolean Mono indicating whether the upload was completed or not.
+     *
+     * @throws StorageException if the upload can't be completed, it's left open.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> completeMultipartUpload(String key, String uploadId, List<StoredPart> parts);
+
+    /**
+     * Aborts a multipart upload, dropping the parts already uploaded.
+     *
+     * <p>
+     * Failures are only logged.
+     * </p>
+     *
+     * @param key      the full key of the object.
+     * @param uploadId the id of the multipart upload.
+     *
+     * @return A Mono that completes when the abort is finished.
+     *
+     * @since 1.0
+     */
+    Mono<Void> abortMultipartUpload(String key, String uploadId);
+
+    /**
+     * Deletes objects by their full keys.
+     *
+     * @param keys the full keys of the objects to delete.
+     *
+     * @return A boolean Mono indicating whether all objects were deleted or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> deleteObjects(Collection<String> keys);
+
+    /**
+     * Deletes an artifact, every object under the key as a prefix.
+     *
+     * @param key the key (artifact ID) to delete.
+     *
+     * @return A boolean Mono indicating whether the deletion was successful or not.
+     *
+     * @since 1.0
+     */
+    Mono<Boolean> deleteArtifact(String key);
+
+    /**
+     * Reads the metadata of an object.
+     *
+     * @param key the full key of the object.
+     *
+     * @return A Mono with the metadata of the object, empty if it doesn't
+     *         exist.
+     *
+     * @throws StorageException if the metadata can't be read.
+     *
+     * @since 1.0
+     */
+    Mono<StoredObject> headObject(String key);
+
+    /**
+     * Reads a range of bytes of an object.
+     *
+     * <p>
+     * The buffers are emitted as the backend produces them, never aggregated,
+     * and must be released by the subscriber. Cancelling the subscription
+     * stops the read.<br>
+     * The object must still be the one of the metadata given, a replaced
+     * object fails the read rather than mixing the bytes of both.
+     * </p>
+     *
+     * @param object the metadata of the object, as read by
+     *               {@link #headObject(String)}.
+     * @param offset the position of the first byte to read.
+     * @param length the number of bytes to read, within the object.
+     *
+     * @return A Flux with the bytes of the range.
+     *
+     * @throws StorageException if the object can't be read.
+     *
+     * @since 1.0
+     */
+    Flux<DataBuffer> getObject(StoredObject object, long offset, long length);
+}
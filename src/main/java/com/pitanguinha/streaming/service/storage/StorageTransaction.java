@@ -0,0 +1,232 @@
+package com.pitanguinha.streaming.service.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import org.slf4j.*;
+
+import reactor.core.publisher.*;
+import reactor.util.context.Context;
+
+/**
+ * Transaction of the uploads of an artifact, shared by the storage backends.
+ *
+ * <p>
+ * The uploads are run concurrently and all of them are awaited, so no upload
+ * is still running when the rollback starts.<br>
+ * The object under a key is copied to a backup key right before an upload
+ * publishes over it, so an upload that is skipped or fails before publishing
+ * costs no backup. The storage backends ask for it with
+ * {@link #beforePublish(String)}, the transaction being carried by the
+ * context of the uploads. The keys of a new artifact hold nothing to back up,
+ * so they are not looked up at all.<br>
+ * On a failure, the overwritten keys are restored from their backups and only
+ * the keys newly created by the transaction are deleted, so a failed update
+ * leaves the previous version of the artifact intact. The backups are deleted
+ * once the transaction is over, but the ones that failed to be restored.<br>
+ * A failed upload, either false or a storage failure, results in false. Any
+ * other error (e.g. an invalid content) is propagated after the rollback.<br>
+ * An empty upload is a skipped one, its key is left untouched, so it's
+ * neither a failure nor rolled back.
+ * </p>
+ *
+ * @see StorageService#uploadTransactional(Map, boolean) The uploads of an
+ *      artifact.
+ *
+ * @since 1.0
+ */
+public final class StorageTransaction {
+    private static final Logger LOG = LoggerFactory.getLogger(StorageTransaction.class);
+    private static final String BACKUPS_PREFIX = ".transactions/";
+
+    private final StorageService storage;
+    private final boolean overwrite;
+    private final int concurrency;
+    private final Predicate<Throwable> isStorageFailure;
+    private final String backupsPrefix = BACKUPS_PREFIX + UUID.randomUUID() + "/";
+    private final Set<String> keys;
+    private final Map<String, Mono<Boolean>> backupsByKey = new ConcurrentHashMap<>();
+    private final Map<String, String> backups = new ConcurrentHashMap<>();
+    private final Set<String> unrestoredKeys = ConcurrentHashMap.newKeySet();
+    private final List<String> uploadedKeys = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private StorageTransaction(StorageService storage, Set<String> keys, boolean overwrite, int concurrency,
+            Predicate<Throwable> isStorageFailure) {
+        this.storage = storage;
+        this.keys = keys;
+        this.overwrite = overwrite;
+        this.concurrency = concurrency;
+        this.isStorageFailure = isStorageFailure;
+    }
+
+    /**
+     * Runs the uploads of an artifact as a transaction.
+     *
+     * @param storage          The storage of the artifact.
+     * @param uploadsByKey     The uploads to run, by their full key.
+     * @param overwrite        Whether the keys may hold objects to back up,
+     *                         false for a new artifact.
+     * @param concurrency      The maximum number of concurrent requests.
+     * @param isStorageFailure Whether an error is a failure of the storage,
+     *                         reported as false rather than propagated.
+     *
+     * @return A boolean Mono indicating whether all uploads were successful or
+     *         not.
+     *
+     * @since 1.0
+     */
+    public static Mono<Boolean> run(StorageService storage, Map<String, Mono<Boolean>> uploadsByKey,
+            boolean overwrite, int concurrency, Predicate<Throwable> isStorageFailure) {
+        return Mono.defer(() -> new StorageTransaction(storage, Set.copyOf(uploadsByKey.keySet()), overwrite,
+                concurrency, isStorageFailure).run(uploadsByKey));
+    }
+
+    /**
+     * Backs up the object under a key before an upload publishes over it.
+     *
+     * <p>
+     * It's a no-op outside a transaction, for a key the transaction doesn't
+     * upload, or for a new artifact. A key is backed up once, however many
+     * times it's asked for.
+     * </p>
+     *
+     * @param key The full key about to be published.
+     *
+     * @return A Mono with true if the key can be published, false if its
+     *         existing object could not be backed up.
+     *
+     * @since 1.0
+     */
+    public static Mono<Boolean> beforePublish(String key) {
+        return Mono.deferContextual(context -> context.<StorageTransaction>getOrEmpty(StorageTransaction.class)
+                .map(transaction -> transaction.backup(key))
+                .orElseGet(() -> Mono.just(true)));
+    }
+
+    private Mono<Boolean> run(Map<String, Mono<Boolean>> uploadsByKey) {
+        return upload(uploadsByKey)
+                .flatMap(response -> {
+                    if (response) {
+                        LOG.info("Upload Transactional - all uploads successfully. Keys: {}", uploadedKeys);
+                        return Mono.just(true);
+                    }
+
+                    return rollback().then(Mono.defer(() -> error.get() == null || isStorageFailure.test(error.get())
+                            ? Mono.just(false)
+                            : Mono.error(error.get())));
+                })
+                .flatMap(response -> deleteBackups().thenReturn(response))
+                .onErrorResume(e -> deleteBackups().then(Mono.error(e)));
+    }
+
+    /**
+     * Copies the existing object of a key to its backup key, once.
+     *
+     * @param key The key of an upload.
+     *
+     * @return A Mono with true if there is no object or it's backed up.
+     *
+     * @since 1.0
+     */
+    private Mono<Boolean> backup(String key) {
+        if (!overwrite || !keys.contains(key))
+            return Mono.just(true);
+
+        return backupsByKey.computeIfAbsent(key, $ -> storage.headObject(key)
+                .flatMap(object -> storage.copyObject(key, backupsPrefix + key)
+                        .doOnNext(copied -> {
+                            if (copied)
+                                backups.put(key, backupsPrefix + key);
+                            else
+                                LOG.error("Upload Transactional - failed to back up: {}", key);
+                        }))
+                .defaultIfEmpty(true)
+                .onErrorResume(e -> {
+                    LOG.error("Upload Transactional - failed to back up: {}", key, e);
+                    return Mono.just(false);
+                })
+                .cache());
+    }
+
+    private Mono<Boolean> upload(Map<String, Mono<Boolean>> uploadsByKey) {
+        return Flux.fromIterable(uploadsByKey.entrySet())
+                .flatMap(upload -> upload.getValue()
+                        .contextWrite(Context.of(StorageTransaction.class, this))
+                        .onErrorResume(e -> {
+                            error.compareAndSet(null, e);
+                            return Mono.just(false);
+                        })
+                        .doOnNext(response -> {
+                            if (!response) {
+                                LOG.error("Upload Transactional - failed to upload: {}", upload.getKey());
+                                return;
+                            }
+                            uploadedKeys.add(upload.getKey());
+                        }), concurrency)
+                .reduce(true, Boolean::logicalAnd);
+    }
+
+    /**
+     * Restores the overwritten keys from their backups and deletes the keys
+     * newly created by the transaction.
+     *
+     * @return A Mono that completes when the rollback is done.
+     *
+     * @since 1.0
+     */
+    private Mono<Void> rollback() {
+        List<String> restored = uploadedKeys.stream().filter(backups::containsKey).toList();
+        List<String> created = uploadedKeys.stream().filter(key -> !backups.containsKey(key)).toList();
+        LOG.info("Upload Transactional - rolling back {} restored and {} created keys", restored.size(),
+                created.size());
+
+        return Flux.fromIterable(restored)
+                .flatMap(key -> storage.copyObject(backups.get(key), key)
+                        .onErrorReturn(false)
+                        .doOnNext(copied -> {
+                            if (!copied) {
+                                LOG.error("Upload Transactional - failed to restore: {} from: {}", key,
+                                        backups.get(key));
+                                unrestoredKeys.add(key);
+                            }
+                        }), concurrency)
+                .then(storage.deleteObjects(created))
+                .then();
+    }
+
+    /**
+     * Deletes the backups, but the ones that failed to be restored, which are
+     * kept for a manual recovery.
+     *
+     * <p>
+     * Without such a backup the whole prefix of the transaction is deleted, so
+     * no empty directory is left behind by the local backend.
+     * </p>
+     *
+     * @return A Mono that completes when the backups are deleted.
+     *
+     * @since 1.0
+     */
+    private Mono<Void> deleteBackups() {
+        if (backups.isEmpty())
+            return Mono.empty();
+
+        Mono<Boolean> deletion = unrestoredKeys.isEmpty()
+                ? storage.deleteArtifact(backupsPrefix)
+                : storage.deleteObjects(backups.entrySet().stream()
+                        .filter(backup -> !unrestoredKeys.contains(backup.getKey()))
+                        .map(Map.Entry::getValue)
+                        .toList());
+
+        return deletion
+                .onErrorReturn(false)
+                .doOnNext(deleted -> {
+                    if (!deleted)
+                        LOG.warn("Upload Transactional - failed to delete the backups under: {}", backupsPrefix);
+                })
+                .then();
+    }
+}
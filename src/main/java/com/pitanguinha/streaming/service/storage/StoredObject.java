@@ -0,0 +1,21 @@
+package com.pitanguinha.streaming.service.storage;
+
+import java.time.Instant;
+
+/**
+ * The metadata of a stored object.
+ *
+ * @param key           the full key of the object.
+ * @param contentLength the size of the object in bytes.
+ * @param contentType   the content type of the object, null when not known.
+ * @param eTag          the quoted entity tag of the object, changing whenever
+ *                      the object is replaced.
+ * @param lastModified  the instant the object was last written.
+ *
+ * @see StorageService#headObject(String) Reads the metadata.
+ *
+ * @since 1.0
+ */
+public record StoredObject(String key, long contentLength, String contentType, String eTag,
+        Instant lastModified) {
+}
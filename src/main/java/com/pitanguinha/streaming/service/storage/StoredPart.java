@@ -0,0 +1,18 @@
+package com.pitanguinha.streaming.service.storage;
+
+/**
+ * A part stored by a multipart upload.
+ *
+ * @param partNumber the number of the part, starting at 1.
+ * @param eTag       the entity tag of the part, required to complete the
+ *                   upload.
+ * @param size       the size of the part in bytes, null when not known.
+ * @param checksum   the base64 CRC32 checksum of the part, null when not
+ *                   computed.
+ *
+ * @see StorageService#uploadPart(String, String, int, byte[]) Stores a part.
+ *
+ * @since 1.0
+ */
+public record StoredPart(int partNumber, String eTag, Long size, String checksum) {
+}
@@ -0,0 +1,225 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+
+import io.micrometer.core.instrument.*;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Admission of the files of a kind by bytes and requests in flight.
+ *
+ * <p>
+ * A file is admitted right away while it fits in the limits and nobody is
+ * waiting, otherwise it waits in a FIFO queue, so a large file is not starved
+ * by the small ones behind it. A file larger than the max bytes reserves the
+ * max bytes, so it's admitted alone instead of never.<br>
+ * The queue is bounded by its depth and the wait by the queue timeout, the
+ * rest is rejected. The state is exposed as gauges tagged by the kind.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class AdmissionGate {
+    private final String kind;
+    private final UploadProperties.Limits limits;
+    private final Duration queueTimeout;
+    private final Duration retryAfter;
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private final Counter admitted;
+    private final Counter rejected;
+
+    private long bytesInFlight;
+    private int requestsInFlight;
+
+    AdmissionGate(String kind, UploadProperties.Limits limits, UploadProperties.Admission admission,
+            MeterRegistry registry) {
+        this.kind = kind;
+        this.limits = limits;
+        this.queueTimeout = admission.queueTimeout();
+        this.retryAfter = admission.retryAfter();
+
+        Gauge.builder("upload.admission.bytes.in.flight", this, gate -> gate.bytesInFlight())
+                .tag("kind", kind).baseUnit("bytes").register(registry);
+        Gauge.builder("upload.admission.requests.in.flight", this, gate -> gate.requestsInFlight())
+                .tag("kind", kind).register(registry);
+        Gauge.builder("upload.admission.queued", this, gate -> gate.queued())
+                .tag("kind", kind).register(registry);
+        this.admitted = Counter.builder("upload.admission.admitted").tag("kind", kind).register(registry);
+        this.rejected = Counter.builder("upload.admission.rejected").tag("kind", kind).register(registry);
+    }
+
+    /**
+     * Admits a file, waiting in the queue if the limits are reached.
+     *
+     * <p>
+     * A cancelled wait leaves the queue, and a permit granted to a cancelled
+     * wait is released right away.
+     * </p>
+     *
+     * @param bytes the bytes reserved by the file.
+     *
+     * @return A Mono of the permit, which must be released once the file is
+     *         handled.
+     *
+     * @throws AdmissionRejectedException if the queue is full or the wait
+     *                                    timed out.
+     *
+     * @since 1.0
+     */
+    Mono<Permit> acquire(long bytes) {
+        long reserved = Math.max(0, Math.min(bytes, limits.maxBytes().toBytes()));
+
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(reserved, sink);
+            sink.onCancel(() -> cancel(waiter));
+
+            synchronized (this) {
+                if (waiter.cancelled)
+                    return;
+
+                if (queue.isEmpty() && fits(reserved)) {
+                    waiter.permit = take(reserved);
+                } else if (queue.size() < limits.queueDepth()) {
+                    queue.addLast(waiter);
+                    waiter.timer = Schedulers.parallel().schedule(() -> expire(waiter), queueTimeout.toMillis(),
+                            TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+
+            if (waiter.permit != null)
+                sink.success(waiter.permit);
+            else
+                sink.error(reject("queue is full"));
+        });
+    }
+
+    synchronized long bytesInFlight() {
+        return bytesInFlight;
+    }
+
+    synchronized int requestsInFlight() {
+        return requestsInFlight;
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    private boolean fits(long bytes) {
+        return requestsInFlight < limits.maxRequests()
+                && (requestsInFlight == 0 || bytesInFlight + bytes <= limits.maxBytes().toBytes());
+    }
+
+    private Permit take(long bytes) {
+        bytesInFlight += bytes;
+        requestsInFlight++;
+        admitted.increment();
+        return new Permit(bytes);
+    }
+
+    /**
+     * Releases the reservation of a permit and admits the waiters that fit.
+     *
+     * <p>
+     * The waiters are signalled out of the lock, so their pipelines don't run
+     * while it's held.
+     * </p>
+     */
+    private void release(long bytes) {
+        List<Waiter> granted = new ArrayList<>();
+
+        synchronized (this) {
+            bytesInFlight -= bytes;
+            requestsInFlight--;
+
+            while (!queue.isEmpty() && fits(queue.peekFirst().bytes)) {
+                Waiter waiter = queue.pollFirst();
+                waiter.permit = take(waiter.bytes);
+                granted.add(waiter);
+            }
+        }
+
+        for (Waiter waiter : granted) {
+            waiter.timer.dispose();
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter))
+                return;
+        }
+
+        waiter.sink.error(reject("timed out waiting in the queue"));
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit permit;
+
+        synchronized (this) {
+            waiter.cancelled = true;
+            if (queue.remove(waiter)) {
+                waiter.timer.dispose();
+                return;
+            }
+
+            permit = waiter.permit;
+        }
+
+        // Granted but not delivered, since a delivered permit is not cancelled
+        if (permit != null)
+            permit.release();
+    }
+
+    private AdmissionRejectedException reject(String reason) {
+        rejected.increment();
+        return new AdmissionRejectedException("Too many " + kind + " uploads in flight, " + reason,
+                AdmissionGate.class, retryAfter);
+    }
+
+    /**
+     * A file waiting in the queue, guarded by the lock of the gate.
+     */
+    private static final class Waiter {
+        private final long bytes;
+        private final MonoSink<Permit> sink;
+        private Permit permit;
+        private Disposable timer;
+        private boolean cancelled;
+
+        private Waiter(long bytes, MonoSink<Permit> sink) {
+            this.bytes = bytes;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * The reservation of an admitted file, released only once.
+     *
+     * @since 1.0
+     */
+    final class Permit {
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true))
+                AdmissionGate.this.release(bytes);
+        }
+    }
+}
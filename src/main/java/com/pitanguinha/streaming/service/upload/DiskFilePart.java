@@ -0,0 +1,41 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.nio.file.*;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.codec.multipart.FilePart;
+
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A file part read back from a file spooled by an upload job.
+ *
+ * <p>
+ * The content is read from the disk on each subscription, so a job retried
+ * after a failed attempt uploads the same bytes again.
+ * </p>
+ *
+ * @param name     the name of the part.
+ * @param filename the original filename of the part.
+ * @param headers  the headers of the part, with its content type.
+ * @param path     the path of the spooled file.
+ *
+ * @since 1.0
+ */
+record DiskFilePart(String name, String filename, HttpHeaders headers, Path path) implements FilePart {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public Flux<DataBuffer> content() {
+        return DataBufferUtils.read(path, DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE);
+    }
+
+    @Override
+    public Mono<Void> transferTo(Path dest) {
+        return Mono.fromCallable(() -> Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+}
@@ -0,0 +1,53 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.nio.file.Path;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.codec.multipart.FilePart;
+
+import reactor.core.publisher.*;
+
+/**
+ * A file part read from the events of an upload form.
+ *
+ * <p>
+ * The content of a file part streamed from the request can only be
+ * subscribed once, since it's the body of the request itself, while a file
+ * part read in memory can be subscribed again.
+ * </p>
+ *
+ * @param name     the name of the part.
+ * @param filename the original filename of the part.
+ * @param headers  the headers of the part, with its content type.
+ * @param content  the content of the part.
+ *
+ * @see UploadFormReader The reader of the upload forms.
+ *
+ * @since 1.0
+ */
+record FormFilePart(String name, String filename, HttpHeaders headers, Flux<DataBuffer> content)
+        implements FilePart {
+
+    /**
+     * Creates a file part from its content read in memory.
+     *
+     * @param name     the name of the part.
+     * @param filename the original filename of the part.
+     * @param headers  the headers of the part, with its content type.
+     * @param bytes    the content of the part.
+     *
+     * @return A file part wrapping the bytes on each subscription.
+     *
+     * @since 1.0
+     */
+    static FormFilePart inMemory(String name, String filename, HttpHeaders headers, byte[] bytes) {
+        return new FormFilePart(name, filename, headers,
+                Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes))));
+    }
+
+    @Override
+    public Mono<Void> transferTo(Path dest) {
+        return DataBufferUtils.write(content, dest);
+    }
+}
@@ -0,0 +1,124 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.springframework.stereotype.Service;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service for the admission control of the uploads.
+ *
+ * <p>
+ * Bounds the bytes and requests in flight on a node, so a burst of uploads
+ * waits or is rejected instead of exhausting the direct memory, the scratch
+ * disk and the S3 connections together.<br>
+ * The content and thumbnail files are admitted by separate gates. A file
+ * reserves its declared length, or else the max size of its kind, since the
+ * length of a multipart part is usually unknown until it's read. An upload
+ * form is admitted before its request is read, by the request length.
+ * </p>
+ *
+ * @see UploadProperties.Admission The properties of the admission.
+ * @see AdmissionGate The gate of a kind of files.
+ *
+ * @since 1.0
+ */
+@Service
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class UploadAdmissionService {
+    private final UploadProperties uploadProperties;
+    private final AdmissionGate contentGate;
+    private final AdmissionGate thumbnailGate;
+
+    public UploadAdmissionService(UploadProperties uploadProperties, MeterRegistry registry) {
+        var admission = uploadProperties.admission();
+
+        this.uploadProperties = uploadProperties;
+        this.contentGate = new AdmissionGate("content", admission.content(), admission, registry);
+        this.thumbnailGate = new AdmissionGate("thumbnail", admission.thumbnail(), admission, registry);
+    }
+
+    /**
+     * Admits an upload form before its request is read.
+     *
+     * <p>
+     * The files of a form are not known until the request is read, so each gate
+     * reserves the length of the whole request, up to the max size of its kind,
+     * or the max size if the length is unknown.
+     * </p>
+     *
+     * @param requestLength the content length of the request, negative if
+     *                      unknown.
+     *
+     * @return A Mono of the permit of the upload, which must be disposed once
+     *         the upload finishes.
+     *
+     * @throws AdmissionRejectedException if the form is not admitted.
+     *
+     * @since 1.0
+     */
+    public Mono<Disposable> admit(long requestLength) {
+        return admit(
+                acquire(thumbnailGate, requestLength, uploadProperties.maxThumbnailSize().toBytes()),
+                acquire(contentGate, requestLength, uploadProperties.maxContentSize().toBytes()));
+    }
+
+    /**
+     * Admits the files of an upload.
+     *
+     * <p>
+     * Each file reserves its declared length, up to the max size of its kind.
+     * </p>
+     *
+     * @param thumbnailFile the thumbnail file, may be null.
+     * @param contentFile   the content file, may be null.
+     *
+     * @return A Mono of the permit of the upload, which must be disposed once
+     *         the upload finishes.
+     *
+     * @throws AdmissionRejectedException if a file is not admitted.
+     *
+     * @since 1.0
+     */
+    public Mono<Disposable> admit(FilePart thumbnailFile, FilePart contentFile) {
+        return admit(
+                acquire(thumbnailGate, thumbnailFile, uploadProperties.maxThumbnailSize().toBytes()),
+                acquire(contentGate, contentFile, uploadProperties.maxContentSize().toBytes()));
+    }
+
+    /**
+     * Acquires the content permit first, then the thumbnail permit, the content
+     * permit is released if the thumbnail is rejected.
+     *
+     * @since 1.0
+     */
+    private Mono<Disposable> admit(Mono<Disposable> thumbnail, Mono<Disposable> content) {
+        return content.flatMap(contentPermit -> thumbnail
+                .<Disposable>map(thumbnailPermit -> () -> {
+                    thumbnailPermit.dispose();
+                    contentPermit.dispose();
+                })
+                .doOnError($ -> contentPermit.dispose())
+                .doOnCancel(contentPermit::dispose));
+    }
+
+    private Mono<Disposable> acquire(AdmissionGate gate, FilePart file, long maxSize) {
+        if (file == null)
+            return Mono.just(() -> {
+            });
+
+        return acquire(gate, file.headers().getContentLength(), maxSize);
+    }
+
+    private Mono<Disposable> acquire(AdmissionGate gate, long length, long maxSize) {
+        return gate.acquire(length > 0 ? Math.min(length, maxSize) : maxSize)
+                .map(permit -> permit::release);
+    }
+}
@@ -0,0 +1,217 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
+import org.springframework.beans.*;
+import org.springframework.util.*;
+import org.springframework.validation.BindException;
+import org.springframework.validation.DataBinder;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+
+import jakarta.validation.Validator;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.*;
+
+/**
+ * Reader of the upload forms from the events of a multipart request.
+ *
+ * <p>
+ * The form is read as the request streams in, instead of being bound by the
+ * multipart codec, which reads the whole request first and writes the parts
+ * over its in-memory size to disk.<br>
+ * The form fields and the "thumbnailFile" part are read in memory, the
+ * thumbnail up to its max size and checked against its declared type. The "contentFile" part must be the last part:
+ * once it's reached the form is bound and validated, then handled with the
+ * content streamed straight from the request. So an invalid form is rejected
+ * before its content is read, and the content is backpressured by its
+ * destination.<br>
+ * A form without a content file is handled once the request completes.<br>
+ * The form is admitted by the length of its request before the request is
+ * read, and its permit is held until the form is handled.
+ * </p>
+ *
+ * @see FormFilePart The file parts of the form.
+ * @see UploadAdmissionService#admit(long) Admits the form.
+ *
+ * @since 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class UploadFormReader {
+    static final String THUMBNAIL_PART = "thumbnailFile";
+    static final String CONTENT_PART = "contentFile";
+    static final int MAX_PARTS = 64;
+
+    private final Validator validator;
+    private final UploadProperties uploadProperties;
+    private final UploadAdmissionService uploadAdmissionService;
+
+    /**
+     * Reads an upload form and handles it.
+     *
+     * @param <P>           the type of the form DTO
+     * @param <R>           the type of the result
+     * @param contentLength the content length of the request, negative if
+     *                      unknown
+     * @param events        the events of the multipart request
+     * @param type          the class of the form DTO
+     * @param handler       the handler of the bound form, subscribed while the
+     *                      content file is streamed
+     *
+     * @return A Mono of the result of the handler.
+     *
+     * @throws AdmissionRejectedException if the node has too many uploads in
+     *                                    flight.
+     * @throws BindException              if the form is not valid.
+     * @throws IllegalArgumentException   if the parts are not supported, or the
+     *                                    thumbnail size or content is not
+     *                                    supported.
+     *
+     * @since 1.0
+     */
+    public <P, R> Mono<R> read(long contentLength, Flux<PartEvent> events, Class<P> type,
+            Function<P, Mono<R>> handler) {
+        return Mono.usingWhen(uploadAdmissionService.admit(contentLength),
+                $ -> read(events, type, handler),
+                permit -> Mono.fromRunnable(permit::dispose));
+    }
+
+    /**
+     * Reads an upload form once it's admitted.
+     *
+     * @since 1.0
+     */
+    private <P, R> Mono<R> read(Flux<PartEvent> events, Class<P> type, Function<P, Mono<R>> handler) {
+        return Mono.defer(() -> {
+            MultiValueMap<String, Object> values = new LinkedMultiValueMap<>();
+            AtomicInteger parts = new AtomicInteger();
+            AtomicBoolean handled = new AtomicBoolean();
+
+            return events.windowUntil(PartEvent::isLast)
+                    .concatMap(part -> part.switchOnFirst((first, rest) -> {
+                        if (!first.hasValue())
+                            return rest.thenMany(Flux.<R>empty());
+
+                        if (handled.get())
+                            return Flux.<R>error(new IllegalArgumentException(
+                                    "The " + CONTENT_PART + " part must be the last part"));
+
+                        if (parts.incrementAndGet() > MAX_PARTS)
+                            return Flux.<R>error(new IllegalArgumentException(
+                                    "The form exceeds the max parts: " + MAX_PARTS));
+
+                        PartEvent event = first.get();
+                        if (event instanceof FormPartEvent field) {
+                            values.add(field.name(), field.value());
+                            return rest.doOnNext(UploadFormReader::release).thenMany(Flux.<R>empty());
+                        }
+
+                        if (!(event instanceof FilePartEvent file))
+                            return Flux.<R>error(new IllegalArgumentException("Unexpected part: " + event.name()));
+
+                        Flux<DataBuffer> content = rest.map(PartEvent::content);
+                        return switch (file.name()) {
+                            case THUMBNAIL_PART -> readThumbnail(file, content)
+                                    .doOnNext(thumbnail -> values.add(THUMBNAIL_PART, thumbnail))
+                                    .thenMany(Flux.<R>empty());
+                            case CONTENT_PART -> Mono.fromCallable(() -> {
+                                handled.set(true);
+                                values.add(CONTENT_PART,
+                                        new FormFilePart(file.name(), file.filename(), file.headers(), content));
+                                return bind(values, type);
+                            }).flatMap(handler).flux();
+                            default -> Flux.<R>error(new IllegalArgumentException("Unexpected part: " + file.name()));
+                        };
+                    }))
+                    .next()
+                    .switchIfEmpty(Mono.defer(() -> handled.get()
+                            ? Mono.<R>empty()
+                            : Mono.fromCallable(() -> bind(values, type)).flatMap(handler)))
+                    .doOnDiscard(PartEvent.class, UploadFormReader::release);
+        });
+    }
+
+    /**
+     * Reads a thumbnail file part in memory, checking its size and signature.
+     *
+     * <p>
+     * The signature is checked as the part is read, so a mislabelled thumbnail
+     * cancels the rest of the request before its content file is read. A
+     * content type that is not supported is left to the validation of the
+     * form.
+     * </p>
+     *
+     * @param file    the first event of the part
+     * @param content the content of the part
+     *
+     * @return A Mono of the file part read in memory.
+     *
+     * @throws IllegalArgumentException if the file size or content is not
+     *                                  supported.
+     *
+     * @see FileUtils#sniff(Flux, SupportedType) Checks the signature.
+     *
+     * @since 1.0
+     */
+    private Mono<FilePart> readThumbnail(FilePartEvent file, Flux<DataBuffer> content) {
+        Flux<DataBuffer> limited = FileUtils.limitSize(content, uploadProperties.maxThumbnailSize().toBytes());
+        MediaType contentType = file.headers().getContentType();
+
+        return DataBufferUtils.join(contentType == null ? limited
+                : SupportedTypeUtil.find(ThumbnailSupportedTypes.class, contentType.toString())
+                        .map(type -> FileUtils.sniff(limited, type))
+                        .orElse(limited))
+                .map(FileUtils::readAndRelease)
+                .map(bytes -> FormFilePart.inMemory(file.name(), file.filename(), file.headers(), bytes));
+    }
+
+    /**
+     * Binds the values of a form to its DTO and validates it.
+     *
+     * <p>
+     * A repeated field is bound as a list, like the model attributes.
+     * </p>
+     *
+     * @param <P>    the type of the form DTO
+     * @param values the values of the form, by name
+     * @param type   the class of the form DTO
+     *
+     * @return The bound form DTO.
+     *
+     * @throws BindException if the form is not valid.
+     *
+     * @since 1.0
+     */
+    private <P> P bind(MultiValueMap<String, Object> values, Class<P> type) throws BindException {
+        P target = BeanUtils.instantiateClass(type);
+        MutablePropertyValues propertyValues = new MutablePropertyValues();
+        values.forEach((name, value) -> propertyValues.add(name, value.size() == 1 ? value.get(0) : value));
+
+        DataBinder binder = new DataBinder(target, StringUtils.uncapitalize(type.getSimpleName()));
+        binder.setValidator(new SpringValidatorAdapter(validator));
+        binder.bind(propertyValues);
+        binder.validate();
+
+        if (binder.getBindingResult().hasErrors())
+            throw new BindException(binder.getBindingResult());
+
+        return target;
+    }
+
+    private static void release(PartEvent event) {
+        DataBufferUtils.release(event.content());
+    }
+}
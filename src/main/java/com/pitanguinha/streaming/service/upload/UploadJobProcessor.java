@@ -0,0 +1,52 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.springframework.http.codec.multipart.FilePart;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Processor of the upload jobs of a type of media.
+ *
+ * <p>
+ * The worker hands each claimed job to the processor of its media type.
+ * </p>
+ *
+ * @see UploadJobWorker The worker running the jobs.
+ *
+ * @since 1.0
+ */
+public interface UploadJobProcessor {
+    /**
+     * Gets the type of media processed, e.g. "music".
+     *
+     * @return the type of media.
+     *
+     * @since 1.0
+     */
+    String mediaType();
+
+    /**
+     * Uploads the spooled files of a job for a saved media.
+     *
+     * @param mediaId   the ID of the media.
+     * @param thumbnail the spooled thumbnail file.
+     * @param content   the spooled content file.
+     *
+     * @return A Mono that completes when the files are uploaded.
+     *
+     * @since 1.0
+     */
+    Mono<Void> processUploadJob(String mediaId, FilePart thumbnail, FilePart content);
+
+    /**
+     * Discards the media of a job that failed for good, so no pending media is
+     * left behind.
+     *
+     * @param mediaId the ID of the media.
+     *
+     * @return A Mono that completes when the media is discarded.
+     *
+     * @since 1.0
+     */
+    Mono<Void> discardUploadJob(String mediaId);
+}
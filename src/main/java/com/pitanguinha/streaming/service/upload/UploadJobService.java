@@ -0,0 +1,405 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.slf4j.*;
+import org.bson.types.ObjectId;
+
+import org.springframework.http.*;
+import org.springframework.stereotype.Service;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+import com.pitanguinha.streaming.domain.upload.UploadJob.SpooledPart;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.enums.exceptions.SeverityLevel;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+import com.pitanguinha.streaming.exceptions.domain.*;
+import com.pitanguinha.streaming.exceptions.internal.*;
+import com.pitanguinha.streaming.repository.upload.UploadJobRepository;
+import com.pitanguinha.streaming.service.TempDirService;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service for the upload jobs, the uploads of media files run in the
+ * background.
+ *
+ * <p>
+ * The files are spooled to the spool directory and synced to the disk before
+ * the job is queued, so the request is answered once they are durable.<br>
+ * The jobs are claimed and run by the {@link UploadJobWorker}, which reports
+ * back the outcome of each attempt. An outcome is only recorded while the
+ * claim of the attempt holds, so a worker whose lock expired can't overwrite
+ * the attempt of another worker. The spooled files are deleted once the job
+ * is finished.
+ * </p>
+ *
+ * @see UploadProperties.Ingest The properties of the upload jobs.
+ *
+ * @since 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class UploadJobService {
+    private final static Logger LOG = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final UploadJobRepository repository;
+    private final UploadProperties uploadProperties;
+    private final TempDirService tempDirService;
+
+    /**
+     * Spools the files of a new upload job.
+     *
+     * <p>
+     * The size and the leading bytes of the files are checked while they are
+     * written, so an invalid file is rejected before the job is queued.<br>
+     * The job is not saved, the spooled files must be queued with
+     * {@link #enqueue(UploadJob, String, String, int)} or discarded.<br>
+     * The spool directory shares the disk with the scratch space, so the most
+     * bytes the files can spool are reserved against the scratch quota while
+     * they are written.
+     * </p>
+     *
+     * @param thumbnailFile the thumbnail file, may be null.
+     * @param contentFile   the content file, may be null.
+     *
+     * @return A Mono of the unsaved job with its spooled files.
+     *
+     * @throws IllegalArgumentException   if a file size or type is not
+     *                                    supported, or its content does not
+     *                                    match its type.
+     * @throws ResourceExhaustedException if no space is available in time.
+     * @throws InternalException          if a file can't be written.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJob> spool(FilePart thumbnailFile, FilePart contentFile) {
+        String id = new ObjectId().toHexString();
+        Path dir = uploadProperties.ingest().spoolDir().resolve(id);
+        long maxThumbnailSize = uploadProperties.maxThumbnailSize().toBytes();
+        long maxContentSize = uploadProperties.maxContentSize().toBytes();
+
+        return tempDirService.withReservation(
+                spoolSize(thumbnailFile, maxThumbnailSize) + spoolSize(contentFile, maxContentSize),
+                () -> Mono.fromCallable(() -> Files.createDirectories(dir))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorMap(e -> new InternalException("Error creating spool directory: " + dir,
+                                UploadJobService.class, SeverityLevel.HIGH, e))
+                        .then(Mono.zip(
+                                spoolPart(dir, "thumbnail", thumbnailFile, ThumbnailSupportedTypes.class,
+                                        maxThumbnailSize),
+                                spoolPart(dir, "content", contentFile, AudioSupportedTypes.class, maxContentSize)))
+                        .map(parts -> UploadJob.builder()
+                                .id(id)
+                                .thumbnail(parts.getT1().orElse(null))
+                                .content(parts.getT2().orElse(null))
+                                .build())
+                        .onErrorResume(e -> deleteSpooled(dir).then(Mono.error(e))));
+    }
+
+    /**
+     * Queues an upload job with its spooled files for a saved media.
+     *
+     * @param job       the job with the spooled files.
+     * @param mediaType the type of the media, e.g. "music".
+     * @param mediaId   the ID of the media.
+     * @param priority  the priority of the job, the higher runs first.
+     *
+     * @return A Mono of the queued job.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJobDto> enqueue(UploadJob job, String mediaType, String mediaId, int priority) {
+        Instant now = Instant.now();
+        job.setMediaType(mediaType);
+        job.setMediaId(mediaId);
+        job.setPriority(priority);
+        job.setStatus(UploadJobStatus.QUEUED);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setNextAttemptAt(now);
+
+        return repository.save(job)
+                .doOnNext(saved -> LOG.info("Queued upload job: {} for {}: {}", saved.getId(), mediaType, mediaId))
+                .map(this::toDto);
+    }
+
+    /**
+     * Deletes the spooled files of a job that was not queued.
+     *
+     * @param job the job with the spooled files.
+     *
+     * @return A Mono that completes when the files are deleted.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> discard(UploadJob job) {
+        return deleteSpooled(spoolDir(job));
+    }
+
+    /**
+     * Finds an upload job by its ID.
+     *
+     * @param id the ID of the job.
+     *
+     * @return A Mono of the job.
+     *
+     * @throws NotFoundException if the job does not exist.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJobDto> findById(String id) {
+        return repository.findById(id)
+                .switchIfEmpty(Mono.error(new NotFoundException("The upload job does not exist",
+                        "not found for id: " + id)))
+                .map(this::toDto);
+    }
+
+    /**
+     * Claims the next job to run, locking it for the lock timeout.
+     *
+     * @return A Mono of the claimed job, or empty if there is none.
+     *
+     * @see UploadJobRepository#claimNext(Instant, java.time.Duration)
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJob> claimNext() {
+        return repository.claimNext(Instant.now(), uploadProperties.ingest().lockTimeout());
+    }
+
+    /**
+     * Gets the spooled thumbnail file of a job.
+     *
+     * @param job the job.
+     *
+     * @return the thumbnail file, or null if the job has none.
+     *
+     * @since 1.0
+     */
+    public FilePart thumbnailOf(UploadJob job) {
+        return toFilePart(job.getThumbnail());
+    }
+
+    /**
+     * Gets the spooled content file of a job.
+     *
+     * @param job the job.
+     *
+     * @return the content file, or null if the job has none.
+     *
+     * @since 1.0
+     */
+    public FilePart contentOf(UploadJob job) {
+        return toFilePart(job.getContent());
+    }
+
+    /**
+     * Marks a job as succeeded and deletes its spooled files.
+     *
+     * @param job the running job.
+     *
+     * @return A Mono of the finished job, or empty if the claim was lost.
+     *
+     * @see #report(UploadJob, Instant) Records the outcome.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJob> succeed(UploadJob job) {
+        Instant claimedUntil = job.getLockedUntil();
+        Instant now = Instant.now();
+        job.setStatus(UploadJobStatus.SUCCEEDED);
+        job.setError(null);
+        job.setLockedUntil(null);
+        job.setUpdatedAt(now);
+        job.setExpiresAt(now.plus(uploadProperties.ingest().retention()));
+
+        return report(job, claimedUntil)
+                .doOnNext(saved -> LOG.info("Upload job succeeded: {}", saved.getId()))
+                .flatMap(saved -> discard(saved).thenReturn(saved));
+    }
+
+    /**
+     * Records a failed attempt of a job.
+     *
+     * <p>
+     * The job is queued again after the retry delay, unless the error is
+     * caused by the request itself, e.g. an invalid file or a missing media, or
+     * the job reached the max attempts. Then it's marked as failed and its
+     * spooled files are deleted.
+     * </p>
+     *
+     * @param job   the running job.
+     * @param error the error of the attempt.
+     *
+     * @return A Mono of the updated job, failed or queued, or empty if the claim
+     *         was lost.
+     *
+     * @see #report(UploadJob, Instant) Records the outcome.
+     * @see UploadJob#retryDelay(java.time.Duration) The delay before the next
+     *      attempt.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadJob> fail(UploadJob job, Throwable error) {
+        UploadProperties.Ingest ingest = uploadProperties.ingest();
+        boolean permanent = error instanceof IllegalArgumentException || error instanceof DomainStateException
+                || job.getAttempts() >= ingest.maxAttempts();
+
+        Instant claimedUntil = job.getLockedUntil();
+        Instant now = Instant.now();
+        job.setError(error.getMessage());
+        job.setLockedUntil(null);
+        job.setUpdatedAt(now);
+
+        if (!permanent) {
+            job.setStatus(UploadJobStatus.QUEUED);
+            job.setNextAttemptAt(now.plus(job.retryDelay(ingest.retryBackoff())));
+
+            return report(job, claimedUntil)
+                    .doOnNext(saved -> LOG.warn("Upload job: {} failed attempt: {}, retrying at: {}", saved.getId(),
+                            saved.getAttempts(), saved.getNextAttemptAt(), error));
+        }
+
+        job.setStatus(UploadJobStatus.FAILED);
+        job.setNextAttemptAt(null);
+        job.setExpiresAt(now.plus(ingest.retention()));
+
+        return report(job, claimedUntil)
+                .doOnNext(saved -> LOG.error("Upload job failed: {} after attempt: {}", saved.getId(),
+                        saved.getAttempts(), error))
+                .flatMap(saved -> discard(saved).thenReturn(saved));
+    }
+
+    /**
+     * Records the outcome of an attempt, if the claim of the attempt holds.
+     *
+     * <p>
+     * A lost claim means the lock expired and the job may run on another
+     * worker, so nothing is recorded and the spooled files are kept.
+     * </p>
+     *
+     * @param job          the job with the outcome of the attempt.
+     * @param claimedUntil the lock of the claim of the attempt.
+     *
+     * @return A Mono of the updated job, or empty if the claim was lost.
+     *
+     * @see UploadJobRepository#report(UploadJob, Instant)
+     *
+     * @since 1.0
+     */
+    private Mono<UploadJob> report(UploadJob job, Instant claimedUntil) {
+        return repository.report(job, claimedUntil)
+                .switchIfEmpty(Mono.fromRunnable(() -> LOG.warn(
+                        "Upload job: {} lost its claim, the outcome of attempt: {} is dropped", job.getId(),
+                        job.getAttempts())));
+    }
+
+    /**
+     * Spools a file part to the spool directory of a job.
+     *
+     * @param dir            the spool directory of the job.
+     * @param fileName       the name of the spooled file.
+     * @param file           the file part, may be null.
+     * @param supportedTypes the supported types of the file.
+     * @param maxSize        the maximum size of the file in bytes.
+     *
+     * @return A Mono of the spooled part, or an empty Optional if there is no
+     *         file.
+     *
+     * @since 1.0
+     */
+    private <T extends Enum<T> & SupportedType> Mono<Optional<SpooledPart>> spoolPart(Path dir,
+            String fileName, FilePart file, Class<T> supportedTypes, long maxSize) {
+        if (file == null)
+            return Mono.just(Optional.empty());
+
+        String contentType = FileUtils.contentType(file);
+        Flux<DataBuffer> content = FileUtils.readChecked(file, supportedTypes, maxSize);
+
+        return FileUtils.writeTo(dir, fileName, content)
+                .flatMap(path -> Mono.fromCallable(() -> {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                    return path;
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .map(path -> Optional.of(SpooledPart.builder()
+                        .name(file.name())
+                        .filename(file.filename())
+                        .contentType(contentType)
+                        .path(path.toString())
+                        .build()));
+    }
+
+    /**
+     * Gets the most bytes a file part can spool: its declared length up to its
+     * max size, or its max size if the length is unknown.
+     *
+     * @param file    the file part, may be null.
+     * @param maxSize the maximum size of the file in bytes.
+     *
+     * @return The bytes to reserve for the file part.
+     *
+     * @since 1.0
+     */
+    private long spoolSize(FilePart file, long maxSize) {
+        if (file == null)
+            return 0;
+
+        long length = file.headers().getContentLength();
+        return length > 0 ? Math.min(length, maxSize) : maxSize;
+    }
+
+    private FilePart toFilePart(SpooledPart part) {
+        if (part == null)
+            return null;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(part.getContentType()));
+        return new DiskFilePart(part.getName(), part.getFilename(), headers, Path.of(part.getPath()));
+    }
+
+    private Path spoolDir(UploadJob job) {
+        return uploadProperties.ingest().spoolDir().resolve(job.getId());
+    }
+
+    private Mono<Void> deleteSpooled(Path dir) {
+        return Mono.fromRunnable(() -> {
+            if (Files.exists(dir))
+                tempDirService.deleteDirectory(dir);
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    LOG.warn("Error deleting spooled files: {}", dir, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private UploadJobDto toDto(UploadJob job) {
+        return UploadJobDto.builder()
+                .id(job.getId())
+                .mediaType(job.getMediaType())
+                .mediaId(job.getMediaId())
+                .status(job.getStatus())
+                .priority(job.getPriority())
+                .attempts(job.getAttempts())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
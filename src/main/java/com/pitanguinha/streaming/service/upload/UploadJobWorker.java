@@ -0,0 +1,169 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.*;
+
+import org.springframework.stereotype.Component;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+
+import jakarta.annotation.*;
+
+import reactor.core.*;
+import reactor.core.publisher.*;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Worker running the upload jobs in the background.
+ *
+ * <p>
+ * The queued jobs are polled on an interval and claimed up to the free slots
+ * of the concurrency, so an instance never runs more jobs at once than the
+ * concurrency. A slot freed by a finished job is filled on the next poll.<br>
+ * Each job is handed to the {@link UploadJobProcessor} of its media type and
+ * must finish within the processing timeout, shorter than the lock timeout, so
+ * its outcome is reported before another worker may claim it. The timeout is
+ * also capped by the lock of the claim, which starts before the attempt.<br>
+ * A job that failed for good discards its media, so no pending media is left
+ * behind. An outcome reported after the claim was lost is dropped, and nothing
+ * is discarded.
+ * </p>
+ *
+ * @see UploadJobService The service reporting the outcome of the jobs.
+ *
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class UploadJobWorker {
+    private final static Logger LOG = LoggerFactory.getLogger(UploadJobWorker.class);
+
+    private final UploadJobService jobService;
+    private final UploadProperties.Ingest properties;
+    private final Map<String, UploadJobProcessor> processors;
+    private final AtomicInteger running = new AtomicInteger();
+    private final Disposable.Composite jobs = Disposables.composite();
+    private Disposable poller;
+
+    public UploadJobWorker(UploadJobService jobService, UploadProperties uploadProperties,
+            List<UploadJobProcessor> processors) {
+        this.jobService = jobService;
+        this.properties = uploadProperties.ingest();
+        this.processors = processors.stream()
+                .collect(Collectors.toMap(UploadJobProcessor::mediaType, Function.identity()));
+    }
+
+    /**
+     * Starts polling the queued jobs.
+     *
+     * <p>
+     * A poll still running when the next one is due is not overlapped, the
+     * next one is dropped instead.
+     * </p>
+     *
+     * @since 1.0
+     */
+    @PostConstruct
+    public void start() {
+        this.poller = Flux.interval(Duration.ZERO, properties.pollInterval(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap($ -> poll()
+                        .onErrorResume(e -> {
+                            LOG.error("Error polling upload jobs", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null)
+            poller.dispose();
+
+        jobs.dispose();
+    }
+
+    /**
+     * Claims and starts jobs until the concurrency is reached or none is left.
+     *
+     * @return A Mono that completes when no more jobs can be claimed.
+     *
+     * @since 1.0
+     */
+    Mono<Void> poll() {
+        if (running.get() >= properties.concurrency())
+            return Mono.empty();
+
+        return jobService.claimNext()
+                .flatMap(job -> {
+                    running.incrementAndGet();
+                    Disposable.Swap slot = Disposables.swap();
+                    jobs.add(slot);
+                    slot.update(run(job)
+                            .doFinally($ -> {
+                                running.decrementAndGet();
+                                jobs.remove(slot);
+                            })
+                            .subscribe());
+                    return poll().thenReturn(job);
+                })
+                .then();
+    }
+
+    /**
+     * Runs a claimed job, reporting its outcome.
+     *
+     * @param job the claimed job.
+     *
+     * @return A Mono that completes when the outcome is reported.
+     *
+     * @since 1.0
+     */
+    Mono<Void> run(UploadJob job) {
+        UploadJobProcessor processor = processors.get(job.getMediaType());
+        if (processor == null)
+            return jobService.fail(job, new IllegalArgumentException("Unknown media type: " + job.getMediaType()))
+                    .then();
+
+        LOG.info("Running upload job: {} attempt: {}", job.getId(), job.getAttempts());
+
+        return processor.processUploadJob(job.getMediaId(), jobService.thumbnailOf(job), jobService.contentOf(job))
+                .timeout(timeoutOf(job))
+                .then(Mono.defer(() -> jobService.succeed(job)))
+                .onErrorResume(e -> jobService.fail(job, e)
+                        .filter(failed -> failed.getStatus() == UploadJobStatus.FAILED)
+                        .flatMap(failed -> processor.discardUploadJob(failed.getMediaId()).thenReturn(failed)))
+                .onErrorResume(e -> {
+                    LOG.error("Error reporting the outcome of upload job: {}", job.getId(), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Gets how long an attempt of a claimed job may run.
+     *
+     * @param job the claimed job.
+     *
+     * @return the processing timeout, capped by the time left on the lock
+     *         minus the margin between the lock and the processing timeouts.
+     *
+     * @since 1.0
+     */
+    private Duration timeoutOf(UploadJob job) {
+        Duration margin = properties.lockTimeout().minus(properties.processingTimeout());
+        Duration left = Duration.between(Instant.now(), job.getLockedUntil()).minus(margin);
+        if (left.isNegative())
+            return Duration.ZERO;
+
+        return left.compareTo(properties.processingTimeout()) < 0 ? left : properties.processingTimeout();
+    }
+}
@@ -0,0 +1,382 @@
+package com.pitanguinha.streaming.service.upload;
+
+import java.time.Instant;
+import java.util.*;
+
+import org.slf4j.*;
+import org.bson.types.ObjectId;
+
+import org.springframework.stereotype.Service;
+import org.springframework.core.io.buffer.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.dto.upload.*;
+import com.pitanguinha.streaming.domain.upload.UploadSession;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.enums.exceptions.*;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
+import com.pitanguinha.streaming.exceptions.domain.*;
+import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
+import com.pitanguinha.streaming.repository.upload.UploadSessionRepository;
+import com.pitanguinha.streaming.service.storage.*;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.*;
+
+/**
+ * Service for the resumable uploads of content files.
+ *
+ * <p>
+ * A session is created for the content file, then its chunks are uploaded in
+ * any order and retried as many times as needed, and finally the session is
+ * finalized by saving the media with it.<br>
+ * The committed chunks are always listed from the multipart upload, so the
+ * session document is never updated by the chunk uploads.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aws.s3.enabled", havingValue = "true", matchIfMissing = false)
+public class UploadSessionService {
+    private final static Logger LOG = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private final UploadSessionRepository repository;
+    private final StorageService storageService;
+    private final UploadProperties uploadProperties;
+
+    /**
+     * Creates a resumable upload session for a content file.
+     *
+     * <p>
+     * A media ID is reserved for the session and a multipart upload is started
+     * under the key of its content. The multipart upload is aborted if the
+     * session can't be saved.
+     * </p>
+     *
+     * @param postDto the DTO containing the content type and size of the file
+     *
+     * @return A Mono containing the created session.
+     *
+     * @throws IllegalArgumentException if the content type or the file size is
+     *                                  not supported.
+     * @throws S3Exception              if the multipart upload can't be started.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadSessionDto> create(UploadSessionPostDto postDto) {
+        var resumable = uploadProperties.resumable();
+        long maxContentSize = resumable.maxContentSize().toBytes();
+
+        if (!SupportedTypeUtil.isSupported(AudioSupportedTypes.class, postDto.getContentType()))
+            return Mono.error(new IllegalArgumentException(
+                    "Invalid content file content type. Supported types: opus, ogg, flac, mp3, wav, wav_x, aac."));
+
+        if (postDto.getSize() > maxContentSize)
+            return Mono.error(new IllegalArgumentException("File size is not supported. File size: "
+                    + postDto.getSize() + " bytes, Max file size: " + maxContentSize + " bytes"));
+
+        Instant now = Instant.now();
+        UploadSession session = UploadSession.builder()
+                .mediaId(new ObjectId().toHexString())
+                .contentType(postDto.getContentType())
+                .size(postDto.getSize())
+                .chunkSize(resumable.chunkSize().toBytes())
+                .createdAt(now)
+                .expiresAt(now.plus(resumable.sessionTtl()))
+                .build();
+
+        return storageService.createMultipartUpload(session.contentKey(), session.getContentType())
+                .onErrorMap(StorageException.class, e -> uploadFailed(session, e))
+                .flatMap(uploadId -> {
+                    session.setUploadId(uploadId);
+                    return repository.save(session)
+                            .onErrorResume(e -> storageService.abortMultipartUpload(session.contentKey(), uploadId)
+                                    .then(Mono.error(e)));
+                })
+                .doOnNext(saved -> LOG.info("Created upload session: {} for media: {}", saved.getId(),
+                        saved.getMediaId()))
+                .map(saved -> toDto(saved, List.of()));
+    }
+
+    /**
+     * Finds an upload session by its ID with its committed chunks.
+     *
+     * @param id the ID of the session
+     *
+     * @return A Mono containing the session and its committed chunks.
+     *
+     * @throws NotFoundException if the session does not exist or is expired.
+     * @throws S3Exception       if the chunks can't be listed.
+     *
+     * @see #committedChunks(UploadSession) Lists the committed chunks.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadSessionDto> findById(String id) {
+        return findByIdSwitchIfEmpty(id)
+                .flatMap(session -> committedChunks(session)
+                        .collectList()
+                        .map(chunks -> toDto(session, chunks)));
+    }
+
+    /**
+     * Uploads a chunk of an upload session.
+     *
+     * <p>
+     * The chunk must have exactly its expected length, the chunk size or the
+     * remaining bytes for the last one, so the offsets never overlap.<br>
+     * The chunk is buffered and uploaded as the part with the same number,
+     * uploading a chunk again replaces it.<br>
+     * The first chunk must match the signature of the content type of the
+     * session, so a mislabelled file is rejected on its first chunk.
+     * </p>
+     *
+     * @param id      the ID of the session
+     * @param number  the number of the chunk, starting at 1
+     * @param content the content of the chunk
+     *
+     * @return A Mono containing the committed chunk.
+     *
+     * @throws NotFoundException        if the session does not exist or is
+     *                                  expired.
+     * @throws IllegalArgumentException if the chunk number or size is invalid,
+     *                                  or the first chunk does not match the
+     *                                  content type.
+     * @throws S3Exception              if the chunk can't be uploaded.
+     *
+     * @see FileUtils#limitSize(Flux, long) Enforces the size of the chunk.
+     * @see FileUtils#sniff(Flux, SupportedType) Checks the first chunk.
+     * @see StorageService#uploadPart(String, String, int, byte[]) Uploads the
+     *      chunk.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadChunkDto> uploadChunk(String id, int number, Flux<DataBuffer> content) {
+        return findByIdSwitchIfEmpty(id)
+                .flatMap(session -> {
+                    if (number < 1 || number > session.totalChunks())
+                        return Mono.error(new IllegalArgumentException("Invalid chunk number: " + number
+                                + ", expected between 1 and " + session.totalChunks()));
+
+                    long length = session.chunkLength(number);
+                    Flux<DataBuffer> limited = FileUtils.limitSize(content, length);
+                    Flux<DataBuffer> chunk = number == 1
+                            ? SupportedTypeUtil.find(AudioSupportedTypes.class, session.getContentType())
+                                    .map(type -> FileUtils.sniff(limited, type))
+                                    .orElse(limited)
+                            : limited;
+
+                    return DataBufferUtils.join(chunk)
+                            .map(FileUtils::readAndRelease)
+                            .flatMap(bytes -> {
+                                if (bytes.length != length)
+                                    return Mono.error(new IllegalArgumentException("Invalid chunk size: "
+                                            + bytes.length + " bytes, expected: " + length + " bytes"));
+
+                                return storageService.uploadPart(session.contentKey(), session.getUploadId(), number, bytes)
+                                        .onErrorMap(StorageException.class, e -> uploadFailed(session, e));
+                            })
+                            .doOnNext(part -> LOG.info("Uploaded chunk: {} of upload session: {}", number, id))
+                            .map(part -> toChunkDto(session, number, length));
+                });
+    }
+
+    /**
+     * Finds an upload session to complete.
+     *
+     * @param id the ID of the session
+     *
+     * @return A Mono containing the session.
+     *
+     * @throws NotFoundException if the session does not exist or is expired.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadSession> findSession(String id) {
+        return findByIdSwitchIfEmpty(id);
+    }
+
+    /**
+     * Completes the multipart upload of an upload session.
+     *
+     * <p>
+     * Every chunk must be committed with its expected length, then the
+     * multipart upload is completed, making the content available under the
+     * key of the reserved media.<br>
+     * The session is kept, it must be removed once the media is persisted, so
+     * a failed completion can be retried.
+     * </p>
+     *
+     * @param session the upload session
+     *
+     * @return A Mono containing the completed session.
+     *
+     * @throws DomainStateException if any chunk is missing.
+     * @throws S3Exception          if the multipart upload can't be completed.
+     *
+     * @see #remove(UploadSession) Removes the session.
+     *
+     * @since 1.0
+     */
+    public Mono<UploadSession> complete(UploadSession session) {
+        return storageService.listParts(session.contentKey(), session.getUploadId())
+                .filter(part -> isCommitted(session, part))
+                .collectList()
+                .flatMap(parts -> {
+                    if (parts.size() != session.totalChunks())
+                        return Mono.error(new DomainStateException("Upload session is incomplete, committed "
+                                + parts.size() + " of " + session.totalChunks() + " chunks", "incomplete"));
+
+                    return storageService.completeMultipartUpload(session.contentKey(), session.getUploadId(),
+                            parts);
+                })
+                .onErrorMap(StorageException.class, e -> uploadFailed(session, e))
+                .flatMap(response -> {
+                    if (!response)
+                        return Mono.error(uploadFailed(session, null));
+
+                    LOG.info("Completed upload session: {} for media: {}", session.getId(), session.getMediaId());
+                    return Mono.just(session);
+                });
+    }
+
+    /**
+     * Removes a completed upload session.
+     *
+     * <p>
+     * A failure is only logged, the session is dropped by its TTL anyway.
+     * </p>
+     *
+     * @param session the upload session
+     *
+     * @return A Mono that completes when the session is removed.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> remove(UploadSession session) {
+        return repository.delete(session)
+                .onErrorResume(e -> {
+                    LOG.warn("Error removing upload session: {}", session.getId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Aborts an upload session.
+     *
+     * <p>
+     * The multipart upload is aborted, dropping the chunks already uploaded, and
+     * the session is removed.
+     * </p>
+     *
+     * @param id the ID of the session
+     *
+     * @return A Mono that completes when the session is aborted.
+     *
+     * @throws NotFoundException if the session does not exist or is expired.
+     *
+     * @since 1.0
+     */
+    public Mono<Void> abort(String id) {
+        return findByIdSwitchIfEmpty(id)
+                .flatMap(session -> storageService.abortMultipartUpload(session.contentKey(), session.getUploadId())
+                        .then(repository.delete(session)));
+    }
+
+    /**
+     * Finds an upload session by its ID, returning an error if not found.
+     *
+     * <p>
+     * An expired session is treated as not found, even before it's removed by
+     * the TTL index.
+     * </p>
+     *
+     * @param id the ID of the session
+     *
+     * @return A Mono containing the session.
+     *
+     * @throws NotFoundException if the session does not exist or is expired.
+     *
+     * @since 1.0
+     */
+    private Mono<UploadSession> findByIdSwitchIfEmpty(String id) {
+        return repository.findById(id)
+                .filter(session -> !session.isExpired())
+                .switchIfEmpty(Mono.error(
+                        new NotFoundException("The upload session does not exist", "not found for id: " + id)));
+    }
+
+    /**
+     * Lists the committed chunks of an upload session.
+     *
+     * @param session the upload session
+     *
+     * @return A Flux of the committed chunks ordered by number.
+     *
+     * @throws S3Exception if the chunks can't be listed.
+     *
+     * @since 1.0
+     */
+    private Flux<UploadChunkDto> committedChunks(UploadSession session) {
+        return storageService.listParts(session.contentKey(), session.getUploadId())
+                .filter(part -> isCommitted(session, part))
+                .map(part -> toChunkDto(session, part.partNumber(), part.size()))
+                .onErrorMap(StorageException.class, e -> new S3Exception(
+                        "Error listing the chunks of upload session: " + session.getId(),
+                        session.contentKey(), S3OperationException.DOWNLOAD_FAILED, SeverityLevel.MEDIUM, e));
+    }
+
+    /**
+     * Checks if an uploaded part is a committed chunk of the session.
+     *
+     * @param session the upload session
+     * @param part    the uploaded part
+     *
+     * @return true if the part number is valid and it has the expected length.
+     *
+     * @since 1.0
+     */
+    private boolean isCommitted(UploadSession session, StoredPart part) {
+        int number = part.partNumber();
+        return number >= 1 && number <= session.totalChunks()
+                && part.size() != null && part.size() == session.chunkLength(number);
+    }
+
+    /**
+     * Builds the exception of a failed upload for a session.
+     *
+     * @param session the upload session
+     * @param cause   the cause of the failure, may be null
+     *
+     * @return the S3 exception
+     *
+     * @since 1.0
+     */
+    private S3Exception uploadFailed(UploadSession session, Throwable cause) {
+        LOG.error("Error uploading content to S3 for upload session: {}", session.getId(), cause);
+        return new S3Exception("Error uploading content to S3 for upload session: " + session.getId(),
+                session.contentKey(), S3OperationException.UPLOAD_FAILED, SeverityLevel.MEDIUM, cause);
+    }
+
+    private UploadChunkDto toChunkDto(UploadSession session, int number, long size) {
+        return UploadChunkDto.builder()
+                .number(number)
+                .offset(session.chunkOffset(number))
+                .size(size)
+                .build();
+    }
+
+    private UploadSessionDto toDto(UploadSession session, List<UploadChunkDto> chunks) {
+        return UploadSessionDto.builder()
+                .id(session.getId())
+                .size(session.getSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.totalChunks())
+                .expiresAt(session.getExpiresAt())
+                .committedChunks(chunks)
+                .build();
+    }
+}
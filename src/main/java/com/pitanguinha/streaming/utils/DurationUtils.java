@@ -0,0 +1,22 @@
+package com.pitanguinha.streaming.utils;
+
+import java.time.Duration;
+
+/**
+ * Utility class for duration operations.
+ * 
+ * @since 1.0
+ */
+public class DurationUtils {
+    /**
+     * Checks if a duration is strictly positive, e.g. to validate a configured
+     * timeout or interval.
+     * 
+     * @param duration The duration to check.
+     * 
+     * @return true if the duration is greater than zero.
+     */
+    public static boolean isPositive(Duration duration) {
+        return !duration.isNegative() && !duration.isZero();
+    }
+}
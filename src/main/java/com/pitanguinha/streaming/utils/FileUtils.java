@@ -1,14 +1,21 @@
 package com.pitanguinha.streaming.utils;
 
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.concurrent.atomic.*;
 
-import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.core.io.buffer.*;
 import org.springframework.http.codec.multipart.FilePart;
 
 import com.pitanguinha.streaming.enums.exceptions.SeverityLevel;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
 import com.pitanguinha.streaming.exceptions.internal.InternalException;
 
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.*;
 
 /**
  * Utility class for file operations.
@@ -16,30 +23,59 @@ import reactor.core.publisher.Mono;
  * @since 1.0
  */
 public class FileUtils {
+    private static final int SNIFF_LENGTH = 4 * 1024;
+
     /**
      * Transfers a file to a specified directory.
      * 
      * <p>
-     * This method transfers the contents of a FilePart to a specified
+     * This method writes the contents of a FilePart to a specified
      * directory and returns the path of the transferred file.<br>
+     * The size of the file is enforced while it is written, so an oversized file
+     * is aborted as soon as the limit is crossed and the partial file is
+     * deleted.<br>
      * The callable should handle any exceptions that may occur during the
      * transfer.
      * </p>
      * 
-     * @param workDir  the directory to transfer the file to
-     * @param fileName the name of the file
-     * @param file     the FilePart to transfer
+     * @param workDir     the directory to transfer the file to
+     * @param fileName    the name of the file
+     * @param file        the FilePart to transfer
+     * @param maxFileSize the maximum allowed file size in bytes
      * 
      * @return the path of the transferred file
      * 
-     * @throws InternalException if an error occurs during the transfer.
+     * @throws InternalException        if an error occurs during the transfer.
+     * @throws IllegalArgumentException if the file size is not supported.
+     * 
+     * @see #limitSize(Flux, long) Used to enforce the file size.
      * 
      * @since 1.0
      */
-    public static Mono<Path> transferTo(Path workDir, String fileName, FilePart file) {
+    public static Mono<Path> transferTo(Path workDir, String fileName, FilePart file, long maxFileSize) {
+        return writeTo(workDir, fileName, limitSize(file.content(), maxFileSize));
+    }
+
+    /**
+     * Writes a content to a file, deleting the partial file on error.
+     * 
+     * @param workDir  the directory to write the file to
+     * @param fileName the name of the file
+     * @param content  the content to write
+     * 
+     * @return the path of the written file
+     * 
+     * @throws InternalException if an error occurs during the write.
+     * 
+     * @since 1.0
+     */
+    public static Mono<Path> writeTo(Path workDir, String fileName, Flux<DataBuffer> content) {
         Path tempFile = workDir.resolve(fileName);
-        return file.transferTo(tempFile)
-                .onErrorMap(e -> new InternalException(
+        return DataBufferUtils.write(content, tempFile)
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(tempFile))
+                        .onErrorResume($ -> Mono.just(false))
+                        .then(Mono.error(e)))
+                .onErrorMap(e -> !(e instanceof IllegalArgumentException), e -> new InternalException(
                         "Error transferring file to " + workDir.toAbsolutePath().toString() + " with name "
                                 + fileName,
                         FileUtils.class, SeverityLevel.HIGH, e))
@@ -47,41 +83,371 @@ public class FileUtils {
     }
 
     /**
-     * Checks if the file size is supported.
+     * Spools a file content in memory, spilling it to disk if it's too large.
      * 
      * <p>
-     * This method checks if the size of the provided FilePart is within the
-     * specified maximum file size limit. If the file size exceeds the limit or is
-     * less than or equal to zero, an IllegalArgumentException is thrown.
+     * The buffers are retained as they are read while the content fits in the
+     * threshold, so a small content never touches the disk and pooled buffers
+     * are not copied.<br>
+     * As soon as the threshold is crossed the content is spilled: the buffers
+     * read so far followed by the rest of the content are handed to the spill
+     * function, which writes them to a file. The rest of the content is only
+     * requested by the spill, so it's backpressured by the disk.<br>
+     * The retained buffers are released if the content fails or is cancelled.
      * </p>
      * 
-     * @param file        the FilePart to check
-     * @param maxFileSize the maximum allowed file size in MB
+     * @param content   the content to spool
+     * @param threshold the maximum size in bytes kept in memory
+     * @param spill     the function writing the whole content to a file
      * 
-     * @throws IllegalArgumentException if the file size is not supported.
+     * @return the spooled content, it must be released once consumed
+     * 
+     * @throws IllegalArgumentException if the threshold is negative.
+     * 
+     * @see SpooledContent#release() Releases the spooled content.
+     * @see #writeTo(Path, String, Flux) Used to write the spilled content.
+     * 
+     * @since 1.0
+     */
+    public static Mono<SpooledContent> spool(Flux<DataBuffer> content, long threshold,
+            Function<Flux<DataBuffer>, Mono<SpooledContent>> spill) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Spool threshold must not be negative");
+
+        return Mono.defer(() -> {
+            List<DataBuffer> head = new ArrayList<>();
+            AtomicLong size = new AtomicLong();
+            AtomicReference<DataBuffer> crossing = new AtomicReference<>();
+
+            // The buffer crossing the threshold opens a second window, which is spilled
+            return content
+                    .windowUntil(dataBfr -> crossing.get() == null
+                            && size.addAndGet(dataBfr.readableByteCount()) > threshold
+                            && crossing.compareAndSet(null, dataBfr), true)
+                    .concatMap(window -> window.switchOnFirst((first, rest) -> {
+                        if (!first.hasValue() || first.get() != crossing.get())
+                            return rest.doOnNext(head::add).thenMany(Flux.<SpooledContent>empty());
+
+                        List<DataBuffer> buffered = List.copyOf(head);
+                        head.clear();
+                        return spill.apply(Flux.fromIterable(buffered).concatWith(rest)).flux();
+                    }))
+                    .next()
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        SpooledContent spooled = SpooledContent.inMemory(head);
+                        head.clear();
+                        return spooled;
+                    }))
+                    .doOnError($ -> release(head))
+                    .doOnCancel(() -> release(head))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Releases a list of data buffers and clears it.
+     * 
+     * @param buffers the buffers to release
+     * 
+     * @since 1.0
+     */
+    private static void release(List<DataBuffer> buffers) {
+        buffers.forEach(DataBufferUtils::release);
+        buffers.clear();
+    }
+
+    /**
+     * Limits the size of a file content while it is consumed.
+     * 
+     * <p>
+     * This method counts the bytes of the content as they pass through, so the
+     * file is read only once by its destination.<br>
+     * As soon as the count exceeds the maximum file size, the current buffer is
+     * released and an IllegalArgumentException is signaled, which cancels the
+     * rest of the content. An empty content is also not supported.
+     * </p>
+     * 
+     * @param content     the content to limit
+     * @param maxFileSize the maximum allowed file size in bytes
+     * 
+     * @return the same content, failing if the file size is not supported
+     * 
+     * @throws IllegalArgumentException if the max file size is not positive or
+     *                                  the file size is not supported.
+     * 
+     * @since 1.0
      */
-    public static Mono<Void> isFileSizeSupported(FilePart file, int maxFileSize) {
+    public static Flux<DataBuffer> limitSize(Flux<DataBuffer> content, long maxFileSize) {
         if (maxFileSize <= 0)
             throw new IllegalArgumentException("Max file size must be greater than 0");
 
-        if (file == null)
-            return Mono.empty();
+        return Flux.defer(() -> {
+            AtomicLong fileSize = new AtomicLong();
 
-        return file.content()
-                .map(dataBfr -> {
-                    int readableBytes = dataBfr.readableByteCount();
+            return content.<DataBuffer>handle((dataBfr, sink) -> {
+                if (fileSize.addAndGet(dataBfr.readableByteCount()) > maxFileSize) {
                     DataBufferUtils.release(dataBfr);
-                    return (long) readableBytes;
-                })
-                .reduce(Long::sum)
-                .flatMap(fileSize -> {
-                    long maxFileSizeInBytes = maxFileSize * 1024 * 1024 * 1024;
-                    if (fileSize >= maxFileSizeInBytes || fileSize <= 0) {
-                        return Mono.error(new IllegalArgumentException(
-                                "File size is not supported. File size: " + fileSize + " bytes, Max file size: "
-                                        + maxFileSizeInBytes + " bytes"));
-                    }
-                    return Mono.empty();
-                });
+                    sink.error(new IllegalArgumentException(
+                            "File size is not supported. File size: more than " + maxFileSize
+                                    + " bytes, Max file size: " + maxFileSize + " bytes"));
+                    return;
+                }
+                sink.next(dataBfr);
+            }).concatWith(Mono.defer(() -> fileSize.get() <= 0
+                    ? Mono.error(new IllegalArgumentException("File size is not supported. File is empty"))
+                    : Mono.empty()));
+        });
+    }
+
+    /**
+     * Checks the signature of a file content before it is consumed.
+     * 
+     * <p>
+     * The declared content type of a file is not trusted, so the first
+     * {@value #SNIFF_LENGTH} bytes are held back and checked against the magic
+     * bytes of the type before anything reaches the destination.<br>
+     * On a mismatch the held buffers are released and an
+     * IllegalArgumentException is signaled, which cancels the rest of the
+     * content, so a mislabelled file is not transferred any further. A file
+     * smaller than the sniffed length is checked once it completes.
+     * </p>
+     * 
+     * @param content the content to check
+     * @param type    the declared type of the content
+     * 
+     * @return the same content, failing if it does not match the type
+     * 
+     * @throws IllegalArgumentException if the content does not match the type.
+     * 
+     * @see SupportedType#matches(byte[]) Checks the signature of the type.
+     * 
+     * @since 1.0
+     */
+    public static Flux<DataBuffer> sniff(Flux<DataBuffer> content, SupportedType type) {
+        return Flux.defer(() -> {
+            List<DataBuffer> head = new ArrayList<>();
+            byte[] signature = new byte[SNIFF_LENGTH];
+            AtomicInteger sniffed = new AtomicInteger();
+            AtomicBoolean matched = new AtomicBoolean();
+
+            return content
+                    .concatMapIterable(dataBfr -> {
+                        if (matched.get())
+                            return List.of(dataBfr);
+
+                        head.add(dataBfr);
+                        try (var iterator = dataBfr.readableByteBuffers()) {
+                            iterator.forEachRemaining(bytes -> {
+                                int length = Math.min(bytes.remaining(), SNIFF_LENGTH - sniffed.get());
+                                bytes.get(signature, sniffed.get(), length);
+                                sniffed.addAndGet(length);
+                            });
+                        }
+
+                        return sniffed.get() < SNIFF_LENGTH
+                                ? List.<DataBuffer>of()
+                                : match(head, Arrays.copyOf(signature, sniffed.get()), type, matched);
+                    })
+                    .concatWith(Flux.defer(() -> matched.get() || head.isEmpty()
+                            ? Flux.empty()
+                            : Flux.fromIterable(match(head, Arrays.copyOf(signature, sniffed.get()), type, matched))))
+                    .doOnError($ -> release(head))
+                    .doOnCancel(() -> release(head))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Matches the held buffers of a content against its type.
+     * 
+     * @param head      the held buffers, released on a mismatch
+     * @param signature the leading bytes of the content
+     * @param type      the declared type of the content
+     * @param matched   set once the content matches
+     * 
+     * @return the held buffers, to be emitted
+     * 
+     * @throws IllegalArgumentException if the content does not match the type.
+     * 
+     * @since 1.0
+     */
+    private static List<DataBuffer> match(List<DataBuffer> head, byte[] signature, SupportedType type,
+            AtomicBoolean matched) {
+        if (!type.matches(signature)) {
+            release(head);
+            throw new IllegalArgumentException(
+                    "File content does not match its content type: " + type.getContentType());
+        }
+
+        matched.set(true);
+        List<DataBuffer> buffered = List.copyOf(head);
+        head.clear();
+        return buffered;
+    }
+
+    /**
+     * Reads the content of a file part, checking its size and signature.
+     * 
+     * <p>
+     * The declared content type must be one of the supported types, and the
+     * leading bytes of the file must match it, so a mislabelled file is
+     * rejected before it's transferred any further.<br>
+     * The failure cancels the rest of the file content. For a content file
+     * streamed from an upload form that's the rest of the request, while a
+     * file bound by the multipart codec, like the files of a batch ingest, was
+     * already read by the codec and only its transfer is cancelled.
+     * </p>
+     * 
+     * @param file           the file to read
+     * @param supportedTypes the enum of the supported types of the file
+     * @param maxSize        the maximum allowed file size in bytes
+     * 
+     * @return the content of the file, failing if it's not supported
+     * 
+     * @throws IllegalArgumentException if the file size, content type or
+     *                                  content is not supported.
+     * 
+     * @see #limitSize(Flux, long) Checks the size.
+     * @see #sniff(Flux, SupportedType) Checks the signature.
+     * 
+     * @since 1.0
+     */
+    public static <T extends Enum<T> & SupportedType> Flux<DataBuffer> readChecked(FilePart file,
+            Class<T> supportedTypes, long maxSize) {
+        String contentType = contentType(file);
+
+        return SupportedTypeUtil.find(supportedTypes, contentType)
+                .map(type -> sniff(limitSize(file.content(), maxSize), type))
+                .orElseGet(() -> Flux.error(new IllegalArgumentException(
+                        "Content type is not supported: " + contentType)));
+    }
+
+    /**
+     * Gets the declared content type of a file part.
+     * 
+     * @param file the file part
+     * 
+     * @return the content type, or "application/octet-stream" if not declared
+     * 
+     * @since 1.0
+     */
+    public static String contentType(FilePart file) {
+        MediaType contentType = file.headers().getContentType();
+        return contentType != null ? contentType.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /**
+     * Updates a digest with a file content while it is consumed.
+     * 
+     * <p>
+     * The digest is updated from read-only views of each buffer, so the read
+     * position of the buffers is left untouched and the file is still read only
+     * once by its destination.<br>
+     * The digest must be created for each subscription, it's only complete
+     * after the content completes.
+     * </p>
+     * 
+     * @param content the content to digest
+     * @param digest  the digest to update
+     * 
+     * @return the same content
+     * 
+     * @see #sha256() Creates a SHA-256 digest.
+     * 
+     * @since 1.0
+     */
+    public static Flux<DataBuffer> digest(Flux<DataBuffer> content, MessageDigest digest) {
+        return content.doOnNext(dataBfr -> {
+            try (var iterator = dataBfr.readableByteBuffers()) {
+                iterator.forEachRemaining(digest::update);
+            }
+        });
+    }
+
+    /**
+     * Runs a pipeline with read-only views of the readable bytes of buffers.
+     * 
+     * <p>
+     * The views are only valid while their iterators are open, so the
+     * iterators are closed when the pipeline terminates or is cancelled, not
+     * once the views are collected.<br>
+     * The buffers are not released, they must stay retained until the returned
+     * Mono terminates.
+     * </p>
+     * 
+     * @param <T>     the type of the result
+     * @param buffers the buffers to view, in order
+     * @param work    the pipeline using the views
+     * 
+     * @return the result of the pipeline
+     * 
+     * @since 1.0
+     */
+    public static <T> Mono<T> withByteBuffers(List<DataBuffer> buffers, Function<ByteBuffer[], Mono<T>> work) {
+        return Mono.using(() -> {
+            List<DataBuffer.ByteBufferIterator> iterators = new ArrayList<>(buffers.size());
+            try {
+                for (DataBuffer buffer : buffers)
+                    iterators.add(buffer.readableByteBuffers());
+            } catch (RuntimeException e) {
+                iterators.forEach(DataBuffer.ByteBufferIterator::close);
+                throw e;
+            }
+            return iterators;
+        }, iterators -> {
+            List<ByteBuffer> views = new ArrayList<>();
+            iterators.forEach(iterator -> iterator.forEachRemaining(views::add));
+            return work.apply(views.toArray(ByteBuffer[]::new));
+        }, iterators -> iterators.forEach(DataBuffer.ByteBufferIterator::close));
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     * 
+     * @return a new SHA-256 digest
+     * 
+     * @throws InternalException if the algorithm is not available.
+     * 
+     * @since 1.0
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalException("SHA-256 algorithm is not available", FileUtils.class,
+                    SeverityLevel.CRITICAL, e);
+        }
+    }
+
+    /**
+     * Completes a digest as a lowercase hex string.
+     * 
+     * @param digest the digest to complete, it's reset afterwards
+     * 
+     * @return the hex string of the digest
+     * 
+     * @since 1.0
+     */
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Reads a data buffer into an array and releases it.
+     * 
+     * @param dataBfr the data buffer to read
+     * 
+     * @return the readable bytes of the buffer
+     * 
+     * @since 1.0
+     */
+    public static byte[] readAndRelease(DataBuffer dataBfr) {
+        try {
+            byte[] bytes = new byte[dataBfr.readableByteCount()];
+            dataBfr.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(dataBfr);
+        }
     }
 }
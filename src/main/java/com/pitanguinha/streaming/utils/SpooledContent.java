@@ -0,0 +1,84 @@
+package com.pitanguinha.streaming.utils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.core.io.buffer.*;
+
+/**
+ * A file content spooled either in memory or on disk.
+ *
+ * <p>
+ * A small content is kept in the retained data buffers it was read into, so
+ * pooled and off-heap buffers are used as they are, while a larger one is
+ * spilled to a file.<br>
+ * The content must be released once it's consumed, releasing the buffers or
+ * running the cleanup of the file.
+ * </p>
+ *
+ * @param buffers the retained buffers of an in-memory content, empty if it was
+ *                spilled
+ * @param file    the file of a spilled content, null if it's in memory
+ * @param cleanup the cleanup of the file, run when the content is released
+ *
+ * @see FileUtils#spool(reactor.core.publisher.Flux, long,
+ *      java.util.function.Function) Spools a content.
+ *
+ * @since 1.0
+ */
+public record SpooledContent(List<DataBuffer> buffers, Path file, Runnable cleanup) {
+
+    /**
+     * Creates an in-memory content.
+     *
+     * @param buffers the retained buffers of the content
+     *
+     * @return the in-memory content
+     *
+     * @since 1.0
+     */
+    public static SpooledContent inMemory(List<DataBuffer> buffers) {
+        return new SpooledContent(List.copyOf(buffers), null, () -> {
+        });
+    }
+
+    /**
+     * Creates a content spilled to a file.
+     *
+     * @param file    the file of the content
+     * @param cleanup the cleanup of the file
+     *
+     * @return the spilled content
+     *
+     * @since 1.0
+     */
+    public static SpooledContent onDisk(Path file, Runnable cleanup) {
+        return new SpooledContent(List.of(), file, cleanup);
+    }
+
+    /**
+     * Checks if the content is kept in memory.
+     *
+     * @return true if the content was not spilled to a file
+     *
+     * @since 1.0
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * Releases the content.
+     *
+     * <p>
+     * The buffers are released and the cleanup of the file is run, it must be
+     * called only once.
+     * </p>
+     *
+     * @since 1.0
+     */
+    public void release() {
+        buffers.forEach(DataBufferUtils::release);
+        cleanup.run();
+    }
+}
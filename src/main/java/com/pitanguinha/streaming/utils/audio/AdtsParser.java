@@ -0,0 +1,88 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Parser of the duration of AAC files in ADTS frames.
+ *
+ * <p>
+ * ADTS has no global header, so the frames in the leading bytes are walked
+ * counting their samples.<br>
+ * If the whole file was captured the duration is exact, otherwise it's
+ * extrapolated from the average size of the walked frames.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class AdtsParser {
+    private static final int HEADER_LENGTH = 7;
+    private static final int SAMPLES_PER_BLOCK = 1024;
+
+    private static final int[] SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350 };
+
+    private AdtsParser() {
+    }
+
+    /**
+     * Checks if an ADTS frame header starts at an index.
+     *
+     * @param buffer the buffer to check
+     * @param index  the absolute index in the buffer
+     *
+     * @return true if the index has the ADTS sync word with layer 0
+     *
+     * @since 1.0
+     */
+    static boolean isFrame(ByteBuffer buffer, int index) {
+        return index >= 0 && index + 2 <= buffer.limit()
+                && u8(buffer, index) == 0xFF && (u8(buffer, index + 1) & 0xF6) == 0xF0;
+    }
+
+    /**
+     * Parses the duration of an ADTS file.
+     *
+     * @param bytes      the captured bytes of the file
+     * @param audioStart the offset where the first frame starts
+     * @param v1Length   the length of the trailing ID3v1 tag, if any
+     *
+     * @return the duration, or null if no frame is found
+     *
+     * @since 1.0
+     */
+    static Duration parse(CapturedBytes bytes, long audioStart, int v1Length) {
+        ByteBuffer buffer = bytes.from(audioStart);
+        if (buffer == null)
+            return null;
+
+        int sampleRate = 0;
+        long samples = 0;
+        int position = 0;
+
+        while (position + HEADER_LENGTH <= buffer.limit() && isFrame(buffer, position)) {
+            int sampleRateIndex = (u8(buffer, position + 2) >> 2) & 0xF;
+            int frameLength = ((u8(buffer, position + 3) & 0x03) << 11) | (u8(buffer, position + 4) << 3)
+                    | (u8(buffer, position + 5) >> 5);
+
+            if (sampleRateIndex >= SAMPLE_RATES.length || frameLength < HEADER_LENGTH
+                    || position + frameLength > buffer.limit())
+                break;
+
+            sampleRate = SAMPLE_RATES[sampleRateIndex];
+            samples += (long) ((u8(buffer, position + 6) & 0x03) + 1) * SAMPLES_PER_BLOCK;
+            position += frameLength;
+        }
+
+        if (position == 0)
+            return null;
+
+        long audioBytes = bytes.size() - audioStart - v1Length;
+        if (position < audioBytes)
+            samples = samples * audioBytes / position;
+
+        return AudioInfo.ofSamples(samples, sampleRate);
+    }
+}
@@ -0,0 +1,90 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * The duration and tags read from the headers of an audio file.
+ *
+ * <p>
+ * The tags are normalized to the keys {@link #TITLE}, {@link #ARTIST},
+ * {@link #ALBUM} and {@link #YEAR}, whatever the tag format of the file.
+ * </p>
+ *
+ * @param duration the duration of the audio, null if it can't be read
+ * @param tags     the embedded tags by their normalized key
+ *
+ * @see AudioProbe Reads the information of an audio file.
+ *
+ * @since 1.0
+ */
+public record AudioInfo(Duration duration, Map<String, String> tags) {
+    public static final String TITLE = "title";
+    public static final String ARTIST = "artist";
+    public static final String ALBUM = "album";
+    public static final String YEAR = "year";
+
+    private static final Pattern YEAR_PATTERN = Pattern.compile("\\d{4}");
+
+    public AudioInfo {
+        tags = Map.copyOf(tags);
+    }
+
+    /**
+     * Formats the duration as hours, minutes and seconds.
+     *
+     * @return the duration as "HH:mm:ss", or empty if it can't be read
+     *
+     * @since 1.0
+     */
+    public Optional<String> formattedDuration() {
+        if (duration == null)
+            return Optional.empty();
+
+        return Optional.of(String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutesPart(),
+                duration.toSecondsPart()));
+    }
+
+    /**
+     * Puts a tag, normalizing its value.
+     *
+     * <p>
+     * The value is trimmed and a blank one is ignored. Only the first four
+     * digits of a year are kept, so a full date is also accepted.
+     * </p>
+     *
+     * @param tags  the tags to put into
+     * @param key   the normalized key of the tag
+     * @param value the raw value of the tag
+     *
+     * @since 1.0
+     */
+    static void putTag(Map<String, String> tags, String key, String value) {
+        if (value == null || value.isBlank())
+            return;
+
+        if (YEAR.equals(key)) {
+            Matcher matcher = YEAR_PATTERN.matcher(value);
+            if (matcher.find())
+                tags.put(key, matcher.group());
+            return;
+        }
+
+        tags.put(key, value.trim());
+    }
+
+    /**
+     * Converts a number of samples to a duration.
+     *
+     * @param samples    the number of samples
+     * @param sampleRate the sample rate in Hz
+     *
+     * @return the duration, or null if any of them is not positive
+     *
+     * @since 1.0
+     */
+    static Duration ofSamples(long samples, long sampleRate) {
+        return samples > 0 && sampleRate > 0 ? Duration.ofMillis(samples * 1000 / sampleRate) : null;
+    }
+}
@@ -0,0 +1,190 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.pitanguinha.streaming.enums.media.contenttypes.AudioSupportedTypes;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Incremental reader of the duration and tags of an audio file.
+ *
+ * <p>
+ * The probe observes the content while it's consumed by its destination, so
+ * the file is still read only once and is never decoded or buffered as a
+ * whole.<br>
+ * Only the leading and trailing bytes are kept, plus a window at the start
+ * of the audio data when a large ID3v2 tag, e.g. with a cover picture,
+ * pushes it past the leading bytes. That's where every format in
+ * {@link AudioSupportedTypes} keeps its headers, tags and, for Ogg, the
+ * granule position of the last page.<br>
+ * A probe must be created for each subscription, its result is only
+ * complete after the content completes.
+ * </p>
+ *
+ * @see AudioInfo The information read by the probe.
+ *
+ * @since 1.0
+ */
+public final class AudioProbe {
+    private static final int HEAD_SIZE = 64 * 1024;
+    private static final int TAIL_SIZE = 64 * 1024;
+    private static final int WINDOW_SIZE = 8 * 1024;
+
+    private final byte[] head = new byte[HEAD_SIZE];
+    private final byte[] tail = new byte[TAIL_SIZE];
+    private byte[] window;
+    private long windowStart = -1;
+    private boolean windowChecked;
+    private long size;
+
+    /**
+     * Observes a content with the probe.
+     *
+     * <p>
+     * The probe reads from read-only views of each buffer, so the read
+     * position of the buffers is left untouched.
+     * </p>
+     *
+     * @param content the content to observe
+     *
+     * @return the same content
+     *
+     * @since 1.0
+     */
+    public Flux<DataBuffer> observe(Flux<DataBuffer> content) {
+        return content.doOnNext(dataBfr -> {
+            try (var iterator = dataBfr.readableByteBuffers()) {
+                iterator.forEachRemaining(this::update);
+            }
+        });
+    }
+
+    /**
+     * Updates the probe with the next bytes of the file.
+     *
+     * @param bytes the next bytes, from its position to its limit, the
+     *              position is left untouched
+     *
+     * @since 1.0
+     */
+    void update(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        int base = bytes.position();
+
+        copy(bytes, base, length, head, 0);
+
+        if (!windowChecked && size + length >= 10) {
+            windowChecked = true;
+            long audioStart = Id3Tags.v2End(head, (int) Math.min(size + length, HEAD_SIZE));
+            if (audioStart + WINDOW_SIZE > HEAD_SIZE) {
+                window = new byte[WINDOW_SIZE];
+                windowStart = audioStart;
+            }
+        }
+
+        if (window != null)
+            copy(bytes, base, length, window, windowStart);
+
+        // The tail is a ring buffer of the last bytes
+        int kept = Math.min(length, TAIL_SIZE);
+        int ring = (int) ((size + length - kept) % TAIL_SIZE);
+        int first = Math.min(kept, TAIL_SIZE - ring);
+        bytes.get(base + length - kept, tail, ring, first);
+        bytes.get(base + length - kept + first, tail, 0, kept - first);
+
+        size += length;
+    }
+
+    /**
+     * Reads the duration and tags of the observed file.
+     *
+     * <p>
+     * The format is detected from the leading bytes, after any ID3v2 tag, so
+     * a wrong declared content type is not trusted. The tags are read from
+     * ID3v1, then ID3v2, then the tags of the format itself.
+     * </p>
+     *
+     * @return the information of the file, or empty if the format is not
+     *         recognized
+     *
+     * @since 1.0
+     */
+    public Optional<AudioInfo> result() {
+        CapturedBytes bytes = captured();
+        Map<String, String> tags = new HashMap<>();
+
+        int v1Length = Id3Tags.v1Length(Id3Tags.readV1(bytes, tags));
+        long audioStart = Id3Tags.readV2(bytes, tags);
+
+        ByteBuffer start = bytes.from(audioStart);
+        if (start == null || start.limit() < 4)
+            return Optional.empty();
+
+        Duration duration;
+        String magic = ascii(start, 0, 4);
+        if (magic.equals("fLaC"))
+            duration = FlacParser.parse(bytes, audioStart, tags);
+        else if (magic.equals("OggS"))
+            duration = OggParser.parse(bytes, audioStart, tags);
+        else if (magic.equals("RIFF") && ascii(start, 8, 4).equals("WAVE"))
+            duration = WavParser.parse(bytes, tags);
+        else if (AdtsParser.isFrame(start, 0))
+            duration = AdtsParser.parse(bytes, audioStart, v1Length);
+        else
+            duration = Mp3Parser.parse(bytes, audioStart, v1Length);
+
+        if (duration == null && tags.isEmpty())
+            return Optional.empty();
+
+        return Optional.of(new AudioInfo(duration, tags));
+    }
+
+    /**
+     * Copies the bytes overlapping a captured region.
+     *
+     * @param bytes       the next bytes of the file
+     * @param base        the index of the next bytes in the buffer
+     * @param length      the number of next bytes
+     * @param region      the captured region
+     * @param regionStart the offset of the region in the file
+     *
+     * @since 1.0
+     */
+    private void copy(ByteBuffer bytes, int base, int length, byte[] region, long regionStart) {
+        long from = Math.max(size, regionStart);
+        long to = Math.min(size + length, regionStart + region.length);
+
+        if (from < to)
+            bytes.get(base + (int) (from - size), region, (int) (from - regionStart), (int) (to - from));
+    }
+
+    /**
+     * Gets the captured regions of the observed file.
+     *
+     * @return the captured bytes, with the tail in file order
+     *
+     * @since 1.0
+     */
+    private CapturedBytes captured() {
+        int tailLength = (int) Math.min(size, TAIL_SIZE);
+        int ring = (int) ((size - tailLength) % TAIL_SIZE);
+        int first = Math.min(tailLength, TAIL_SIZE - ring);
+
+        byte[] orderedTail = new byte[tailLength];
+        System.arraycopy(tail, ring, orderedTail, 0, first);
+        System.arraycopy(tail, 0, orderedTail, first, tailLength - first);
+
+        byte[] capturedWindow = window == null ? null
+                : Arrays.copyOf(window, (int) Math.max(0, Math.min(size - windowStart, WINDOW_SIZE)));
+
+        return new CapturedBytes(Arrays.copyOf(head, (int) Math.min(size, HEAD_SIZE)), capturedWindow, windowStart,
+                orderedTail, size);
+    }
+}
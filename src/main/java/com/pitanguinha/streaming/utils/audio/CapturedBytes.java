@@ -0,0 +1,119 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The regions of an audio file captured while it was streamed.
+ *
+ * <p>
+ * Only the leading bytes, the trailing bytes and an optional window at a
+ * known offset are kept, the rest of the file is only counted.<br>
+ * The parsers read the regions through absolute offsets in the file, a
+ * region is null when the offset was not captured.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class CapturedBytes {
+    private final byte[] head;
+    private final byte[] window;
+    private final long windowStart;
+    private final byte[] tail;
+    private final long size;
+
+    CapturedBytes(byte[] head, byte[] window, long windowStart, byte[] tail, long size) {
+        this.head = head;
+        this.window = window;
+        this.windowStart = windowStart;
+        this.tail = tail;
+        this.size = size;
+    }
+
+    /**
+     * Gets the size of the whole file.
+     *
+     * @return the size in bytes
+     *
+     * @since 1.0
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Gets the captured bytes from an offset of the file.
+     *
+     * @param offset the offset in the file
+     *
+     * @return a big endian buffer from the offset to the end of its captured
+     *         region, or null if the offset was not captured
+     *
+     * @since 1.0
+     */
+    ByteBuffer from(long offset) {
+        if (offset < 0 || offset >= size)
+            return null;
+
+        if (offset < head.length)
+            return region(head, (int) offset);
+
+        if (window != null && offset >= windowStart && offset < windowStart + window.length)
+            return region(window, (int) (offset - windowStart));
+
+        long tailStart = size - tail.length;
+        if (offset >= tailStart)
+            return region(tail, (int) (offset - tailStart));
+
+        return null;
+    }
+
+    /**
+     * Gets the trailing bytes of the file.
+     *
+     * @return a big endian buffer with the trailing bytes
+     *
+     * @since 1.0
+     */
+    ByteBuffer tail() {
+        return ByteBuffer.wrap(tail);
+    }
+
+    /**
+     * Reads an ASCII string from a buffer, e.g. a chunk or frame ID.
+     *
+     * @param buffer the buffer to read
+     * @param index  the absolute index in the buffer
+     * @param length the length of the string
+     *
+     * @return the string, or an empty one if the buffer is too short
+     *
+     * @since 1.0
+     */
+    static String ascii(ByteBuffer buffer, int index, int length) {
+        if (index < 0 || index + length > buffer.limit())
+            return "";
+
+        byte[] bytes = new byte[length];
+        buffer.get(index, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reads an unsigned byte from a buffer.
+     *
+     * @param buffer the buffer to read
+     * @param index  the absolute index in the buffer
+     *
+     * @return the unsigned byte
+     *
+     * @since 1.0
+     */
+    static int u8(ByteBuffer buffer, int index) {
+        return buffer.get(index) & 0xFF;
+    }
+
+    private static ByteBuffer region(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, bytes.length - offset).slice();
+    }
+}
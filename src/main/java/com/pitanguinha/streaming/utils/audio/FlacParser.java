@@ -0,0 +1,75 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Parser of the duration and tags of FLAC files.
+ *
+ * <p>
+ * The metadata blocks follow the "fLaC" marker, the STREAMINFO block is
+ * always the first one and has the total number of samples, and the
+ * VORBIS_COMMENT block has the tags.<br>
+ * The blocks are read until the end of the leading bytes, a comment block
+ * after a large picture is not read.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class FlacParser {
+    private static final int STREAMINFO = 0;
+    private static final int VORBIS_COMMENT = 4;
+
+    private FlacParser() {
+    }
+
+    /**
+     * Parses the duration and tags of a FLAC file.
+     *
+     * @param bytes      the captured bytes of the file
+     * @param audioStart the offset of the "fLaC" marker
+     * @param tags       the tags to put the comments into
+     *
+     * @return the duration, or null if there is no STREAMINFO block
+     *
+     * @since 1.0
+     */
+    static Duration parse(CapturedBytes bytes, long audioStart, Map<String, String> tags) {
+        ByteBuffer buffer = bytes.from(audioStart);
+        if (buffer == null || !ascii(buffer, 0, 4).equals("fLaC"))
+            return null;
+
+        Duration duration = null;
+        int position = 4;
+
+        while (position + 4 <= buffer.limit()) {
+            int header = u8(buffer, position);
+            int length = (u8(buffer, position + 1) << 16) | (u8(buffer, position + 2) << 8)
+                    | u8(buffer, position + 3);
+            position += 4;
+
+            if (position + length > buffer.limit())
+                break;
+
+            if ((header & 0x7F) == STREAMINFO && length >= 18) {
+                int sampleRate = (u8(buffer, position + 10) << 12) | (u8(buffer, position + 11) << 4)
+                        | (u8(buffer, position + 12) >> 4);
+                long samples = ((long) (u8(buffer, position + 13) & 0x0F) << 32)
+                        | (buffer.getInt(position + 14) & 0xFFFFFFFFL);
+                duration = AudioInfo.ofSamples(samples, sampleRate);
+            } else if ((header & 0x7F) == VORBIS_COMMENT) {
+                VorbisComments.read(buffer.slice(position, length), tags);
+            }
+
+            if ((header & 0x80) != 0)
+                break;
+
+            position += length;
+        }
+
+        return duration;
+    }
+}
@@ -0,0 +1,194 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.AudioInfo.*;
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.*;
+import java.util.Map;
+
+/**
+ * Reader of the ID3 tags prepended or appended to MP3 and AAC files.
+ *
+ * <p>
+ * An ID3v2 tag is read from the leading bytes and an ID3v1 tag from the last
+ * 128 bytes, only the text frames with a normalized key are kept.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class Id3Tags {
+    private static final int HEADER_LENGTH = 10;
+    private static final int V1_LENGTH = 128;
+
+    private static final Map<String, String> FRAMES = Map.of(
+            "TIT2", TITLE, "TT2", TITLE,
+            "TPE1", ARTIST, "TP1", ARTIST,
+            "TALB", ALBUM, "TAL", ALBUM,
+            "TYER", YEAR, "TYE", YEAR,
+            "TDRC", YEAR);
+
+    private Id3Tags() {
+    }
+
+    /**
+     * Gets the end of the ID3v2 tag at the start of a file.
+     *
+     * @param head   the leading bytes of the file
+     * @param length the number of leading bytes available
+     *
+     * @return the offset right after the tag, or 0 if there is no tag
+     *
+     * @since 1.0
+     */
+    static long v2End(byte[] head, int length) {
+        if (length < HEADER_LENGTH)
+            return 0;
+
+        return v2End(ByteBuffer.wrap(head, 0, length));
+    }
+
+    /**
+     * Reads the ID3v2 tag at the start of a file.
+     *
+     * <p>
+     * The frames are read until the end of the tag or of the captured bytes,
+     * an unsynchronized tag is skipped without reading its frames.
+     * </p>
+     *
+     * @param bytes the captured bytes of the file
+     * @param tags  the tags to put the frames into
+     *
+     * @return the offset right after the tag, or 0 if there is no tag
+     *
+     * @since 1.0
+     */
+    static long readV2(CapturedBytes bytes, Map<String, String> tags) {
+        ByteBuffer buffer = bytes.from(0);
+        if (buffer == null || buffer.limit() < HEADER_LENGTH)
+            return 0;
+
+        long end = v2End(buffer);
+        if (end == 0)
+            return 0;
+
+        int major = u8(buffer, 3);
+        int flags = u8(buffer, 5);
+        if ((flags & 0x80) != 0)
+            return end;
+
+        int limit = (int) Math.min(HEADER_LENGTH + syncsafe(buffer, 6), buffer.limit());
+        int position = HEADER_LENGTH;
+
+        if ((flags & 0x40) != 0 && major >= 3)
+            position += major == 4 ? syncsafe(buffer, position) : buffer.getInt(position) + 4;
+
+        int idLength = major == 2 ? 3 : 4;
+        int frameHeaderLength = major == 2 ? 6 : 10;
+
+        while (position > 0 && position + frameHeaderLength <= limit && buffer.get(position) != 0) {
+            String id = ascii(buffer, position, idLength);
+            int frameSize = switch (major) {
+                case 2 -> (u8(buffer, position + 3) << 16) | (u8(buffer, position + 4) << 8) | u8(buffer, position + 5);
+                case 4 -> syncsafe(buffer, position + 4);
+                default -> buffer.getInt(position + 4);
+            };
+
+            if (frameSize <= 0 || position + frameHeaderLength + frameSize > limit)
+                break;
+
+            String key = FRAMES.get(id);
+            if (key != null)
+                putTag(tags, key, text(buffer, position + frameHeaderLength, frameSize));
+
+            position += frameHeaderLength + frameSize;
+        }
+
+        return end;
+    }
+
+    /**
+     * Reads the ID3v1 tag at the end of a file.
+     *
+     * @param bytes the captured bytes of the file
+     * @param tags  the tags to put the fields into
+     *
+     * @return true if the file has an ID3v1 tag
+     *
+     * @since 1.0
+     */
+    static boolean readV1(CapturedBytes bytes, Map<String, String> tags) {
+        ByteBuffer buffer = bytes.from(bytes.size() - V1_LENGTH);
+        if (buffer == null || buffer.limit() < V1_LENGTH || !ascii(buffer, 0, 3).equals("TAG"))
+            return false;
+
+        putTag(tags, TITLE, latin1(buffer, 3, 30));
+        putTag(tags, ARTIST, latin1(buffer, 33, 30));
+        putTag(tags, ALBUM, latin1(buffer, 63, 30));
+        putTag(tags, YEAR, latin1(buffer, 93, 4));
+        return true;
+    }
+
+    /**
+     * Gets the length of the ID3v1 tag at the end of a file.
+     *
+     * @param hasV1 whether the file has an ID3v1 tag
+     *
+     * @return the length of the tag, or 0 if there is no tag
+     *
+     * @since 1.0
+     */
+    static int v1Length(boolean hasV1) {
+        return hasV1 ? V1_LENGTH : 0;
+    }
+
+    private static long v2End(ByteBuffer buffer) {
+        if (!ascii(buffer, 0, 3).equals("ID3") || u8(buffer, 3) == 0xFF)
+            return 0;
+
+        for (int i = 6; i < HEADER_LENGTH; i++)
+            if ((buffer.get(i) & 0x80) != 0)
+                return 0;
+
+        boolean footer = (u8(buffer, 5) & 0x10) != 0;
+        return HEADER_LENGTH + (long) syncsafe(buffer, 6) + (footer ? HEADER_LENGTH : 0);
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int index) {
+        return (u8(buffer, index) << 21) | (u8(buffer, index + 1) << 14) | (u8(buffer, index + 2) << 7)
+                | u8(buffer, index + 3);
+    }
+
+    /**
+     * Decodes a text frame, keeping only its first value.
+     *
+     * @param buffer the buffer of the tag
+     * @param index  the index of the frame content
+     * @param length the length of the frame content
+     *
+     * @return the text of the frame
+     *
+     * @since 1.0
+     */
+    private static String text(ByteBuffer buffer, int index, int length) {
+        Charset charset = switch (buffer.get(index)) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+
+        byte[] bytes = new byte[length - 1];
+        buffer.get(index + 1, bytes);
+
+        String text = new String(bytes, charset);
+        int terminator = text.indexOf('\0');
+        return terminator >= 0 ? text.substring(0, terminator) : text;
+    }
+
+    private static String latin1(ByteBuffer buffer, int index, int length) {
+        String text = ascii(buffer, index, length);
+        int terminator = text.indexOf('\0');
+        return terminator >= 0 ? text.substring(0, terminator) : text;
+    }
+}
@@ -0,0 +1,113 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Parser of the duration of MPEG audio files, such as MP3.
+ *
+ * <p>
+ * The first frame after the ID3v2 tag is located and its Xing/Info or VBRI
+ * header gives the exact number of frames of a VBR file.<br>
+ * Without them the file is taken as CBR and the duration is estimated from
+ * the bitrate of the first frame and the size of the audio data.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class Mp3Parser {
+    private static final int SYNC_SEARCH_LENGTH = 4096;
+
+    private static final int[][] BITRATES = {
+            // MPEG 1 - Layer I, II and III
+            { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+            { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 },
+            // MPEG 2 and 2.5 - Layer I, then II and III
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 } };
+
+    private static final int[][] SAMPLE_RATES = {
+            { 11025, 12000, 8000 }, // MPEG 2.5
+            {},
+            { 22050, 24000, 16000 }, // MPEG 2
+            { 44100, 48000, 32000 } }; // MPEG 1
+
+    private Mp3Parser() {
+    }
+
+    /**
+     * Checks if a frame header starts at an index.
+     *
+     * @param buffer the buffer to check
+     * @param index  the absolute index in the buffer
+     *
+     * @return true if a valid MPEG audio frame header starts at the index
+     *
+     * @since 1.0
+     */
+    static boolean isFrame(ByteBuffer buffer, int index) {
+        if (index < 0 || index + 4 > buffer.limit())
+            return false;
+
+        int header = buffer.getInt(index);
+        int version = (header >> 19) & 3;
+        int layer = (header >> 17) & 3;
+        int bitrateIndex = (header >> 12) & 0xF;
+        int sampleRateIndex = (header >> 10) & 3;
+
+        return (header & 0xFFE00000) == 0xFFE00000 && version != 1 && layer != 0
+                && bitrateIndex != 0 && bitrateIndex != 15 && sampleRateIndex != 3;
+    }
+
+    /**
+     * Parses the duration of an MPEG audio file.
+     *
+     * @param bytes      the captured bytes of the file
+     * @param audioStart the offset where the audio data starts
+     * @param v1Length   the length of the trailing ID3v1 tag, if any
+     *
+     * @return the duration, or null if no frame is found
+     *
+     * @since 1.0
+     */
+    static Duration parse(CapturedBytes bytes, long audioStart, int v1Length) {
+        ByteBuffer buffer = bytes.from(audioStart);
+        if (buffer == null)
+            return null;
+
+        int frame = -1;
+        for (int i = 0; i < Math.min(SYNC_SEARCH_LENGTH, buffer.limit() - 3) && frame < 0; i++)
+            if (isFrame(buffer, i))
+                frame = i;
+
+        if (frame < 0)
+            return null;
+
+        int header = buffer.getInt(frame);
+        int version = (header >> 19) & 3;
+        int layer = (header >> 17) & 3;
+        boolean mpeg1 = version == 3;
+        boolean mono = ((header >> 6) & 3) == 3;
+
+        int sampleRate = SAMPLE_RATES[version][(header >> 10) & 3];
+        int bitrate = BITRATES[mpeg1 ? 3 - layer : layer == 3 ? 3 : 4][(header >> 12) & 0xF];
+        int samplesPerFrame = layer == 3 ? 384 : layer == 1 && !mpeg1 ? 576 : 1152;
+
+        // The Xing/Info header follows the side information, VBRI is at a fixed offset
+        int xing = frame + 4 + (mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17));
+        String xingId = ascii(buffer, xing, 4);
+        if ((xingId.equals("Xing") || xingId.equals("Info")) && xing + 12 <= buffer.limit()
+                && (buffer.getInt(xing + 4) & 1) != 0)
+            return AudioInfo.ofSamples((buffer.getInt(xing + 8) & 0xFFFFFFFFL) * samplesPerFrame, sampleRate);
+
+        int vbri = frame + 36;
+        if (ascii(buffer, vbri, 4).equals("VBRI") && vbri + 18 <= buffer.limit())
+            return AudioInfo.ofSamples((buffer.getInt(vbri + 14) & 0xFFFFFFFFL) * samplesPerFrame, sampleRate);
+
+        long audioBytes = bytes.size() - audioStart - frame - v1Length;
+        return audioBytes > 0 ? Duration.ofMillis(audioBytes * 8 / bitrate) : null;
+    }
+}
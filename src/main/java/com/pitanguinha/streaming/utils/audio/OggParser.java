@@ -0,0 +1,168 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.*;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Parser of the duration and tags of Ogg Opus and Ogg Vorbis files.
+ *
+ * <p>
+ * The first page of the stream has the identification header, with the
+ * sample rate and the Opus pre-skip, and the next pages have the comment
+ * header with the tags.<br>
+ * The granule position of the last page in the trailing bytes is the total
+ * number of samples, so the duration is exact without reading the pages in
+ * between.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class OggParser {
+    private static final int PAGE_HEADER_LENGTH = 27;
+    private static final int OPUS_SAMPLE_RATE = 48000;
+
+    private OggParser() {
+    }
+
+    /**
+     * Parses the duration and tags of an Ogg file.
+     *
+     * @param bytes      the captured bytes of the file
+     * @param audioStart the offset of the first page
+     * @param tags       the tags to put the comments into
+     *
+     * @return the duration, or null if the codec is not Opus or Vorbis
+     *
+     * @since 1.0
+     */
+    static Duration parse(CapturedBytes bytes, long audioStart, Map<String, String> tags) {
+        ByteBuffer buffer = bytes.from(audioStart);
+        if (buffer == null || !isPage(buffer, 0))
+            return null;
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int serial = buffer.getInt(14);
+        int first = dataStart(buffer, 0);
+        if (first < 0)
+            return null;
+
+        boolean opus = ascii(buffer, first, 8).equals("OpusHead");
+        boolean vorbis = ascii(buffer, first, 7).equals("\u0001vorbis");
+        if (!opus && !vorbis)
+            return null;
+
+        if ((opus && first + 12 > buffer.limit()) || (vorbis && first + 16 > buffer.limit()))
+            return null;
+
+        long preSkip = opus ? buffer.getShort(first + 10) & 0xFFFF : 0;
+        long sampleRate = opus ? OPUS_SAMPLE_RATE : buffer.getInt(first + 12) & 0xFFFFFFFFL;
+
+        byte[] comments = commentPacket(buffer, nextPage(buffer, 0));
+        String magic = opus ? "OpusTags" : "\u0003vorbis";
+        if (comments.length > magic.length() && ascii(ByteBuffer.wrap(comments), 0, magic.length()).equals(magic))
+            VorbisComments.read(ByteBuffer.wrap(comments, magic.length(), comments.length - magic.length()), tags);
+
+        long granule = lastGranule(bytes.tail().order(ByteOrder.LITTLE_ENDIAN), serial);
+        return AudioInfo.ofSamples(granule - preSkip, sampleRate);
+    }
+
+    /**
+     * Collects the comment packet, which starts on the second page.
+     *
+     * <p>
+     * The packet may span many pages, it ends on the first segment shorter than
+     * 255 bytes. A packet truncated by the leading bytes is collected up to
+     * there.
+     * </p>
+     *
+     * @param buffer the leading bytes, little endian
+     * @param page   the index of the second page
+     *
+     * @return the bytes of the packet
+     *
+     * @since 1.0
+     */
+    private static byte[] commentPacket(ByteBuffer buffer, int page) {
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+
+        while (page > 0 && isPage(buffer, page)) {
+            int segments = u8(buffer, page + 26);
+            int data = page + PAGE_HEADER_LENGTH + segments;
+
+            for (int i = 0; i < segments; i++) {
+                int length = u8(buffer, page + PAGE_HEADER_LENGTH + i);
+                int available = Math.max(0, Math.min(length, buffer.limit() - data));
+                if (available > 0) {
+                    byte[] segment = new byte[available];
+                    buffer.get(data, segment);
+                    packet.writeBytes(segment);
+                }
+
+                if (length < 255 || available < length)
+                    return packet.toByteArray();
+
+                data += length;
+            }
+
+            page = nextPage(buffer, page);
+        }
+
+        return packet.toByteArray();
+    }
+
+    /**
+     * Finds the granule position of the last page of a stream.
+     *
+     * @param tail   the trailing bytes, little endian
+     * @param serial the serial number of the stream
+     *
+     * @return the granule position, or 0 if no page is found
+     *
+     * @since 1.0
+     */
+    private static long lastGranule(ByteBuffer tail, int serial) {
+        for (int i = tail.limit() - PAGE_HEADER_LENGTH; i >= 0; i--) {
+            if (isPage(tail, i) && tail.getInt(i + 14) == serial && tail.getLong(i + 6) != -1)
+                return tail.getLong(i + 6);
+        }
+
+        return 0;
+    }
+
+    private static boolean isPage(ByteBuffer buffer, int index) {
+        return index + PAGE_HEADER_LENGTH <= buffer.limit() && ascii(buffer, index, 4).equals("OggS")
+                && buffer.get(index + 4) == 0;
+    }
+
+    /**
+     * Gets the index of the data of a page.
+     *
+     * @return the index, or -1 if the segment table was not captured
+     */
+    private static int dataStart(ByteBuffer buffer, int page) {
+        int segments = u8(buffer, page + 26);
+        int data = page + PAGE_HEADER_LENGTH + segments;
+        return data <= buffer.limit() ? data : -1;
+    }
+
+    /**
+     * Gets the index of the page after a page.
+     *
+     * @return the index, or -1 if the segment table was not captured
+     */
+    private static int nextPage(ByteBuffer buffer, int page) {
+        int data = dataStart(buffer, page);
+        if (data < 0)
+            return -1;
+
+        int length = 0;
+        for (int i = page + PAGE_HEADER_LENGTH; i < data; i++)
+            length += u8(buffer, i);
+
+        return data + length;
+    }
+}
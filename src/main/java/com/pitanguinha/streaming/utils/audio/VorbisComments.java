@@ -0,0 +1,69 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.AudioInfo.*;
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reader of the Vorbis comments used as tags by FLAC, Ogg Vorbis and Opus.
+ *
+ * <p>
+ * The comments are "KEY=value" pairs after a vendor string, all of them
+ * prefixed by their little endian length. A truncated block is read up to
+ * its last complete comment.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class VorbisComments {
+    private static final Map<String, String> KEYS = Map.of(
+            "TITLE", TITLE,
+            "ARTIST", ARTIST,
+            "ALBUM", ALBUM,
+            "DATE", YEAR,
+            "YEAR", YEAR);
+
+    private VorbisComments() {
+    }
+
+    /**
+     * Reads a Vorbis comment block.
+     *
+     * @param block the comment block, starting at the vendor length
+     * @param tags  the tags to put the comments into
+     *
+     * @since 1.0
+     */
+    static void read(ByteBuffer block, Map<String, String> tags) {
+        ByteBuffer buffer = block.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 8)
+            return;
+
+        long vendorLength = buffer.getInt() & 0xFFFFFFFFL;
+        if (vendorLength > buffer.remaining() - 4)
+            return;
+
+        buffer.position(buffer.position() + (int) vendorLength);
+        long count = buffer.getInt() & 0xFFFFFFFFL;
+
+        for (long i = 0; i < count && buffer.remaining() >= 4; i++) {
+            long length = buffer.getInt() & 0xFFFFFFFFL;
+            if (length > buffer.remaining())
+                return;
+
+            byte[] comment = new byte[(int) length];
+            buffer.get(comment);
+
+            String text = new String(comment, StandardCharsets.UTF_8);
+            int separator = text.indexOf('=');
+            if (separator <= 0)
+                continue;
+
+            String key = KEYS.get(text.substring(0, separator).toUpperCase(Locale.ROOT));
+            if (key != null && !tags.containsKey(key))
+                putTag(tags, key, text.substring(separator + 1));
+        }
+    }
+}
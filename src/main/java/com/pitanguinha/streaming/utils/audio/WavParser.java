@@ -0,0 +1,113 @@
+package com.pitanguinha.streaming.utils.audio;
+
+import static com.pitanguinha.streaming.utils.audio.AudioInfo.*;
+import static com.pitanguinha.streaming.utils.audio.CapturedBytes.*;
+
+import java.nio.*;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Parser of the duration and tags of WAV files.
+ *
+ * <p>
+ * The RIFF chunks are walked from the leading bytes, the "fmt " chunk has
+ * the byte rate and the "data" chunk has the size of the audio, so the
+ * duration is exact.<br>
+ * The tags are read from a "LIST" INFO chunk, which is usually after the
+ * audio data and then found in the trailing bytes.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class WavParser {
+    private static final int CHUNK_HEADER_LENGTH = 8;
+    private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+    private static final Map<String, String> INFO = Map.of(
+            "INAM", TITLE,
+            "IART", ARTIST,
+            "IPRD", ALBUM,
+            "ICRD", YEAR);
+
+    private WavParser() {
+    }
+
+    /**
+     * Parses the duration and tags of a WAV file.
+     *
+     * @param bytes the captured bytes of the file
+     * @param tags  the tags to put the INFO chunk into
+     *
+     * @return the duration, or null if the format or data chunk is missing
+     *
+     * @since 1.0
+     */
+    static Duration parse(CapturedBytes bytes, Map<String, String> tags) {
+        long byteRate = 0;
+        long dataSize = -1;
+        long offset = 12;
+
+        while (offset + CHUNK_HEADER_LENGTH <= bytes.size()) {
+            ByteBuffer chunk = bytes.from(offset);
+            if (chunk == null || chunk.limit() < CHUNK_HEADER_LENGTH)
+                break;
+
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            String id = ascii(chunk, 0, 4);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            long available = bytes.size() - offset - CHUNK_HEADER_LENGTH;
+
+            switch (id) {
+                case "fmt " -> {
+                    if (chunk.limit() >= CHUNK_HEADER_LENGTH + 12)
+                        byteRate = chunk.getInt(CHUNK_HEADER_LENGTH + 8) & 0xFFFFFFFFL;
+                }
+                case "data" -> {
+                    // A streamed WAV may not know its data size
+                    if (size == 0 || size == UNKNOWN_SIZE)
+                        size = available;
+                    dataSize = Math.min(size, available);
+                }
+                case "LIST" -> readInfo(chunk, (int) Math.min(size + CHUNK_HEADER_LENGTH, chunk.limit()), tags);
+                default -> {
+                }
+            }
+
+            offset += CHUNK_HEADER_LENGTH + size + (size & 1);
+        }
+
+        return byteRate > 0 && dataSize > 0 ? Duration.ofMillis(dataSize * 1000 / byteRate) : null;
+    }
+
+    /**
+     * Reads the INFO list of a "LIST" chunk.
+     *
+     * @param chunk the chunk, starting at its header
+     * @param limit the end of the chunk in the captured bytes
+     * @param tags  the tags to put the INFO entries into
+     *
+     * @since 1.0
+     */
+    private static void readInfo(ByteBuffer chunk, int limit, Map<String, String> tags) {
+        if (!ascii(chunk, CHUNK_HEADER_LENGTH, 4).equals("INFO"))
+            return;
+
+        int position = CHUNK_HEADER_LENGTH + 4;
+        while (position + CHUNK_HEADER_LENGTH <= limit) {
+            String id = ascii(chunk, position, 4);
+            int size = chunk.getInt(position + 4);
+            if (size < 0 || position + CHUNK_HEADER_LENGTH + size > limit)
+                return;
+
+            String key = INFO.get(id);
+            if (key != null) {
+                String text = ascii(chunk, position + CHUNK_HEADER_LENGTH, size);
+                int terminator = text.indexOf('\0');
+                putTag(tags, key, terminator >= 0 ? text.substring(0, terminator) : text);
+            }
+
+            position += CHUNK_HEADER_LENGTH + size + (size & 1);
+        }
+    }
+}
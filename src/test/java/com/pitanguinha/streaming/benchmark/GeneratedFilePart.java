@@ -0,0 +1,131 @@
+package com.pitanguinha.streaming.benchmark;
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.*;
+import org.springframework.http.codec.multipart.FilePart;
+
+import reactor.core.publisher.*;
+
+/**
+ * File part streaming generated bytes, so the benchmark can upload files of
+ * any size without keeping them in memory or on disk.
+ *
+ * <p>
+ * The payload is a shared random chunk repeated up to the size, behind a
+ * header that passes the content checks of the upload path. Each file starts
+ * its payload with a unique seed, so its digest is unique and the blob store
+ * never deduplicates it.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class GeneratedFilePart implements FilePart {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final ByteBuffer PAYLOAD = randomChunk();
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int WAV_HEADER_LENGTH = 44;
+    private static final int WAV_BYTE_RATE = 44_100 * 2 * 2;
+
+    private final String name;
+    private final MediaType contentType;
+    private final long size;
+    private final byte[] header;
+
+    private GeneratedFilePart(String name, MediaType contentType, long size, byte[] header) {
+        this.name = name;
+        this.contentType = contentType;
+        this.size = Math.max(size, header.length + Long.BYTES);
+        this.header = header;
+    }
+
+    /**
+     * Creates a PCM WAV content file of a size, 16 bit stereo at 44.1 kHz.
+     */
+    static GeneratedFilePart wav(long size) {
+        long dataSize = Math.max(size, WAV_HEADER_LENGTH + Long.BYTES) - WAV_HEADER_LENGTH;
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN)
+                .put("RIFF".getBytes(StandardCharsets.US_ASCII))
+                .putInt((int) Math.min(dataSize + 36, 0xFFFFFFFFL))
+                .put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII))
+                .putInt(16)
+                .putShort((short) 1)
+                .putShort((short) 2)
+                .putInt(44_100)
+                .putInt(WAV_BYTE_RATE)
+                .putShort((short) 4)
+                .putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII))
+                .putInt((int) Math.min(dataSize, 0xFFFFFFFFL));
+
+        return new GeneratedFilePart("contentFile", MediaType.parseMediaType("audio/wav"), size, header.array());
+    }
+
+    /**
+     * Creates a PNG thumbnail file of a size.
+     */
+    static GeneratedFilePart png(long size) {
+        return new GeneratedFilePart("thumbnailFile", MediaType.IMAGE_PNG, size, PNG_SIGNATURE);
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String filename() {
+        return name + (MediaType.IMAGE_PNG.equals(contentType) ? ".png" : ".wav");
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        var headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentLength(size);
+        return headers;
+    }
+
+    @Override
+    public Flux<DataBuffer> content() {
+        return Flux.defer(() -> {
+            byte[] head = ByteBuffer.allocate(header.length + Long.BYTES)
+                    .put(header)
+                    .putLong(ThreadLocalRandom.current().nextLong())
+                    .array();
+            long payloadSize = size - head.length;
+
+            Flux<DataBuffer> payload = Flux.generate(() -> 0L, (written, sink) -> {
+                int length = (int) Math.min(CHUNK_SIZE, payloadSize - written);
+                if (length <= 0) {
+                    sink.complete();
+                    return written;
+                }
+
+                sink.next(DefaultDataBufferFactory.sharedInstance.wrap(PAYLOAD.slice(0, length)));
+                return written + length;
+            });
+
+            return Flux.concat(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(head)), payload);
+        });
+    }
+
+    @Override
+    public Mono<Void> transferTo(Path dest) {
+        return DataBufferUtils.write(content(), dest);
+    }
+
+    private static ByteBuffer randomChunk() {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        ThreadLocalRandom.current().nextBytes(chunk);
+        return ByteBuffer.wrap(chunk).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,116 @@
+package com.pitanguinha.streaming.benchmark;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sampler of the peaks of the heap, the direct memory and the scratch disk
+ * while a cell of the benchmark runs.
+ *
+ * <p>
+ * The heap peak is read from the peak usage of the heap pools, reset when the
+ * sampler starts, so a short spike between samples is not missed. The direct
+ * memory and the scratch disk have no peak of their own, so they are sampled
+ * on an interval.
+ * </p>
+ *
+ * @since 1.0
+ */
+final class ResourceSampler implements AutoCloseable {
+    private static final long INTERVAL_MILLIS = 50;
+
+    private final Path scratchDir;
+    private final LongSupplier reservedScratch;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong directPeak = new AtomicLong();
+    private final AtomicLong scratchPeak = new AtomicLong();
+    private final AtomicLong reservedPeak = new AtomicLong();
+
+    private ResourceSampler(Path scratchDir, LongSupplier reservedScratch) {
+        this.scratchDir = scratchDir;
+        this.reservedScratch = reservedScratch;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "benchmark-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts sampling, after a GC so the heap peak starts from the live set.
+     *
+     * @param scratchDir      the directory of the scratch files.
+     * @param reservedScratch the bytes reserved on the scratch disk.
+     *
+     * @return The started sampler, which must be closed to read its peaks.
+     */
+    static ResourceSampler start(Path scratchDir, LongSupplier reservedScratch) {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        var sampler = new ResourceSampler(scratchDir, reservedScratch);
+        sampler.executor.scheduleAtFixedRate(sampler::sample, 0, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    long heapPeak() {
+        // The peaks of the pools don't happen at once, so their sum is an upper bound
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    long directPeak() {
+        return directPeak.get();
+    }
+
+    long scratchPeak() {
+        return scratchPeak.get();
+    }
+
+    long reservedScratchPeak() {
+        return reservedPeak.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        sample();
+    }
+
+    private void sample() {
+        long direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+
+        directPeak.accumulateAndGet(direct, Math::max);
+        scratchPeak.accumulateAndGet(diskUsage(scratchDir), Math::max);
+        reservedPeak.accumulateAndGet(reservedScratch.getAsLong(), Math::max);
+    }
+
+    private static long diskUsage(Path dir) {
+        if (!Files.isDirectory(dir))
+            return 0;
+
+        try (var paths = Files.walk(dir)) {
+            return paths.mapToLong(path -> {
+                try {
+                    return Files.isRegularFile(path) ? Files.size(path) : 0;
+                } catch (IOException e) {
+                    // Removed while walking
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.pitanguinha.streaming.benchmark;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+import org.slf4j.*;
+
+import org.springframework.test.context.*;
+import org.springframework.util.unit.DataSize;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.pitanguinha.streaming.*;
+import com.pitanguinha.streaming.dto.music.*;
+import com.pitanguinha.streaming.enums.media.ConversionStatus;
+import com.pitanguinha.streaming.repository.media.MusicRepository;
+import com.pitanguinha.streaming.service.TempDirService;
+import com.pitanguinha.streaming.service.aws.AwsCloudFrontService;
+import com.pitanguinha.streaming.service.media.MusicService;
+import com.pitanguinha.streaming.util.test.SignedUrlMock;
+
+import reactor.core.publisher.*;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+/**
+ * Throughput benchmark of the upload path against MinIO and Mongo containers.
+ *
+ * <p>
+ * Drives saves, then updates of the saved musics, through the music service
+ * for each file size and concurrency of the matrix, and reports the MB/s, the
+ * p50 and p99 latency, the heap and direct memory peaks and the scratch disk
+ * peak of each cell.<br>
+ * Tagged "benchmark", so it's left out of the test task and run by the
+ * benchmark task, which passes the matrix as system properties:
+ * </p>
+ *
+ * <pre>
+ * ./gradlew benchmark -Pbenchmark.sizes=64KB,1MB,32MB,256MB,1GB -Pbenchmark.concurrency=1,4,16
+ * </pre>
+ *
+ * <p>
+ * The upload limits are raised to fit the matrix, so the numbers are of the
+ * upload path and not of the admission gate. The report is printed and
+ * written as CSV to the path of "benchmark.report".
+ * </p>
+ *
+ * @since 1.0
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({ TestcontainersConfiguration.class, GlobalMockConfiguration.class, MinioContainer.class })
+public class UploadThroughputBenchmark {
+    private final static Logger LOG = LoggerFactory.getLogger(UploadThroughputBenchmark.class);
+
+    private static final String BUCKET_NAME = "benchmark-bucket";
+    private static final long THUMBNAIL_SIZE = DataSize.ofKilobytes(64).toBytes();
+    private static final Duration CELL_TIMEOUT = Duration.ofHours(1);
+
+    private static final List<DataSize> SIZES = parseList("benchmark.sizes", "64KB,1MB,32MB,256MB",
+            DataSize::parse);
+    private static final List<Integer> CONCURRENCY = parseList("benchmark.concurrency", "1,4,16",
+            Integer::valueOf);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 16);
+
+    @Autowired
+    MusicService musicService;
+    @Autowired
+    MusicRepository musicRepository;
+    @Autowired
+    TempDirService tempDirService;
+    @MockitoBean
+    AwsCloudFrontService cloudFrontService;
+
+    @Value("${spring.application.temp-dir}")
+    Path tempDir;
+
+    @DynamicPropertySource
+    static void dynamicProperties(DynamicPropertyRegistry registry) {
+        GlobalMockConfiguration.dynamicProperties(registry);
+
+        // MinIO in place of S3
+        registry.add("aws.s3.endpoint", () -> MinioContainer.endpoint);
+        registry.add("aws.s3.bucket-name", () -> BUCKET_NAME);
+        registry.add("aws.local.credentials.access-key", () -> MinioContainer.ACCESS_KEY);
+        registry.add("aws.local.credentials.secret-key", () -> MinioContainer.SECRET_KEY);
+
+        // Limits fitting the largest cell
+        long maxSize = SIZES.stream().mapToLong(DataSize::toBytes).max().orElseThrow();
+        int maxConcurrency = CONCURRENCY.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        long inFlight = maxSize * maxConcurrency;
+
+        registry.add("spring.application.upload.max-content-size", () -> maxSize + "B");
+        registry.add("spring.application.upload.admission.content.max-bytes", () -> inFlight + "B");
+        registry.add("spring.application.upload.admission.content.max-requests", () -> maxConcurrency);
+        registry.add("spring.application.upload.admission.thumbnail.max-requests", () -> maxConcurrency);
+        registry.add("spring.application.scratch.quota", () -> 2 * inFlight + "B");
+    }
+
+    @BeforeAll
+    static void setUp(@Autowired S3AsyncClient asyncClient) {
+        asyncClient.createBucket(b -> b.bucket(BUCKET_NAME)).join();
+    }
+
+    @BeforeEach
+    void setMocks() {
+        when(cloudFrontService.getSignedUrl(anyString())).thenReturn(new SignedUrlMock());
+    }
+
+    @Test
+    @DisplayName("Reports the throughput of saves and updates across the file sizes and concurrency levels")
+    void uploadThroughput() throws IOException {
+        List<Result> results = new ArrayList<>();
+
+        // Warms up the JIT and the connection pool on the smallest cell
+        save(SIZES.get(0).toBytes(), CONCURRENCY.get(0), CONCURRENCY.get(0));
+
+        for (DataSize size : SIZES) {
+            for (int concurrency : CONCURRENCY) {
+                int operations = Math.max(ITERATIONS, concurrency);
+
+                Run saves = save(size.toBytes(), concurrency, operations);
+                results.add(Result.of("save", size, concurrency, saves));
+
+                Run updates = update(saves.ids(), size.toBytes(), concurrency);
+                results.add(Result.of("update", size, concurrency, updates));
+
+                musicRepository.deleteAllById(saves.ids()).block();
+            }
+        }
+
+        report(results);
+        assertTrue(results.stream().allMatch(result -> result.failures() == 0), "All uploads should succeed");
+    }
+
+    private Run save(long size, int concurrency, int operations) {
+        return run(Flux.range(0, operations), concurrency, i -> musicService.save(MusicPostDto.builder()
+                .title("Benchmark " + i)
+                .artist("Benchmark")
+                .genre("Rock")
+                .moods(List.of("Happy"))
+                .year(2025)
+                .thumbnailFile(GeneratedFilePart.png(THUMBNAIL_SIZE))
+                .contentFile(GeneratedFilePart.wav(size))
+                .build())
+                .map(MusicSuccessDto::getId),
+                size + THUMBNAIL_SIZE);
+    }
+
+    private Run update(List<String> ids, long size, int concurrency) {
+        // An update needs a converted media, the conversion is not part of the benchmark
+        musicRepository.findAllById(ids)
+                .map(music -> {
+                    music.setConversionStatus(ConversionStatus.SUCCESS);
+                    return music;
+                })
+                .as(musicRepository::saveAll)
+                .blockLast();
+
+        return run(Flux.fromIterable(ids), concurrency, id -> musicService.update(MusicPutDto.builder()
+                .id(id)
+                .title("Benchmark updated")
+                .thumbnailFile(GeneratedFilePart.png(THUMBNAIL_SIZE))
+                .contentFile(GeneratedFilePart.wav(size))
+                .build())
+                .map(MusicSuccessDto::getId),
+                size + THUMBNAIL_SIZE);
+    }
+
+    /**
+     * Runs the operations of a cell with a concurrency, timing each of them.
+     */
+    private <T> Run run(Flux<T> inputs, int concurrency, Function<T, Mono<String>> operation, long bytesPerOp) {
+        List<String> ids = Collections.synchronizedList(new ArrayList<>());
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        try (var sampler = ResourceSampler.start(tempDir, tempDirService::reservedBytes)) {
+            long start = System.nanoTime();
+
+            inputs.flatMap(input -> {
+                long opStart = System.nanoTime();
+                return operation.apply(input)
+                        .doOnNext(ids::add)
+                        .doOnSuccess($ -> latencies.add(System.nanoTime() - opStart))
+                        .onErrorResume(e -> {
+                            failures.add(e);
+                            return Mono.empty();
+                        });
+            }, concurrency)
+                    .then()
+                    .block(CELL_TIMEOUT);
+
+            long elapsed = System.nanoTime() - start;
+            sampler.close();
+
+            failures.stream().limit(3).forEach(e -> LOG.warn("Benchmark upload failed", e));
+            return new Run(List.copyOf(ids), latencies.stream().sorted().toList(), failures.size(),
+                    bytesPerOp * latencies.size(), elapsed, sampler.heapPeak(), sampler.directPeak(),
+                    sampler.scratchPeak(), sampler.reservedScratchPeak());
+        }
+    }
+
+    private void report(List<Result> results) throws IOException {
+        var table = new StringBuilder(String.format("%n%-7s %10s %5s %5s %10s %10s %10s %10s %10s %10s%n",
+                "op", "size", "conc", "fail", "MB/s", "p50 ms", "p99 ms", "heap MB", "direct MB", "scratch MB"));
+        results.forEach(result -> table.append(String.format("%-7s %10s %5d %5d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                result.operation(), result.size(), result.concurrency(), result.failures(), result.mbPerSecond(),
+                result.p50Millis(), result.p99Millis(), mb(result.heapPeak()), mb(result.directPeak()),
+                mb(result.scratchPeak()))));
+        LOG.info(table.toString());
+
+        Path report = Path.of(System.getProperty("benchmark.report", "build/reports/benchmark/upload-throughput.csv"));
+        Files.createDirectories(report.toAbsolutePath().getParent());
+
+        List<String> lines = new ArrayList<>();
+        lines.add("operation,size_bytes,concurrency,operations,failures,mb_per_second,p50_ms,p99_ms,"
+                + "heap_peak_bytes,direct_peak_bytes,scratch_peak_bytes,scratch_reserved_peak_bytes");
+        results.forEach(result -> lines.add(String.join(",", result.operation(),
+                String.valueOf(result.size().toBytes()), String.valueOf(result.concurrency()),
+                String.valueOf(result.operations()), String.valueOf(result.failures()),
+                String.format(Locale.ROOT, "%.2f", result.mbPerSecond()),
+                String.format(Locale.ROOT, "%.2f", result.p50Millis()),
+                String.format(Locale.ROOT, "%.2f", result.p99Millis()),
+                String.valueOf(result.heapPeak()), String.valueOf(result.directPeak()),
+                String.valueOf(result.scratchPeak()), String.valueOf(result.reservedScratchPeak()))));
+        Files.write(report, lines);
+
+        LOG.info("Benchmark report written to {}", report.toAbsolutePath());
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static <T> List<T> parseList(String property, String defaultValue, Function<String, T> parser) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(parser)
+                .toList();
+    }
+
+    /**
+     * The measures of the operations of a cell.
+     */
+    private record Run(List<String> ids, List<Long> latencies, int failures, long bytes, long elapsedNanos,
+            long heapPeak, long directPeak, long scratchPeak, long reservedScratchPeak) {
+    }
+
+    /**
+     * A row of the report.
+     */
+    private record Result(String operation, DataSize size, int concurrency, int operations, int failures,
+            double mbPerSecond, double p50Millis, double p99Millis, long heapPeak, long directPeak,
+            long scratchPeak, long reservedScratchPeak) {
+        static Result of(String operation, DataSize size, int concurrency, Run run) {
+            double seconds = run.elapsedNanos() / 1e9;
+
+            return new Result(operation, size, concurrency, run.latencies().size() + run.failures(), run.failures(),
+                    run.bytes() / (1024.0 * 1024.0) / seconds, percentile(run.latencies(), 0.50),
+                    percentile(run.latencies(), 0.99), run.heapPeak(), run.directPeak(), run.scratchPeak(),
+                    run.reservedScratchPeak());
+        }
+
+        /**
+         * The nearest rank percentile of the sorted latencies, in milliseconds.
+         */
+        private static double percentile(List<Long> sorted, double percentile) {
+            if (sorted.isEmpty())
+                return Double.NaN;
+
+            int rank = (int) Math.ceil(percentile * sorted.size());
+            return sorted.get(Math.max(rank - 1, 0)) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.pitanguinha.streaming.config.aws.s3;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+public class S3PoolMetricPublisherTest {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    S3PoolMetricPublisher publisher = new S3PoolMetricPublisher("async", registry);
+
+    @Test
+    @DisplayName("When a request reports the pool state in an attempt, the gauges should have the state")
+    void publish_NestedHttpMetrics_UpdatesGauges() {
+        var apiCall = MetricCollector.create("ApiCall");
+        var httpClient = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.MAX_CONCURRENCY, 8);
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, 6);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 2);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 3);
+        httpClient.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, Duration.ofMillis(20));
+
+        publisher.publish(apiCall.collect());
+
+        assertEquals(8, gauge("s3.http.pool.max"));
+        assertEquals(6, gauge("s3.http.pool.leased"));
+        assertEquals(3, gauge("s3.http.pool.pending"));
+        assertEquals(0.75, gauge("s3.http.pool.utilization"));
+        assertEquals(1, registry.get("s3.http.pool.acquire").tag("client", "async").timer().count());
+    }
+
+    @Test
+    @DisplayName("When a request reports no pool state, the gauges should keep the last state")
+    void publish_NoHttpMetrics_KeepsGauges() {
+        var first = MetricCollector.create("ApiCall");
+        first.reportMetric(HttpMetric.LEASED_CONCURRENCY, 4);
+        publisher.publish(first.collect());
+
+        publisher.publish(MetricCollector.create("ApiCall").collect());
+
+        assertEquals(4, gauge("s3.http.pool.leased"));
+        assertEquals(0, gauge("s3.http.pool.utilization"));
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).tag("client", "async").gauge().value();
+    }
+}
@@ -11,37 +11,59 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 
 import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
 import org.springframework.http.client.MultipartBodyBuilder;
 
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import com.pitanguinha.streaming.dto.music.*;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
 import com.pitanguinha.streaming.enums.media.SearchType;
 import com.pitanguinha.streaming.enums.media.music.Mood;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
 import com.pitanguinha.streaming.exceptions.domain.NotFoundException;
 import com.pitanguinha.streaming.service.media.MusicService;
+import com.pitanguinha.streaming.service.upload.*;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
 import static com.pitanguinha.streaming.util.test.creator.media.music.MusicDtoCreator.*;
 
+import reactor.core.Disposables;
 import reactor.core.publisher.*;
 
 @ExtendWith(SpringExtension.class)
 @WebFluxTest(MusicController.class)
-@TestPropertySource(properties = "spring.application.services.music.enabled=true")
+@Import(UploadFormReader.class)
+@TestPropertySource(properties = { "spring.application.services.music.enabled=true", "aws.s3.enabled=true" })
 public class MusicControllerTest {
+    static final byte[] THUMBNAIL = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 't', 'h', 'u', 'm', 'b' };
+
     @Autowired
     WebTestClient webTestClient;
 
     @MockitoBean
     MusicService musicService;
 
+    @MockitoBean
+    UploadProperties uploadProperties;
+
+    @MockitoBean
+    UploadAdmissionService uploadAdmissionService;
+
     MusicSuccessDto successDto = createSuccessDto();
 
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(uploadAdmissionService.admit(anyLong())).thenAnswer($ -> Mono.just(Disposables.single()));
+    }
+
     @Test
     @DisplayName("When generating a signed URL for content (valid ID), then it should return mono of Stringo URL")
     void getContentSignedUrl_ReturnsMonoString() {
@@ -96,7 +118,7 @@ public class MusicControllerTest {
         builder.part("explicit", "true");
 
         // Mock files to upload
-        builder.part("thumbnailFile", new ByteArrayResource("fake-image".getBytes()) {
+        builder.part("thumbnailFile", new ByteArrayResource(THUMBNAIL) {
             @Override
             public String getFilename() {
                 return "thumbnail.png";
@@ -119,6 +141,70 @@ public class MusicControllerTest {
                 .expectBody(MusicSuccessDto.class);
     }
 
+    @Test
+    @DisplayName("When posting a new music without its thumbnail, then it should return bad request with the validation errors")
+    void save_MissingThumbnail_ReturnsBadRequest() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("title", "title");
+        builder.part("genre", "jazz");
+        builder.part("moods", "happy");
+        builder.part("contentFile", new ByteArrayResource("fake-content".getBytes()) {
+            @Override
+            public String getFilename() {
+                return "music.mp3";
+            }
+        });
+
+        webTestClient.post()
+                .uri("/music")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.details.validationErrors.thumbnailFile").exists();
+
+        verify(musicService, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("When posting a new music with async, then it should return accepted with the upload job")
+    void saveAsync_ReturnsAcceptedUploadJob() {
+        when(musicService.saveAsync(any(MusicPostDto.class), eq(7)))
+                .thenReturn(Mono.just(UploadJobDto.builder().id("jobId").status(UploadJobStatus.QUEUED).build()));
+
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("title", "title");
+        builder.part("artist", "artist");
+        builder.part("genre", "jazz");
+        builder.part("year", "2003");
+        builder.part("explicit", "true");
+        builder.part("thumbnailFile", new ByteArrayResource(THUMBNAIL) {
+            @Override
+            public String getFilename() {
+                return "thumbnail.png";
+            }
+        });
+        builder.part("contentFile", new ByteArrayResource("fake-content".getBytes()) {
+            @Override
+            public String getFilename() {
+                return "music.mp3";
+            }
+        });
+
+        webTestClient.post()
+                .uri("/music?async=true&priority=7")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().location("/uploads/jobs/jobId")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("QUEUED");
+
+        verify(musicService, never()).save(any());
+    }
+
     @Test
     @DisplayName("When updating a music (valid), then it should return mono of success response")
     void update_ReturnsMonoSuccessResponse() {
@@ -11,7 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
 import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -21,23 +23,41 @@ import com.pitanguinha.streaming.enums.media.SearchType;
 import com.pitanguinha.streaming.enums.media.podcast.Category;
 import com.pitanguinha.streaming.exceptions.domain.NotFoundException;
 import com.pitanguinha.streaming.service.media.PodcastService;
+import com.pitanguinha.streaming.service.upload.*;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
 
+import reactor.core.Disposables;
 import reactor.core.publisher.*;
 
 import static com.pitanguinha.streaming.util.test.creator.media.podcast.PodcastDtoCreator.createSuccessDto;
 
 @ExtendWith(MockitoExtension.class)
 @WebFluxTest(PodcastController.class)
-@TestPropertySource(properties = "spring.application.services.podcast.enabled=true")
+@Import(UploadFormReader.class)
+@TestPropertySource(properties = { "spring.application.services.podcast.enabled=true", "aws.s3.enabled=true" })
 public class PodcastControllerTest {
+    static final byte[] THUMBNAIL = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 't', 'h', 'u', 'm', 'b' };
+
     @Autowired
     WebTestClient webTestClient;
 
     @MockitoBean
     PodcastService podcastService;
 
+    @MockitoBean
+    UploadProperties uploadProperties;
+
+    @MockitoBean
+    UploadAdmissionService uploadAdmissionService;
+
     PodcastSuccessDto successDto = createSuccessDto();
 
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(uploadAdmissionService.admit(anyLong())).thenAnswer($ -> Mono.just(Disposables.single()));
+    }
+
     @Test
     @DisplayName("When generating a signed URL for podcast content, then it should return mono of string URL")
     void getContentSignedUrl_ReturnsMonoStringUrl() {
@@ -91,7 +111,7 @@ public class PodcastControllerTest {
         builder.part("explicit", "true");
 
         // Mock files to upload
-        builder.part("thumbnailFile", new ByteArrayResource("fake-image".getBytes()) {
+        builder.part("thumbnailFile", new ByteArrayResource(THUMBNAIL) {
             @Override
             public String getFilename() {
                 return "thumbnail.png";
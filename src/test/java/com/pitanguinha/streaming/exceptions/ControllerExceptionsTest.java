@@ -1,5 +1,7 @@
 package com.pitanguinha.streaming.exceptions;
 
+import java.time.Duration;
+
 import org.springframework.web.bind.annotation.*;
 
 import com.pitanguinha.streaming.dto.media.MediaPostDto;
@@ -12,7 +14,7 @@ import jakarta.validation.Valid;
 
 import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
 import com.pitanguinha.streaming.exceptions.aws.cloudfront.CloudFrontSigningException;
-import com.pitanguinha.streaming.exceptions.internal.InternalException;
+import com.pitanguinha.streaming.exceptions.internal.*;
 
 @RestController
 @RequestMapping("/test")
@@ -53,6 +55,17 @@ public class ControllerExceptionsTest {
         throw new InternalException("Test internal exception", ControllerExceptionsTest.class, SeverityLevel.CRITICAL);
     }
 
+    @GetMapping("/resourceExhaustedException")
+    public void throwResourceExhaustedException() {
+        throw new ResourceExhaustedException("Test resource exhausted exception", ControllerExceptionsTest.class);
+    }
+
+    @GetMapping("/admissionRejectedException")
+    public void throwAdmissionRejectedException() {
+        throw new AdmissionRejectedException("Test admission rejected exception", ControllerExceptionsTest.class,
+                Duration.ofSeconds(7));
+    }
+
     @PostMapping("/webExchangeBindException")
     public void throwWebExchangeBindException(@Valid @RequestBody MediaPostDto postDto) {
         // This method is intentionally left empty to simulate a binding exception.
@@ -94,6 +94,29 @@ public class GlobalExceptionHandlerTest {
                 .jsonPath("$.details.propagationTime").exists();
     }
 
+    @Test
+    @DisplayName("Test ResourceExhaustedException handling")
+    void testHandleResourceExhaustedException() {
+        webTestClient.get().uri("/test/resourceExhaustedException")
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Service temporarily unavailable")
+                .jsonPath("$.details.severityLevel").exists();
+    }
+
+    @Test
+    @DisplayName("Test AdmissionRejectedException handling")
+    void testHandleAdmissionRejectedException() {
+        webTestClient.get().uri("/test/admissionRejectedException")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "7")
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Too many requests")
+                .jsonPath("$.details.retryAfter").isEqualTo(7);
+    }
+
     @Test
     @DisplayName("Test WebExchangeBindException handling")
     void testHandleWebExchangeBindException() {
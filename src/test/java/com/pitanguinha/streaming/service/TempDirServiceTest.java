@@ -15,9 +15,19 @@ import org.springframework.test.context.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.pitanguinha.streaming.exceptions.internal.ResourceExhaustedException;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
 @SpringBootTest
 @ActiveProfiles("test")
-@TestPropertySource(properties = "spring.application.temp-dir=${java.io.tmpdir}/temp-dir-service-test")
+@TestPropertySource(properties = {
+        "spring.application.temp-dir=${java.io.tmpdir}/temp-dir-service-test",
+        "spring.application.scratch.quota=1KB",
+        "spring.application.scratch.min-free-space=0B",
+        "spring.application.scratch.acquire-timeout=200ms",
+        "spring.application.scratch.orphan-ttl=0s" })
 public class TempDirServiceTest {
     private static final Logger LOGGER = LoggerFactory.getLogger(TempDirServiceTest.class);
 
@@ -111,6 +121,67 @@ public class TempDirServiceTest {
                 "Directory must not exist: " + dirPath);
     }
 
+    @Test
+    @DisplayName("Should lease a scratch directory and release it when the pipeline finishes")
+    void withLease_ReleasesLeaseOnComplete() {
+        service.withLease("test-lease", 512, dir -> {
+            assertTrue(Files.isDirectory(dir), "Leased directory must exist: " + dir);
+            assertEquals(512, service.reservedBytes());
+            return Mono.just(dir);
+        })
+                .as(StepVerifier::create)
+                .assertNext(dir -> assertFalse(Files.exists(dir), "Leased directory must be deleted: " + dir))
+                .verifyComplete();
+
+        assertEquals(0, service.reservedBytes());
+    }
+
+    @Test
+    @DisplayName("When the quota is reserved, a new lease should wait and fail with a ResourceExhaustedException")
+    void lease_QuotaExceeded_ThrowsResourceExhaustedException() {
+        try (var lease = service.lease("test-lease", 1024).block()) {
+            service.lease("test-lease", 1)
+                    .as(StepVerifier::create)
+                    .expectError(ResourceExhaustedException.class)
+                    .verify();
+        }
+
+        assertEquals(0, service.reservedBytes());
+        service.withLease("test-lease", 1024, dir -> Mono.just(true))
+                .as(StepVerifier::create)
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When a lease is released, the waiting lease should be woken up before the timeout")
+    void lease_Released_WakesUpWaitingLease() {
+        var lease = service.lease("test-lease", 1024).block();
+
+        service.lease("test-lease", 1024)
+                .as(StepVerifier::create)
+                .then(lease::close)
+                .assertNext(next -> {
+                    assertEquals(1024, service.reservedBytes());
+                    next.close();
+                })
+                .verifyComplete();
+
+        assertEquals(0, service.reservedBytes());
+    }
+
+    @Test
+    @DisplayName("Should sweep the orphaned scratch directories and keep the leased ones")
+    void sweep_RemovesOrphanedDirectories() throws IOException {
+        Path orphan = Files.createDirectories(tempDir.resolve("scratch").resolve("orphan"));
+
+        try (var lease = service.lease("test-lease", 1).block()) {
+            assertEquals(1, service.sweep());
+            assertFalse(Files.exists(orphan), "Orphaned directory must be deleted: " + orphan);
+            assertTrue(Files.exists(lease.dir()), "Leased directory must be kept: " + lease.dir());
+        }
+    }
+
     // /**
     // * Helper method to create directories
     // *
@@ -3,7 +3,8 @@ package com.pitanguinha.streaming.service.aws;
 import static org.mockito.Mockito.*;
 
 import java.security.PrivateKey;
-import java.util.function.Consumer;
+import java.time.*;
+import java.util.List;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,11 +17,16 @@ import com.pitanguinha.streaming.exceptions.aws.cloudfront.CloudFrontSigningExce
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import software.amazon.awssdk.http.SdkHttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.*;
+import reactor.test.StepVerifier;
+
 import software.amazon.awssdk.services.cloudfront.*;
 import software.amazon.awssdk.services.cloudfront.model.*;
 import software.amazon.awssdk.services.cloudfront.url.SignedUrl;
-import software.amazon.awssdk.services.cloudfront.cookie.CookiesForCannedPolicy;
+import software.amazon.awssdk.services.cloudfront.cookie.*;
 
 @ExtendWith(MockitoExtension.class)
 public class AwsCloudFrontServiceTest {
@@ -28,7 +34,7 @@ public class AwsCloudFrontServiceTest {
     AwsCloudFrontService service;
 
     @Mock
-    CloudFrontClient client;
+    CloudFrontInvalidationQueue invalidationQueue;
 
     @Mock
     CloudFrontProperties properties;
@@ -40,32 +46,21 @@ public class AwsCloudFrontServiceTest {
     @Qualifier("cloudFrontPrivateKey")
     PrivateKey privateKey;
 
-    @SuppressWarnings("unchecked")
-    @Test
-    @DisplayName("When cache invalidation is successful, return true")
-    void invalidateCache_Success() {
-        var mockResponse = mock(CreateInvalidationResponse.class);
-        var sdkHttpResponse = SdkHttpResponse.builder().statusCode(200).build();
+    @Spy
+    TimeBucketedCache<SignedUrl> signedUrlCache = new TimeBucketedCache<>("cloudfront.signed.url.cache",
+            Duration.ofMinutes(15), Duration.ofMinutes(45), 10, new SimpleMeterRegistry());
 
-        when(mockResponse.sdkHttpResponse()).thenReturn(sdkHttpResponse);
-        when(client.createInvalidation(any(Consumer.class)))
-                .thenReturn(mockResponse);
+    @Spy
+    Scheduler signingScheduler = Schedulers.immediate();
 
-        assertTrue(service.invalidateCache("test-object-id"), "Cache invalidation should succeed");
-    }
-
-    @SuppressWarnings("unchecked")
     @Test
-    @DisplayName("When cache invalidation fails, return false")
-    void invalidateCache_Failure() {
-        var mockResponse = mock(CreateInvalidationResponse.class);
-        var sdkHttpResponse = SdkHttpResponse.builder().statusCode(500).build();
+    @DisplayName("When an artifact is invalidated, its wildcard path should be queued")
+    void invalidateArtifact_QueuesWildcardPath() {
+        when(invalidationQueue.invalidate("/test-object-id/*")).thenReturn(Mono.empty());
 
-        when(mockResponse.sdkHttpResponse()).thenReturn(sdkHttpResponse);
-        when(client.createInvalidation(any(Consumer.class)))
-                .thenReturn(mockResponse);
+        service.invalidateArtifact("test-object-id");
 
-        assertFalse(service.invalidateCache("test-object-id"), "Cache invalidation should fail");
+        verify(invalidationQueue).invalidate("/test-object-id/*");
     }
 
     @Test
@@ -108,6 +103,76 @@ public class AwsCloudFrontServiceTest {
         verify(utilities).getSignedUrlWithCannedPolicy(any(CannedSignerRequest.class));
     }
 
+    @Test
+    @DisplayName("When a key is signed again in the same bucket, the cached signed URL should be returned")
+    void getSignedUrl_SameBucket_SignsOnce() {
+        var mockSignedUrl = mock(SignedUrl.class);
+
+        when(utilities.getSignedUrlWithCannedPolicy(any(CannedSignerRequest.class)))
+                .thenReturn(mockSignedUrl);
+
+        assertSame(service.getSignedUrl("test-key"), service.getSignedUrl("test-key"));
+        verify(utilities, times(1)).getSignedUrlWithCannedPolicy(any(CannedSignerRequest.class));
+    }
+
+    @Test
+    @DisplayName("When a batch of keys is signed, the signed URLs should be emitted in the order of the keys")
+    void getSignedUrls_Batch_KeepsOrder() {
+        when(properties.endpoint()).thenReturn("https://cdn.test");
+        when(properties.signing()).thenReturn(new CloudFrontProperties.Signing(
+                Duration.ofMinutes(15), Duration.ofMinutes(45), 10, 2));
+        when(utilities.getSignedUrlWithCannedPolicy(any(CannedSignerRequest.class)))
+                .thenAnswer(invocation -> {
+                    var signedUrl = mock(SignedUrl.class);
+                    when(signedUrl.url()).thenReturn(invocation.<CannedSignerRequest>getArgument(0).resourceUrl());
+                    return signedUrl;
+                });
+
+        StepVerifier.create(service.getSignedUrls(List.of("a", "b", "c")).map(SignedUrl::url))
+                .expectNext("https://cdn.test/a", "https://cdn.test/b", "https://cdn.test/c")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When an empty batch is signed, nothing should be emitted")
+    void getSignedUrls_EmptyBatch_ReturnsEmpty() {
+        StepVerifier.create(service.getSignedUrls(List.of()))
+                .verifyComplete();
+
+        verifyNoInteractions(utilities);
+    }
+
+    @Test
+    @DisplayName("Should generate session cookies with a custom policy covering the prefix")
+    void getSessionCookies_Prefix_CoversPrefix() {
+        var mockCookies = mock(CookiesForCustomPolicy.class);
+        var captor = ArgumentCaptor.forClass(CustomSignerRequest.class);
+
+        when(properties.endpoint()).thenReturn("https://cdn.test");
+        when(properties.keyPairId()).thenReturn("test-key-pair-id");
+        when(utilities.getCookiesForCustomPolicy(captor.capture())).thenReturn(mockCookies);
+
+        var expirationTime = Instant.now().plusSeconds(3600);
+        assertEquals(mockCookies, service.getSessionCookies("test-object-id/", expirationTime));
+        assertEquals("https://cdn.test/test-object-id/*", captor.getValue().resourceUrl());
+        assertEquals(expirationTime, captor.getValue().expirationDate());
+    }
+
+    @Test
+    @DisplayName("When the playback session expires before the min remaining lifetime, the object should not be covered")
+    void isCovered_SessionExpiringSoon_ReturnsFalse() {
+        when(properties.endpoint()).thenReturn("https://cdn.test");
+        when(properties.session()).thenReturn(new CloudFrontProperties.Session(
+                Duration.ofHours(4), Duration.ofMinutes(10), null));
+
+        var session = new PlaybackSession("https://cdn.test/test-object-id/*", Instant.now().plusSeconds(3600));
+        var expiring = new PlaybackSession("https://cdn.test/test-object-id/*", Instant.now().plusSeconds(60));
+
+        assertTrue(service.isCovered(session, "test-object-id/thumbnail.png"));
+        assertFalse(service.isCovered(session, "other-object-id/thumbnail.png"));
+        assertFalse(service.isCovered(expiring, "test-object-id/thumbnail.png"));
+    }
+
     @Test
     @DisplayName("Should throw exception when generating signed URL fails")
     void getSignedUrl_Failure() {
@@ -0,0 +1,162 @@
+package com.pitanguinha.streaming.service.aws;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.pitanguinha.streaming.config.aws.cloudfront.CloudFrontProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import software.amazon.awssdk.services.cloudfront.CloudFrontAsyncClient;
+import software.amazon.awssdk.services.cloudfront.model.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CloudFrontInvalidationQueueTest {
+    @Mock
+    CloudFrontProperties properties;
+    @Mock
+    CloudFrontAsyncClient client;
+    @Mock
+    Clock clock;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    List<List<String>> submitted = new ArrayList<>();
+    Map<String, String> statuses = new HashMap<>();
+    Instant now = Instant.EPOCH;
+    CloudFrontInvalidationQueue queue;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setMocks() {
+        when(properties.distributionId()).thenReturn("distribution");
+        when(properties.invalidation()).thenReturn(new CloudFrontProperties.Invalidation(Duration.ofSeconds(5), 3, 2,
+                4, Duration.ofSeconds(20), Duration.ofMinutes(30)));
+        when(clock.instant()).thenAnswer($ -> now);
+
+        // A stub of the CloudFront API, each invalidation is in progress until completed by the test
+        when(client.createInvalidation(any(Consumer.class))).thenAnswer(invocation -> {
+            var request = CreateInvalidationRequest.builder();
+            invocation.<Consumer<CreateInvalidationRequest.Builder>>getArgument(0).accept(request);
+
+            String id = "I" + (submitted.size() + 1);
+            submitted.add(request.build().invalidationBatch().paths().items());
+            statuses.put(id, "InProgress");
+            return CompletableFuture.completedFuture(CreateInvalidationResponse.builder()
+                    .invalidation(i -> i.id(id).status("InProgress"))
+                    .build());
+        });
+        when(client.getInvalidation(any(Consumer.class))).thenAnswer(invocation -> {
+            var request = GetInvalidationRequest.builder();
+            invocation.<Consumer<GetInvalidationRequest.Builder>>getArgument(0).accept(request);
+
+            String id = request.build().id();
+            return CompletableFuture.completedFuture(GetInvalidationResponse.builder()
+                    .invalidation(i -> i.id(id).status(statuses.get(id)))
+                    .build());
+        });
+
+        queue = new CloudFrontInvalidationQueue(properties, client, registry, clock);
+    }
+
+    @Test
+    @DisplayName("When a path is queued many times within a window, it should be submitted once")
+    void invalidate_SamePath_Coalesced() {
+        Mono<Void> first = queue.invalidate("/id/*");
+        Mono<Void> second = queue.invalidate("/id/*");
+
+        queue.tick().block();
+
+        assertEquals(List.of(List.of("/id/*")), submitted);
+        assertEquals(1, registry.get("cloudfront.invalidation.paths").tag("result", "coalesced").counter().count());
+
+        complete("I1");
+        StepVerifier.create(first.then(second)).verifyComplete();
+        assertEquals(0, queue.running());
+    }
+
+    @Test
+    @DisplayName("When the in-progress limits are reached, the other paths should wait for a completed invalidation")
+    void tick_InProgressLimits_KeepsPathsQueued() {
+        queue.invalidate("/a/*");
+        queue.invalidate("/b/*");
+        queue.invalidate("/c/*");
+        queue.invalidate("/a/content");
+
+        queue.tick().block();
+        queue.tick().block();
+
+        assertEquals(List.of(List.of("/a/*", "/b/*", "/a/content")), submitted);
+        assertEquals(1, queue.queued());
+
+        complete("I1");
+        queue.tick().block();
+
+        assertEquals(List.of("/c/*"), submitted.get(1));
+        assertEquals(0, queue.queued());
+    }
+
+    @Test
+    @DisplayName("When the queued wildcard paths exceed the collapse threshold, they should be merged into /*")
+    void tick_CollapseThreshold_MergesWildcardPaths() {
+        List<Mono<Void>> invalidations = new ArrayList<>();
+        for (String id : List.of("a", "b", "c", "d", "e"))
+            invalidations.add(queue.invalidate("/" + id + "/*"));
+
+        queue.tick().block();
+
+        assertEquals(List.of(List.of("/*")), submitted);
+
+        complete("I1");
+        StepVerifier.create(Mono.when(invalidations)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When a submission fails, its paths should be queued again")
+    @SuppressWarnings("unchecked")
+    void tick_SubmissionFails_RequeuesPaths() {
+        when(client.createInvalidation(any(Consumer.class)))
+                .thenReturn(CompletableFuture.failedFuture(CloudFrontException.builder().message("throttled").build()));
+
+        queue.invalidate("/id/*");
+        queue.tick().block();
+
+        assertEquals(1, queue.queued());
+        assertEquals(0, queue.running());
+        assertEquals(1, registry.get("cloudfront.invalidation.paths").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("When an invalidation runs past the timeout, its paths should fail and its slots be released")
+    void tick_Timeout_FailsPaths() {
+        Mono<Void> invalidation = queue.invalidate("/id/*");
+        queue.tick().block();
+
+        now = now.plus(Duration.ofMinutes(31));
+        queue.tick().block();
+
+        StepVerifier.create(invalidation).verifyError(IllegalStateException.class);
+        assertEquals(0, queue.running());
+    }
+
+    private void complete(String id) {
+        statuses.put(id, "Completed");
+        now = now.plus(Duration.ofSeconds(20));
+        queue.tick().block();
+    }
+}
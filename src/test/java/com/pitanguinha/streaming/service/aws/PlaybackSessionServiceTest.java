@@ -0,0 +1,121 @@
+package com.pitanguinha.streaming.service.aws;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.mockito.quality.Strictness;
+import org.springframework.http.*;
+import org.springframework.util.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pitanguinha.streaming.config.aws.cloudfront.CloudFrontProperties;
+import com.pitanguinha.streaming.enums.media.PlaybackScope;
+
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import software.amazon.awssdk.services.cloudfront.cookie.CookiesForCustomPolicy;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class PlaybackSessionServiceTest {
+    @Mock
+    CloudFrontProperties properties;
+
+    @Mock
+    AwsCloudFrontService cloudFrontService;
+
+    PlaybackSessionService service;
+
+    @BeforeEach
+    void setMocks() {
+        when(properties.endpoint()).thenReturn("https://cdn.test");
+        when(properties.session()).thenReturn(new CloudFrontProperties.Session(
+                Duration.ofHours(4), Duration.ofMinutes(10), ".test"));
+
+        service = new PlaybackSessionService(properties, cloudFrontService, new ObjectMapper(),
+                Schedulers.immediate());
+    }
+
+    @Test
+    @DisplayName("When a session is created for an artifact, its cookies should cover the artifact prefix")
+    void create_Artifact_SetsCookies() {
+        var cookies = mock(CookiesForCustomPolicy.class);
+        when(cookies.resourceUrl()).thenReturn("https://cdn.test/id/*");
+        when(cookies.policyHeaderValue()).thenReturn("CloudFront-Policy=policy");
+        when(cookies.signatureHeaderValue()).thenReturn("CloudFront-Signature=signature");
+        when(cookies.keyPairIdHeaderValue()).thenReturn("CloudFront-Key-Pair-Id=key-pair-id");
+        when(cloudFrontService.getSessionCookies(eq("id/"), any(Instant.class))).thenReturn(cookies);
+
+        StepVerifier.create(service.create("id"))
+                .assertNext(response -> {
+                    List<String> setCookies = response.getHeaders().get(HttpHeaders.SET_COOKIE);
+
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    assertEquals(3, setCookies.size());
+                    assertTrue(setCookies.get(0).startsWith("CloudFront-Policy=policy;"));
+                    assertTrue(setCookies.get(0).contains("Domain=.test"));
+                    assertTrue(setCookies.get(0).contains("HttpOnly"));
+                    assertEquals(PlaybackScope.ARTIFACT, response.getBody().getScope());
+                    assertEquals("https://cdn.test/id/*", response.getBody().getResource());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When a session is created without an artifact, its cookies should cover the whole catalogue")
+    void create_Catalogue_CoversDistribution() {
+        var cookies = mock(CookiesForCustomPolicy.class);
+        when(cookies.policyHeaderValue()).thenReturn("CloudFront-Policy=policy");
+        when(cookies.signatureHeaderValue()).thenReturn("CloudFront-Signature=signature");
+        when(cookies.keyPairIdHeaderValue()).thenReturn("CloudFront-Key-Pair-Id=key-pair-id");
+        when(cloudFrontService.getSessionCookies(eq(""), any(Instant.class))).thenReturn(cookies);
+
+        StepVerifier.create(service.create(null))
+                .assertNext(response -> assertEquals(PlaybackScope.CATALOGUE, response.getBody().getScope()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the request has the session cookies, the session should be read from the policy")
+    void fromCookies_ValidPolicy_ReturnsSession() {
+        var session = service.fromCookies(cookies(policy("https://cdn.test/id/*", 2000000000L)));
+
+        assertEquals(Optional.of(new PlaybackSession("https://cdn.test/id/*", Instant.ofEpochSecond(2000000000L))),
+                session);
+    }
+
+    @Test
+    @DisplayName("When the policy is for another distribution or malformed, no session should be read")
+    void fromCookies_InvalidPolicy_ReturnsEmpty() {
+        assertTrue(service.fromCookies(cookies(policy("https://other.test/id/*", 2000000000L))).isEmpty());
+        assertTrue(service.fromCookies(cookies("not a policy")).isEmpty());
+        assertTrue(service.fromCookies(new LinkedMultiValueMap<>()).isEmpty());
+    }
+
+    private static MultiValueMap<String, HttpCookie> cookies(String policy) {
+        MultiValueMap<String, HttpCookie> cookies = new LinkedMultiValueMap<>();
+        cookies.add("CloudFront-Policy", new HttpCookie("CloudFront-Policy", policy));
+        cookies.add("CloudFront-Signature", new HttpCookie("CloudFront-Signature", "signature"));
+        cookies.add("CloudFront-Key-Pair-Id", new HttpCookie("CloudFront-Key-Pair-Id", "key-pair-id"));
+        return cookies;
+    }
+
+    private static String policy(String resource, long epochTime) {
+        String json = "{\"Statement\":[{\"Resource\":\"" + resource
+                + "\",\"Condition\":{\"DateLessThan\":{\"AWS:EpochTime\":" + epochTime + "}}}]}";
+
+        return Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8))
+                .replace('+', '-')
+                .replace('=', '_')
+                .replace('/', '~');
+    }
+}
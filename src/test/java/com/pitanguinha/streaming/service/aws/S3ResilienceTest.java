@@ -0,0 +1,156 @@
+package com.pitanguinha.streaming.service.aws;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pitanguinha.streaming.config.aws.s3.S3Properties;
+import com.pitanguinha.streaming.service.aws.S3Resilience.State;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.test.StepVerifier;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class S3ResilienceTest {
+    @Mock
+    Clock clock;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    S3Resilience resilience;
+
+    @BeforeEach
+    void setMocks() {
+        when(clock.instant()).thenReturn(Instant.EPOCH);
+
+        resilience = new S3Resilience(new S3Properties.Resilience(
+                new S3Properties.Retry(S3Properties.Retry.Mode.ADAPTIVE, 3),
+                new S3Properties.Hedge(true, 0.95, Duration.ofMillis(50), 16, 4, 0.5),
+                new S3Properties.CircuitBreaker(true, 0.5, 4, 4, Duration.ofSeconds(30), 2)),
+                registry, clock);
+    }
+
+    @Test
+    @DisplayName("When the failure rate reaches the threshold, the circuit should open and fail fast")
+    void call_FailureRateReached_OpensCircuit() {
+        succeed();
+        succeed();
+        failWith(serverError());
+        failWith(serverError());
+
+        assertEquals(State.OPEN, resilience.state());
+        assertEquals(State.OPEN.ordinal(), registry.get("s3.circuit.state").gauge().value());
+
+        AtomicInteger sent = new AtomicInteger();
+        StepVerifier.create(resilience.call(() -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("response");
+        }))
+                .verifyError(SdkClientException.class);
+
+        assertEquals(0, sent.get());
+        assertEquals(1, registry.get("s3.circuit.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("When a client error is returned, it should not count as a failure")
+    void call_ClientError_KeepsCircuitClosed() {
+        for (int i = 0; i < 4; i++)
+            failWith(S3Exception.builder().statusCode(404).message("Not Found").build());
+
+        assertEquals(State.CLOSED, resilience.state());
+    }
+
+    @Test
+    @DisplayName("When the open duration ends and the probes succeed, the circuit should close")
+    void call_HalfOpenProbesSucceed_ClosesCircuit() {
+        for (int i = 0; i < 4; i++)
+            failWith(serverError());
+        assertEquals(State.OPEN, resilience.state());
+
+        when(clock.instant()).thenReturn(Instant.EPOCH.plusSeconds(30));
+        succeed();
+        assertEquals(State.HALF_OPEN, resilience.state());
+        succeed();
+
+        assertEquals(State.CLOSED, resilience.state());
+        assertEquals(1, registry.get("s3.circuit.transitions").tag("state", "closed").counter().count());
+    }
+
+    @Test
+    @DisplayName("When a probe fails, the circuit should open again")
+    void call_HalfOpenProbeFails_OpensCircuit() {
+        for (int i = 0; i < 4; i++)
+            failWith(serverError());
+
+        when(clock.instant()).thenReturn(Instant.EPOCH.plusSeconds(30));
+        failWith(serverError());
+
+        assertEquals(State.OPEN, resilience.state());
+        assertEquals(2, registry.get("s3.circuit.transitions").tag("state", "open").counter().count());
+    }
+
+    @Test
+    @DisplayName("When a read is slower than the percentile, a hedge should be sent and the first response win")
+    void read_SlowRead_HedgesRequest() {
+        for (int i = 0; i < 4; i++)
+            StepVerifier.create(resilience.read(() -> CompletableFuture.completedFuture("fast")))
+                    .expectNext("fast")
+                    .verifyComplete();
+
+        assertEquals(Duration.ofMillis(50), resilience.hedgeDelay());
+
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        StepVerifier.create(resilience.read(() -> sent.getAndIncrement() == 0
+                ? slow
+                : CompletableFuture.completedFuture("hedge")))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertEquals(2, sent.get());
+        assertTrue(slow.isCancelled());
+        assertEquals(1, registry.get("s3.hedge.requests").counter().count());
+    }
+
+    @Test
+    @DisplayName("When there aren't enough reads, no read should be hedged")
+    void read_NotEnoughSamples_DoesNotHedge() {
+        assertNull(resilience.hedgeDelay());
+
+        StepVerifier.create(resilience.read(() -> CompletableFuture.completedFuture("response")))
+                .expectNext("response")
+                .verifyComplete();
+
+        assertEquals(0, registry.get("s3.hedge.requests").counter().count());
+    }
+
+    private void succeed() {
+        StepVerifier.create(resilience.call(() -> CompletableFuture.completedFuture("response")))
+                .expectNext("response")
+                .verifyComplete();
+    }
+
+    private void failWith(Throwable error) {
+        StepVerifier.create(resilience.call(() -> CompletableFuture.failedFuture(error)))
+                .verifyError(error.getClass());
+    }
+
+    private static Throwable serverError() {
+        return S3Exception.builder().statusCode(503).message("Slow Down").build();
+    }
+}
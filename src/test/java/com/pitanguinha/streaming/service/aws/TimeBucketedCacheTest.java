@@ -0,0 +1,98 @@
+package com.pitanguinha.streaming.service.aws;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class TimeBucketedCacheTest {
+    @Mock
+    Clock clock;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    List<Instant> expirations = new ArrayList<>();
+    TimeBucketedCache<Object> cache;
+
+    @BeforeEach
+    void setMocks() {
+        when(clock.millis()).thenReturn(Duration.ofMinutes(5).toMillis());
+
+        cache = new TimeBucketedCache<>("test.cache", Duration.ofMinutes(15), Duration.ofMinutes(45), 2, registry,
+                clock);
+    }
+
+    @Test
+    @DisplayName("When a key is signed again in the same bucket, the cached URL should be returned")
+    void get_SameBucket_ReturnsCachedUrl() {
+        Object first = cache.get("key", sign());
+        when(clock.millis()).thenReturn(Duration.ofMinutes(14).toMillis());
+        Object second = cache.get("key", sign());
+
+        assertSame(first, second);
+        assertEquals(1, count("hit"));
+        assertEquals(1, count("miss"));
+    }
+
+    @Test
+    @DisplayName("The expiration should be aligned to the end of the bucket plus the min remaining lifetime")
+    void get_Miss_AlignsExpiration() {
+        cache.get("key", sign());
+        cache.get("other", sign());
+
+        assertEquals(List.of(Instant.EPOCH.plus(Duration.ofHours(1)), Instant.EPOCH.plus(Duration.ofHours(1))),
+                expirations);
+    }
+
+    @Test
+    @DisplayName("When the bucket ends, the key should be signed again with a later expiration")
+    void get_NextBucket_SignsAgain() {
+        Object first = cache.get("key", sign());
+        when(clock.millis()).thenReturn(Duration.ofMinutes(15).toMillis());
+        Object second = cache.get("key", sign());
+
+        assertNotSame(first, second);
+        assertEquals(Instant.EPOCH.plus(Duration.ofMinutes(75)), expirations.get(1));
+        assertEquals(2, count("miss"));
+    }
+
+    @Test
+    @DisplayName("When the cache is full, the least recently used URL should be evicted")
+    void get_Full_EvictsLeastRecentlyUsed() {
+        cache.get("first", sign());
+        cache.get("second", sign());
+        cache.get("first", sign());
+        cache.get("third", sign());
+
+        cache.get("first", sign());
+        cache.get("second", sign());
+
+        assertEquals(2, cache.size());
+        assertEquals(2, count("hit"));
+        assertEquals(4, count("miss"));
+        assertEquals(2, registry.get("test.cache.evictions").counter().count());
+    }
+
+    private Function<Instant, Object> sign() {
+        return expiration -> {
+            expirations.add(expiration);
+            return new Object();
+        };
+    }
+
+    private double count(String result) {
+        return registry.get("test.cache").tag("result", result).counter().count();
+    }
+}
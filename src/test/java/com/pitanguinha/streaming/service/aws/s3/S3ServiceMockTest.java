@@ -4,11 +4,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.nio.file.*;
+import java.time.Duration;
 
 import java.util.*;
+import java.util.stream.Collectors;
 import java.util.function.Consumer;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,18 +18,25 @@ import org.mockito.*;
 import static org.mockito.Mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.util.unit.DataSize;
+import org.springframework.core.io.buffer.*;
 import org.springframework.test.annotation.DirtiesContext;
 
 import com.pitanguinha.streaming.enums.aws.ContentType;
-import com.pitanguinha.streaming.service.aws.AwsS3Service;
+import com.pitanguinha.streaming.service.aws.*;
+import com.pitanguinha.streaming.service.storage.ObjectCache;
 
 import com.pitanguinha.streaming.config.aws.s3.S3Properties;
+import com.pitanguinha.streaming.config.storage.StorageProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import reactor.test.StepVerifier;
+import reactor.core.publisher.*;
 import software.amazon.awssdk.services.s3.*;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.http.SdkHttpResponse;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,15 +45,23 @@ public class S3ServiceMockTest {
     @InjectMocks
     AwsS3Service service;
 
-    @Mock
-    S3Client client;
-
     @Mock
     S3AsyncClient asyncClient;
 
     @Mock
     S3Properties properties;
 
+    @Spy
+    S3Resilience resilience = new S3Resilience(new S3Properties.Resilience(
+            new S3Properties.Retry(S3Properties.Retry.Mode.ADAPTIVE, 3),
+            new S3Properties.Hedge(false, 0.95, Duration.ofMillis(50), 256, 32, 0.1),
+            new S3Properties.CircuitBreaker(true, 0.5, 50, 20, Duration.ofSeconds(30), 5)),
+            new SimpleMeterRegistry());
+
+    @Spy
+    ObjectCache objectCache = new ObjectCache(new StorageProperties.Cache(false, Path.of("cache"),
+            DataSize.ofGigabytes(2), DataSize.ofMegabytes(1), 2), new SimpleMeterRegistry());
+
     String bucketName = "test-bucket";
 
     static Path tempDir = Path.of(System.getProperty("java.io.tmpdir"), "s3-test");
@@ -82,14 +98,14 @@ public class S3ServiceMockTest {
     @DisplayName("When uploading with request body from a string, return a mono true")
     void uploadFromString_ReturnsMonoTrue() {
         // Mock the S3 client putObject method
-        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        when(asyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
                 .thenAnswer(invocation -> {
                     // Simulate the behavior of the S3 client
-                    return PutObjectResponse.builder()
+                    return CompletableFuture.completedFuture(PutObjectResponse.builder()
                             .sdkHttpResponse(SdkHttpResponse.builder()
                                     .statusCode(200)
                                     .build())
-                            .build();
+                            .build());
                 });
 
         // When uploading the string to S3
@@ -102,19 +118,40 @@ public class S3ServiceMockTest {
 
         // Verify that the S3 client putObject method was called with the correct
         // parameters
-        verify(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(asyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+    }
+
+    @Test
+    @DisplayName("When an operation is not subscribed, no request should be sent to S3")
+    void uploadFromString_NotSubscribed_SendsNoRequest() {
+        service.uploadFromString("key", ContentType.JSON, "content");
+        service.deleteArtifact("key");
+
+        verifyNoInteractions(asyncClient);
+    }
+
+    @Test
+    @DisplayName("When the client throws an SDK exception, return a mono false")
+    void uploadFromString_SdkException_ReturnsMonoFalse() {
+        when(asyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(SdkClientException.create("test")));
+
+        service.uploadFromString("key", ContentType.JSON, "content")
+                .as(StepVerifier::create)
+                .expectNext(false)
+                .verifyComplete();
     }
 
     @Test
     @DisplayName("When uploading with request body from a file, return a mono true")
     void uploadFile_ReturnsMonoTrue() throws Exception {
         // Mock the S3 client putObject method
-        doReturn(PutObjectResponse.builder()
+        doReturn(CompletableFuture.completedFuture(PutObjectResponse.builder()
                 .sdkHttpResponse(SdkHttpResponse.builder()
                         .statusCode(200)
                         .build())
-                .build())
-                .when(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+                .build()))
+                .when(asyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
 
         // Create a temporary file for testing
         Path filePath = tempDir.resolve("test-upload-file").toAbsolutePath();
@@ -130,7 +167,7 @@ public class S3ServiceMockTest {
 
         // Verify that the S3 client putObject method was called with the correct
         // parameters
-        verify(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(asyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
     }
 
     @Test
@@ -157,16 +194,18 @@ public class S3ServiceMockTest {
     @Test
     @DisplayName("When uploading files transactionally, return a mono true")
     void uploadFilesTransactional_ReturnsMonoTrue() throws Exception {
+        when(properties.upload()).thenReturn(new S3Properties.Upload(DataSize.ofMegabytes(5), 2, 3));
+
         // Create the test files
         Path[] files = createFiles();
 
         // Mock the S3 client putObject method to return true
-        doReturn(PutObjectResponse.builder()
+        doReturn(CompletableFuture.completedFuture(PutObjectResponse.builder()
                 .sdkHttpResponse(SdkHttpResponse.builder()
                         .statusCode(200)
                         .build())
-                .build())
-                .when(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+                .build()))
+                .when(asyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
 
         // When uploading the files to S3
         service.uploadFilesTransactional("key", files)
@@ -189,8 +228,8 @@ public class S3ServiceMockTest {
                 .build();
 
         // Mock the S3 client putObject method to return false
-        doReturn(responseFail)
-                .when(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        doReturn(CompletableFuture.completedFuture(responseFail))
+                .when(asyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
 
         // When uploading with request body from a string
         service.uploadFromString("key", ContentType.JSON, "content")
@@ -211,30 +250,32 @@ public class S3ServiceMockTest {
 
     // @SuppressWarnings("unchecked")
     @Test
-    @SuppressWarnings("unchecked")
-    @DisplayName("When any file upload fails, the transaction should be rolled back and return a mono false")
+    @DisplayName("When any file upload fails, the uploaded files should be deleted in a single batch and return a mono false")
     void uploadFilesTransactional_ReturnsMonoFalse() throws Exception {
+        when(properties.upload()).thenReturn(new S3Properties.Upload(DataSize.ofMegabytes(5), 2, 3));
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+
         // Create the test files
         Path[] files = createFiles();
 
-        // Mock the S3 client putObject method to return false for the second file
-        AtomicInteger counter = new AtomicInteger(0);
-        when(client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+        // Mock the S3 client putObject method to return false for the last file
+        when(asyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
                 .thenAnswer(invocation -> {
-                    int statusCode = counter.getAndIncrement() == 2 ? 500 : 200;
-                    return PutObjectResponse.builder()
+                    PutObjectRequest request = invocation.getArgument(0);
+                    int statusCode = request.key().endsWith("2") ? 500 : 200;
+                    return CompletableFuture.completedFuture(PutObjectResponse.builder()
                             .sdkHttpResponse(SdkHttpResponse.builder()
                                     .statusCode(statusCode).build())
-                            .build();
+                            .build());
                 });
 
-        // Mock the S3 client deleteObject method to return true
-        doReturn(DeleteObjectResponse.builder()
+        // Mock the S3 client deleteObjects method to return true
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
                 .sdkHttpResponse(SdkHttpResponse.builder()
                         .statusCode(200)
                         .build())
-                .build())
-                .when(client).deleteObject(any(Consumer.class));
+                .build()))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
 
         // When uploading the files to S3
         service.uploadFilesTransactional("key", files)
@@ -244,19 +285,142 @@ public class S3ServiceMockTest {
                     return true;
                 })
                 .verifyComplete();
+
+        // Then only the uploaded files are deleted, by their full keys
+        ArgumentCaptor<DeleteObjectsRequest> request = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(asyncClient, times(1)).deleteObjects(request.capture());
+        assertEquals(Set.of("key/" + files[0].getFileName(), "key/" + files[1].getFileName()),
+                request.getValue().delete().objects().stream()
+                        .map(ObjectIdentifier::key)
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("When deleting more than 1000 objects, it should split them in batches")
+    void deleteObjects_SplitsInBatches() {
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .sdkHttpResponse(SdkHttpResponse.builder()
+                        .statusCode(200)
+                        .build())
+                .build()))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2500; i++)
+            keys.add("key/" + i);
+
+        service.deleteObjects(keys)
+                .as(StepVerifier::create)
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(asyncClient, times(3)).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("When uploading a stream, it should be split into parts and completed, return a mono true")
+    void uploadStream_ReturnsMonoTrue() {
+        when(properties.upload()).thenReturn(new S3Properties.Upload(DataSize.ofMegabytes(5), 2, 3));
+
+        when(asyncClient.createMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder()
+                        .uploadId("upload-id")
+                        .build()));
+        when(asyncClient.uploadPart(any(Consumer.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder()
+                        .eTag("etag")
+                        .build()));
+        when(asyncClient.completeMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture((CompleteMultipartUploadResponse) CompleteMultipartUploadResponse
+                        .builder()
+                        .sdkHttpResponse(SdkHttpResponse.builder()
+                                .statusCode(200)
+                                .build())
+                        .build()));
+
+        // 11 buffers of 1MB, which makes two parts of 5MB and a last one of 1MB
+        Flux<DataBuffer> content = Flux.range(0, 11)
+                .map($ -> DefaultDataBufferFactory.sharedInstance.wrap(new byte[1024 * 1024]));
+
+        service.uploadStream("key/content", "audio/mpeg", content)
+                .as(StepVerifier::create)
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(asyncClient, times(3)).uploadPart(any(Consumer.class), any(AsyncRequestBody.class));
+        verify(asyncClient).completeMultipartUpload(any(Consumer.class));
+        verify(asyncClient, never()).abortMultipartUpload(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("When the stream should not be completed, it should abort the multipart upload and return empty")
+    void uploadStream_NotCompleted_AbortsUpload() {
+        when(properties.upload()).thenReturn(new S3Properties.Upload(DataSize.ofMegabytes(5), 2, 3));
+
+        when(asyncClient.createMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder()
+                        .uploadId("upload-id")
+                        .build()));
+        when(asyncClient.uploadPart(any(Consumer.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder()
+                        .eTag("etag")
+                        .build()));
+        when(asyncClient.abortMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+
+        Flux<DataBuffer> content = Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[1024]));
+
+        service.uploadStream("key/content", "audio/mpeg", content, Mono.just(false))
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        verify(asyncClient).abortMultipartUpload(any(Consumer.class));
+        verify(asyncClient, never()).completeMultipartUpload(any(Consumer.class));
     }
 
     @Test
     @SuppressWarnings("unchecked")
-    @DisplayName("When deleting an artifact, return a mono true")
+    @DisplayName("When the stream fails while uploading, it should abort the multipart upload and propagate the error")
+    void uploadStream_ContentError_AbortsUpload() {
+        when(properties.upload()).thenReturn(new S3Properties.Upload(DataSize.ofMegabytes(5), 2, 3));
+
+        when(asyncClient.createMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder()
+                        .uploadId("upload-id")
+                        .build()));
+        when(asyncClient.abortMultipartUpload(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+
+        Flux<DataBuffer> content = Flux.concat(
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[1024])),
+                Flux.error(new IllegalArgumentException("test")));
+
+        service.uploadStream("key/content", "audio/mpeg", content)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(asyncClient).abortMultipartUpload(any(Consumer.class));
+        verify(asyncClient, never()).completeMultipartUpload(any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("When deleting an artifact, every page of its prefix should be deleted in a batch, return a mono true")
     void deleteArtifact_ReturnsMonoTrue() {
-        // Mock the S3 client deleteObject method
-        doReturn(DeleteObjectResponse.builder()
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+        mockListing(1500, false);
+
+        // Mock the S3 client deleteObjects method
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
                 .sdkHttpResponse(SdkHttpResponse.builder()
                         .statusCode(200)
                         .build())
-                .build())
-                .when(client).deleteObject(any(Consumer.class));
+                .build()))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
 
         // When deleting the artifact from S3
         service.deleteArtifact("key")
@@ -267,22 +431,27 @@ public class S3ServiceMockTest {
                 })
                 .verifyComplete();
 
-        // Verify that the S3 client deleteObject method was called with the correct
-        // parameters
-        verify(client).deleteObject(any(Consumer.class));
+        // Then the prefix of the artifact is listed and each page is deleted
+        ArgumentCaptor<ListObjectsV2Request> listRequest = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(asyncClient, times(2)).listObjectsV2(listRequest.capture());
+        assertEquals("key/", listRequest.getValue().prefix());
+        verify(asyncClient, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
     }
 
     @Test
-    @SuppressWarnings("unchecked")
-    @DisplayName("When deleting an artifact fails, return a mono false")
+    @DisplayName("When some objects of an artifact are not deleted, return a mono false")
     void deleteArtifact_ReturnsMonoFalse() {
-        // Mock the S3 client deleteObject method to return false
-        doReturn(DeleteObjectResponse.builder()
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+        mockListing(3, false);
+
+        // Mock the S3 client deleteObjects method to fail one of the keys
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key("key/1").message("Access Denied").build())
                 .sdkHttpResponse(SdkHttpResponse.builder()
-                        .statusCode(500)
+                        .statusCode(200)
                         .build())
-                .build())
-                .when(client).deleteObject(any(Consumer.class));
+                .build()))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
 
         // When deleting the artifact from S3
         service.deleteArtifact("key")
@@ -294,6 +463,82 @@ public class S3ServiceMockTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("When deleting a prefix, the report should have the deleted and failed objects")
+    void deletePrefix_PartialFailure_ReturnsReport() {
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+        mockListing(1200, false);
+
+        // Mock the S3 client deleteObjects method to fail the whole second page
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .sdkHttpResponse(SdkHttpResponse.builder()
+                        .statusCode(200)
+                        .build())
+                .build()))
+                .doReturn(CompletableFuture.failedFuture(SdkClientException.create("Connection reset")))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+
+        service.deletePrefix("key/")
+                .as(StepVerifier::create)
+                .assertNext(report -> {
+                    assertEquals(1000, report.deleted());
+                    assertEquals(200, report.failedKeys().size());
+                    assertFalse(report.truncated());
+                    assertFalse(report.isComplete());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the listing of a prefix fails, the listed objects should be deleted and the report truncated")
+    void deletePrefix_ListingFails_ReturnsTruncatedReport() {
+        when(properties.delete()).thenReturn(new S3Properties.Delete(4));
+        mockListing(1500, true);
+
+        doReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .sdkHttpResponse(SdkHttpResponse.builder()
+                        .statusCode(200)
+                        .build())
+                .build()))
+                .when(asyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+
+        service.deletePrefix("key/")
+                .as(StepVerifier::create)
+                .assertNext(report -> {
+                    assertEquals(1000, report.deleted());
+                    assertTrue(report.truncated());
+                    assertFalse(report.isComplete());
+                })
+                .verifyComplete();
+    }
+
+    /**
+     * Mocks the listing of a prefix with pages of up to 1000 keys.
+     * 
+     * @param count              The number of keys under the prefix.
+     * @param failAfterFirstPage Whether the listing of the pages after the first
+     *                           one fails.
+     */
+    private void mockListing(int count, boolean failAfterFirstPage) {
+        when(asyncClient.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            int start = request.continuationToken() == null ? 0 : Integer.parseInt(request.continuationToken());
+            if (start > 0 && failAfterFirstPage)
+                return CompletableFuture.failedFuture(SdkClientException.create("Connection reset"));
+
+            int end = Math.min(start + request.maxKeys(), count);
+            List<S3Object> contents = new ArrayList<>();
+            for (int i = start; i < end; i++)
+                contents.add(S3Object.builder().key(request.prefix() + i).build());
+
+            return CompletableFuture.completedFuture(ListObjectsV2Response.builder()
+                    .contents(contents)
+                    .isTruncated(end < count)
+                    .nextContinuationToken(end < count ? String.valueOf(end) : null)
+                    .build());
+        });
+    }
+
     /**
      * Creates temporary files for testing.
      * 
@@ -25,7 +25,7 @@ import java.nio.file.*;
 
 @SpringBootTest
 @ActiveProfiles("test")
-@TestPropertySource(properties = "aws.s3.enabled=true")
+@TestPropertySource(properties = { "aws.s3.enabled=true", "aws.s3.sync-client.enabled=true" })
 @ContextConfiguration(classes = MinioContainer.class)
 public class S3ServiceWithMinIOTest {
     @Autowired
@@ -172,14 +172,15 @@ public class S3ServiceWithMinIOTest {
     }
 
     @Test
-    @DisplayName("When deleting an artifact, the files should not exist in S3")
+    @DisplayName("When deleting an artifact, the files under its prefix should not exist in S3")
     void deleteArtifact_ReturnsMonoTrue() throws Exception {
         String key = "test-delete-artifact";
 
         // Create a test files and upload then to S3
         for (int i = 0; i < 3; i++) {
             Path path = Files.createFile(tempDir.resolve((key + i).concat(".txt")));
-            client.putObject(b -> b.bucket(bucketName).key(key), RequestBody.fromFile(path));
+            String objectKey = key + "/" + path.getFileName();
+            client.putObject(b -> b.bucket(bucketName).key(objectKey), RequestBody.fromFile(path));
         }
 
         // When deleting the artifact from S3
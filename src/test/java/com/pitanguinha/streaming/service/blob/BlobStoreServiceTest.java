@@ -0,0 +1,169 @@
+package com.pitanguinha.streaming.service.blob;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.*;
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import com.pitanguinha.streaming.domain.blob.Blob;
+import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
+import com.pitanguinha.streaming.repository.blob.BlobRepository;
+import com.pitanguinha.streaming.service.aws.AwsS3Service;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BlobStoreServiceTest {
+    @Mock
+    BlobRepository repository;
+    @Mock
+    AwsS3Service s3Service;
+    @InjectMocks
+    BlobStoreService service;
+
+    byte[] bytes = new byte[] { 1, 2, 3 };
+
+    @BeforeEach
+    void setMocks() {
+        when(s3Service.uploadFromBytes(anyString(), anyString(), any(byte[].class))).thenReturn(Mono.just(true));
+        when(repository.insert(any(Blob.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.findById(anyString())).thenReturn(Mono.empty());
+        when(repository.markStored(anyString())).thenReturn(Mono.just(1L));
+        when(repository.markDeleted(anyString(), any(Instant.class))).thenReturn(Mono.just(1L));
+    }
+
+    @Test
+    @DisplayName("When storing a new blob, it should upload it and insert it with a single reference")
+    void store_NewBlob_UploadsAndInserts() {
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(0L));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectNext("blobs/digest")
+                .verifyComplete();
+
+        verify(s3Service, times(1)).uploadFromBytes(eq("blobs/digest"), eq("image/png"), eq(bytes));
+        verify(repository, times(1)).insert(argThat((Blob blob) -> blob.getReferences() == 1 && blob.getSize() == 3));
+    }
+
+    @Test
+    @DisplayName("When storing an existing blob, it should only increment its references")
+    void store_ExistingBlob_IncrementsReferences() {
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(1L));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectNext("blobs/digest")
+                .verifyComplete();
+
+        verify(s3Service, never()).uploadFromBytes(anyString(), anyString(), any(byte[].class));
+        verify(repository, never()).insert(any(Blob.class));
+    }
+
+    @Test
+    @DisplayName("When the same blob is inserted concurrently, it should fall back to increment its references")
+    void store_ConcurrentInsert_IncrementsReferences() {
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(0L), Mono.just(1L));
+        when(repository.insert(any(Blob.class))).thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectNext("blobs/digest")
+                .verifyComplete();
+
+        verify(repository, times(2)).incrementIfStored(eq("digest"));
+    }
+
+    @Test
+    @DisplayName("When the upload of a new blob fails, it should return an error without inserting it")
+    void store_UploadFails_ReturnsMonoError() {
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(0L));
+        when(s3Service.uploadFromBytes(anyString(), anyString(), any(byte[].class))).thenReturn(Mono.just(false));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
+
+        verify(repository, never()).insert(any(Blob.class));
+    }
+
+    @Test
+    @DisplayName("When releasing the last reference, it should delete the blob object")
+    void release_LastReference_DeletesObject() {
+        when(repository.incrementReferences(eq("digest"), eq(-1L))).thenReturn(Mono.just(1L));
+        when(repository.markDeleting(eq("digest"), any(Instant.class))).thenReturn(Mono.just(1L));
+        when(s3Service.deleteObjects(anyCollection())).thenReturn(Mono.just(true));
+
+        service.release("digest")
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        InOrder order = inOrder(repository, s3Service);
+        order.verify(repository).markDeleting(eq("digest"), any(Instant.class));
+        order.verify(s3Service).deleteObjects(eq(List.of("blobs/digest")));
+        order.verify(repository).markDeleted(eq("digest"), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("When releasing a reference of a shared blob, it should keep the blob object")
+    void release_SharedBlob_KeepsObject() {
+        when(repository.incrementReferences(eq("digest"), eq(-1L))).thenReturn(Mono.just(1L));
+        when(repository.markDeleting(eq("digest"), any(Instant.class))).thenReturn(Mono.just(0L));
+
+        service.release("digest")
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        verify(s3Service, never()).deleteObjects(anyCollection());
+    }
+
+    @Test
+    @DisplayName("When storing a blob being deleted, it should wait for the deletion and upload it again")
+    void store_BlobBeingDeleted_WaitsAndUploadsAgain() {
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(0L));
+        when(repository.findById(eq("digest"))).thenReturn(
+                Mono.just(Blob.builder().digest("digest").deletingAt(Instant.now()).build()),
+                Mono.just(Blob.builder().digest("digest").missing(true).build()));
+        when(repository.incrementIfMissing(eq("digest"))).thenReturn(Mono.just(1L));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectNext("blobs/digest")
+                .verifyComplete();
+
+        InOrder order = inOrder(repository, s3Service);
+        order.verify(repository).incrementIfMissing(eq("digest"));
+        order.verify(s3Service).uploadFromBytes(eq("blobs/digest"), eq("image/png"), eq(bytes));
+        order.verify(repository).markStored(eq("digest"));
+        verify(repository, never()).insert(any(Blob.class));
+    }
+
+    @Test
+    @DisplayName("When storing a blob whose deletion is stale, it should take it over")
+    void store_StaleDeletion_TakesOverDeletion() {
+        Instant deletingAt = Instant.now().minus(Duration.ofMinutes(5));
+        when(repository.incrementIfStored(eq("digest"))).thenReturn(Mono.just(0L));
+        when(repository.findById(eq("digest"))).thenReturn(
+                Mono.just(Blob.builder().digest("digest").deletingAt(deletingAt).build()),
+                Mono.just(Blob.builder().digest("digest").missing(true).build()));
+        when(repository.incrementIfMissing(eq("digest"))).thenReturn(Mono.just(1L));
+
+        service.store("digest", "image/png", bytes)
+                .as(StepVerifier::create)
+                .expectNext("blobs/digest")
+                .verifyComplete();
+
+        verify(repository, times(1)).markDeleted(eq("digest"), eq(deletingAt));
+    }
+}
@@ -9,25 +9,34 @@ import org.mockito.junit.jupiter.*;
 import static org.mockito.Mockito.*;
 import org.mockito.quality.Strictness;
 
+import java.time.*;
+import java.util.*;
+
+import org.springframework.http.*;
 import org.springframework.http.codec.multipart.FilePart;
-import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 
 import com.pitanguinha.streaming.dto.media.*;
 import com.pitanguinha.streaming.dto.media.response.*;
 import com.pitanguinha.streaming.domain.media.Media;
+import com.pitanguinha.streaming.dto.upload.UploadJobDto;
+import com.pitanguinha.streaming.domain.upload.*;
 
 import com.pitanguinha.streaming.enums.media.*;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
 
 import com.pitanguinha.streaming.exceptions.domain.*;
 import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
 
 import com.pitanguinha.streaming.service.aws.*;
 import com.pitanguinha.streaming.service.TempDirService;
-import com.pitanguinha.streaming.service.media.operation.MediaOperator;
+import com.pitanguinha.streaming.service.storage.StoredObject;
+import com.pitanguinha.streaming.service.media.operation.*;
 
 import com.pitanguinha.streaming.util.test.*;
-import com.pitanguinha.streaming.utils.FileUtils;
 
+import reactor.core.Disposables;
 import reactor.core.publisher.*;
 import reactor.test.StepVerifier;
 
@@ -43,7 +52,7 @@ public class AbstractMediaServiceTest {
     @Mock
     MediaOperator<Media> mediaOperator;
     @Mock
-    ReactiveCrudRepository<Media, String> repository;
+    ReactiveMongoRepository<Media, String> repository;
     @InjectMocks
     MediaServiceTest mediaService;
 
@@ -52,6 +61,13 @@ public class AbstractMediaServiceTest {
         // CloudFrontService
         when(cloudFrontService.getSignedUrl(anyString()))
                 .thenReturn(new SignedUrlMock());
+        when(cloudFrontService.getSignedUrls(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<String>>getArgument(0))
+                        .map(key -> new SignedUrlMock()));
+
+        // MediaOperator
+        when(mediaOperator.admitUpload(any(), any()))
+                .thenAnswer($ -> Mono.just(Disposables.single()));
     }
 
     @Test
@@ -71,98 +87,350 @@ public class AbstractMediaServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("When a single range is asked, should stream only the range with 206 Partial Content")
+    void streamContent_SingleRange_ReturnsPartialContent() {
+        var object = mockContent();
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=2-5");
+
+        mediaService.streamContent("testId", headers)
+                .as(StepVerifier::create)
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+                    assertEquals("bytes 2-5/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+                    assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+                    assertEquals(4, response.getHeaders().getContentLength());
+                    assertEquals(MediaType.parseMediaType("audio/mpeg"), response.getHeaders().getContentType());
+                })
+                .verifyComplete();
+
+        verify(s3Service, times(1)).getObject(eq(object), eq(2L), eq(4L));
+    }
+
+    @Test
+    @DisplayName("When the If-Range doesn't match the content, should stream the whole content")
+    void streamContent_StaleIfRange_ReturnsWholeContent() {
+        var object = mockContent();
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=2-5");
+        headers.set(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        mediaService.streamContent("testId", headers)
+                .as(StepVerifier::create)
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    assertEquals(10, response.getHeaders().getContentLength());
+                    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+                })
+                .verifyComplete();
+
+        verify(s3Service, times(1)).getObject(eq(object), eq(0L), eq(10L));
+    }
+
+    @Test
+    @DisplayName("When the range is past the end of the content, should return 416 Range Not Satisfiable")
+    void streamContent_RangePastEnd_ReturnsRangeNotSatisfiable() {
+        mockContent();
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=10-");
+
+        mediaService.streamContent("testId", headers)
+                .as(StepVerifier::create)
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+                    assertEquals("bytes */10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+                })
+                .verifyComplete();
+
+        verify(s3Service, never()).getObject(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("When the content doesn't exist in the storage, should throw a NotFoundException")
+    void streamContent_MissingContent_ThrowsNotFoundException() {
+        var media = new Media();
+        media.setContentKey("testContentKey");
+        media.setConversionStatus(ConversionStatus.SUCCESS);
+
+        when(repository.findById(anyString())).thenReturn(Mono.just(media));
+        when(s3Service.headObject(anyString())).thenReturn(Mono.empty());
+
+        mediaService.streamContent("testId", new HttpHeaders())
+                .as(StepVerifier::create)
+                .verifyError(NotFoundException.class);
+    }
+
     @Test
     @DisplayName("Should to save media in S3 and in repository, returning a SuccessDto")
     void saveInS3AndRepository_ReturnsMediaSuccessDto() {
-        try (var mockedFileUtils = mockStatic(FileUtils.class)) {
-            var media = new Media();
-            media.setId("testId");
+        var media = new Media();
+        media.setId("testId");
 
-            // Mocks the isFileSizeSupported method
-            mockedFileUtils.when(() -> FileUtils.isFileSizeSupported(any(FilePart.class), anyInt()))
-                    .thenReturn(Mono.empty());
+        // Mocks the mediaOperator's uploadOrUpdateToS3 method to return a Mono of Media
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenReturn(Mono.just(media));
+
+        // Mock the repository's save method to return the Media object
+        when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
+
+        mediaService.saveInS3AndRepository(media, mock(FilePart.class), mock(FilePart.class))
+                .as(StepVerifier::create)
+                .expectNextMatches(dto -> dto != null && dto.getThumbnailUrl().equals("testSignedUrl"))
+                .verifyComplete();
 
-            // Mocks the mediaOperator's uploadOrUpdateToS3 method to return a Mono of Media
-            when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class)))
-                    .thenReturn(Mono.just(media));
+        // Verify that the methods were called the expected number of times
+        verify(repository, times(1)).save(eq(media));
+        verify(mediaOperator, times(1)).uploadOrUpdateToS3(eq(media), any(FilePart.class), any(FilePart.class),
+                anyBoolean());
+        verify(cloudFrontService, times(1)).getSignedUrl(eq(media.getId() + "/" + media.getThumbnailSuffix()));
+    }
+
+    @Test
+    @DisplayName("When the upload changes the file digests, should save them and sign the shared thumbnail")
+    void saveInS3AndRepository_DigestsChanged_SavesAgain() {
+        var media = new Media();
+        media.setId("testId");
 
-            // Mock the repository's save method to return the Media object
-            when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    Media uploaded = invocation.getArgument(0);
+                    uploaded.setThumbnailDigest("thumbnailDigest");
+                    uploaded.setContentDigest("contentDigest");
+                    return Mono.just(uploaded);
+                });
+        when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
 
-            mediaService.saveInS3AndRepository(media, mock(FilePart.class), mock(FilePart.class))
-                    .as(StepVerifier::create)
-                    .expectNextMatches(dto -> dto != null && dto.getThumbnailUrl().equals("testSignedUrl"))
-                    .verifyComplete();
+        mediaService.saveInS3AndRepository(media, mock(FilePart.class), mock(FilePart.class))
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
 
-            // Verify that the methods were called the expected number of times
-            verify(repository, times(1)).save(eq(media));
-            verify(mediaOperator, times(1)).uploadOrUpdateToS3(eq(media), any(FilePart.class), any(FilePart.class));
-            verify(cloudFrontService, times(1)).getSignedUrl(eq(media.getId() + "/" + media.getThumbnailSuffix()));
-        }
+        verify(repository, times(2)).save(eq(media));
+        verify(cloudFrontService, times(1)).getSignedUrl(eq("blobs/thumbnailDigest"));
     }
 
     @Test
-    @DisplayName("When has an error during upload to S3, should throw an S3Exception")
+    @DisplayName("When has an error during upload to S3, should remove the new entity and throw an S3Exception")
     void saveInS3AndRepository_ThrowsS3Exception() {
-        try (var mockedFileUtils = mockStatic(FileUtils.class)) {
-            mockedFileUtils.when(() -> FileUtils.isFileSizeSupported(any(FilePart.class), anyInt()))
-                    .thenReturn(Mono.empty());
+        var savedMedia = new Media();
+
+        when(repository.save(any(Media.class)))
+                .thenReturn(Mono.just(savedMedia));
+        when(repository.delete(any(Media.class)))
+                .thenReturn(Mono.empty());
+
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenReturn(Mono.error(new S3Exception("Error", null, null, null)));
+
+        // When: call the saveInS3AndRepository method
+        mediaService.saveInS3AndRepository(mock(Media.class), mock(FilePart.class), mock(FilePart.class))
+                // Then: it should throw an S3Exception
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
+
+        verify(repository, times(1)).delete(eq(savedMedia));
+    }
+
+    @Test
+    @DisplayName("When saving from an upload session, should save with the reserved ID and upload without content")
+    void saveFromUploadSession_ReturnsMediaSuccessDto() {
+        var media = new Media();
+        media.setTitle("title");
+        var session = UploadSession.builder().mediaId("reservedId").build();
+
+        when(mediaOperator.findUploadSession(anyString()))
+                .thenReturn(Mono.just(session));
+        when(mediaOperator.completeUploadSession(any(UploadSession.class)))
+                .thenReturn(Mono.just(session));
+        when(mediaOperator.removeUploadSession(any(UploadSession.class)))
+                .thenReturn(Mono.empty());
+        when(repository.save(any(Media.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), isNull(), anyBoolean()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        mediaService.saveFromUploadSession(media, mock(FilePart.class), "sessionId")
+                .as(StepVerifier::create)
+                .expectNextMatches(dto -> dto.getId().equals("reservedId"))
+                .verifyComplete();
+
+        InOrder order = inOrder(repository, mediaOperator);
+        order.verify(repository).save(eq(media));
+        order.verify(mediaOperator).completeUploadSession(eq(session));
+        order.verify(mediaOperator).uploadOrUpdateToS3(eq(media), any(FilePart.class), isNull(), anyBoolean());
+        order.verify(mediaOperator).removeUploadSession(eq(session));
+    }
+
+    @Test
+    @DisplayName("When has an error uploading from an upload session, should remove the entity and its artifact")
+    void saveFromUploadSession_ThrowsS3Exception() {
+        var media = new Media();
+        media.setTitle("title");
+        var session = UploadSession.builder().mediaId("reservedId").build();
+
+        when(mediaOperator.findUploadSession(anyString()))
+                .thenReturn(Mono.just(session));
+        when(mediaOperator.completeUploadSession(any(UploadSession.class)))
+                .thenReturn(Mono.just(session));
+        when(mediaOperator.removeUploadSession(any(UploadSession.class)))
+                .thenReturn(Mono.empty());
+        when(repository.save(any(Media.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.delete(any(Media.class)))
+                .thenReturn(Mono.empty());
+        when(s3Service.deleteArtifact(anyString()))
+                .thenReturn(Mono.just(true));
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), isNull(), anyBoolean()))
+                .thenReturn(Mono.error(new S3Exception("Error", null, null, null)));
+
+        mediaService.saveFromUploadSession(media, mock(FilePart.class), "sessionId")
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
+
+        verify(repository, times(1)).delete(any(Media.class));
+        verify(s3Service, times(1)).deleteArtifact(eq("reservedId"));
+        verify(mediaOperator, times(1)).removeUploadSession(eq(session));
+    }
+
+    @Test
+    @DisplayName("When an upload session can't be completed, should remove the entity and keep the session")
+    void saveFromUploadSession_CompletionFails_KeepsSession() {
+        var media = new Media();
+        media.setTitle("title");
+        var session = UploadSession.builder().mediaId("reservedId").build();
+
+        when(mediaOperator.findUploadSession(anyString()))
+                .thenReturn(Mono.just(session));
+        when(mediaOperator.completeUploadSession(any(UploadSession.class)))
+                .thenReturn(Mono.error(new S3Exception("Error", null, null, null)));
+        when(repository.save(any(Media.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.delete(any(Media.class)))
+                .thenReturn(Mono.empty());
+
+        mediaService.saveFromUploadSession(media, mock(FilePart.class), "sessionId")
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
+
+        verify(repository, times(1)).delete(eq(media));
+        verify(mediaOperator, never()).uploadOrUpdateToS3(any(), any(), any(), anyBoolean());
+        verify(mediaOperator, never()).removeUploadSession(any());
+        verify(s3Service, never()).deleteArtifact(anyString());
+    }
+
+    @Test
+    @DisplayName("When saving from an upload session without the required metadata, should fail before completing the session")
+    void saveFromUploadSession_MissingMetadata_ThrowsIllegalArgumentException() {
+        mediaService.saveFromUploadSession(new Media(), mock(FilePart.class), "sessionId")
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(mediaOperator, never()).completeUploadSession(any());
+        verify(repository, never()).save(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("When saving in the upload queue, should spool the files, save the media and queue its upload")
+    void saveInUploadQueue_ReturnsMonoUploadJobDto() {
+        var media = new Media();
+        media.setId("testId");
+        var job = UploadJob.builder().id("jobId").build();
+
+        when(mediaOperator.spoolUpload(any(FilePart.class), any(FilePart.class))).thenReturn(Mono.just(job));
+        when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
+        when(mediaOperator.enqueueUpload(eq(job), eq("media"), eq("testId"), eq(3)))
+                .thenReturn(Mono.just(UploadJobDto.builder().id("jobId").status(UploadJobStatus.QUEUED).build()));
+
+        mediaService.saveInUploadQueue(media, mock(FilePart.class), mock(FilePart.class), 3)
+                .as(StepVerifier::create)
+                .expectNextMatches(dto -> dto.getId().equals("jobId") && dto.getStatus() == UploadJobStatus.QUEUED)
+                .verifyComplete();
+
+        verify(mediaOperator, never()).uploadOrUpdateToS3(any(), any(), any(), anyBoolean());
+        verify(mediaOperator, never()).discardUpload(any());
+    }
+
+    @Test
+    @DisplayName("When the upload can't be queued, should remove the media and discard the spooled files")
+    void saveInUploadQueue_EnqueueFails_DeletesMediaAndDiscardsFiles() {
+        var media = new Media();
+        media.setId("testId");
+        var job = UploadJob.builder().id("jobId").build();
 
-            when(repository.save(any(Media.class)))
-                    .thenReturn(Mono.just(new Media()));
+        when(mediaOperator.spoolUpload(any(FilePart.class), any(FilePart.class))).thenReturn(Mono.just(job));
+        when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
+        when(repository.delete(any(Media.class))).thenReturn(Mono.empty());
+        when(mediaOperator.enqueueUpload(any(), anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.error(new RuntimeException("Mongo is down")));
+        when(mediaOperator.discardUpload(any())).thenReturn(Mono.empty());
 
-            when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class)))
-                    .thenReturn(Mono.error(new S3Exception("Error", null, null, null)));
+        mediaService.saveInUploadQueue(media, mock(FilePart.class), mock(FilePart.class), 0)
+                .as(StepVerifier::create)
+                .expectError(RuntimeException.class)
+                .verify();
 
-            // When: call the saveInS3AndRepository method
-            mediaService.saveInS3AndRepository(mock(Media.class), mock(FilePart.class), mock(FilePart.class))
-                    // Then: it should throw an S3Exception
-                    .as(StepVerifier::create)
-                    .expectError(S3Exception.class)
-                    .verify();
-        }
+        verify(repository, times(1)).delete(media);
+        verify(mediaOperator, times(1)).discardUpload(job);
+    }
+
+    @Test
+    @DisplayName("When processing an upload job, should upload the files of the saved media")
+    void processUploadJob_UploadsFiles() {
+        var media = new Media();
+        media.setId("testId");
+
+        when(repository.findById(eq("testId"))).thenReturn(Mono.just(media));
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenReturn(Mono.just(media));
+
+        mediaService.processUploadJob("testId", mock(FilePart.class), mock(FilePart.class))
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        verify(mediaOperator, times(1)).uploadOrUpdateToS3(eq(media), any(FilePart.class), any(FilePart.class),
+                anyBoolean());
     }
 
     @Test
     @DisplayName("Should update media in S3 and in repository, returning a SuccessDto")
     void updateInS3AndRepository_ReturnsMediaSuccessDto() {
-        try (var mockedFileUtils = mockStatic(FileUtils.class)) {
-            var media = new Media();
-            media.setId("testId");
-            media.setConversionStatus(ConversionStatus.SUCCESS);
-
-            // Mocks the isFileSizeSupported method
-            mockedFileUtils.when(() -> FileUtils.isFileSizeSupported(any(FilePart.class), anyInt()))
-                    .thenReturn(Mono.empty());
-
-            // Mocks the mediaOperator's uploadOrUpdateToS3 method to return a Mono of Media
-            when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class)))
-                    .thenReturn(Mono.just(media));
-
-            // Mock the repository's save method to return the Media object
-            when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
-            when(repository.findById(anyString())).thenReturn(Mono.just(media));
-
-            // Givem: create a MediaPutDto
-            var putDto = new MediaPutDto();
-            putDto.setId(media.getId());
-            putDto.setContentFile(new FilePartMock());
-            putDto.setThumbnailFile(new FilePartMock());
-
-            // When: call the updateInS3AndRepository method
-            mediaService.updateInS3AndRepository(putDto, (entity, dto) -> {
-            })
-                    // Then: it should return a Mono containing a MediaSuccessDto
-                    .as(StepVerifier::create)
-                    .expectNextMatches(dto -> dto != null && dto.getThumbnailUrl().equals("testSignedUrl"))
-                    .verifyComplete();
-
-            // Verify that the methods were called the expected number of times
-            verify(repository, times(1)).save(eq(media));
-            verify(repository, times(1)).findById(eq(media.getId()));
-            verify(mediaOperator, times(1)).uploadOrUpdateToS3(eq(media), any(FilePart.class), any(FilePart.class));
-            verify(cloudFrontService, times(1)).getSignedUrl(eq(media.getId() + "/" + media.getThumbnailSuffix()));
-        }
+        var media = new Media();
+        media.setId("testId");
+        media.setConversionStatus(ConversionStatus.SUCCESS);
+
+        // Mocks the mediaOperator's uploadOrUpdateToS3 method to return a Mono of Media
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenReturn(Mono.just(media));
+
+        // Mock the repository's save method to return the Media object
+        when(repository.save(any(Media.class))).thenReturn(Mono.just(media));
+        when(repository.findById(anyString())).thenReturn(Mono.just(media));
+
+        // Givem: create a MediaPutDto
+        var putDto = new MediaPutDto();
+        putDto.setId(media.getId());
+        putDto.setContentFile(new FilePartMock());
+        putDto.setThumbnailFile(new FilePartMock());
+
+        // When: call the updateInS3AndRepository method
+        mediaService.updateInS3AndRepository(putDto, (entity, dto) -> {
+        })
+                // Then: it should return a Mono containing a MediaSuccessDto
+                .as(StepVerifier::create)
+                .expectNextMatches(dto -> dto != null && dto.getThumbnailUrl().equals("testSignedUrl"))
+                .verifyComplete();
+
+        // Verify that the methods were called the expected number of times
+        verify(repository, times(1)).save(eq(media));
+        verify(repository, times(1)).findById(eq(media.getId()));
+        verify(mediaOperator, times(1)).uploadOrUpdateToS3(eq(media), any(FilePart.class), any(FilePart.class),
+                anyBoolean());
+        verify(cloudFrontService, times(1)).getSignedUrl(eq(media.getId() + "/" + media.getThumbnailSuffix()));
     }
 
     @Test
@@ -268,6 +536,7 @@ public class AbstractMediaServiceTest {
 
         // Mock the s3Service's delete method to return a Mono<Void>
         when(s3Service.deleteArtifact(anyString())).thenReturn(Mono.just(true));
+        when(mediaOperator.releaseBlobs(any(Media.class))).thenReturn(Mono.empty());
 
         // When: call the delete method
         mediaService.delete("testId")
@@ -278,6 +547,7 @@ public class AbstractMediaServiceTest {
         // Verify that the methods were called the expected number of times
         verify(repository, times(1)).findById(eq("testId"));
         verify(s3Service, times(1)).deleteArtifact(eq(media.getId()));
+        verify(mediaOperator, times(1)).releaseBlobs(eq(media));
     }
 
     @Test
@@ -371,12 +641,156 @@ public class AbstractMediaServiceTest {
                         dto -> dto instanceof MediaSuccessDto && ((MediaSuccessDto) dto).getId().equals("id1"))
                 .verifyComplete();
     }
+
+    @Test
+    @DisplayName("When the playback session covers the thumbnails, should return plain URLs without signing")
+    void mapOnlySuccessfulConversions_CoveredBySession_ReturnsPlainUrls() {
+        var session = new PlaybackSession("https://cdn.test/id1/*", Instant.now().plusSeconds(3600));
+        when(cloudFrontService.isCovered(eq(session), eq("id1/thumbnail"))).thenReturn(true);
+        when(cloudFrontService.getUrl(anyString()))
+                .thenAnswer(invocation -> "https://cdn.test/" + invocation.getArgument(0));
+
+        var media1 = new Media();
+        media1.setId("id1");
+        media1.setConversionStatus(ConversionStatus.SUCCESS);
+
+        var media2 = new Media();
+        media2.setId("id2");
+        media2.setConversionStatus(ConversionStatus.SUCCESS);
+
+        StepVerifier.create(mediaService.mapOnlySuccessfulConversions(Flux.just(media1, media2))
+                .map(MediaSuccessDto::getThumbnailUrl)
+                .contextWrite(context -> context.put(PlaybackSession.class, session)))
+                .expectNext("https://cdn.test/id1/thumbnail", SignedUrlMock.URL)
+                .verifyComplete();
+
+        verify(cloudFrontService, times(1)).getSignedUrls(eq(List.of("id2/thumbnail")));
+    }
+
+    @Test
+    @DisplayName("When a batch is saved, the valid items should be inserted at once and uploaded, the invalid ones failed")
+    void saveBatchInS3AndRepository_ReturnsResultPerItem() {
+        var first = batchItem(0, "First");
+        var second = batchItem(2, "Second");
+
+        when(mediaOperator.<MediaPostDto>readBatch(any(), eq(MediaPostDto.class)))
+                .thenReturn(Flux.just(List.of(first, new BatchItem<>(1, null, "title: Title don't be empty"), second)));
+        when(mediaOperator.batchConcurrency()).thenReturn(2);
+        when(repository.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.save(any(Media.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        mediaService.saveBatchInS3AndRepository(Flux.empty(), MediaPostDto.class, this::toMedia)
+                .collectSortedList(Comparator.comparingInt(BatchItemResultDto::getIndex))
+                .as(StepVerifier::create)
+                .assertNext(results -> {
+                    assertEquals(BatchItemStatus.CREATED, results.get(0).getStatus());
+                    assertNotNull(results.get(0).getId());
+                    assertEquals(BatchItemStatus.FAILED, results.get(1).getStatus());
+                    assertEquals(BatchItemErrorType.INVALID_ITEM, results.get(1).getErrorType());
+                    assertEquals("title: Title don't be empty", results.get(1).getError());
+                    assertNotNull(results.get(2).getId());
+                })
+                .verifyComplete();
+
+        verify(repository, times(1)).insert(anyIterable());
+        verify(mediaOperator, times(2)).admitUpload(any(FilePart.class), any(FilePart.class));
+    }
+
+    @Test
+    @DisplayName("When the upload of a batch item fails, its entity should be removed and only it failed")
+    void saveBatchInS3AndRepository_UploadFails_RemovesEntity() {
+        var failing = batchItem(0, "Failing");
+        var uploaded = batchItem(1, "Uploaded");
+
+        when(mediaOperator.<MediaPostDto>readBatch(any(), eq(MediaPostDto.class)))
+                .thenReturn(Flux.just(List.of(failing, uploaded)));
+        when(mediaOperator.batchConcurrency()).thenReturn(2);
+        when(repository.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(repository.delete(any(Media.class))).thenReturn(Mono.empty());
+        when(mediaOperator.uploadOrUpdateToS3(any(Media.class), any(FilePart.class), any(FilePart.class), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    Media media = invocation.getArgument(0);
+                    return "Failing".equals(media.getTitle())
+                            ? Mono.error(new S3Exception("Upload failed", null, null, null))
+                            : Mono.just(media);
+                });
+
+        mediaService.saveBatchInS3AndRepository(Flux.empty(), MediaPostDto.class, this::toMedia)
+                .collectSortedList(Comparator.comparingInt(BatchItemResultDto::getIndex))
+                .as(StepVerifier::create)
+                .assertNext(results -> {
+                    assertEquals(BatchItemStatus.FAILED, results.get(0).getStatus());
+                    assertEquals(BatchItemErrorType.UPLOAD_FAILED, results.get(0).getErrorType());
+                    assertNull(results.get(0).getError());
+                    assertEquals(BatchItemStatus.CREATED, results.get(1).getStatus());
+                })
+                .verifyComplete();
+
+        verify(repository, times(1)).delete(argThat(media -> "Failing".equals(media.getTitle())));
+    }
+
+    @Test
+    @DisplayName("When the insert of a batch chunk fails, the inserted items should be deleted and all failed")
+    @SuppressWarnings("unchecked")
+    void saveBatchInS3AndRepository_InsertFails_DeletesInsertedItems() {
+        when(mediaOperator.<MediaPostDto>readBatch(any(), eq(MediaPostDto.class)))
+                .thenReturn(Flux.just(List.of(batchItem(0, "First"), batchItem(1, "Second"))));
+        when(mediaOperator.batchConcurrency()).thenReturn(2);
+        when(repository.insert(anyIterable())).thenReturn(Flux.error(new RuntimeException("E11000 duplicate key")));
+        when(repository.deleteAllById(anyIterable())).thenReturn(Mono.empty());
+
+        mediaService.saveBatchInS3AndRepository(Flux.empty(), MediaPostDto.class, this::toMedia)
+                .as(StepVerifier::create)
+                .expectNextMatches(result -> result.getErrorType() == BatchItemErrorType.INSERT_FAILED)
+                .expectNextMatches(result -> result.getStatus() == BatchItemStatus.FAILED && result.getError() == null)
+                .verifyComplete();
+
+        ArgumentCaptor<Iterable<Media>> inserted = ArgumentCaptor.forClass(Iterable.class);
+        verify(repository).insert(inserted.capture());
+        List<String> ids = new ArrayList<>();
+        inserted.getValue().forEach(media -> ids.add(media.getId()));
+
+        assertEquals(2, ids.size());
+        verify(repository, times(1)).deleteAllById(eq(ids));
+        verify(mediaOperator, never()).uploadOrUpdateToS3(any(), any(), any(), anyBoolean());
+    }
+
+    private StoredObject mockContent() {
+        var media = new Media();
+        media.setContentKey("testContentKey");
+        media.setConversionStatus(ConversionStatus.SUCCESS);
+        var object = new StoredObject("testContentKey", 10, "audio/mpeg", "\"etag\"", Instant.EPOCH);
+
+        when(repository.findById(anyString())).thenReturn(Mono.just(media));
+        when(s3Service.headObject(anyString())).thenReturn(Mono.just(object));
+        when(s3Service.getObject(any(StoredObject.class), anyLong(), anyLong()))
+                .thenReturn(Flux.<DataBuffer>empty());
+
+        return object;
+    }
+
+    private BatchItem<MediaPostDto> batchItem(int index, String title) {
+        var postDto = MediaPostDto.builder()
+                .title(title)
+                .thumbnailFile(mock(FilePart.class))
+                .contentFile(mock(FilePart.class))
+                .build();
+        return new BatchItem<>(index, postDto, null);
+    }
+
+    private Media toMedia(MediaPostDto postDto) {
+        var media = new Media();
+        media.setTitle(postDto.getTitle());
+        return media;
+    }
 }
 
 class MediaServiceTest extends AbstractMediaService<Media, MediaSuccessDto> {
     MediaServiceTest(AwsS3Service s3Service, AwsCloudFrontService cloudFrontService,
             TempDirService tempDirService, MediaOperator<Media> mediaOperator,
-            ReactiveCrudRepository<Media, String> repository) {
+            ReactiveMongoRepository<Media, String> repository) {
         super(s3Service, cloudFrontService, tempDirService, repository, mediaOperator);
     }
 
@@ -415,6 +829,11 @@ class MediaServiceTest extends AbstractMediaService<Media, MediaSuccessDto> {
         throw new UnsupportedOperationException("Unimplemented method 'report'");
     }
 
+    @Override
+    public String mediaType() {
+        return "media";
+    }
+
     protected MediaSuccessDto toDto(Media entity) {
         var dto = new MediaSuccessDto();
         dto.setId(entity.getId());
@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
+import java.util.List;
 
 import com.pitanguinha.streaming.enums.media.*;
 import com.pitanguinha.streaming.enums.media.music.*;
@@ -65,6 +66,9 @@ public class MusicServiceTest {
         // CloudFrontService
         when(cloudFrontService.getSignedUrl(anyString()))
                 .thenReturn(new SignedUrlMock());
+        when(cloudFrontService.getSignedUrls(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<String>>getArgument(0))
+                        .map(key -> new SignedUrlMock()));
 
         // Mapper
         when(mapper.toDto(any())).thenReturn(createSuccessDto());
@@ -8,6 +8,7 @@ import org.mockito.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.mockito.junit.jupiter.*;
 import org.mockito.quality.Strictness;
@@ -68,6 +69,9 @@ public class PodcastServiceTest {
         // CloudFrontService
         when(cloudFrontService.getSignedUrl(anyString()))
                 .thenReturn(new SignedUrlMock());
+        when(cloudFrontService.getSignedUrls(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<String>>getArgument(0))
+                        .map(key -> new SignedUrlMock()));
 
         // Mapper
         when(mapper.toDto(any(Podcast.class))).thenReturn(createSuccessDto());
@@ -0,0 +1,128 @@
+package com.pitanguinha.streaming.service.media.operation;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.*;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.pitanguinha.streaming.dto.media.MediaPostDto;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+
+import jakarta.validation.Validation;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MediaBatchReaderTest {
+    @Mock
+    UploadProperties uploadProperties;
+
+    MediaBatchReader reader;
+
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.batch()).thenReturn(new UploadProperties.Batch(3, 2, 4));
+
+        reader = new MediaBatchReader(new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), uploadProperties);
+    }
+
+    @Test
+    @DisplayName("When the items are valid, they should be read in chunks of the insert size with their files")
+    void read_ValidItems_ReturnsChunks() {
+        var parts = Flux.<Part>just(
+                item("{\"title\":\"First\"}"), file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg"),
+                item("{\"title\":\"Second\"}"), file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg"),
+                item("{\"title\":\"Third\"}"), file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg"));
+
+        reader.read(parts, MediaPostDto.class)
+                .as(StepVerifier::create)
+                .assertNext(chunk -> {
+                    assertEquals(2, chunk.size());
+                    assertTrue(chunk.stream().allMatch(BatchItem::isValid));
+                    assertEquals("First", chunk.get(0).postDto().getTitle());
+                    assertNotNull(chunk.get(1).postDto().getContentFile());
+                })
+                .assertNext(chunk -> assertEquals(2, chunk.get(0).index()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When an item is invalid, it should be kept with its error without failing the others")
+    void read_InvalidItem_ReturnsItemWithError() {
+        var parts = Flux.<Part>just(
+                item("{\"title\":\"\"}"), file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg"),
+                item("not json"),
+                item("{\"title\":\"Valid\"}"), file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg"));
+
+        reader.read(parts, MediaPostDto.class)
+                .flatMapIterable(chunk -> chunk)
+                .as(StepVerifier::create)
+                .assertNext(item -> assertTrue(item.error().startsWith("title: ")))
+                .assertNext(item -> assertTrue(item.error().startsWith("Invalid item")))
+                .assertNext(item -> assertTrue(item.isValid()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the batch exceeds the max items, the items past it should be invalid")
+    void read_ExceedsMaxItems_ReturnsInvalidItems() {
+        var parts = Flux.<Part>range(0, 4)
+                .concatMap(i -> Flux.just(item("{\"title\":\"Item\"}"),
+                        file("thumbnailFile", "image/png"), file("contentFile", "audio/ogg")));
+
+        reader.read(parts, MediaPostDto.class)
+                .flatMapIterable(chunk -> chunk)
+                .filter(item -> !item.isValid())
+                .as(StepVerifier::create)
+                .assertNext(item -> {
+                    assertEquals(3, item.index());
+                    assertTrue(item.error().contains("max items"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the files come before any item, they should be an invalid item")
+    void read_FilesBeforeItem_ReturnsInvalidItem() {
+        var parts = Flux.<Part>just(file("thumbnailFile", "image/png"));
+
+        reader.read(parts, MediaPostDto.class)
+                .flatMapIterable(chunk -> chunk)
+                .as(StepVerifier::create)
+                .assertNext(item -> assertFalse(item.isValid()))
+                .verifyComplete();
+    }
+
+    private Part item(String json) {
+        Part part = mock(FormFieldPart.class);
+        when(part.name()).thenReturn("item");
+        when(part.content()).thenAnswer($ -> Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        return part;
+    }
+
+    private FilePart file(String name, String contentType) {
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(contentType));
+
+        FilePart part = mock(FilePart.class);
+        when(part.name()).thenReturn(name);
+        when(part.headers()).thenReturn(headers);
+        return part;
+    }
+}
@@ -29,10 +29,10 @@ public class MediaOperatorTest {
 
         // Mock the behavior of the s3UploadingHandler
         when(s3UploadingHandler.uploadOrUpdateMedia(any(Media.class), any(FilePart.class),
-                any(FilePart.class)))
+                any(FilePart.class), anyBoolean()))
                 .thenReturn(Mono.just(mockedEntity));
 
-        mediaOperator.uploadOrUpdateToS3(mock(Media.class), mock(FilePart.class), mock(FilePart.class))
+        mediaOperator.uploadOrUpdateToS3(mock(Media.class), mock(FilePart.class), mock(FilePart.class), false)
                 .subscribe(entity -> {
                     // Assert that the returned entity is the mocked entity
                     Assertions.assertEquals(mockedEntity, entity);
@@ -44,10 +44,10 @@ public class MediaOperatorTest {
     void uploadOrUpdateToS3_ReturnsMonoError() {
         // Mock the behavior of the s3UploadingHandler to throw an exception
         when(s3UploadingHandler.uploadOrUpdateMedia(any(Media.class), any(FilePart.class),
-                any(FilePart.class)))
+                any(FilePart.class), anyBoolean()))
                 .thenReturn(Mono.error(new S3Exception("Upload failed", null, null, null, null)));
 
-        mediaOperator.uploadOrUpdateToS3(mock(Media.class), mock(FilePart.class), mock(FilePart.class))
+        mediaOperator.uploadOrUpdateToS3(mock(Media.class), mock(FilePart.class), mock(FilePart.class), false)
                 .doOnError(e -> {
                     // Assert that the error is the expected exception
                     Assertions.assertEquals(S3Exception.class, e);
@@ -1,7 +1,9 @@
 package com.pitanguinha.streaming.service.media.operation;
 
 import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
@@ -10,22 +12,29 @@ import static org.mockito.Mockito.*;
 import org.mockito.quality.Strictness;
 
 import java.io.File;
+import java.nio.*;
 import java.nio.file.Path;
+import java.util.*;
 
+import org.springframework.util.unit.DataSize;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.pitanguinha.streaming.domain.media.Media;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
 import com.pitanguinha.streaming.enums.aws.ContentType;
 import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
 import com.pitanguinha.streaming.service.TempDirService;
 import com.pitanguinha.streaming.service.aws.AwsS3Service;
+import com.pitanguinha.streaming.service.blob.BlobStoreService;
 import com.pitanguinha.streaming.util.test.creator.media.music.MusicEntityCreator;
-import com.pitanguinha.streaming.utils.FileUtils;
 
 import reactor.test.StepVerifier;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.*;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -39,9 +48,24 @@ public class MediaS3UploadingHandlerTest {
     @Mock
     TempDirService tempDirService;
 
+    @Mock
+    TempDirService.Lease lease;
+
     @Mock
     ObjectMapper objectMapper;
 
+    @Mock
+    UploadProperties uploadProperties;
+
+    @Mock
+    BlobStoreService blobStore;
+
+    @TempDir
+    Path tempDir;
+
+    static final byte[] THUMBNAIL = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 't', 'h', 'u', 'm', 'b' };
+    static final byte[] CONTENT = { (byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0, 'c', 'o', 'n', 't', 'e', 'n', 't' };
+
     Media entity = MusicEntityCreator.createEntity();
 
     Path mockedPath = mock(Path.class);
@@ -50,15 +74,30 @@ public class MediaS3UploadingHandlerTest {
     @BeforeEach
     void setUpGlobalMocks() throws Exception {
         // TempDirService
-        when(tempDirService.getOrCreateDir(anyString())).thenReturn(Path.of("test"));
-        doNothing().when(tempDirService).deleteDirectory(any(Path.class));
-        handler.getOrCreateWorkDir();
+        when(tempDirService.lease(anyString(), anyLong())).thenReturn(Mono.just(lease));
+        when(lease.dir()).thenReturn(tempDir);
 
         // S3
         when(s3Service.uploadFromString(anyString(), any(ContentType.class), anyString()))
                 .thenReturn(Mono.just(true));
-        when(s3Service.uploadFilesTransactional(anyString(), any(Path[].class)))
+        when(s3Service.uploadFile(anyString(), any(Path.class)))
+                .thenReturn(Mono.just(true));
+        when(s3Service.uploadFromBuffers(anyString(), anyString(), anyList()))
                 .thenReturn(Mono.just(true));
+        when(s3Service.uploadTransactional(anyMap(), anyBoolean()))
+                .thenAnswer(invocation -> Flux.merge(invocation.<Map<String, Mono<Boolean>>>getArgument(0).values())
+                        .all(Boolean::booleanValue));
+
+        // Blob store
+        when(blobStore.store(anyString(), anyString(), any(byte[].class)))
+                .thenAnswer(invocation -> Mono.just("blobs/" + invocation.getArgument(0)));
+        when(blobStore.release(anyString())).thenReturn(Mono.empty());
+
+        // Upload mode
+        when(uploadProperties.streaming()).thenReturn(false);
+        when(uploadProperties.maxContentSize()).thenReturn(DataSize.ofMegabytes(9));
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(uploadProperties.spoolThreshold()).thenReturn(DataSize.ofMegabytes(1));
 
         // ObjectMapper
         when(objectMapper.writeValueAsString(any(Object.class)))
@@ -119,51 +158,232 @@ public class MediaS3UploadingHandlerTest {
     // }
 
     @Test
-    @DisplayName("When uploading a normal media file, it should upload synchronously")
+    @SuppressWarnings("unchecked")
+    @DisplayName("When uploading a normal media file, it should store the thumbnail by digest and upload the content from memory and metadata in a single transaction")
     void uploadOrUpdateMedia_Normal_ReturnsMonoEntity() {
-        try (var mockedFileUtils = mockStatic(FileUtils.class)) {
-            // FileUtils mocks
-            mockedFileUtils.when(() -> FileUtils.transferTo(any(Path.class), anyString(), any(FilePart.class)))
-                    .thenReturn(Mono.just(mockedPath));
-
-            handler.uploadOrUpdateMedia(entity, mock(FilePart.class), mock(FilePart.class))
-                    .as(StepVerifier::create)
-                    .expectNextMatches($ -> {
-                        verify(s3Service, times(1)).uploadFilesTransactional(anyString(), any(Path[].class));
-                        verify(s3Service, times(1)).uploadFromString(anyString(), any(ContentType.class), anyString());
-                        return true;
-                    })
-                    .verifyComplete();
-        }
+        ArgumentCaptor<Map<String, Mono<Boolean>>> uploads = ArgumentCaptor.forClass(Map.class);
+
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL),
+                mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false)
+                .as(StepVerifier::create)
+                .expectNextMatches(uploaded -> uploaded.getThumbnailDigest() != null
+                        && uploaded.getContentDigest() != null)
+                .verifyComplete();
+
+        verify(blobStore, times(1)).store(eq(entity.getThumbnailDigest()), eq("image/png"), any(byte[].class));
+        verify(s3Service, times(1)).uploadTransactional(uploads.capture(), anyBoolean());
+        verify(s3Service, times(1)).uploadFromBuffers(eq(entity.getId() + "/content"), eq("audio/mpeg"),
+                argThat(buffers -> buffers.size() == 1));
+        verify(s3Service, times(1)).uploadFromString(anyString(), any(ContentType.class), anyString());
+        verify(s3Service, never()).uploadFile(anyString(), any(Path.class));
+        verify(tempDirService, never()).lease(anyString(), anyLong());
+
+        assertEquals(Set.of(entity.getId() + "/content", entity.getId() + "/metadata.json"),
+                uploads.getValue().keySet());
+    }
+
+    @Test
+    @DisplayName("When uploading the files of a new entity, its artifact should not be backed up")
+    void uploadOrUpdateMedia_NewEntity_SkipsBackups() {
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), true)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(s3Service, times(1)).uploadTransactional(anyMap(), eq(false));
+    }
+
+    @Test
+    @DisplayName("When uploading a content file above the spool threshold, it should spill it to a leased directory and release it after the upload")
+    void uploadOrUpdateMedia_Normal_AboveThreshold_SpillsToDisk() {
+        when(uploadProperties.spoolThreshold()).thenReturn(DataSize.ofBytes(4));
+
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false)
+                .as(StepVerifier::create)
+                .expectNextMatches(uploaded -> uploaded.getContentDigest() != null)
+                .verifyComplete();
+
+        verify(tempDirService, times(1)).lease(eq("upload-" + entity.getId()), eq(DataSize.ofMegabytes(9).toBytes()));
+        verify(s3Service, times(1)).uploadFile(eq(entity.getId()), eq(tempDir.resolve("content")));
+        verify(s3Service, never()).uploadFromBuffers(anyString(), anyString(), anyList());
+        verify(lease, times(1)).close();
+    }
+
+    @Test
+    @DisplayName("When the content file declares its length, the leased directory should only reserve that length")
+    void uploadOrUpdateMedia_Normal_DeclaredLength_ReservesLength() {
+        when(uploadProperties.spoolThreshold()).thenReturn(DataSize.ofBytes(4));
+        FilePart contentFile = mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT);
+        contentFile.headers().setContentLength(CONTENT.length);
+
+        handler.uploadOrUpdateMedia(entity, null, contentFile, false)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(tempDirService, times(1)).lease(eq("upload-" + entity.getId()), eq((long) CONTENT.length));
+    }
+
+    @Test
+    @DisplayName("When uploading a content file with audio headers, it should set the duration and fill the missing title from its tags")
+    void uploadOrUpdateMedia_Normal_FillsDurationAndTags() {
+        entity.setTitle(null);
+
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/wav"), wav(2, "Tagged")), false)
+                .as(StepVerifier::create)
+                .expectNextMatches(uploaded -> uploaded.getDuration().equals("00:00:02")
+                        && uploaded.getTitle().equals("Tagged"))
+                .verifyComplete();
+
+        verify(s3Service, times(1)).uploadFromString(eq(entity.getId() + "/metadata.json"), any(ContentType.class),
+                anyString());
+    }
+
+    @Test
+    @DisplayName("When the title is neither given nor in the tags of the content file, it should return an error without uploading the metadata")
+    void uploadOrUpdateMedia_Normal_MissingMetadata_ReturnsMonoError() {
+        entity.setTitle(null);
+
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/wav"), wav(1, null)), false)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(s3Service, never()).uploadFromString(anyString(), any(ContentType.class), anyString());
+    }
+
+    @Test
+    @DisplayName("When the content does not match its declared content type, it should fail before uploading anything")
+    void uploadOrUpdateMedia_Normal_MislabelledContent_ReturnsMonoError() {
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/mpeg"), "text".getBytes()),
+                false)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(s3Service, never()).uploadTransactional(anyMap(), anyBoolean());
+        verify(s3Service, never()).uploadFromBuffers(anyString(), anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("When the thumbnail does not match its declared content type, it should fail without storing it")
+    void uploadOrUpdateMedia_MislabelledThumbnail_ReturnsMonoError() {
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, "text".getBytes()), null, false)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(blobStore, never()).store(anyString(), anyString(), any(byte[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("When uploading the same files again, it should neither store the thumbnail nor upload the content")
+    void uploadOrUpdateMedia_Normal_Unchanged_SkipsFiles() {
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL),
+                mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false).block();
+        clearInvocations(blobStore, s3Service);
+
+        ArgumentCaptor<Map<String, Mono<Boolean>>> uploads = ArgumentCaptor.forClass(Map.class);
+
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL),
+                mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(blobStore, never()).store(anyString(), anyString(), any(byte[].class));
+        verify(blobStore, never()).release(anyString());
+        verify(s3Service, never()).uploadFromBuffers(anyString(), anyString(), anyList());
+        verify(s3Service, times(1)).uploadTransactional(uploads.capture(), anyBoolean());
+        assertEquals(Set.of(entity.getId() + "/metadata.json"), uploads.getValue().keySet());
     }
 
     @Test
-    @DisplayName("When has an error uploading a normal media file, it should return an error")
+    @DisplayName("When has an error uploading a normal media file, it should release the new thumbnail and keep the previous one")
     void uploadOrUpdateMedia_Normal_ReturnsMonoError() {
-        try (var mockedFileUtils = mockStatic(FileUtils.class)) {
-            // FileUtils mocks
-            mockedFileUtils.when(() -> FileUtils.transferTo(any(Path.class), anyString(), any(FilePart.class)))
-                    .thenReturn(Mono.just(mockedPath));
+        entity.setThumbnailDigest("previousDigest");
+
+        // S3 mocks
+        when(s3Service.uploadTransactional(anyMap(), anyBoolean()))
+                .thenReturn(Mono.just(false));
+
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL),
+                mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false)
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
+
+        assertEquals("previousDigest", entity.getThumbnailDigest());
+        verify(blobStore, times(1)).release(argThat(digest -> !digest.equals("previousDigest")));
+        verify(blobStore, never()).release(eq("previousDigest"));
+    }
+
+    @Test
+    @DisplayName("When a new thumbnail is uploaded, it should release the previous one")
+    void uploadOrUpdateMedia_NewThumbnail_ReleasesPrevious() {
+        entity.setThumbnailDigest("previousDigest");
+
+        handler.uploadOrUpdateMedia(entity, mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL), null, false)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(blobStore, times(1)).release(eq("previousDigest"));
+        verify(s3Service, times(1)).uploadTransactional(anyMap(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("When streaming is enabled, it should stream the content to S3 without the temp directory")
+    void uploadOrUpdateMedia_Streaming_ReturnsMonoEntity() {
+        when(uploadProperties.streaming()).thenReturn(true);
+        when(s3Service.uploadStream(anyString(), anyString(), any(), any()))
+                .thenReturn(Mono.just(true));
+
+        FilePart thumbnailFile = mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL);
+        FilePart contentFile = mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT);
+
+        handler.uploadOrUpdateMedia(entity, thumbnailFile, contentFile, false)
+                .as(StepVerifier::create)
+                .expectNextMatches($ -> {
+                    verify(blobStore, times(1)).store(anyString(), eq("image/png"), any(byte[].class));
+                    verify(s3Service, times(1)).uploadStream(eq(entity.getId() + "/content"), eq("audio/mpeg"), any(),
+                            any());
+                    verify(s3Service, times(1)).uploadFromString(anyString(), any(ContentType.class), anyString());
+                    verify(s3Service, times(1)).uploadTransactional(anyMap(), anyBoolean());
+                    verify(s3Service, never()).uploadFile(anyString(), any(Path.class));
+                    verify(s3Service, never()).uploadFromBuffers(anyString(), anyString(), anyList());
+                    verify(tempDirService, never()).lease(anyString(), anyLong());
+                    return true;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When streaming a file to S3 fails, it should return an error")
+    void uploadOrUpdateMedia_Streaming_ReturnsMonoError() {
+        when(uploadProperties.streaming()).thenReturn(true);
+        when(s3Service.uploadStream(anyString(), anyString(), any(), any()))
+                .thenReturn(Mono.just(false));
+        when(s3Service.uploadTransactional(anyMap(), anyBoolean()))
+                .thenReturn(Mono.just(false));
 
-            // S3 mocks
-            when(s3Service.uploadFilesTransactional(anyString(), any(Path[].class)))
-                    .thenReturn(Mono.just(false));
+        handler.uploadOrUpdateMedia(entity, null, mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT), false)
+                .as(StepVerifier::create)
+                .expectError(S3Exception.class)
+                .verify();
 
-            handler.uploadOrUpdateMedia(entity, mock(FilePart.class), mock(FilePart.class))
-                    .as(StepVerifier::create)
-                    .expectError(S3Exception.class)
-                    .verify();
-        }
+        verify(blobStore, never()).release(anyString());
     }
 
     @Test
     @DisplayName("When upating a media file without a new file (content or thumbnail), it should only upload the json with metadata")
     void uploadOrUpdateMedia_NoFile_ReturnsMonoEntity() {
-        handler.uploadOrUpdateMedia(entity, null, null)
+        handler.uploadOrUpdateMedia(entity, null, null, false)
                 .as(StepVerifier::create)
                 .expectNextMatches($ -> {
                     verify(s3Service, times(1)).uploadFromString(anyString(), any(ContentType.class), anyString());
-                    verify(s3Service, never()).uploadFilesTransactional(anyString(), any(Path[].class));
+                    verify(s3Service, never()).uploadTransactional(anyMap(), anyBoolean());
                     verify(s3Service, never()).uploadFileAsync(anyString(), any(Path.class));
                     return true;
                 }).verifyComplete();
@@ -175,9 +395,53 @@ public class MediaS3UploadingHandlerTest {
         when(s3Service.uploadFromString(anyString(), any(ContentType.class), anyString()))
                 .thenReturn(Mono.just(false));
 
-        handler.uploadOrUpdateMedia(entity, null, null)
+        handler.uploadOrUpdateMedia(entity, null, null, false)
                 .as(StepVerifier::create)
                 .expectError(S3Exception.class)
                 .verify();
     }
+
+    /**
+     * Creates a mocked file part with the given content type and content.
+     *
+     * @param contentType The content type of the file part.
+     * @param content     The content of the file part.
+     *
+     * @return The mocked file part.
+     */
+    private FilePart mockFilePart(MediaType contentType, byte[] content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.headers()).thenReturn(headers);
+        when(filePart.content()).thenAnswer($ -> Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(content)));
+        return filePart;
+    }
+
+    /**
+     * Creates a silent 8 kHz, 8 bit, mono WAV file.
+     *
+     * @param seconds The duration of the file.
+     * @param title   The title in its INFO chunk, or null for no tags.
+     *
+     * @return The bytes of the file.
+     */
+    private byte[] wav(int seconds, String title) {
+        int dataSize = 8000 * seconds;
+        byte[] name = title == null ? new byte[0] : (title + "\0").getBytes();
+        int nameSize = name.length + (name.length & 1);
+        int listSize = title == null ? 0 : 8 + 4 + 8 + nameSize;
+
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + 8 + dataSize + listSize).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(wav.capacity() - 8).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(8000).putInt(8000).putShort((short) 1).putShort((short) 8);
+        wav.put("data".getBytes()).putInt(dataSize).put(new byte[dataSize]);
+        if (title != null)
+            wav.put("LIST".getBytes()).putInt(listSize - 8).put("INFO".getBytes())
+                    .put("INAM".getBytes()).putInt(name.length).put(name);
+        return wav.array();
+    }
 }
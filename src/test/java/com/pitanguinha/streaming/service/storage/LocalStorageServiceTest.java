@@ -0,0 +1,247 @@
+package com.pitanguinha.streaming.service.storage;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.core.io.buffer.*;
+
+import com.pitanguinha.streaming.enums.aws.ContentType;
+import com.pitanguinha.streaming.config.storage.StorageProperties;
+
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+public class LocalStorageServiceTest {
+    @TempDir
+    Path root;
+
+    LocalStorageService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new LocalStorageService(new StorageProperties("local", new StorageProperties.Local(root, 2),
+                new StorageProperties.Cache(false, root.resolve("cache"), DataSize.ofMegabytes(1),
+                        DataSize.ofKilobytes(64), 2)));
+    }
+
+    @Test
+    @DisplayName("When bytes are uploaded, the file should be published without temporary files")
+    void uploadFromBytes_Published_WritesFile() throws IOException {
+        StepVerifier.create(service.uploadFromBytes("id/content", "audio/mpeg", bytes("content")))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals("content", Files.readString(root.resolve("id/content")));
+        assertEquals(List.of(root.resolve("id/content")), files());
+    }
+
+    @Test
+    @DisplayName("When a file is uploaded, it should be transferred under the folder with its name")
+    void uploadFile_Folder_AppendsFileName() throws IOException {
+        Path file = Files.writeString(Files.createTempDirectory("local-storage").resolve("thumbnail.png"), "png");
+
+        StepVerifier.create(service.uploadFile("id", file))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals("png", Files.readString(root.resolve("id/thumbnail.png")));
+    }
+
+    @Test
+    @DisplayName("When a stream is uploaded, the buffers should be written in order")
+    void uploadStream_Completed_WritesBuffers() throws IOException {
+        StepVerifier.create(service.uploadStream("id/content", "audio/mpeg", buffers("con", "tent")))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals("content", Files.readString(root.resolve("id/content")));
+        assertEquals(1, files().size());
+    }
+
+    @Test
+    @DisplayName("When a stream upload is skipped, the previous object should be kept")
+    void uploadStream_Skipped_KeepsPreviousObject() throws IOException {
+        service.uploadFromString("id/content", ContentType.JSON, "previous").block();
+
+        StepVerifier.create(service.uploadStream("id/content", "audio/mpeg", buffers("next"), Mono.just(false)))
+                .verifyComplete();
+
+        assertEquals("previous", Files.readString(root.resolve("id/content")));
+        assertEquals(1, files().size());
+    }
+
+    @Test
+    @DisplayName("When the content of a stream fails, the error should be propagated and nothing published")
+    void uploadStream_ContentError_PropagatesError() throws IOException {
+        Flux<DataBuffer> content = buffers("con").concatWith(Flux.error(new IllegalArgumentException("invalid")));
+
+        StepVerifier.create(service.uploadStream("id/content", "audio/mpeg", content))
+                .verifyError(IllegalArgumentException.class);
+
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    @DisplayName("When a key escapes the root, the upload should be rejected")
+    void uploadFromBytes_KeyOutsideRoot_ReturnsError() {
+        StepVerifier.create(service.uploadFromBytes("../outside", "audio/mpeg", bytes("content")))
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("When a multipart upload is completed, the parts should be concatenated in order")
+    void completeMultipartUpload_Parts_ConcatenatesParts() throws IOException {
+        String uploadId = service.createMultipartUpload("id/content", "audio/mpeg").block();
+        service.uploadPart("id/content", uploadId, 2, bytes("tent")).block();
+        service.uploadPart("id/content", uploadId, 1, bytes("con")).block();
+
+        List<StoredPart> parts = service.listParts("id/content", uploadId).collectList().block();
+        assertEquals(List.of(1, 2), parts.stream().map(StoredPart::partNumber).toList());
+        assertEquals(List.of(3L, 4L), parts.stream().map(StoredPart::size).toList());
+
+        StepVerifier.create(service.completeMultipartUpload("id/content", uploadId, parts))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals("content", Files.readString(root.resolve("id/content")));
+        assertEquals(List.of(root.resolve("id/content")), files());
+    }
+
+    @Test
+    @DisplayName("When the parts of an unknown upload are listed, a storage exception should be returned")
+    void listParts_UnknownUpload_ReturnsStorageException() {
+        StepVerifier.create(service.listParts("id/content", UUID.randomUUID().toString()))
+                .verifyError(StorageException.class);
+    }
+
+    @Test
+    @DisplayName("When an upload transaction fails, the uploaded keys should be rolled back")
+    void uploadTransactional_Failure_RollsBack() {
+        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+        uploads.put("id/content", service.uploadFromBytes("id/content", "audio/mpeg", bytes("content")));
+        uploads.put("id/thumbnail.png", Mono.just(false));
+
+        StepVerifier.create(service.uploadTransactional(uploads))
+                .expectNext(false)
+                .verifyComplete();
+
+        assertFalse(Files.exists(root.resolve("id/content")));
+    }
+
+    @Test
+    @DisplayName("When an update transaction fails, the overwritten keys should be restored and the created ones deleted")
+    void uploadTransactional_UpdateFailure_RestoresOverwrittenKeys() throws IOException {
+        service.uploadFromString("id/content", ContentType.JSON, "previous").block();
+
+        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+        uploads.put("id/content", service.uploadFromBytes("id/content", "audio/mpeg", bytes("content")));
+        uploads.put("id/thumbnail.png", service.uploadFromBytes("id/thumbnail.png", "image/png", bytes("png")));
+        uploads.put("id/metadata.json", Mono.just(false));
+
+        StepVerifier.create(service.uploadTransactional(uploads))
+                .expectNext(false)
+                .verifyComplete();
+
+        assertEquals("previous", Files.readString(root.resolve("id/content")));
+        assertEquals(List.of(root.resolve("id/content")), files());
+    }
+
+    @Test
+    @DisplayName("When an upload of a transaction is skipped, its key should not be backed up")
+    void uploadTransactional_SkippedUpload_SkipsBackup() throws IOException {
+        LocalStorageService storage = spy(service);
+        storage.uploadFromString("id/content", ContentType.JSON, "previous").block();
+
+        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+        uploads.put("id/content", storage.uploadStream("id/content", "audio/mpeg", buffers("content"),
+                Mono.just(false)));
+        uploads.put("id/metadata.json", storage.uploadFromString("id/metadata.json", ContentType.JSON, "{}"));
+
+        StepVerifier.create(storage.uploadTransactional(uploads))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals("previous", Files.readString(root.resolve("id/content")));
+        verify(storage, never()).headObject("id/content");
+        verify(storage, times(1)).headObject("id/metadata.json");
+    }
+
+    @Test
+    @DisplayName("When a transaction uploads a new artifact, no key should be backed up and the created ones deleted")
+    void uploadTransactional_NewArtifact_SkipsBackup() {
+        LocalStorageService storage = spy(service);
+
+        Map<String, Mono<Boolean>> uploads = new LinkedHashMap<>();
+        uploads.put("id/content", storage.uploadFromBytes("id/content", "audio/mpeg", bytes("content")));
+        uploads.put("id/metadata.json", Mono.just(false));
+
+        StepVerifier.create(storage.uploadTransactional(uploads, false))
+                .expectNext(false)
+                .verifyComplete();
+
+        assertFalse(Files.exists(root.resolve("id/content")));
+        verify(storage, never()).headObject(anyString());
+    }
+
+    @Test
+    @DisplayName("When an artifact is deleted, every object under its prefix should be deleted")
+    void deleteArtifact_Prefix_DeletesObjects() {
+        service.uploadFromBytes("id/content", "audio/mpeg", bytes("content")).block();
+        service.uploadFromBytes("id/renditions/128k", "audio/mpeg", bytes("content")).block();
+        service.uploadFromBytes("other/content", "audio/mpeg", bytes("content")).block();
+
+        StepVerifier.create(service.deleteArtifact("id"))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertFalse(Files.exists(root.resolve("id")));
+        assertTrue(Files.exists(root.resolve("other/content")));
+    }
+
+    @Test
+    @DisplayName("When a range of an object is read, only the bytes of the range should be emitted")
+    void getObject_Range_ReadsRange() {
+        service.uploadFromBytes("id/content", "audio/mpeg", bytes("streaming content")).block();
+        StoredObject object = service.headObject("id/content").block();
+
+        assertEquals(17, object.contentLength());
+        assertNotNull(object.eTag());
+
+        StepVerifier.create(DataBufferUtils.join(service.getObject(object, 10, 7))
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8)))
+                .expectNext("content")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the metadata of a missing object is read, the result should be empty")
+    void headObject_MissingObject_ReturnsEmpty() {
+        StepVerifier.create(service.headObject("id/content"))
+                .verifyComplete();
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Flux<DataBuffer> buffers(String... contents) {
+        return Flux.fromArray(contents)
+                .map(content -> DefaultDataBufferFactory.sharedInstance.wrap(bytes(content)));
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+}
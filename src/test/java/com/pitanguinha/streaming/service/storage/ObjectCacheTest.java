@@ -0,0 +1,129 @@
+package com.pitanguinha.streaming.service.storage;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.core.io.buffer.*;
+
+import com.pitanguinha.streaming.config.storage.StorageProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+public class ObjectCacheTest {
+    private static final String CONTENT = "streaming content";
+
+    @TempDir
+    Path root;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    List<String> requests = new ArrayList<>();
+    ObjectCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ObjectCache(new StorageProperties.Cache(true, root, DataSize.ofBytes(12), DataSize.ofBytes(4), 2),
+                registry);
+    }
+
+    @Test
+    @DisplayName("When an object is read once, it should not be cached")
+    void read_FirstRead_BypassesCache() {
+        assertRead(object("id/content", "\"v1\""), 2, 5, "reami");
+
+        assertEquals(List.of("2-5"), requests);
+        assertEquals(0, cache.size());
+        assertEquals(1, registry.get("storage.cache.bypassed").counter().count());
+    }
+
+    @Test
+    @DisplayName("When an admitted range is read again, it should be served from the disk")
+    void read_AdmittedRange_ServedFromDisk() {
+        var object = object("id/content", "\"v1\"");
+        assertRead(object, 5, 6, "ming c");
+        assertRead(object, 5, 6, "ming c");
+        assertRead(object, 5, 6, "ming c");
+
+        // The second read fills the segments 1 and 2, aligned to the segments
+        assertEquals(List.of("5-6", "4-8"), requests);
+        assertEquals(8, cache.size());
+        assertEquals(2, registry.get("storage.cache.segments").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    @DisplayName("When a range is partially cached, only the missing segments should be read from the origin")
+    void read_PartiallyCached_FillsMissingSegments() {
+        var object = object("id/content", "\"v1\"");
+        assertRead(object, 4, 4, "amin");
+        assertRead(object, 4, 4, "amin");
+        requests.clear();
+
+        assertRead(object, 0, 11, "streaming c");
+
+        assertEquals(List.of("0-4", "8-4"), requests);
+    }
+
+    @Test
+    @DisplayName("When the object is replaced, its new entity tag should not be served from the cache")
+    void read_NewEntityTag_MissesCache() {
+        assertRead(object("id/content", "\"v1\""), 0, 4, "stre");
+        assertRead(object("id/content", "\"v1\""), 0, 4, "stre");
+        requests.clear();
+
+        assertRead(object("id/content", "\"v2\""), 0, 4, "stre");
+
+        assertEquals(List.of("0-4"), requests);
+    }
+
+    @Test
+    @DisplayName("When the max size is exceeded, the least recently read object should be evicted")
+    void read_MaxSizeExceeded_EvictsLeastRecentlyRead() {
+        var first = object("first", "\"v1\"");
+        var second = object("second", "\"v1\"");
+        for (int i = 0; i < 2; i++) {
+            assertRead(first, 0, 8, "streamin");
+            assertRead(second, 0, 8, "streamin");
+        }
+        requests.clear();
+
+        assertEquals(8, cache.size());
+        assertRead(second, 0, 8, "streamin");
+        assertRead(first, 0, 8, "streamin");
+
+        assertEquals(List.of("0-8"), requests);
+    }
+
+    private void assertRead(StoredObject object, long offset, long length, String expected) {
+        StepVerifier.create(DataBufferUtils.join(cache.read(object, offset, length, this::origin))
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8)))
+                .expectNext(expected)
+                .verifyComplete();
+    }
+
+    private Flux<DataBuffer> origin(StoredObject object, long offset, long length) {
+        requests.add(offset + "-" + length);
+        byte[] bytes = CONTENT.substring((int) offset, (int) (offset + length)).getBytes(StandardCharsets.UTF_8);
+
+        // Split in buffers of 3 bytes, not aligned to the segments
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 3)
+            buffers.add(DefaultDataBufferFactory.sharedInstance
+                    .wrap(Arrays.copyOfRange(bytes, i, Math.min(i + 3, bytes.length))));
+
+        return Flux.fromIterable(buffers);
+    }
+
+    private static StoredObject object(String key, String eTag) {
+        return new StoredObject(key, CONTENT.length(), "audio/mpeg", eTag, Instant.EPOCH);
+    }
+}
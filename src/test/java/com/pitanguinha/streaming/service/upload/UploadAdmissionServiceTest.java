@@ -0,0 +1,142 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.http.codec.multipart.FilePart;
+
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class UploadAdmissionServiceTest {
+    @Mock
+    UploadProperties uploadProperties;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    UploadAdmissionService service;
+
+    @BeforeEach
+    void setMocks() {
+        // Two contents of 10 bytes in flight, one waiting
+        when(uploadProperties.maxContentSize()).thenReturn(DataSize.ofBytes(10));
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofBytes(5));
+        when(uploadProperties.admission()).thenReturn(new UploadProperties.Admission(
+                new UploadProperties.Limits(DataSize.ofBytes(20), 4, 1),
+                new UploadProperties.Limits(DataSize.ofBytes(5), 1, 0),
+                Duration.ofSeconds(5), Duration.ofSeconds(3)));
+
+        service = new UploadAdmissionService(uploadProperties, registry);
+    }
+
+    @Test
+    @DisplayName("When the files fit in the limits, they should be admitted and released by the permit")
+    void admit_WithinLimits_ReturnsPermit() {
+        Disposable permit = service.admit(mockFilePart(), mockFilePart()).block();
+
+        assertEquals(10, gauge("upload.admission.bytes.in.flight", "content"));
+        assertEquals(5, gauge("upload.admission.bytes.in.flight", "thumbnail"));
+
+        permit.dispose();
+
+        assertEquals(0, gauge("upload.admission.bytes.in.flight", "content"));
+        assertEquals(0, gauge("upload.admission.requests.in.flight", "thumbnail"));
+    }
+
+    @Test
+    @DisplayName("When a form is admitted by its request length, each gate should reserve the length up to its max size")
+    void admit_RequestLength_ReservesLengthUpToMaxSize() {
+        Disposable permit = service.admit(8).block();
+
+        assertEquals(8, gauge("upload.admission.bytes.in.flight", "content"));
+        assertEquals(5, gauge("upload.admission.bytes.in.flight", "thumbnail"));
+
+        permit.dispose();
+        service.admit(-1).block();
+
+        assertEquals(10, gauge("upload.admission.bytes.in.flight", "content"));
+    }
+
+    @Test
+    @DisplayName("When the bytes are reserved, an upload should wait and be admitted once a permit is released")
+    void admit_BytesReserved_WaitsForRelease() {
+        Disposable first = service.admit(null, mockFilePart()).block();
+        service.admit(null, mockFilePart()).block();
+
+        StepVerifier.create(service.admit(null, mockFilePart()))
+                .then(() -> assertEquals(1, gauge("upload.admission.queued", "content")))
+                .then(first::dispose)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(20, gauge("upload.admission.bytes.in.flight", "content"));
+    }
+
+    @Test
+    @DisplayName("When the queue is full, an upload should be rejected right away with the retry after")
+    void admit_QueueFull_ThrowsAdmissionRejectedException() {
+        service.admit(null, mockFilePart()).block();
+        service.admit(null, mockFilePart()).block();
+        service.admit(null, mockFilePart()).subscribe();
+
+        StepVerifier.create(service.admit(null, mockFilePart()))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(AdmissionRejectedException.class, e);
+                    assertEquals(Duration.ofSeconds(3), ((AdmissionRejectedException) e).getRetryAfter());
+                })
+                .verify();
+
+        assertEquals(1, registry.get("upload.admission.rejected").tag("kind", "content").counter().count());
+    }
+
+    @Test
+    @DisplayName("When the thumbnail is rejected, the admitted content should be released")
+    void admit_ThumbnailRejected_ReleasesContent() {
+        service.admit(mockFilePart(), null).block();
+
+        StepVerifier.create(service.admit(mockFilePart(), mockFilePart()))
+                .expectError(AdmissionRejectedException.class)
+                .verify();
+
+        assertEquals(0, gauge("upload.admission.bytes.in.flight", "content"));
+    }
+
+    @Test
+    @DisplayName("When a waiting upload is cancelled, it should leave the queue")
+    void admit_Cancelled_LeavesQueue() {
+        service.admit(null, mockFilePart()).block();
+        service.admit(null, mockFilePart()).block();
+
+        service.admit(null, mockFilePart()).subscribe().dispose();
+
+        assertEquals(0, gauge("upload.admission.queued", "content"));
+        assertEquals(2, gauge("upload.admission.requests.in.flight", "content"));
+    }
+
+    private double gauge(String name, String kind) {
+        return registry.get(name).tag("kind", kind).gauge().value();
+    }
+
+    private FilePart mockFilePart() {
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.headers()).thenReturn(new HttpHeaders());
+        return filePart;
+    }
+}
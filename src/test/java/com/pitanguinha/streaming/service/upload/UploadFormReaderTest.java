@@ -0,0 +1,192 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.BindException;
+import org.springframework.http.codec.multipart.*;
+import org.springframework.core.io.buffer.*;
+
+import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.dto.media.*;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.internal.AdmissionRejectedException;
+
+import jakarta.validation.Validation;
+
+import reactor.core.Disposables;
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class UploadFormReaderTest {
+    static final byte[] THUMBNAIL = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 't', 'h', 'u', 'm', 'b' };
+
+    @Mock
+    UploadProperties uploadProperties;
+
+    @Mock
+    UploadAdmissionService uploadAdmissionService;
+
+    UploadFormReader reader;
+
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofBytes(16));
+        when(uploadAdmissionService.admit(anyLong())).thenAnswer($ -> Mono.just(Disposables.single()));
+
+        reader = new UploadFormReader(Validation.buildDefaultValidatorFactory().getValidator(), uploadProperties,
+                uploadAdmissionService);
+    }
+
+    @Test
+    @DisplayName("When the form is valid, it should be handled with the content streamed from the request")
+    void read_ValidForm_HandlesFormWithStreamedContent() {
+        var events = Flux.<PartEvent>concat(
+                FormPartEvent.create("title", "Title"),
+                FormPartEvent.create("year", "2003"),
+                file("thumbnailFile", "image/png", THUMBNAIL),
+                file("contentFile", "audio/ogg", "content".getBytes(StandardCharsets.UTF_8)));
+
+        reader.read(-1, events, MediaPostDto.class, postDto -> DataBufferUtils.join(postDto.getContentFile().content())
+                .map(FileUtils::readAndRelease)
+                .map(bytes -> postDto.getTitle() + ":" + postDto.getYear() + ":"
+                        + new String(bytes, StandardCharsets.UTF_8)))
+                .as(StepVerifier::create)
+                .expectNext("Title:2003:content")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the form is not valid, it should fail with the binding errors before the content is read")
+    void read_InvalidForm_ThrowsBindException() {
+        AtomicBoolean handled = new AtomicBoolean();
+        var events = Flux.<PartEvent>concat(
+                FormPartEvent.create("title", ""),
+                file("contentFile", "audio/ogg", "content".getBytes(StandardCharsets.UTF_8)));
+
+        reader.read(-1, events, MediaPostDto.class, postDto -> {
+            handled.set(true);
+            return Mono.just(postDto);
+        })
+                .as(StepVerifier::create)
+                .expectErrorSatisfies(error -> {
+                    var bindException = assertInstanceOf(BindException.class, error);
+                    assertNotNull(bindException.getFieldError("title"));
+                    assertNotNull(bindException.getFieldError("thumbnailFile"));
+                })
+                .verify();
+
+        assertFalse(handled.get());
+    }
+
+    @Test
+    @DisplayName("When the form has no content file, it should be handled once the request completes")
+    void read_WithoutContent_HandlesFormOnComplete() {
+        var events = Flux.<PartEvent>concat(
+                FormPartEvent.create("id", "42"),
+                FormPartEvent.create("title", "Title"));
+
+        reader.read(-1, events, MediaPutDto.class, putDto -> Mono.just(putDto.getId() + ":" + putDto.getTitle()))
+                .as(StepVerifier::create)
+                .expectNext("42:Title")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the thumbnail exceeds its max size, it should fail with IllegalArgumentException")
+    void read_OversizedThumbnail_ThrowsIllegalArgumentException() {
+        var events = Flux.<PartEvent>concat(
+                FormPartEvent.create("title", "Title"),
+                file("thumbnailFile", "image/png", Arrays.copyOf(THUMBNAIL, 17)),
+                file("contentFile", "audio/ogg", "content".getBytes(StandardCharsets.UTF_8)));
+
+        reader.read(-1, events, MediaPostDto.class, Mono::just)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("When the thumbnail doesn't match its content type, it should fail before the form is handled")
+    void read_MislabelledThumbnail_ThrowsIllegalArgumentException() {
+        AtomicBoolean handled = new AtomicBoolean();
+        var events = Flux.<PartEvent>concat(
+                file("thumbnailFile", "image/png", "not a png".getBytes(StandardCharsets.UTF_8)),
+                file("contentFile", "audio/ogg", "content".getBytes(StandardCharsets.UTF_8)));
+
+        reader.read(-1, events, MediaPostDto.class, postDto -> {
+            handled.set(true);
+            return Mono.just(postDto);
+        })
+                .as(StepVerifier::create)
+                .expectErrorMessage("File content does not match its content type: image/png")
+                .verify();
+
+        assertFalse(handled.get());
+    }
+
+    @Test
+    @DisplayName("When an unexpected file part is sent, it should fail with IllegalArgumentException")
+    void read_UnexpectedPart_ThrowsIllegalArgumentException() {
+        var events = Flux.<PartEvent>concat(
+                file("coverFile", "image/png", THUMBNAIL),
+                file("contentFile", "audio/ogg", "content".getBytes(StandardCharsets.UTF_8)));
+
+        reader.read(-1, events, MediaPostDto.class, Mono::just)
+                .as(StepVerifier::create)
+                .expectErrorMessage("Unexpected part: coverFile")
+                .verify();
+    }
+
+    @Test
+    @DisplayName("When the form is not admitted, it should fail without reading the request")
+    void read_NotAdmitted_ThrowsAdmissionRejectedException() {
+        AtomicBoolean subscribed = new AtomicBoolean();
+        when(uploadAdmissionService.admit(100)).thenReturn(Mono.error(
+                new AdmissionRejectedException("Too many uploads", UploadAdmissionService.class, Duration.ofSeconds(5))));
+
+        var events = Flux.<PartEvent>never().doOnSubscribe($ -> subscribed.set(true));
+
+        reader.read(100, events, MediaPostDto.class, Mono::just)
+                .as(StepVerifier::create)
+                .expectError(AdmissionRejectedException.class)
+                .verify();
+
+        assertFalse(subscribed.get());
+    }
+
+    @Test
+    @DisplayName("When the handler fails, it should still release the admission of the form")
+    void read_HandlerFails_ReleasesAdmission() {
+        var permit = Disposables.single();
+        when(uploadAdmissionService.admit(anyLong())).thenReturn(Mono.just(permit));
+
+        reader.read(-1, Flux.<PartEvent>from(FormPartEvent.create("id", "42")), MediaPutDto.class,
+                putDto -> Mono.error(new IllegalStateException("Upload failed")))
+                .as(StepVerifier::create)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertTrue(permit.isDisposed());
+    }
+
+    private Flux<FilePartEvent> file(String name, String contentType, byte[] content) {
+        return FilePartEvent.create(name, name + ".bin", MediaType.parseMediaType(contentType),
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content)));
+    }
+}
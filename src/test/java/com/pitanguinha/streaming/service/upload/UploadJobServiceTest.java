@@ -0,0 +1,194 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.nio.file.*;
+import java.time.*;
+import java.util.function.Supplier;
+
+import org.springframework.http.*;
+import org.springframework.util.unit.DataSize;
+import org.springframework.core.io.buffer.*;
+import org.springframework.http.codec.multipart.FilePart;
+
+import com.pitanguinha.streaming.domain.upload.UploadJob;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.enums.upload.UploadJobStatus;
+import com.pitanguinha.streaming.exceptions.aws.s3.S3Exception;
+import com.pitanguinha.streaming.repository.upload.UploadJobRepository;
+import com.pitanguinha.streaming.service.TempDirService;
+
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class UploadJobServiceTest {
+    static final byte[] THUMBNAIL = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 't', 'h', 'u', 'm', 'b' };
+    static final byte[] CONTENT = { (byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0, 'c', 'o', 'n', 't', 'e', 'n', 't' };
+
+    @Mock
+    UploadJobRepository repository;
+    @Mock
+    UploadProperties uploadProperties;
+    @Mock
+    TempDirService tempDirService;
+    @InjectMocks
+    UploadJobService service;
+
+    @TempDir
+    Path spoolDir;
+
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.maxThumbnailSize()).thenReturn(DataSize.ofMegabytes(1));
+        when(uploadProperties.maxContentSize()).thenReturn(DataSize.ofMegabytes(9));
+        when(uploadProperties.ingest()).thenReturn(new UploadProperties.Ingest(spoolDir, 2, 3,
+                Duration.ofSeconds(30), Duration.ofSeconds(2), Duration.ofMinutes(15), Duration.ofMinutes(10),
+                Duration.ofDays(7)));
+
+        when(tempDirService.withReservation(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<?>>>getArgument(1).get());
+
+        when(repository.save(any(UploadJob.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.report(any(UploadJob.class), any()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("When spooling files, it should write them to the spool directory of the job")
+    void spool_WritesFilesToSpoolDir() throws Exception {
+        UploadJob job = service.spool(mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL),
+                mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT)).block();
+
+        assertNotNull(job.getId());
+        assertArrayEquals(THUMBNAIL, Files.readAllBytes(Path.of(job.getThumbnail().getPath())));
+        assertArrayEquals(CONTENT, Files.readAllBytes(Path.of(job.getContent().getPath())));
+        assertEquals("audio/mpeg", job.getContent().getContentType());
+        assertEquals(spoolDir.resolve(job.getId()), Path.of(job.getContent().getPath()).getParent());
+
+        StepVerifier.create(DataBufferUtils.join(service.contentOf(job).content())
+                .map(dataBfr -> dataBfr.readableByteCount()))
+                .expectNext(CONTENT.length)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When spooling files, it should reserve their declared length, or their max size if unknown")
+    void spool_ReservesDeclaredLengthOfFiles() {
+        FilePart thumbnailFile = mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL);
+        thumbnailFile.headers().setContentLength(THUMBNAIL.length);
+
+        service.spool(thumbnailFile, mockFilePart(MediaType.valueOf("audio/mpeg"), CONTENT)).block();
+
+        verify(tempDirService).withReservation(eq(THUMBNAIL.length + DataSize.ofMegabytes(9).toBytes()), any());
+    }
+
+    @Test
+    @DisplayName("When a file doesn't match its content type, it should return an error and delete the spooled files")
+    void spool_MislabelledContent_ReturnsMonoError() {
+        service.spool(mockFilePart(MediaType.IMAGE_PNG, THUMBNAIL), mockFilePart(MediaType.valueOf("audio/mpeg"),
+                THUMBNAIL))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(tempDirService, times(1)).deleteDirectory(any(Path.class));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("When queuing a job, it should save it as queued and due now")
+    void enqueue_ReturnsMonoQueuedJob() {
+        service.enqueue(UploadJob.builder().id("jobId").build(), "music", "mediaId", 5)
+                .as(StepVerifier::create)
+                .assertNext(dto -> {
+                    assertEquals(UploadJobStatus.QUEUED, dto.getStatus());
+                    assertEquals("mediaId", dto.getMediaId());
+                    assertEquals(5, dto.getPriority());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When an attempt fails with a transient error, it should queue the job again after the backoff")
+    void fail_TransientError_RequeuesJob() {
+        UploadJob job = UploadJob.builder().id("jobId").status(UploadJobStatus.RUNNING).attempts(2).build();
+        Instant before = Instant.now();
+
+        service.fail(job, new S3Exception("Upload failed", null, null, null, null))
+                .as(StepVerifier::create)
+                .assertNext(saved -> {
+                    assertEquals(UploadJobStatus.QUEUED, saved.getStatus());
+                    assertFalse(saved.getNextAttemptAt().isBefore(before.plusSeconds(60)));
+                    assertNull(saved.getLockedUntil());
+                })
+                .verifyComplete();
+
+        verify(tempDirService, never()).deleteDirectory(any(Path.class));
+    }
+
+    @Test
+    @DisplayName("When an attempt fails with an invalid request, it should fail the job for good")
+    void fail_InvalidRequest_FailsJob() {
+        UploadJob job = UploadJob.builder().id("jobId").status(UploadJobStatus.RUNNING).attempts(1).build();
+
+        service.fail(job, new IllegalArgumentException("Required metadata is missing"))
+                .as(StepVerifier::create)
+                .assertNext(saved -> {
+                    assertEquals(UploadJobStatus.FAILED, saved.getStatus());
+                    assertEquals("Required metadata is missing", saved.getError());
+                    assertNotNull(saved.getExpiresAt());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the last attempt fails, it should fail the job for good")
+    void fail_MaxAttempts_FailsJob() {
+        UploadJob job = UploadJob.builder().id("jobId").status(UploadJobStatus.RUNNING).attempts(3).build();
+
+        service.fail(job, new S3Exception("Upload failed", null, null, null, null))
+                .as(StepVerifier::create)
+                .assertNext(saved -> assertEquals(UploadJobStatus.FAILED, saved.getStatus()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the claim of a job was lost, it should drop the outcome and keep the spooled files")
+    void fail_LostClaim_KeepsSpooledFiles() {
+        Instant claimedUntil = Instant.now().minusSeconds(1);
+        UploadJob job = UploadJob.builder().id("jobId").status(UploadJobStatus.RUNNING).attempts(3)
+                .lockedUntil(claimedUntil).build();
+        when(repository.report(job, claimedUntil)).thenReturn(Mono.empty());
+
+        service.fail(job, new S3Exception("Upload failed", null, null, null, null))
+                .as(StepVerifier::create)
+                .verifyComplete();
+
+        verify(repository, never()).save(any());
+        verify(tempDirService, never()).deleteDirectory(any(Path.class));
+    }
+
+    private FilePart mockFilePart(MediaType contentType, byte[] content) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.name()).thenReturn("file");
+        when(filePart.filename()).thenReturn("file");
+        when(filePart.headers()).thenReturn(headers);
+        when(filePart.content()).thenAnswer($ -> Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(content)));
+        return filePart;
+    }
+}
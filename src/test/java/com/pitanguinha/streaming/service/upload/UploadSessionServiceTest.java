@@ -0,0 +1,215 @@
+package com.pitanguinha.streaming.service.upload;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import static org.mockito.Mockito.*;
+import org.mockito.quality.Strictness;
+
+import java.time.*;
+import java.util.*;
+
+import org.springframework.util.unit.DataSize;
+import org.springframework.core.io.buffer.*;
+
+import com.pitanguinha.streaming.dto.upload.UploadSessionPostDto;
+import com.pitanguinha.streaming.domain.upload.UploadSession;
+import com.pitanguinha.streaming.config.upload.UploadProperties;
+import com.pitanguinha.streaming.exceptions.domain.*;
+import com.pitanguinha.streaming.repository.upload.UploadSessionRepository;
+import com.pitanguinha.streaming.service.aws.AwsS3Service;
+import com.pitanguinha.streaming.service.storage.StoredPart;
+
+import reactor.core.publisher.*;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class UploadSessionServiceTest {
+    @Mock
+    UploadSessionRepository repository;
+    @Mock
+    AwsS3Service s3Service;
+    @Mock
+    UploadProperties uploadProperties;
+    @InjectMocks
+    UploadSessionService service;
+
+    UploadSession session;
+
+    @BeforeEach
+    void setMocks() {
+        when(uploadProperties.resumable()).thenReturn(new UploadProperties.Resumable(
+                DataSize.ofMegabytes(8), DataSize.ofMegabytes(100), Duration.ofHours(1)));
+
+        // A session of 10 bytes split in chunks of 4, 4 and 2 bytes
+        session = UploadSession.builder()
+                .id("sessionId")
+                .mediaId("mediaId")
+                .uploadId("uploadId")
+                .contentType("audio/mpeg")
+                .size(10)
+                .chunkSize(4)
+                .expiresAt(Instant.now().plus(Duration.ofHours(1)))
+                .build();
+
+        when(repository.findById(eq("sessionId"))).thenReturn(Mono.just(session));
+    }
+
+    @Test
+    @DisplayName("When creating a session, it should start a multipart upload under the content of a reserved media")
+    void create_ReturnsMonoSessionDto() {
+        when(s3Service.createMultipartUpload(anyString(), anyString())).thenReturn(Mono.just("uploadId"));
+        when(repository.save(any(UploadSession.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        service.create(new UploadSessionPostDto("audio/mpeg", DataSize.ofMegabytes(20).toBytes()))
+                .as(StepVerifier::create)
+                .assertNext(dto -> {
+                    assertEquals(3, dto.getTotalChunks());
+                    assertTrue(dto.getCommittedChunks().isEmpty());
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<UploadSession> saved = ArgumentCaptor.forClass(UploadSession.class);
+        verify(repository, times(1)).save(saved.capture());
+        assertEquals("uploadId", saved.getValue().getUploadId());
+        verify(s3Service, times(1)).createMultipartUpload(eq(saved.getValue().getMediaId() + "/content"),
+                eq("audio/mpeg"));
+    }
+
+    @Test
+    @DisplayName("When creating a session for an unsupported file, it should return an error without starting an upload")
+    void create_UnsupportedFile_ReturnsMonoError() {
+        service.create(new UploadSessionPostDto("image/png", 10))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        service.create(new UploadSessionPostDto("audio/mpeg", DataSize.ofMegabytes(101).toBytes()))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(s3Service, never()).createMultipartUpload(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("When finding an expired session, it should return a not found error")
+    void findById_Expired_ReturnsMonoError() {
+        session.setExpiresAt(Instant.now().minusSeconds(1));
+
+        service.findById("sessionId")
+                .as(StepVerifier::create)
+                .expectError(NotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("When finding a session, it should return the committed chunks with their offsets")
+    void findById_ReturnsCommittedChunks() {
+        when(s3Service.listParts(anyString(), anyString())).thenReturn(Flux.just(
+                new StoredPart(1, null, 4L, null),
+                new StoredPart(3, null, 2L, null)));
+
+        service.findById("sessionId")
+                .as(StepVerifier::create)
+                .assertNext(dto -> {
+                    assertEquals(2, dto.getCommittedChunks().size());
+                    assertEquals(8, dto.getCommittedChunks().get(1).getOffset());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When uploading a chunk, it should upload it as the part with the same number")
+    void uploadChunk_ReturnsMonoChunkDto() {
+        when(s3Service.uploadPart(anyString(), anyString(), anyInt(), any(byte[].class)))
+                .thenReturn(Mono.just(new StoredPart(3, null, null, null)));
+
+        service.uploadChunk("sessionId", 3, content(2))
+                .as(StepVerifier::create)
+                .assertNext(dto -> {
+                    assertEquals(3, dto.getNumber());
+                    assertEquals(8, dto.getOffset());
+                    assertEquals(2, dto.getSize());
+                })
+                .verifyComplete();
+
+        verify(s3Service, times(1)).uploadPart(eq("mediaId/content"), eq("uploadId"), eq(3), any(byte[].class));
+    }
+
+    @Test
+    @DisplayName("When the first chunk does not match the content type of the session, it should return an error without uploading")
+    void uploadChunk_MislabelledFirstChunk_ReturnsMonoError() {
+        service.uploadChunk("sessionId", 1, Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("text".getBytes())))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(s3Service, never()).uploadPart(anyString(), anyString(), anyInt(), any(byte[].class));
+    }
+
+    @Test
+    @DisplayName("When uploading a chunk with an invalid number or size, it should return an error without uploading")
+    void uploadChunk_InvalidChunk_ReturnsMonoError() {
+        service.uploadChunk("sessionId", 4, content(2))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        service.uploadChunk("sessionId", 1, content(2))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        service.uploadChunk("sessionId", 1, content(5))
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(s3Service, never()).uploadPart(anyString(), anyString(), anyInt(), any(byte[].class));
+    }
+
+    @Test
+    @DisplayName("When completing a session with all chunks, it should complete the upload and keep the session")
+    void complete_ReturnsMonoSession() {
+        when(s3Service.listParts(anyString(), anyString())).thenReturn(Flux.just(
+                new StoredPart(1, "1", 4L, null),
+                new StoredPart(2, "2", 4L, null),
+                new StoredPart(3, "3", 2L, null)));
+        when(s3Service.completeMultipartUpload(anyString(), anyString(), anyList())).thenReturn(Mono.just(true));
+
+        service.complete(session)
+                .as(StepVerifier::create)
+                .expectNextMatches(completed -> completed.getMediaId().equals("mediaId"))
+                .verifyComplete();
+
+        verify(s3Service, times(1)).completeMultipartUpload(eq("mediaId/content"), eq("uploadId"),
+                argThat(parts -> parts.size() == 3));
+        verify(repository, never()).delete(any(UploadSession.class));
+    }
+
+    @Test
+    @DisplayName("When completing a session with missing chunks, it should return an error and keep the session")
+    void complete_MissingChunks_ReturnsMonoError() {
+        when(s3Service.listParts(anyString(), anyString())).thenReturn(Flux.just(
+                new StoredPart(1, null, 4L, null),
+                new StoredPart(3, null, 2L, null)));
+
+        service.complete(session)
+                .as(StepVerifier::create)
+                .expectError(DomainStateException.class)
+                .verify();
+
+        verify(s3Service, never()).completeMultipartUpload(anyString(), anyString(), anyList());
+        verify(repository, never()).delete(any(UploadSession.class));
+    }
+
+    private Flux<DataBuffer> content(int size) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[size]));
+    }
+}
@@ -4,57 +4,236 @@ import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 
-import java.util.Comparator;
+import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import static org.mockito.Mockito.*;
 
+import org.springframework.core.io.buffer.*;
 import org.springframework.http.codec.multipart.FilePart;
 
-import com.pitanguinha.streaming.utils.FileUtils;
+import com.pitanguinha.streaming.enums.media.contenttypes.*;
+import com.pitanguinha.streaming.utils.*;
 
 import reactor.test.StepVerifier;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.*;
 
 public class FileUtilsTest {
     FileUtils utils;
 
+    DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
     @Test
     @DisplayName("Should transfer file to provided directory path")
     void transferTo_ReturnFileInProvidedDirectoryPath() throws Exception {
-        // 1. Create a temporary directory for the test and a test file
+        // 1. Create a temporary directory for the test
         Path targetPath = Path.of(System.getProperty("java.io.tmpdir"), "test-transfer-to");
         Files.createDirectories(targetPath);
-        Path testFile = Files.createFile(targetPath.resolve("test.txt"));
 
-        // 2. When the transferTo method is called, it should copy the test file to the
-        // target directory
-        // Simulating the real behavior of transferTo method
+        // 2. Given a file part with 3 bytes of content
         FilePart mockFile = mock(FilePart.class);
-        when(mockFile.filename()).thenReturn("test.mp3");
-
-        doAnswer(invocation -> {
-            Path target = invocation.getArgument(0);
-            Files.copy(testFile, target);
-            return Mono.empty();
-        }).when(mockFile).transferTo(any(Path.class));
+        when(mockFile.content()).thenReturn(Flux.just(bufferFactory.wrap(new byte[] { 1, 2, 3 })));
 
         // When: transferTo is called with the target path and a file name
-        FileUtils.transferTo(targetPath, "test.mp3", mockFile)
-                // Then: the file should be copied to the target directory
+        FileUtils.transferTo(targetPath, "test.mp3", mockFile, 1024)
+                // Then: the file should be written to the target directory
                 .as(StepVerifier::create)
                 .expectNextMatches(filePath -> {
                     // Check if the file exists in the target directory
                     assertTrue(Files.exists(filePath), "File should exist in the target directory");
                     assertTrue(filePath.endsWith("test.mp3"), "File name should be test.mp3");
                     return true;
-                });
+                })
+                .verifyComplete();
 
         // 3. Delete the target directory after all
-        Files.walk(targetPath)
-                .sorted(Comparator.reverseOrder())
-                .map(Path::toFile)
-                .forEach(File::delete);
+        deleteDirectory(targetPath);
+    }
+
+    @Test
+    @DisplayName("When the file is larger than the limit, should abort the transfer and delete the partial file")
+    void transferTo_FileTooLarge_ThrowsIllegalArgumentException() throws Exception {
+        Path targetPath = Path.of(System.getProperty("java.io.tmpdir"), "test-transfer-to-limit");
+        Files.createDirectories(targetPath);
+
+        FilePart mockFile = mock(FilePart.class);
+        when(mockFile.content()).thenReturn(Flux.range(0, 4).map($ -> bufferFactory.wrap(new byte[512])));
+
+        FileUtils.transferTo(targetPath, "test.mp3", mockFile, 1024)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        assertFalse(Files.exists(targetPath.resolve("test.mp3")), "Partial file should be deleted");
+
+        deleteDirectory(targetPath);
+    }
+
+    @Test
+    @DisplayName("When the content is within the limit, should pass all buffers through")
+    void limitSize_WithinLimit_ReturnsContent() {
+        Flux<DataBuffer> content = Flux.range(0, 2).map($ -> bufferFactory.wrap(new byte[512]));
+
+        FileUtils.limitSize(content, 1024)
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the limit is crossed, should release the buffer and stop reading the content")
+    void limitSize_LimitCrossed_ThrowsIllegalArgumentException() {
+        List<Integer> emitted = new ArrayList<>();
+        Flux<DataBuffer> content = Flux.range(0, 10)
+                .doOnNext(emitted::add)
+                .map($ -> bufferFactory.wrap(new byte[512]));
+
+        FileUtils.limitSize(content, 1024)
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        assertEquals(3, emitted.size(), "Content should not be read after the limit is crossed");
+    }
+
+    @Test
+    @DisplayName("When the content is empty, should throw an IllegalArgumentException")
+    void limitSize_EmptyContent_ThrowsIllegalArgumentException() {
+        FileUtils.limitSize(Flux.empty(), 1024)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("When digesting a content, should pass the buffers through untouched and compute its SHA-256")
+    void digest_ReturnsContentAndSha256() {
+        var digest = FileUtils.sha256();
+        Flux<DataBuffer> content = Flux.just(bufferFactory.wrap("ab".getBytes()), bufferFactory.wrap("c".getBytes()));
+
+        FileUtils.digest(content, digest)
+                .as(StepVerifier::create)
+                .expectNextMatches(buffer -> buffer.readableByteCount() == 2)
+                .expectNextMatches(buffer -> buffer.readableByteCount() == 1)
+                .verifyComplete();
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", FileUtils.hex(digest));
+    }
+
+    @Test
+    @DisplayName("When the content fits in the threshold, should keep its buffers in memory without spilling")
+    void spool_BelowThreshold_ReturnsInMemoryContent() {
+        Flux<DataBuffer> content = Flux.just(bufferFactory.wrap("ab".getBytes()), bufferFactory.wrap("c".getBytes()));
+
+        FileUtils.spool(content, 3, rest -> Flux.error(new AssertionError("Should not spill")).then(Mono.empty()))
+                .as(StepVerifier::create)
+                .assertNext(spooled -> {
+                    assertTrue(spooled.isInMemory());
+                    assertEquals(2, spooled.buffers().size());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("When the content crosses the threshold, should spill the whole content in order")
+    void spool_AboveThreshold_SpillsWholeContent() throws Exception {
+        Path targetPath = Files.createTempDirectory("test-spool");
+        Flux<DataBuffer> content = Flux.just(bufferFactory.wrap("ab".getBytes()), bufferFactory.wrap("cd".getBytes()),
+                bufferFactory.wrap("e".getBytes()));
+
+        try {
+            FileUtils.spool(content, 3, rest -> FileUtils.writeTo(targetPath, "content", rest)
+                    .map(path -> SpooledContent.onDisk(path, () -> {
+                    })))
+                    .as(StepVerifier::create)
+                    .assertNext(spooled -> assertFalse(spooled.isInMemory()))
+                    .verifyComplete();
+
+            assertEquals("abcde", Files.readString(targetPath.resolve("content")));
+        } finally {
+            deleteDirectory(targetPath);
+        }
+    }
+
+    @Test
+    @DisplayName("Should pass a content matching its declared type through unchanged")
+    void sniff_MatchingSignature_ReturnsSameContent() {
+        byte[] png = new byte[5000];
+        System.arraycopy(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }, 0, png, 0, 8);
+        Flux<DataBuffer> content = Flux.just(bufferFactory.wrap(Arrays.copyOfRange(png, 0, 3)),
+                bufferFactory.wrap(Arrays.copyOfRange(png, 3, 5000)));
+
+        DataBufferUtils.join(FileUtils.sniff(content, ThumbnailSupportedTypes.PNG))
+                .as(StepVerifier::create)
+                .assertNext(joined -> assertArrayEquals(png, FileUtils.readAndRelease(joined)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should check a content smaller than the sniffed length once it completes")
+    void sniff_SmallContent_ChecksOnComplete() {
+        Flux<DataBuffer> content = Flux.just(bufferFactory.wrap("RIFF\0\0\0\0WAVE".getBytes()));
+
+        FileUtils.sniff(content, AudioSupportedTypes.WAV)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should fail and cancel the rest of a content not matching its declared type")
+    void sniff_MismatchingSignature_CancelsContent() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger read = new AtomicInteger();
+        Flux<DataBuffer> content = Flux.range(0, 100)
+                .map($ -> bufferFactory.wrap("text".repeat(1024).getBytes()))
+                .doOnNext($ -> read.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true));
+
+        FileUtils.sniff(content, AudioSupportedTypes.MP3)
+                .as(StepVerifier::create)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        assertTrue(cancelled.get());
+        assertTrue(read.get() < 100);
+    }
+
+    @Test
+    @DisplayName("Should keep the buffer views open until the pipeline using them completes")
+    void withByteBuffers_ClosesViewsOnComplete() {
+        DataBuffer.ByteBufferIterator iterator = mock(DataBuffer.ByteBufferIterator.class);
+        when(iterator.hasNext()).thenReturn(true, false);
+        when(iterator.next()).thenReturn(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+        DataBuffer buffer = mock(DataBuffer.class);
+        when(buffer.readableByteBuffers()).thenReturn(iterator);
+
+        Sinks.One<Integer> written = Sinks.one();
+        StepVerifier.create(FileUtils.withByteBuffers(List.of(buffer), views -> written.asMono()
+                .map($ -> views[0].remaining())))
+                .then(() -> verify(iterator, never()).close())
+                .then(() -> written.tryEmitValue(0))
+                .expectNext(3)
+                .verifyComplete();
+
+        verify(iterator).close();
+    }
+
+    /**
+     * Deletes a directory and all its files.
+     *
+     * @param dir The directory to delete.
+     */
+    private void deleteDirectory(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
     }
 }
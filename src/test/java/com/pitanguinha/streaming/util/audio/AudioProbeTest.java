@@ -0,0 +1,210 @@
+package com.pitanguinha.streaming.util.audio;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+import org.springframework.core.io.buffer.*;
+
+import com.pitanguinha.streaming.utils.audio.*;
+
+import reactor.test.StepVerifier;
+import reactor.core.publisher.*;
+
+public class AudioProbeTest {
+    DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    @DisplayName("Should read the exact duration and the INFO tags of a WAV file split in many buffers")
+    void result_Wav_ReturnsDurationAndTags() {
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + 8 + 24000 + 24).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put(ascii("RIFF")).putInt(wav.capacity() - 8).put(ascii("WAVE"));
+        wav.put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(8000).putInt(8000).putShort((short) 1).putShort((short) 8);
+        wav.put(ascii("data")).putInt(24000).put(new byte[24000]);
+        wav.put(ascii("LIST")).putInt(16).put(ascii("INFO")).put(ascii("INAM")).putInt(4).put(ascii("Wav\0"));
+
+        AudioInfo info = probe(wav.array(), 1000).orElseThrow();
+
+        assertEquals(Duration.ofSeconds(3), info.duration());
+        assertEquals(Optional.of("00:00:03"), info.formattedDuration());
+        assertEquals("Wav", info.tags().get(AudioInfo.TITLE));
+    }
+
+    @Test
+    @DisplayName("Should read the Xing frame count and the ID3v2 tags of a VBR MP3 past a large ID3v2 tag")
+    void result_VbrMp3_ReturnsDurationAndTags() {
+        byte[] title = id3Frame("TIT2", "Vbr");
+        byte[] artist = id3Frame("TPE1", "Artist");
+        int tagSize = 100 * 1024;
+
+        ByteBuffer mp3 = ByteBuffer.allocate(10 + tagSize + 417 * 3);
+        mp3.put(ascii("ID3")).put((byte) 3).put((byte) 0).put((byte) 0).putInt(syncsafe(tagSize));
+        mp3.put(title).put(artist).position(10 + tagSize);
+
+        // MPEG-1 Layer III, 128 kbps, 44.1 kHz, stereo, with a Xing header of 100 frames
+        int frame = mp3.position();
+        mp3.putInt(0xFFFB9000);
+        mp3.position(frame + 36).put(ascii("Xing")).putInt(1).putInt(100);
+
+        AudioInfo info = probe(mp3.array(), 8192).orElseThrow();
+
+        assertEquals(Duration.ofMillis(100 * 1152 * 1000 / 44100), info.duration());
+        assertEquals("Vbr", info.tags().get(AudioInfo.TITLE));
+        assertEquals("Artist", info.tags().get(AudioInfo.ARTIST));
+    }
+
+    @Test
+    @DisplayName("Should compute the duration of a CBR MP3 from its size and read its ID3v1 tags")
+    void result_CbrMp3_ReturnsDurationAndTags() {
+        ByteBuffer mp3 = ByteBuffer.allocate(160000 + 128);
+        mp3.putInt(0xFFFB9000).position(160000);
+        mp3.put(ascii("TAG")).put(Arrays.copyOf(ascii("Cbr"), 30)).put(Arrays.copyOf(ascii("Artist"), 30))
+                .put(new byte[30]).put(ascii("2020"));
+
+        AudioInfo info = probe(mp3.array(), 4096).orElseThrow();
+
+        assertEquals(Duration.ofSeconds(10), info.duration());
+        assertEquals("Cbr", info.tags().get(AudioInfo.TITLE));
+        assertEquals("Artist", info.tags().get(AudioInfo.ARTIST));
+        assertEquals("2020", info.tags().get(AudioInfo.YEAR));
+    }
+
+    @Test
+    @DisplayName("Should read the total samples of the STREAMINFO block and the comments of a FLAC file")
+    void result_Flac_ReturnsDurationAndTags() {
+        long samples = 7 * 44100;
+        byte[] comments = vorbisComments("TITLE=Flac", "DATE=2021-05-01");
+
+        ByteBuffer flac = ByteBuffer.allocate(4 + 4 + 34 + 4 + comments.length + 1000);
+        flac.put(ascii("fLaC"));
+        flac.put((byte) 0).put(u24(34));
+        int streamInfo = flac.position();
+        flac.position(streamInfo + 10)
+                .put((byte) (44100 >> 12)).put((byte) (44100 >> 4)).put((byte) (((44100 & 0xF) << 4) | 0x2))
+                .put((byte) (0xF0 | (samples >> 32))).putInt((int) samples)
+                .position(streamInfo + 34);
+        flac.put((byte) 0x84).put(u24(comments.length)).put(comments);
+
+        AudioInfo info = probe(flac.array(), 16).orElseThrow();
+
+        assertEquals(Duration.ofSeconds(7), info.duration());
+        assertEquals("Flac", info.tags().get(AudioInfo.TITLE));
+        assertEquals("2021", info.tags().get(AudioInfo.YEAR));
+    }
+
+    @Test
+    @DisplayName("Should read the granule position of the last page and the comments of an Ogg Opus file")
+    void result_Opus_ReturnsDurationAndTags() {
+        ByteBuffer head = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        head.put(ascii("OpusHead")).put((byte) 1).put((byte) 2).putShort((short) 312).putInt(48000);
+        byte[] tags = concat(ascii("OpusTags"), vorbisComments("title=Opus", "artist=Artist"));
+
+        byte[] opus = concat(
+                oggPage(0, head.array()),
+                oggPage(0, tags),
+                oggPage(100_000, new byte[250]),
+                new byte[100_000],
+                oggPage(5 * 48000 + 312, new byte[100]));
+
+        AudioInfo info = probe(opus, 4096).orElseThrow();
+
+        assertEquals(Duration.ofSeconds(5), info.duration());
+        assertEquals("Opus", info.tags().get(AudioInfo.TITLE));
+        assertEquals("Artist", info.tags().get(AudioInfo.ARTIST));
+    }
+
+    @Test
+    @DisplayName("Should count the samples of the ADTS frames of an AAC file")
+    void result_Adts_ReturnsDuration() {
+        // 43 frames of 1024 samples at 44.1 kHz, 100 bytes each
+        ByteBuffer aac = ByteBuffer.allocate(43 * 100);
+        for (int i = 0; i < 43; i++)
+            aac.put(i * 100, new byte[] { (byte) 0xFF, (byte) 0xF1, (byte) 0x50, (byte) 0x80, (byte) (100 >> 3),
+                    (byte) ((100 & 0x7) << 5), 0 });
+
+        AudioInfo info = probe(aac.array(), 512).orElseThrow();
+
+        assertEquals(Duration.ofMillis(43 * 1024 * 1000 / 44100), info.duration());
+        assertTrue(info.tags().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return empty when the format is not recognized")
+    void result_Unknown_ReturnsEmpty() {
+        assertTrue(probe("not an audio file".getBytes(), 4).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should pass the content through without consuming it")
+    void observe_ReturnsSameContent() {
+        AudioProbe probe = new AudioProbe();
+
+        probe.observe(Flux.just(bufferFactory.wrap(new byte[] { 1, 2, 3 })))
+                .as(StepVerifier::create)
+                .expectNextMatches(dataBfr -> dataBfr.readableByteCount() == 3)
+                .verifyComplete();
+    }
+
+    /**
+     * Observes a file split in buffers of a given size and reads its result.
+     */
+    private Optional<AudioInfo> probe(byte[] file, int bufferSize) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < file.length; i += bufferSize)
+            buffers.add(bufferFactory.wrap(Arrays.copyOfRange(file, i, Math.min(file.length, i + bufferSize))));
+
+        AudioProbe probe = new AudioProbe();
+        probe.observe(Flux.fromIterable(buffers)).blockLast();
+        return probe.result();
+    }
+
+    private byte[] id3Frame(String id, String text) {
+        byte[] value = concat(new byte[] { 0 }, ascii(text));
+        return ByteBuffer.allocate(10 + value.length).put(ascii(id)).putInt(value.length).putShort((short) 0)
+                .put(value).array();
+    }
+
+    private byte[] vorbisComments(String... comments) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(4).put(ascii("test")).putInt(comments.length);
+        for (String comment : comments)
+            buffer.putInt(comment.length()).put(ascii(comment));
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private byte[] oggPage(long granule, byte[] packet) {
+        int segments = packet.length / 255 + 1;
+        ByteBuffer page = ByteBuffer.allocate(27 + segments + packet.length).order(ByteOrder.LITTLE_ENDIAN);
+        page.put(ascii("OggS")).put((byte) 0).put((byte) 0).putLong(granule).putInt(42).putInt(0).putInt(0)
+                .put((byte) segments);
+        for (int i = 0; i < segments - 1; i++)
+            page.put((byte) 255);
+        page.put((byte) (packet.length % 255)).put(packet);
+        return page.array();
+    }
+
+    private byte[] concat(byte[]... parts) {
+        int length = Arrays.stream(parts).mapToInt(part -> part.length).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts)
+            buffer.put(part);
+        return buffer.array();
+    }
+
+    private byte[] u24(int value) {
+        return new byte[] { (byte) (value >> 16), (byte) (value >> 8), (byte) value };
+    }
+
+    private int syncsafe(int value) {
+        return ((value & 0xFE00000) << 3) | ((value & 0x1FC000) << 2) | ((value & 0x3F80) << 1) | (value & 0x7F);
+    }
+
+    private byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}